@@ -0,0 +1,102 @@
+package src.com.learningpath;
+
+import src.com.learningpath.activities.Activity;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+
+/**
+ * Vista de solo lectura, con la interfaz de {@link Map}, de valores que {@link Progress} guarda en
+ * arreglos indexados por la posición de cada actividad en su Learning Path
+ * ({@link LearningPath#getActivitySlot}). Las búsquedas no calculan el hashCode de la actividad
+ * y la iteración sigue el orden de las posiciones.
+ *
+ * @param <K> El tipo de actividad.
+ * @param <V> El tipo de valor.
+ */
+class ActivitySlotMap<K extends Activity, V> extends AbstractMap<K, V> {
+
+    private final LearningPath learningPath;
+    private final Class<K> keyType;
+    private final IntFunction<V> valueAt;
+    private final IntSupplier size;
+
+    /**
+     * @param learningPath El Learning Path cuyas posiciones indexan los valores.
+     * @param keyType      El tipo de actividad de las claves.
+     * @param valueAt      El valor de una posición, o null si no tiene.
+     * @param size         El número de posiciones con valor.
+     */
+    ActivitySlotMap(LearningPath learningPath, Class<K> keyType, IntFunction<V> valueAt, IntSupplier size) {
+        this.learningPath = learningPath;
+        this.keyType = keyType;
+        this.valueAt = valueAt;
+        this.size = size;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!keyType.isInstance(key)) {
+            return null;
+        }
+        int slot = learningPath.getActivitySlot((Activity) key);
+        return slot < 0 ? null : valueAt.apply(slot);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size.getAsInt();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new Iterator<>() {
+                    private final int slots = learningPath.getActivitySlotCount();
+                    private int next = advance(0);
+
+                    private int advance(int slot) {
+                        while (slot < slots && valueAt.apply(slot) == null) {
+                            slot++;
+                        }
+                        return slot;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < slots;
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        if (next >= slots) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<K, V> entry = new SimpleImmutableEntry<>(
+                                keyType.cast(learningPath.getActivityAt(next)), valueAt.apply(next));
+                        next = advance(next + 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ActivitySlotMap.this.size();
+            }
+        };
+    }
+}
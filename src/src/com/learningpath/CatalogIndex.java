@@ -0,0 +1,284 @@
+package src.com.learningpath;
+
+import java.util.*;
+
+/**
+ * Índice del catálogo para las consultas con filtros y orden ({@link CatalogQuery}). Los Learning
+ * Paths se reparten en celdas por dificultad y por tramo de duración ({@link #DURATION_BOUNDS}),
+ * y cada celda los guarda ordenados por dificultad, duración y calificación. Una consulta solo
+ * recorre las celdas que se solapan con sus filtros, dentro de cada una empieza en el rango o el
+ * cursor pedidos, y mezcla las celdas en orden hasta llenar la página. Solo se descartan
+ * resultados en las celdas del borde del rango de duración, o por calificación mínima si no se
+ * ordena por calificación.
+ *
+ * El índice guarda una copia de los atributos de cada Learning Path y la actualiza cuando el
+ * Learning Path avisa de un cambio ({@link LearningPathListener}): al añadir o eliminar
+ * actividades y al cambiar la calificación.
+ */
+public class CatalogIndex implements LearningPathListener {
+
+    /**
+     * Límites superiores (excluidos) de los tramos de duración, en minutos; el último tramo no
+     * tiene límite.
+     */
+    static final int[] DURATION_BOUNDS = {30, 60, 120, 240, 480};
+
+    private static final CatalogQuery.SortKey[] KEYS = CatalogQuery.SortKey.values();
+
+    /**
+     * Atributos de un Learning Path en el momento de indexarlo.
+     */
+    private static final class Entry {
+        final LearningPath learningPath;
+        final long id;
+        final int difficulty;
+        final int duration;
+        final double rating;
+
+        Entry(LearningPath learningPath, long id, int difficulty, int duration, double rating) {
+            this.learningPath = learningPath;
+            this.id = id;
+            this.difficulty = difficulty;
+            this.duration = duration;
+            this.rating = rating;
+        }
+
+        double value(CatalogQuery.SortKey key) {
+            switch (key) {
+                case DIFFICULTY:
+                    return difficulty;
+                case DURATION:
+                    return duration;
+                default:
+                    return rating;
+            }
+        }
+
+        /**
+         * Entrada ficticia para buscar una posición en un orden.
+         */
+        static Entry probe(CatalogQuery.SortKey key, double value, long id) {
+            return new Entry(null, id, (int) value, (int) value, value);
+        }
+    }
+
+    /**
+     * Learning Paths de una dificultad y un tramo de duración.
+     */
+    private static final class Cell {
+        // Un conjunto ordenado por cada clave, en el orden de KEYS
+        final List<NavigableSet<Entry>> sorted = new ArrayList<>(KEYS.length);
+
+        Cell() {
+            for (CatalogQuery.SortKey key : KEYS) {
+                sorted.add(new TreeSet<>(ORDERS.get(key.ordinal())));
+            }
+        }
+    }
+
+    private static final List<Comparator<Entry>> ORDERS = new ArrayList<>(KEYS.length);
+
+    static {
+        for (CatalogQuery.SortKey key : KEYS) {
+            ORDERS.add(Comparator.<Entry>comparingDouble(entry -> entry.value(key))
+                    .thenComparingLong(entry -> entry.id));
+        }
+    }
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    // Dificultad → celdas por tramo de duración
+    private final NavigableMap<Integer, Cell[]> cells = new TreeMap<>();
+
+    static int durationBucket(int duration) {
+        int bucket = 0;
+        while (bucket < DURATION_BOUNDS.length && duration >= DURATION_BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    /**
+     * Añade un Learning Path al índice (o actualiza sus atributos si ya estaba).
+     *
+     * @param learningPath El Learning Path.
+     */
+    public synchronized void add(LearningPath learningPath) {
+        Entry old = entries.get(learningPath.getId());
+        if (old != null) {
+            for (NavigableSet<Entry> set : cell(old).sorted) {
+                set.remove(old);
+            }
+        }
+        Entry entry = new Entry(learningPath, learningPath.getId(), learningPath.getDifficultyLevel(),
+                learningPath.getDuration(), learningPath.getRating());
+        entries.put(entry.id, entry);
+        for (NavigableSet<Entry> set : cell(entry).sorted) {
+            set.add(entry);
+        }
+    }
+
+    private Cell cell(Entry entry) {
+        Cell[] row = cells.computeIfAbsent(entry.difficulty, d -> new Cell[DURATION_BOUNDS.length + 1]);
+        int bucket = durationBucket(entry.duration);
+        if (row[bucket] == null) {
+            row[bucket] = new Cell();
+        }
+        return row[bucket];
+    }
+
+    @Override
+    public synchronized void learningPathChanged(LearningPath learningPath) {
+        Entry old = entries.get(learningPath.getId());
+        // Solo se actualizan los Learning Paths de este índice
+        if (old != null && old.learningPath == learningPath) {
+            add(learningPath);
+        }
+    }
+
+    /**
+     * Número de Learning Paths indexados.
+     *
+     * @return El número de Learning Paths.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Resuelve una consulta.
+     *
+     * @param query La consulta.
+     * @return La página de resultados.
+     * @throws IllegalArgumentException Si el cursor no es válido para la consulta.
+     */
+    public synchronized CatalogPage query(CatalogQuery query) {
+        CatalogQuery.SortKey key = query.sortKey;
+        Comparator<Entry> ascending = ORDERS.get(key.ordinal());
+        Comparator<Entry> order = query.descending ? ascending.reversed() : ascending;
+        Entry after = query.cursor == null ? null : decodeCursor(query.cursor, key);
+        if (query.minDifficulty > query.maxDifficulty || query.minDuration > query.maxDuration) {
+            return new CatalogPage(new ArrayList<>(), null);
+        }
+
+        // Rango de la consulta sobre el atributo por el que se ordena (null si no tiene límite)
+        Entry low = null;
+        Entry high = null;
+        if (key == CatalogQuery.SortKey.DURATION) {
+            low = Entry.probe(key, query.minDuration, Long.MIN_VALUE);
+            high = Entry.probe(key, query.maxDuration, Long.MAX_VALUE);
+        } else if (key == CatalogQuery.SortKey.RATING && query.minRating != Double.NEGATIVE_INFINITY) {
+            low = Entry.probe(key, query.minRating, Long.MIN_VALUE);
+        }
+        // El cursor recorta el rango por el lado en el que empieza el recorrido
+        boolean lowInclusive = true;
+        boolean highInclusive = true;
+        if (after != null && !query.descending && (low == null || ascending.compare(after, low) >= 0)) {
+            low = after;
+            lowInclusive = false;
+        } else if (after != null && query.descending && (high == null || ascending.compare(after, high) <= 0)) {
+            high = after;
+            highInclusive = false;
+        }
+        if (low != null && high != null && ascending.compare(low, high) > 0) {
+            return new CatalogPage(new ArrayList<>(), null);
+        }
+
+        // Una fuente ordenada por celda, empezando en el rango y el cursor de la consulta
+        PriorityQueue<Source> sources = new PriorityQueue<>((a, b) -> order.compare(a.head, b.head));
+        int firstBucket = durationBucket(query.minDuration);
+        int lastBucket = durationBucket(query.maxDuration);
+        for (Cell[] row : cells.subMap(query.minDifficulty, true, query.maxDifficulty, true).values()) {
+            for (int bucket = firstBucket; bucket <= lastBucket; bucket++) {
+                if (row[bucket] == null) {
+                    continue;
+                }
+                NavigableSet<Entry> view = range(row[bucket].sorted.get(key.ordinal()), low, lowInclusive, high, highInclusive);
+                if (query.descending) {
+                    view = view.descendingSet();
+                }
+                Source source = new Source(view.iterator());
+                if (source.advance()) {
+                    sources.add(source);
+                }
+            }
+        }
+
+        // Se pide un resultado más para saber si hay otra página
+        List<Entry> found = new ArrayList<>(query.limit + 1);
+        while (found.size() <= query.limit && !sources.isEmpty()) {
+            Source source = sources.poll();
+            Entry entry = source.head;
+            if (matches(entry, query)) {
+                found.add(entry);
+            }
+            if (source.advance()) {
+                sources.add(source);
+            }
+        }
+        boolean more = found.size() > query.limit;
+        if (more) {
+            found.remove(found.size() - 1);
+        }
+        List<LearningPath> page = new ArrayList<>(found.size());
+        for (Entry entry : found) {
+            page.add(entry.learningPath);
+        }
+        String next = more ? encodeCursor(found.get(found.size() - 1), key) : null;
+        return new CatalogPage(page, next);
+    }
+
+    /**
+     * Recorta el conjunto ordenado de una celda a un rango (los límites null no recortan).
+     */
+    private static NavigableSet<Entry> range(NavigableSet<Entry> set, Entry low, boolean lowInclusive,
+                                             Entry high, boolean highInclusive) {
+        if (low != null && high != null) {
+            return set.subSet(low, lowInclusive, high, highInclusive);
+        }
+        if (low != null) {
+            return set.tailSet(low, lowInclusive);
+        }
+        if (high != null) {
+            return set.headSet(high, highInclusive);
+        }
+        return set;
+    }
+
+    private static boolean matches(Entry entry, CatalogQuery query) {
+        return entry.duration >= query.minDuration && entry.duration <= query.maxDuration
+                && entry.rating >= query.minRating;
+    }
+
+    private static String encodeCursor(Entry entry, CatalogQuery.SortKey key) {
+        return key.name() + ":" + entry.value(key) + ":" + entry.id;
+    }
+
+    private static Entry decodeCursor(String cursor, CatalogQuery.SortKey key) {
+        String[] parts = cursor.split(":");
+        if (parts.length != 3 || !parts[0].equals(key.name())) {
+            throw new IllegalArgumentException("Cursor no válido para esta consulta: " + cursor);
+        }
+        try {
+            return Entry.probe(key, Double.parseDouble(parts[1]), Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor no válido: " + cursor, e);
+        }
+    }
+
+    /**
+     * Iterador de una celda con su siguiente elemento a la vista.
+     */
+    private static final class Source {
+        final Iterator<Entry> iterator;
+        Entry head;
+
+        Source(Iterator<Entry> iterator) {
+            this.iterator = iterator;
+        }
+
+        boolean advance() {
+            head = iterator.hasNext() ? iterator.next() : null;
+            return head != null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package src.com.learningpath;
+
+import java.util.List;
+
+/**
+ * Una página de resultados de una {@link CatalogQuery}.
+ */
+public class CatalogPage {
+
+    private final List<LearningPath> learningPaths;
+    private final String nextCursor;
+
+    CatalogPage(List<LearningPath> learningPaths, String nextCursor) {
+        this.learningPaths = learningPaths;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<LearningPath> getLearningPaths() {
+        return learningPaths;
+    }
+
+    /**
+     * Cursor para pedir la página siguiente con {@link CatalogQuery#after(String)}. Identifica la
+     * posición del último resultado en el orden de la consulta, así que sigue siendo válido aunque
+     * el catálogo cambie entre páginas.
+     *
+     * @return El cursor, o null si no hay más resultados.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
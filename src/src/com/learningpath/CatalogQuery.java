@@ -0,0 +1,115 @@
+package src.com.learningpath;
+
+/**
+ * Consulta sobre el catálogo de Learning Paths: filtros por dificultad, duración y calificación,
+ * un orden y el tamaño de página. Se resuelve con {@link CatalogIndex#query}.
+ *
+ * Los métodos de configuración devuelven la propia consulta para poder encadenarlos:
+ * {@code new CatalogQuery().difficultyBetween(1, 2).durationLessThan(120).orderBy(SortKey.RATING, true)}.
+ */
+public class CatalogQuery {
+
+    /**
+     * Atributo por el que se ordenan los resultados. Los empates se ordenan por identificador.
+     */
+    public enum SortKey {
+        DIFFICULTY,
+        DURATION,
+        RATING
+    }
+
+    int minDifficulty = Integer.MIN_VALUE;
+    int maxDifficulty = Integer.MAX_VALUE;
+    int minDuration = Integer.MIN_VALUE;
+    int maxDuration = Integer.MAX_VALUE;
+    double minRating = Double.NEGATIVE_INFINITY;
+    SortKey sortKey = SortKey.RATING;
+    boolean descending = true;
+    int limit = 20;
+    String cursor;
+
+    /**
+     * Limita la dificultad a un rango.
+     *
+     * @param min Dificultad mínima (incluida).
+     * @param max Dificultad máxima (incluida).
+     * @return Esta consulta.
+     */
+    public CatalogQuery difficultyBetween(int min, int max) {
+        this.minDifficulty = min;
+        this.maxDifficulty = max;
+        return this;
+    }
+
+    /**
+     * Limita la duración a un rango, en minutos.
+     *
+     * @param min Duración mínima (incluida).
+     * @param max Duración máxima (incluida).
+     * @return Esta consulta.
+     */
+    public CatalogQuery durationBetween(int min, int max) {
+        this.minDuration = min;
+        this.maxDuration = max;
+        return this;
+    }
+
+    /**
+     * Limita la duración a menos de un número de minutos.
+     *
+     * @param max Duración máxima (excluida).
+     * @return Esta consulta.
+     */
+    public CatalogQuery durationLessThan(int max) {
+        return durationBetween(minDuration, max - 1);
+    }
+
+    /**
+     * Exige una calificación mínima.
+     *
+     * @param min Calificación mínima (incluida).
+     * @return Esta consulta.
+     */
+    public CatalogQuery minRating(double min) {
+        this.minRating = min;
+        return this;
+    }
+
+    /**
+     * Establece el orden de los resultados (por defecto, de mayor a menor calificación).
+     *
+     * @param key        El atributo.
+     * @param descending True para ordenar de mayor a menor.
+     * @return Esta consulta.
+     */
+    public CatalogQuery orderBy(SortKey key, boolean descending) {
+        this.sortKey = key;
+        this.descending = descending;
+        return this;
+    }
+
+    /**
+     * Establece el tamaño de página.
+     *
+     * @param limit Número máximo de resultados (al menos 1).
+     * @return Esta consulta.
+     */
+    public CatalogQuery limit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("El tamaño de página debe ser positivo: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Continúa a partir de una página anterior.
+     *
+     * @param cursor El cursor de {@link CatalogPage#getNextCursor()}, o null para empezar.
+     * @return Esta consulta.
+     */
+    public CatalogQuery after(String cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+}
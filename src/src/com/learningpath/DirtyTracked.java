@@ -0,0 +1,25 @@
+package src.com.learningpath;
+
+/**
+ * Entidad que recuerda si cambió desde la última vez que se guardó, para que la capa de
+ * persistencia solo vuelva a escribir lo modificado.
+ */
+public interface DirtyTracked {
+
+    /**
+     * Indica si la entidad cambió desde que se guardó o se cargó por última vez.
+     *
+     * @return True si hay cambios sin guardar.
+     */
+    boolean isDirty();
+
+    /**
+     * Marca la entidad como modificada.
+     */
+    void markDirty();
+
+    /**
+     * Marca la entidad como guardada. La llama la capa de persistencia.
+     */
+    void markClean();
+}
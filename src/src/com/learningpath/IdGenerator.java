@@ -0,0 +1,45 @@
+package src.com.learningpath;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de identificadores numéricos estables para usuarios, Learning Paths, actividades y
+ * preguntas. Los identificadores se persisten junto con cada entidad; al cargar datos se llama a
+ * {@link #reserve(long)} para que los nuevos identificadores no repitan los existentes. El último
+ * identificador asignado también se guarda ({@link #current()}), para no repetir los de
+ * entidades que ya se borraron.
+ */
+public final class IdGenerator {
+
+    private static final AtomicLong lastId = new AtomicLong();
+
+    private IdGenerator() {
+    }
+
+    /**
+     * Obtiene un nuevo identificador único.
+     *
+     * @return El identificador (siempre mayor que 0).
+     */
+    public static long next() {
+        return lastId.incrementAndGet();
+    }
+
+    /**
+     * Último identificador asignado o reservado.
+     *
+     * @return El identificador (0 si no se ha asignado ninguno).
+     */
+    public static long current() {
+        return lastId.get();
+    }
+
+    /**
+     * Marca un identificador como usado, de modo que {@link #next()} devuelva valores mayores.
+     *
+     * @param id El identificador ya existente.
+     */
+    public static void reserve(long id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+}
@@ -1,42 +1,72 @@
 	package src.com.learningpath;
 	
 	import src.com.learningpath.activities.Activity;
-	import src.com.learningpath.activities.Assignment;
-	import src.com.learningpath.activities.Quiz;
-	import src.com.learningpath.activities.ResourceReview;
-	import src.com.learningpath.activities.Survey;
-	import src.com.learningpath.activities.OpenEndedExam;
+	import src.com.learningpath.activities.ActivityTemplate;
+		import src.com.learningpath.activities.Quiz;
+	import src.com.learningpath.users.Student;
 	import src.com.learningpath.users.Teacher;
 	
 	import java.io.Serializable;
 	import java.util.ArrayList;
-	import java.util.Arrays;
+	import java.util.Collections;
 	import java.util.Date;
-	import java.util.HashSet;
+	import java.util.HashMap;
+	import java.util.IdentityHashMap;
 	import java.util.List;
+	import java.util.Map;
 	import java.util.Objects;
 	import java.util.Set;
+	import java.util.concurrent.CopyOnWriteArrayList;
 	
 	/**
 	 * La clase LearningPath representa un camino de aprendizaje creado por un profesor.
 	 * Permite gestionar actividades, feedback y versiones.
 	 */
-	public class LearningPath implements Serializable {
+	public class LearningPath implements Serializable, DirtyTracked {
 	    private static final long serialVersionUID = 1L;
 	
+	    /**
+	     * Fuente de las actividades de un Learning Path cargado sin ellas (por ejemplo, desde el
+	     * catálogo mapeado en memoria). Se consulta una sola vez, en el primer acceso, y devuelve la
+	     * versión actual con su historial (ver {@link #restoreVersions}).
+	     */
+	    public interface ActivitySource {
+	        LearningPathVersion load();
+	    }
+	
+	    // Observadores de cambios (por ejemplo, el índice del catálogo de QueryService)
+	    private static final List<LearningPathListener> listeners = new CopyOnWriteArrayList<>();
+	
 	    // Atributos básicos del Learning Path
+	    private long id;
 	    private String title;
 	    private String description;
 	    private String objectives;
 	    private int difficultyLevel;
 	    private int duration; // en minutos
-	    private double rating;
+	    // Calificación que se muestra: la media de las calificaciones de los estudiantes, redondeada
+	    private volatile double rating;
+	    private RatingAggregate ratings = new RatingAggregate();
 	    private Date creationDate;
 	    private Date modificationDate;
 	    private String version;
+	    // Versión actual de las actividades, con su historial: es la única lista de actividades.
+	    // Null solo hasta que se cargan las actividades de su fuente diferida
+	    private LearningPathVersion currentVersion;
 	    private Teacher creator;
+	    // Solo en los archivos guardados antes de las versiones; readObject la convierte en la
+	    // primera versión y la deja en null
 	    private List<Activity> activities;
 	    private List<String> feedbackList;
+	    private transient ActivitySource activitySource;
+	    // Índice denso de las actividades: cada una conserva su posición aunque se elimine, y
+	    // Progress guarda los estados en arreglos indexados por esa posición
+	    private transient List<Activity> activitySlots;
+	    private transient IdentityHashMap<Activity, Integer> slotByActivity;
+	    // Se descarta al cambiar las actividades o sus prerrequisitos
+	    private transient PrerequisiteGraph prerequisiteGraph;
+	    // Un Learning Path nuevo aún no se ha guardado
+	    private transient volatile boolean dirty = true;
 	
 	    /**
 	     * Constructor principal para crear un nuevo Learning Path.
@@ -48,16 +78,17 @@
 	     * @param creator        Profesor creador del Learning Path.
 	     */
 	    public LearningPath(String title, String description, String objectives, int difficultyLevel, Teacher creator) {
+	        this.id = IdGenerator.next();
 	        this.title = title;
 	        this.description = description;
 	        this.objectives = objectives;
 	        this.difficultyLevel = difficultyLevel;
 	        this.creator = creator;
-	        this.activities = new ArrayList<>();
 	        this.feedbackList = new ArrayList<>();
 	        this.creationDate = new Date();
 	        this.modificationDate = new Date();
 	        this.version = "1.0";
+	        this.currentVersion = LearningPathVersion.initial(1, new ArrayList<>());
 	        this.duration = 0;
 	        this.rating = 0.0;
 	    }
@@ -69,145 +100,274 @@
 	     * @param newCreator El profesor que será el creador del nuevo Learning Path.
 	     */
 	    public LearningPath(LearningPath original, Teacher newCreator) {
+	        this.id = IdGenerator.next();
 	        this.title = original.title + " (Copia)";
 	        this.description = original.description;
 	        this.objectives = original.objectives;
 	        this.difficultyLevel = original.difficultyLevel;
 	        this.creator = newCreator;
-	        this.activities = new ArrayList<>();
-	        for (Activity activity : original.activities) {
-	            this.activities.add(copyActivity(activity));
+	        List<Activity> originalActivities = original.getActivities();
+	        List<Activity> copiedActivities = new ArrayList<>(originalActivities.size());
+	        Map<Activity, Activity> copies = new HashMap<>();
+	        for (Activity activity : originalActivities) {
+	            // La copia comparte el contenido (la plantilla) del original
+	            Activity copy = ActivityTemplate.of(activity).instantiate();
+	            copies.put(activity, copy);
+	            copiedActivities.add(copy);
+	        }
+	        // Los prerrequisitos se enlazan entre las copias (por igualdad: pueden apuntar a una
+	        // actividad que la versión actual sustituyó por una copia con otros prerrequisitos)
+	        for (Activity activity : originalActivities) {
+	            for (Activity prerequisite : activity.getSuggestedPrerequisites()) {
+	                Activity copiedPrerequisite = copies.get(prerequisite);
+	                if (copiedPrerequisite != null) {
+	                    copies.get(activity).addSuggestedPrerequisite(copiedPrerequisite);
+	                }
+	            }
 	        }
 	        this.feedbackList = new ArrayList<>();
 	        this.creationDate = new Date();
 	        this.modificationDate = new Date();
 	        this.version = "1.0";
+	        this.currentVersion = LearningPathVersion.initial(1, copiedActivities);
 	        this.duration = original.duration;
+	        // La media y las calificaciones en las que se basa se copian juntas
+	        this.ratings = new RatingAggregate(original.getRatings());
 	        this.rating = original.rating;
 	    }
 	
-	    /**
-	     * Método auxiliar para copiar una actividad.
-	     * Dependiendo del tipo de actividad, implementa la lógica de copia adecuada.
-	     *
-	     * @param activity La actividad a copiar.
-	     * @return La copia de la actividad.
-	     */
-	    private Activity copyActivity(Activity activity) {
-	        if (activity instanceof Assignment) {
-	            Assignment original = (Assignment) activity;
-	            return new Assignment(
-	                original.getTitle(),
-	                original.getDescription(),
-	                original.getObjective(),
-	                original.getDifficultyLevel(),
-	                original.getExpectedDuration(),
-	                original.isMandatory(),
-	                original.getSubmissionInstructions()
-	            );
-	        } else if (activity instanceof Quiz) {
-	            Quiz original = (Quiz) activity;
-	            // Clonar las preguntas
-	            List<src.com.learningpath.activities.Question> clonedQuestions = new ArrayList<>();
-	            for (src.com.learningpath.activities.Question q : original.getQuestions()) {
-	                clonedQuestions.add(new src.com.learningpath.activities.Question(
-	                    q.getQuestionText(),
-	                    q.getOptions().clone(), // Clonar el arreglo de opciones
-	                    q.getCorrectOptionIndex(),
-	                    q.getExplanation()
-	                ));
-	            }
-	            return new Quiz(
-	                original.getTitle(),
-	                original.getDescription(),
-	                original.getObjective(),
-	                original.getDifficultyLevel(),
-	                original.getExpectedDuration(),
-	                original.isMandatory(),
-	                clonedQuestions,
-	                original.getPassingScore()
-	            );
-	        } else if (activity instanceof ResourceReview) {
-	            ResourceReview original = (ResourceReview) activity;
-	            return new ResourceReview(
-	                original.getTitle(),
-	                original.getDescription(),
-	                original.getObjective(),
-	                original.getDifficultyLevel(),
-	                original.getExpectedDuration(),
-	                original.isMandatory(),
-	                original.getResourceLink()
-	            );
-	        } else if (activity instanceof Survey) {
-	            Survey original = (Survey) activity;
-	            Survey copiedSurvey = new Survey(
-	                original.getTitle(),
-	                original.getDescription(),
-	                original.getObjective(),
-	                original.getDifficultyLevel(),
-	                original.getExpectedDuration(),
-	                original.isMandatory()
-	            );
-	            for (src.com.learningpath.activities.SurveyQuestion sq : original.getSurveyQuestions()) {
-	                copiedSurvey.addSurveyQuestion(new src.com.learningpath.activities.SurveyQuestion(sq.getQuestionText()));
-	            }
-	            return copiedSurvey;
-	        } else if (activity instanceof OpenEndedExam) {
-	            OpenEndedExam original = (OpenEndedExam) activity;
-	            List<src.com.learningpath.activities.OpenEndedQuestion> clonedQuestions = new ArrayList<>();
-	            for (src.com.learningpath.activities.OpenEndedQuestion q : original.getExamQuestions()) {
-	                clonedQuestions.add(new src.com.learningpath.activities.OpenEndedQuestion(q.getQuestionText()));
-	            }
-	            return new OpenEndedExam(
-	                original.getTitle(),
-	                original.getDescription(),
-	                original.getObjective(),
-	                original.getDifficultyLevel(),
-	                original.getExpectedDuration(),
-	                original.isMandatory(),
-	                new HashSet<>(Arrays.asList(src.com.learningpath.activities.ActivityType.EXAMEN)),
-	                clonedQuestions
-	            );
-	        }
-	        // Añadir más casos para otros tipos de actividades si es necesario
-	        else {
-	            throw new UnsupportedOperationException("Tipo de actividad no soportado para copia.");
-	        }
-	    }
-	
 	    // Métodos para gestionar actividades
 	
 	    /**
-	     * Añade una actividad al Learning Path.
+	     * Añade una actividad al Learning Path, creando una versión nueva.
 	     *
 	     * @param activity La actividad a añadir.
 	     * @return True si se añade exitosamente, false en caso contrario.
 	     */
 	    public boolean addActivity(Activity activity) {
 	        if (activity != null) {
-	            this.activities.add(activity);
+	            LearningPathVersion base = getCurrentVersion();
+	            commitVersion(base, Collections.singletonList(
+	                    new LearningPathVersion.Change(LearningPathVersion.Change.Kind.ADDED, activity, base.getActivityCount())));
+	            assignActivitySlot(activity);
+	            invalidatePrerequisiteGraph();
 	            this.duration += activity.getExpectedDuration();
 	            this.modificationDate = new Date();
+	            this.dirty = true;
+	            fireChanged();
 	            return true;
 	        }
 	        return false;
 	    }
 	
 	    /**
-	     * Elimina una actividad del Learning Path.
+	     * Elimina una actividad del Learning Path, creando una versión nueva. Deja de ser
+	     * prerrequisito de las demás, que en la versión nueva se sustituyen por copias sin ella; los
+	     * progresos fijados a versiones anteriores conservan la actividad y sus prerrequisitos.
 	     *
 	     * @param activity La actividad a eliminar.
 	     * @return True si se elimina exitosamente, false en caso contrario.
 	     */
 	    public boolean removeActivity(Activity activity) {
-	        if (this.activities.remove(activity)) {
+	        LearningPathVersion base = getCurrentVersion();
+	        int position = base.indexOf(activity);
+	        if (position >= 0) {
+	            List<Activity> current = base.getActivities();
+	            Activity removed = current.get(position);
+	            List<LearningPathVersion.Change> changes = new ArrayList<>();
+	            changes.add(new LearningPathVersion.Change(LearningPathVersion.Change.Kind.REMOVED, removed, position));
+	            for (int i = 0; i < current.size(); i++) {
+	                Activity other = current.get(i);
+	                List<Activity> prerequisites = new ArrayList<>(other.getSuggestedPrerequisites());
+	                if (i != position && prerequisites.removeIf(removed::equals)) {
+	                    replace(changes, other, other.withSuggestedPrerequisites(prerequisites), i < position ? i : i - 1);
+	                }
+	            }
+	            commitVersion(base, changes);
+	            invalidatePrerequisiteGraph();
 	            this.duration -= activity.getExpectedDuration();
 	            this.modificationDate = new Date();
+	            this.dirty = true;
+	            fireChanged();
 	            return true;
 	        }
 	        return false;
 	    }
 	
+	    /**
+	     * Añade un prerrequisito a una actividad del Learning Path.
+	     *
+	     * @param activity     La actividad.
+	     * @param prerequisite La actividad que debe completarse antes.
+	     * @return True si se añade, false si ya era un prerrequisito.
+	     * @throws IllegalArgumentException Si alguna de las actividades no pertenece al Learning
+	     *                                  Path o si el prerrequisito formaría un ciclo.
+	     */
+	    public boolean addPrerequisite(Activity activity, Activity prerequisite) {
+	        LearningPathVersion base = getCurrentVersion();
+	        PrerequisiteGraph graph = getPrerequisiteGraph();
+	        int position = base.indexOf(activity);
+	        int prerequisitePosition = base.indexOf(prerequisite);
+	        if (position < 0 || prerequisitePosition < 0) {
+	            throw new IllegalArgumentException("Las actividades deben pertenecer al Learning Path");
+	        }
+	        if (position == prerequisitePosition || graph.requires(prerequisite, activity)) {
+	            throw new IllegalArgumentException("\"" + prerequisite.getTitle() + "\" no puede ser prerrequisito de \""
+	                    + activity.getTitle() + "\": se formaría un ciclo");
+	        }
+	        Activity current = base.getActivities().get(position);
+	        List<Activity> prerequisites = new ArrayList<>(current.getSuggestedPrerequisites());
+	        if (prerequisites.contains(prerequisite)) {
+	            return false;
+	        }
+	        // Las versiones anteriores conservan la actividad sin el prerrequisito
+	        prerequisites.add(base.getActivities().get(prerequisitePosition));
+	        List<LearningPathVersion.Change> changes = new ArrayList<>(2);
+	        replace(changes, current, current.withSuggestedPrerequisites(prerequisites), position);
+	        commitVersion(base, changes);
+	        invalidatePrerequisiteGraph();
+	        this.modificationDate = new Date();
+	        this.dirty = true;
+	        return true;
+	    }
+	
+	    /**
+	     * Corrige la opción correcta de una pregunta de un quiz en todas sus copias: las versiones
+	     * anteriores pueden tener el mismo quiz (mismo identificador) con otros prerrequisitos, y los
+	     * progresos fijados a ellas se corrigen con la misma clave.
+	     *
+	     * @param quiz               El quiz.
+	     * @param question           La posición de la pregunta.
+	     * @param correctOptionIndex La nueva opción correcta (desde 0).
+	     * @throws IllegalArgumentException Si la opción no existe.
+	     */
+	    public synchronized void setCorrectOptionIndex(Quiz quiz, int question, int correctOptionIndex) {
+	        quiz.setCorrectOptionIndex(question, correctOptionIndex);
+	        Set<Activity> corrected = Collections.newSetFromMap(new IdentityHashMap<>());
+	        corrected.add(quiz);
+	        List<Activity> copies = new ArrayList<>(getCurrentVersion().getAllActivities());
+	        if (activitySlots != null) {
+	            copies.addAll(activitySlots);
+	        }
+	        for (Activity copy : copies) {
+	            if (copy.equals(quiz) && copy instanceof Quiz && corrected.add(copy)) {
+	                ((Quiz) copy).setCorrectOptionIndex(question, correctOptionIndex);
+	            }
+	        }
+	        this.modificationDate = new Date();
+	        this.dirty = true;
+	    }
+	
+	    /**
+	     * Grafo de prerrequisitos de las actividades actuales. Se construye en la primera consulta y
+	     * se reutiliza hasta que cambian las actividades o sus prerrequisitos.
+	     *
+	     * @return El grafo.
+	     * @throws IllegalStateException Si los prerrequisitos forman un ciclo.
+	     */
+	    public synchronized PrerequisiteGraph getPrerequisiteGraph() {
+	        if (prerequisiteGraph == null) {
+	            prerequisiteGraph = new PrerequisiteGraph(this, getActivities());
+	        }
+	        return prerequisiteGraph;
+	    }
+	
+	    /**
+	     * Grafo de prerrequisitos de las actividades de una versión. El de la versión actual se
+	     * reutiliza; el de una versión anterior se construye en cada llamada.
+	     *
+	     * @param version La versión.
+	     * @return El grafo.
+	     * @throws IllegalStateException Si los prerrequisitos forman un ciclo.
+	     */
+	    public synchronized PrerequisiteGraph getPrerequisiteGraph(LearningPathVersion version) {
+	        if (version == getCurrentVersion()) {
+	            return getPrerequisiteGraph();
+	        }
+	        return new PrerequisiteGraph(this, version.getActivities());
+	    }
+	
+	    // Versiones
+	
+	    /**
+	     * Versión actual de las actividades, cargándolas de su fuente en el primer acceso si el
+	     * Learning Path se cargó solo con sus metadatos.
+	     *
+	     * @return La versión.
+	     */
+	    public synchronized LearningPathVersion getCurrentVersion() {
+	        if (currentVersion == null) {
+	            restoreVersions(activitySource.load());
+	        }
+	        return currentVersion;
+	    }
+	
+	    /**
+	     * Versiones del Learning Path, de la primera a la actual.
+	     *
+	     * @return Las versiones.
+	     */
+	    public List<LearningPathVersion> getVersions() {
+	        return getCurrentVersion().getHistory();
+	    }
+	
+	    /**
+	     * Busca una versión por su número.
+	     *
+	     * @param number El número de la versión.
+	     * @return La versión, o null si no existe.
+	     */
+	    public LearningPathVersion findVersion(int number) {
+	        return getCurrentVersion().find(number);
+	    }
+	
+	    /**
+	     * Sustituye las actividades por las de una versión cargada, con su historial, sin crear una
+	     * versión nueva ni avisar a los observadores. Una versión con número 0 (datos guardados sin
+	     * historial) pasa a ser la primera versión, con el número de {@link #getVersion()}.
+	     *
+	     * @param loaded La versión actual cargada.
+	     */
+	    public synchronized void restoreVersions(LearningPathVersion loaded) {
+	        if (loaded.getNumber() == 0) {
+	            loaded = LearningPathVersion.initial(versionNumber(version), loaded.getActivities());
+	        }
+	        this.currentVersion = loaded;
+	        this.version = loaded.getNumber() + ".0";
+	        this.activitySource = null;
+	        this.activitySlots = null;
+	        this.slotByActivity = null;
+	        this.prerequisiteGraph = null;
+	    }
+	
+	    private synchronized void commitVersion(LearningPathVersion base, List<LearningPathVersion.Change> changes) {
+	        currentVersion = base.next(changes);
+	        version = currentVersion.getNumber() + ".0";
+	    }
+	
+	    /**
+	     * Añade los cambios que sustituyen una actividad por su copia en la misma posición.
+	     */
+	    private static void replace(List<LearningPathVersion.Change> changes, Activity activity, Activity copy, int position) {
+	        changes.add(new LearningPathVersion.Change(LearningPathVersion.Change.Kind.REMOVED, activity, position));
+	        changes.add(new LearningPathVersion.Change(LearningPathVersion.Change.Kind.ADDED, copy, position));
+	    }
+	
+	    /**
+	     * Número de versión de una cadena como "3.0" (1 si no empieza por un número).
+	     */
+	    static int versionNumber(String version) {
+	        int end = 0;
+	        while (version != null && end < version.length() && end < 9 && Character.isDigit(version.charAt(end))) {
+	            end++;
+	        }
+	        return end == 0 ? 1 : Math.max(1, Integer.parseInt(version.substring(0, end)));
+	    }
+	
+	    private synchronized void invalidatePrerequisiteGraph() {
+	        prerequisiteGraph = null;
+	    }
+	
 	    /**
 	     * Muestra los detalles del Learning Path.
 	     */
@@ -217,22 +377,57 @@
 	        System.out.println("Objetivos: " + objectives);
 	        System.out.println("Nivel de Dificultad: " + difficultyLevel);
 	        System.out.println("Duración Total: " + duration + " minutos");
-	        System.out.println("Calificación: " + rating);
+	        System.out.println("Calificación: " + rating + " (" + ratings.getCount() + " calificaciones)");
 	        System.out.println("Creado el: " + creationDate);
 	        System.out.println("Última modificación: " + modificationDate);
 	        System.out.println("Versión: " + version);
 	        System.out.println("Creador: " + creator.getName());
-	        System.out.println("Número de Actividades: " + activities.size());
+	        System.out.println("Número de Actividades: " + getActivities().size());
 	    }
 	
 	    /**
-	     * Actualiza la calificación del Learning Path.
+	     * Establece directamente la calificación que se muestra, sin pasar por las calificaciones de
+	     * los estudiantes (la persistencia la usa al cargar; para calificar, ver {@link #rate}).
 	     *
 	     * @param newRating La nueva calificación.
 	     */
 	    public void updateRating(double newRating) {
 	        this.rating = newRating;
 	        this.modificationDate = new Date();
+	        this.dirty = true;
+	        fireChanged();
+	    }
+	
+	    /**
+	     * Registra la calificación de un estudiante (sustituye a la anterior si ya había calificado).
+	     * No toma ningún bloqueo: los acumuladores de {@link RatingAggregate} admiten muchos
+	     * estudiantes calificando a la vez, y los observadores solo se notifican cuando cambia la
+	     * calificación que se muestra ({@link #getRating()}, redondeada a dos decimales), algo cada vez
+	     * menos frecuente a medida que el Learning Path acumula calificaciones.
+	     *
+	     * @param student El estudiante.
+	     * @param stars   El número de estrellas, de {@link RatingAggregate#MIN_STARS} a
+	     *                {@link RatingAggregate#MAX_STARS}.
+	     * @throws IllegalArgumentException Si las estrellas están fuera del intervalo.
+	     */
+	    public void rate(Student student, int stars) {
+	        ratings.submit(student.getId(), stars);
+	        this.dirty = true;
+	        double mean = Math.round(ratings.getMean() * 100) / 100.0;
+	        if (mean != rating) {
+	            this.rating = mean;
+	            fireChanged();
+	        }
+	    }
+	
+	    /**
+	     * Calificaciones de los estudiantes: número, media, varianza, puntuación bayesiana e
+	     * histograma.
+	     *
+	     * @return Las calificaciones.
+	     */
+	    public RatingAggregate getRatings() {
+	        return ratings;
 	    }
 	
 	    /**
@@ -244,11 +439,16 @@
 	        if (feedback != null && !feedback.trim().isEmpty()) {
 	            this.feedbackList.add(feedback);
 	            this.modificationDate = new Date();
+	            this.dirty = true;
 	        }
 	    }
 	
 	    // Getters
 	
+	    public long getId() {
+	        return id;
+	    }
+	
 	    public String getTitle() {
 	        return title;
 	    }
@@ -289,14 +489,222 @@
 	        return creator;
 	    }
 	
+	    /**
+	     * Devuelve las actividades de la versión actual, cargándolas de su fuente en el primer
+	     * acceso si el Learning Path se cargó solo con sus metadatos. Para cambiarlas se usan
+	     * {@link #addActivity}, {@link #removeActivity} y {@link #addPrerequisite}, que crean una
+	     * versión nueva.
+	     *
+	     * @return Una vista de solo lectura de la versión actual.
+	     */
 	    public List<Activity> getActivities() {
-	        return activities;
+	        return getCurrentVersion().getActivities();
+	    }
+	
+	    /**
+	     * Indica si las actividades ya están en memoria.
+	     *
+	     * @return True si las actividades se cargaron o nunca tuvieron una fuente diferida.
+	     */
+	    public synchronized boolean isActivitiesLoaded() {
+	        return currentVersion != null;
 	    }
 	
 	    public List<String> getFeedbackList() {
 	        return feedbackList;
 	    }
 	
+	    // Seguimiento de cambios
+	
+	    @Override
+	    public boolean isDirty() {
+	        return dirty;
+	    }
+	
+	    @Override
+	    public void markDirty() {
+	        dirty = true;
+	    }
+	
+	    @Override
+	    public void markClean() {
+	        dirty = false;
+	    }
+	
+	    // Setters usados por la capa de persistencia al reconstruir un Learning Path
+	
+	    public void setId(long id) {
+	        this.id = id;
+	    }
+	
+	    public void setCreator(Teacher creator) {
+	        this.creator = creator;
+	    }
+	
+	    public void setCreationDate(Date creationDate) {
+	        this.creationDate = creationDate;
+	    }
+	
+	    public void setModificationDate(Date modificationDate) {
+	        this.modificationDate = modificationDate;
+	    }
+	
+	    /**
+	     * Cambia la versión que se muestra. Solo para la capa de persistencia, antes de
+	     * {@link #restoreVersions}; las versiones nuevas se crean al cambiar las actividades.
+	     *
+	     * @param version La versión, por ejemplo "3.0".
+	     */
+	    public void setVersion(String version) {
+	        this.version = version;
+	    }
+	
+	    public void setDuration(int duration) {
+	        this.duration = duration;
+	        fireChanged();
+	    }
+	
+	    /**
+	     * Difiere la carga de las actividades hasta el primer acceso.
+	     *
+	     * @param activitySource La fuente de las actividades.
+	     */
+	    public synchronized void setActivitySource(ActivitySource activitySource) {
+	        this.activitySource = activitySource;
+	        this.currentVersion = null;
+	        this.activitySlots = null;
+	        this.slotByActivity = null;
+	        this.prerequisiteGraph = null;
+	    }
+	
+	    public synchronized ActivitySource getActivitySource() {
+	        return activitySource;
+	    }
+	
+	    // Índice denso de actividades
+	
+	    /**
+	     * Posición de una actividad en el índice denso del Learning Path. Se busca primero por
+	     * identidad y, si no está, por igualdad (como hacía el mapa de estados de Progress).
+	     *
+	     * @param activity La actividad.
+	     * @return Su posición, o -1 si no pertenece al Learning Path.
+	     */
+	    public synchronized int getActivitySlot(Activity activity) {
+	        ensureActivitySlots();
+	        Integer slot = slotByActivity.get(activity);
+	        if (slot != null) {
+	            return slot;
+	        }
+	        for (int i = 0; i < activitySlots.size(); i++) {
+	            if (activitySlots.get(i).equals(activity)) {
+	                // Las copias con otros prerrequisitos ocupan la posición de la original
+	                slotByActivity.put(activity, i);
+	                return i;
+	            }
+	        }
+	        return -1;
+	    }
+	
+	    /**
+	     * Posición de una actividad en el índice denso, asignándole una nueva si no la tiene.
+	     *
+	     * @param activity La actividad.
+	     * @return Su posición.
+	     */
+	    public synchronized int assignActivitySlot(Activity activity) {
+	        int slot = getActivitySlot(activity);
+	        if (slot < 0) {
+	            slot = activitySlots.size();
+	            activitySlots.add(activity);
+	            slotByActivity.put(activity, slot);
+	        }
+	        return slot;
+	    }
+	
+	    /**
+	     * Actividad que ocupa una posición del índice denso.
+	     *
+	     * @param slot La posición.
+	     * @return La actividad.
+	     */
+	    public synchronized Activity getActivityAt(int slot) {
+	        ensureActivitySlots();
+	        return activitySlots.get(slot);
+	    }
+	
+	    /**
+	     * Número de posiciones del índice denso (incluye las actividades eliminadas).
+	     *
+	     * @return El número de posiciones.
+	     */
+	    public synchronized int getActivitySlotCount() {
+	        ensureActivitySlots();
+	        return activitySlots.size();
+	    }
+	
+	    private void ensureActivitySlots() {
+	        if (activitySlots == null) {
+	            List<Activity> current = getActivities();
+	            activitySlots = new ArrayList<>(current.size());
+	            slotByActivity = new IdentityHashMap<>(current.size());
+	            for (Activity activity : current) {
+	                if (!slotByActivity.containsKey(activity)) {
+	                    slotByActivity.put(activity, activitySlots.size());
+	                    activitySlots.add(activity);
+	                }
+	            }
+	        }
+	    }
+	
+	    // Gestión de observadores
+	
+	    /**
+	     * Registra un observador que será notificado de los cambios en cualquier Learning Path.
+	     *
+	     * @param listener El observador a registrar.
+	     */
+	    public static void addListener(LearningPathListener listener) {
+	        if (listener != null && !listeners.contains(listener)) {
+	            listeners.add(listener);
+	        }
+	    }
+	
+	    /**
+	     * Elimina un observador previamente registrado.
+	     *
+	     * @param listener El observador a eliminar.
+	     */
+	    public static void removeListener(LearningPathListener listener) {
+	        listeners.remove(listener);
+	    }
+	
+	    private void fireChanged() {
+	        for (LearningPathListener listener : listeners) {
+	            listener.learningPathChanged(this);
+	        }
+	    }
+	
+	    private synchronized void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+	        // Las actividades diferidas se cargan antes de serializar
+	        getCurrentVersion();
+	        out.defaultWriteObject();
+	    }
+	
+	    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+	        in.defaultReadObject();
+	        // Los archivos antiguos solo tienen la lista de actividades
+	        if (currentVersion == null) {
+	            currentVersion = LearningPathVersion.initial(versionNumber(version),
+	                    activities != null ? activities : new ArrayList<>());
+	        }
+	        activities = null;
+	        // Los archivos antiguos no tienen calificaciones por estudiante
+	        if (ratings == null) {
+	            ratings = new RatingAggregate();
+	        }
+	    }
+	
 	    // Sobrescribir equals y hashCode basados en title y creator (asumiendo que juntos son únicos)
 	
 	    @Override
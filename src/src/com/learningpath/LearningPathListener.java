@@ -0,0 +1,17 @@
+package src.com.learningpath;
+
+/**
+ * Interfaz para observar los cambios en los atributos de un {@link LearningPath} por los que se
+ * filtra el catálogo (duración y calificación). Se registra mediante
+ * {@link LearningPath#addListener(LearningPathListener)}.
+ */
+public interface LearningPathListener {
+
+    /**
+     * Se invoca después de añadir o eliminar una actividad, o de cambiar la duración o la
+     * calificación del Learning Path.
+     *
+     * @param learningPath El Learning Path modificado.
+     */
+    void learningPathChanged(LearningPath learningPath);
+}
@@ -0,0 +1,279 @@
+package src.com.learningpath;
+
+import src.com.learningpath.activities.Activity;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Versión inmutable de las actividades de un Learning Path. Cada cambio en las actividades
+ * ({@link LearningPath#addActivity}, {@link LearningPath#removeActivity}) crea una versión nueva a
+ * partir de la anterior: la lista de actividades es una {@link PersistentList}, así que la versión
+ * nueva comparte con la anterior todo salvo los nodos del camino modificado, y leer cualquier
+ * versión antigua no requiere reconstruirla. Cada versión guarda además los cambios que la
+ * separan de la anterior, que es lo único que se persiste.
+ *
+ * Los progresos quedan fijados a la versión en la que se inscribió el estudiante
+ * ({@link Progress#getVersion()}) hasta que se actualizan. Las versiones comparten los objetos de
+ * actividad, que no se modifican una vez en una versión: al cambiar los prerrequisitos de una
+ * actividad, la versión nueva sustituye la actividad por una copia con el mismo identificador
+ * ({@link Activity#withSuggestedPrerequisites}). El contenido de cada actividad no se versiona.
+ */
+public final class LearningPathVersion implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Un cambio entre dos versiones.
+     */
+    public static final class Change implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        public enum Kind {
+            ADDED,
+            REMOVED
+        }
+
+        private final Kind kind;
+        private final Activity activity;
+        private final int position;
+
+        public Change(Kind kind, Activity activity, int position) {
+            this.kind = kind;
+            this.activity = activity;
+            this.position = position;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public Activity getActivity() {
+            return activity;
+        }
+
+        /**
+         * Posición de la actividad: en la versión nueva si se añadió, en la anterior si se eliminó.
+         *
+         * @return La posición (desde 0).
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        @Override
+        public String toString() {
+            return (kind == Kind.ADDED ? "+ " : "- ") + activity.getTitle() + " (posición " + (position + 1) + ")";
+        }
+    }
+
+    private final int number;
+    private final Date date;
+    private final LearningPathVersion previous;
+    private final PersistentList<Activity> activities;
+    private final List<Change> changes;
+
+    private LearningPathVersion(int number, Date date, LearningPathVersion previous,
+                                PersistentList<Activity> activities, List<Change> changes) {
+        this.number = number;
+        this.date = date;
+        this.previous = previous;
+        this.activities = activities;
+        this.changes = changes;
+    }
+
+    /**
+     * Primera versión conocida de un Learning Path: sus cambios añaden todas las actividades.
+     *
+     * @param number     El número de la versión.
+     * @param activities Las actividades.
+     * @return La versión.
+     */
+    public static LearningPathVersion initial(int number, List<Activity> activities) {
+        return replay(null, number, new Date(), added(activities));
+    }
+
+    private static List<Change> added(List<Activity> activities) {
+        List<Change> changes = new ArrayList<>(activities.size());
+        for (int i = 0; i < activities.size(); i++) {
+            changes.add(new Change(Change.Kind.ADDED, activities.get(i), i));
+        }
+        return changes;
+    }
+
+    /**
+     * Reconstruye una versión aplicando sus cambios a la anterior (al cargar el historial).
+     *
+     * @param previous La versión anterior, o null si es la primera.
+     * @param number   El número de la versión.
+     * @param date     La fecha de la versión.
+     * @param changes  Los cambios, en el orden en que se aplican.
+     * @return La versión.
+     * @throws IllegalArgumentException Si un cambio no corresponde a la versión anterior.
+     */
+    public static LearningPathVersion replay(LearningPathVersion previous, int number, Date date, List<Change> changes) {
+        PersistentList<Activity> list = previous == null ? PersistentList.empty() : previous.activities;
+        for (Change change : changes) {
+            if (change.kind == Change.Kind.ADDED) {
+                if (change.position < 0 || change.position > list.size()) {
+                    throw new IllegalArgumentException("Posición de la versión " + number + " fuera del Learning Path: " + change.position);
+                }
+                list = list.insert(change.position, change.activity);
+            } else {
+                if (change.position < 0 || change.position >= list.size() || list.get(change.position) != change.activity) {
+                    throw new IllegalArgumentException("La versión " + number + " elimina una actividad que no está en la posición "
+                            + change.position);
+                }
+                list = list.remove(change.position);
+            }
+        }
+        return new LearningPathVersion(number, new Date(date.getTime()), previous, list,
+                Collections.unmodifiableList(new ArrayList<>(changes)));
+    }
+
+    /**
+     * Versión siguiente con unos cambios.
+     */
+    LearningPathVersion next(List<Change> changes) {
+        return replay(this, number + 1, new Date(), changes);
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public Date getDate() {
+        return new Date(date.getTime());
+    }
+
+    /**
+     * Versión anterior.
+     *
+     * @return La versión, o null si es la primera.
+     */
+    public LearningPathVersion getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Cambios respecto a la versión anterior.
+     *
+     * @return Los cambios, de solo lectura.
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Actividades de la versión, en orden.
+     *
+     * @return Una vista de solo lectura (cada acceso por posición es O(log n)).
+     */
+    public List<Activity> getActivities() {
+        return activities.asList();
+    }
+
+    public int getActivityCount() {
+        return activities.size();
+    }
+
+    /**
+     * Posición de una actividad en esta versión. Se busca primero por identidad y, si no está,
+     * por igualdad, de modo que una actividad sustituida por una copia con otros prerrequisitos
+     * se encuentra en la posición de la copia.
+     *
+     * @param activity La actividad.
+     * @return Su posición, o -1 si no pertenece a esta versión.
+     */
+    public int indexOf(Activity activity) {
+        int index = activities.indexOf(activity);
+        return index >= 0 ? index : activities.asList().indexOf(activity);
+    }
+
+    /**
+     * Indica si una actividad (o una copia suya con otros prerrequisitos) pertenece a esta versión.
+     *
+     * @param activity La actividad.
+     * @return True si pertenece.
+     */
+    public boolean contains(Activity activity) {
+        return indexOf(activity) >= 0;
+    }
+
+    /**
+     * Busca una versión en el historial que termina en esta.
+     *
+     * @param number El número de la versión.
+     * @return La versión, o null si no está en el historial.
+     */
+    public LearningPathVersion find(int number) {
+        LearningPathVersion version = this;
+        while (version != null && version.number > number) {
+            version = version.previous;
+        }
+        return version != null && version.number == number ? version : null;
+    }
+
+    /**
+     * Historial que termina en esta versión.
+     *
+     * @return Las versiones, de la más antigua a esta.
+     */
+    public List<LearningPathVersion> getHistory() {
+        List<LearningPathVersion> history = new ArrayList<>();
+        for (LearningPathVersion version = this; version != null; version = version.previous) {
+            history.add(version);
+        }
+        Collections.reverse(history);
+        return history;
+    }
+
+    /**
+     * Actividades de esta versión seguidas de las que solo están en versiones anteriores, sin
+     * repetir. Son todas las actividades que hay que guardar para poder reconstruir el historial.
+     *
+     * @return Las actividades.
+     */
+    public List<Activity> getAllActivities() {
+        Set<Activity> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Activity> all = new ArrayList<>(activities.toList());
+        seen.addAll(all);
+        for (LearningPathVersion version = this; version != null; version = version.previous) {
+            for (Change change : version.changes) {
+                if (seen.add(change.activity)) {
+                    all.add(change.activity);
+                }
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Cambios que llevan de esta versión a otra (anterior o posterior) del mismo Learning Path:
+     * primero las actividades eliminadas, de la última a la primera, y después las añadidas en
+     * orden. Las actividades se comparan por igualdad: una actividad que solo cambió de
+     * prerrequisitos no aparece en los cambios.
+     *
+     * @param target La otra versión.
+     * @return Los cambios.
+     */
+    public List<Change> diff(LearningPathVersion target) {
+        List<Activity> from = activities.toList();
+        List<Activity> to = target.activities.toList();
+        Set<Activity> inTarget = new HashSet<>(to);
+        Set<Activity> kept = new HashSet<>();
+        List<Change> changes = new ArrayList<>();
+        for (int i = from.size() - 1; i >= 0; i--) {
+            if (inTarget.contains(from.get(i))) {
+                kept.add(from.get(i));
+            } else {
+                changes.add(new Change(Change.Kind.REMOVED, from.get(i), i));
+            }
+        }
+        for (int i = 0; i < to.size(); i++) {
+            if (!kept.contains(to.get(i))) {
+                changes.add(new Change(Change.Kind.ADDED, to.get(i), i));
+            }
+        }
+        return changes;
+    }
+}
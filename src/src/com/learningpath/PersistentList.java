@@ -0,0 +1,263 @@
+package src.com.learningpath;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lista inmutable y persistente: insertar o eliminar devuelve una lista nueva y deja la original
+ * intacta. Es un árbol AVL ordenado por posición (cada nodo guarda el tamaño de su subárbol), así
+ * que cada cambio solo copia los O(log n) nodos del camino hasta la posición y comparte el resto
+ * con la lista anterior. La usan las versiones de un Learning Path ({@link LearningPathVersion}).
+ *
+ * @param <E> El tipo de los elementos.
+ */
+public final class PersistentList<E> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final PersistentList<?> EMPTY = new PersistentList<>(null);
+
+    private static final class Node<E> implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final E value;
+        final Node<E> left;
+        final Node<E> right;
+        final int height;
+        final int size;
+
+        Node(E value, Node<E> left, Node<E> right) {
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    private final Node<E> root;
+
+    private PersistentList(Node<E> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentList<E> empty() {
+        return (PersistentList<E>) EMPTY;
+    }
+
+    public static <E> PersistentList<E> of(List<? extends E> values) {
+        return new PersistentList<>(build(values, 0, values.size()));
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Elemento de una posición, en O(log n).
+     *
+     * @param index La posición.
+     * @return El elemento.
+     * @throws IndexOutOfBoundsException Si la posición no existe.
+     */
+    public E get(int index) {
+        checkIndex(index, size());
+        Node<E> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.value;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Lista con un elemento insertado.
+     *
+     * @param index La posición del nuevo elemento (de 0 a size()).
+     * @param value El elemento.
+     * @return La nueva lista.
+     */
+    public PersistentList<E> insert(int index, E value) {
+        checkIndex(index, size() + 1);
+        return new PersistentList<>(insert(root, index, value));
+    }
+
+    public PersistentList<E> add(E value) {
+        return insert(size(), value);
+    }
+
+    /**
+     * Lista sin el elemento de una posición.
+     *
+     * @param index La posición.
+     * @return La nueva lista.
+     */
+    public PersistentList<E> remove(int index) {
+        checkIndex(index, size());
+        return new PersistentList<>(remove(root, index));
+    }
+
+    /**
+     * Posición de un elemento, comparando por identidad. Recorre el árbol en orden sin copiarlo.
+     *
+     * @param value El elemento.
+     * @return Su posición, o -1 si no está.
+     */
+    public int indexOf(Object value) {
+        return indexOf(root, value, 0);
+    }
+
+    /**
+     * Vista de solo lectura como {@link List}.
+     *
+     * @return La vista.
+     */
+    public List<E> asList() {
+        return new AbstractList<E>() {
+            @Override
+            public E get(int index) {
+                return PersistentList.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return PersistentList.this.size();
+            }
+        };
+    }
+
+    /**
+     * Copia de los elementos en orden (recorrido en O(n)).
+     *
+     * @return Una lista nueva.
+     */
+    public List<E> toList() {
+        List<E> values = new ArrayList<>(size());
+        collect(root, values);
+        return values;
+    }
+
+    private static int indexOf(Node<?> node, Object value, int offset) {
+        // Recursión por la izquierda (a lo sumo la altura del árbol) e iteración por la derecha
+        while (node != null) {
+            int found = indexOf(node.left, value, offset);
+            if (found >= 0) {
+                return found;
+            }
+            offset += size(node.left);
+            if (node.value == value) {
+                return offset;
+            }
+            offset++;
+            node = node.right;
+        }
+        return -1;
+    }
+
+    private static <E> void collect(Node<E> node, List<E> values) {
+        if (node != null) {
+            collect(node.left, values);
+            values.add(node.value);
+            collect(node.right, values);
+        }
+    }
+
+    private static <E> Node<E> build(List<? extends E> values, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        return new Node<>(values.get(mid), build(values, from, mid), build(values, mid + 1, to));
+    }
+
+    private static <E> Node<E> insert(Node<E> node, int index, E value) {
+        if (node == null) {
+            return new Node<>(value, null, null);
+        }
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            return balance(node.value, insert(node.left, index, value), node.right);
+        }
+        return balance(node.value, node.left, insert(node.right, index - leftSize - 1, value));
+    }
+
+    private static <E> Node<E> remove(Node<E> node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return balance(node.value, remove(node.left, index), node.right);
+        }
+        if (index > leftSize) {
+            return balance(node.value, node.left, remove(node.right, index - leftSize - 1));
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        // El sucesor (primer elemento del subárbol derecho) ocupa el lugar del eliminado
+        return balance(first(node.right), node.left, remove(node.right, 0));
+    }
+
+    private static <E> E first(Node<E> node) {
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.value;
+    }
+
+    private static <E> Node<E> balance(E value, Node<E> left, Node<E> right) {
+        int difference = height(left) - height(right);
+        if (difference > 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left.value, left.left, left.right);
+            }
+            return new Node<>(left.value, left.left, new Node<>(value, left.right, right));
+        }
+        if (difference < -1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.value, right.left, right.right);
+            }
+            return new Node<>(right.value, new Node<>(value, left, right.left), right.right);
+        }
+        return new Node<>(value, left, right);
+    }
+
+    private static <E> Node<E> rotateLeft(E value, Node<E> left, Node<E> right) {
+        return new Node<>(right.value, new Node<>(value, left, right.left), right.right);
+    }
+
+    private static <E> Node<E> rotateRight(E value, Node<E> left, Node<E> right) {
+        return new Node<>(left.value, left.left, new Node<>(value, left.right, right));
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Posición " + index + " fuera de una lista de " + size);
+        }
+    }
+
+    private Object readResolve() {
+        return root == null ? EMPTY : this;
+    }
+}
@@ -0,0 +1,197 @@
+package src.com.learningpath;
+
+import src.com.learningpath.activities.Activity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grafo de prerrequisitos de las actividades de un Learning Path. Al construirlo se comprueba que
+ * no haya ciclos, se calcula un orden topológico y, para cada actividad, el conjunto de todos sus
+ * prerrequisitos (directos o indirectos) como un bitset indexado por la posición de las
+ * actividades en el Learning Path ({@link LearningPath#getActivitySlot}). Así, saber si una
+ * actividad está desbloqueada para un {@link Progress} se reduce a unas pocas operaciones con
+ * palabras de 64 bits.
+ *
+ * El grafo es inmutable; {@link LearningPath} lo descarta al añadir o eliminar actividades o
+ * prerrequisitos y lo reconstruye en la siguiente consulta. Los prerrequisitos que no pertenecen
+ * al Learning Path se ignoran.
+ */
+public final class PrerequisiteGraph {
+
+    private final List<Activity> activities;
+    private final List<Activity> topologicalOrder;
+    // Posición de cada actividad (en el orden de activities) en el Learning Path
+    private final int[] slots;
+    // Prerrequisitos directos e indirectos de cada actividad (en el orden de activities)
+    private final long[][] required;
+    // Por igualdad: un prerrequisito puede apuntar a la actividad que una versión posterior
+    // sustituyó por una copia con otros prerrequisitos (mismo identificador)
+    private final Map<Activity, Integer> indexByActivity;
+
+    /**
+     * Construye el grafo de unas actividades de un Learning Path (las actuales o las de una de
+     * sus versiones).
+     *
+     * @param learningPath El Learning Path.
+     * @param activities   Las actividades.
+     * @throws IllegalStateException Si los prerrequisitos forman un ciclo.
+     */
+    PrerequisiteGraph(LearningPath learningPath, List<Activity> activities) {
+        this.activities = List.copyOf(activities);
+        int count = activities.size();
+        indexByActivity = new HashMap<>(count * 2);
+        slots = new int[count];
+        for (int i = 0; i < count; i++) {
+            indexByActivity.put(activities.get(i), i);
+            slots[i] = learningPath.assignActivitySlot(activities.get(i));
+        }
+        int words = (learningPath.getActivitySlotCount() + Long.SIZE - 1) / Long.SIZE;
+
+        // Orden topológico (algoritmo de Kahn), respetando el orden original entre independientes
+        int[][] prerequisites = new int[count][];
+        int[] pending = new int[count];
+        List<List<Integer>> dependents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            dependents.add(new ArrayList<>(2));
+        }
+        for (int i = 0; i < count; i++) {
+            List<Integer> direct = new ArrayList<>();
+            for (Activity prerequisite : activities.get(i).getSuggestedPrerequisites()) {
+                Integer p = indexByActivity.get(prerequisite);
+                if (p != null && !direct.contains(p)) {
+                    direct.add(p);
+                    dependents.get(p).add(i);
+                }
+            }
+            prerequisites[i] = direct.stream().mapToInt(Integer::intValue).toArray();
+            pending[i] = prerequisites[i].length;
+        }
+        int[] order = new int[count];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < count; i++) {
+            if (pending[i] == 0) {
+                order[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int current = order[head++];
+            for (int dependent : dependents.get(current)) {
+                if (--pending[dependent] == 0) {
+                    order[tail++] = dependent;
+                }
+            }
+        }
+        if (tail < count) {
+            List<String> cycle = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                if (pending[i] > 0) {
+                    cycle.add(activities.get(i).getTitle());
+                }
+            }
+            throw new IllegalStateException("Los prerrequisitos de " + learningPath.getTitle()
+                    + " forman un ciclo entre: " + String.join(", ", cycle));
+        }
+
+        // Cierre transitivo: en orden topológico, los prerrequisitos de cada actividad ya están calculados
+        required = new long[count][];
+        List<Activity> sorted = new ArrayList<>(count);
+        for (int i : order) {
+            long[] bits = new long[words];
+            for (int p : prerequisites[i]) {
+                long[] inherited = required[p];
+                for (int w = 0; w < words; w++) {
+                    bits[w] |= inherited[w];
+                }
+                bits[slots[p] >>> 6] |= 1L << slots[p];
+            }
+            required[i] = bits;
+            sorted.add(activities.get(i));
+        }
+        topologicalOrder = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * Actividades en un orden en el que cada una aparece después de todos sus prerrequisitos.
+     *
+     * @return El orden topológico, de solo lectura.
+     */
+    public List<Activity> getTopologicalOrder() {
+        return topologicalOrder;
+    }
+
+    /**
+     * Indica si una actividad requiere otra, directa o indirectamente.
+     *
+     * @param activity     La actividad.
+     * @param prerequisite La posible actividad previa.
+     * @return True si prerequisite es un prerrequisito (directo o indirecto) de activity.
+     */
+    public boolean requires(Activity activity, Activity prerequisite) {
+        Integer i = indexByActivity.get(activity);
+        Integer p = indexByActivity.get(prerequisite);
+        if (i == null || p == null) {
+            return false;
+        }
+        int slot = slots[p];
+        return (required[i][slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * Indica si una actividad está desbloqueada: todos sus prerrequisitos, directos o indirectos,
+     * están completados (o entregados).
+     *
+     * @param progress El progreso del estudiante.
+     * @param activity La actividad.
+     * @return True si la actividad está desbloqueada (también si no pertenece al grafo).
+     */
+    public boolean isUnlocked(Progress progress, Activity activity) {
+        Integer i = indexByActivity.get(activity);
+        return i == null || progress.hasCompletedAll(required[i]);
+    }
+
+    /**
+     * Actividades que el estudiante puede hacer ahora: desbloqueadas y aún sin completar ni
+     * entregar, en el orden del Learning Path.
+     *
+     * @param progress El progreso del estudiante.
+     * @return Las actividades disponibles.
+     */
+    public List<Activity> getAvailableActivities(Progress progress) {
+        List<Activity> available = new ArrayList<>();
+        for (int i = 0; i < activities.size(); i++) {
+            if (!progress.isCompletedAt(slots[i]) && progress.hasCompletedAll(required[i])) {
+                available.add(activities.get(i));
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Prerrequisitos (directos o indirectos) de una actividad que el estudiante aún no ha
+     * completado, en el orden del Learning Path.
+     *
+     * @param progress El progreso del estudiante.
+     * @param activity La actividad.
+     * @return Los prerrequisitos pendientes (vacío si está desbloqueada).
+     */
+    public List<Activity> getMissingPrerequisites(Progress progress, Activity activity) {
+        Integer index = indexByActivity.get(activity);
+        if (index == null) {
+            return Collections.emptyList();
+        }
+        long[] bits = required[index];
+        List<Activity> missing = new ArrayList<>();
+        for (int i = 0; i < activities.size(); i++) {
+            int slot = slots[i];
+            if ((bits[slot >>> 6] & (1L << slot)) != 0 && !progress.isCompletedAt(slot)) {
+                missing.add(activities.get(i));
+            }
+        }
+        return missing;
+    }
+}
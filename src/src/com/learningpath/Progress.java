@@ -3,21 +3,87 @@ package src.com.learningpath;
 import src.com.learningpath.activities.*;
 import src.com.learningpath.users.Student;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntFunction;
 
 /**
  * Clase que representa el progreso de un estudiante en un Learning Path.
+ *
+ * Los estados y las respuestas se guardan en arreglos indexados por la posición de cada actividad
+ * en el Learning Path ({@link LearningPath#getActivitySlot}): un byte por actividad para el estado,
+ * y arreglos de respuestas y puntuaciones que solo se crean con el primer valor. Los métodos que devuelven
+ * un {@link Map} devuelven vistas de solo lectura sobre esos arreglos.
+ *
+ * El progreso queda fijado a la versión del Learning Path en la que se inscribió el estudiante
+ * ({@link #getVersion()}): si el profesor añade o elimina actividades, el estudiante sigue viendo
+ * las de su versión hasta que se actualiza con {@link #upgradeToCurrentVersion()}.
  */
-public class Progress implements Serializable {
+public class Progress implements Serializable, DirtyTracked {
     private static final long serialVersionUID = 1L;
 
+    // La forma serializada sigue siendo la de los mapas, para leer los archivos antiguos
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("student", Student.class),
+            new ObjectStreamField("learningPath", LearningPath.class),
+            new ObjectStreamField("activityStatuses", Map.class),
+            new ObjectStreamField("surveyResponses", Map.class),
+            new ObjectStreamField("examResponses", Map.class),
+            new ObjectStreamField("quizScores", Map.class),
+            new ObjectStreamField("quizAttempts", Map.class),
+            new ObjectStreamField("version", int.class)
+    };
+
+    private static final ActivityStatus[] STATUSES = ActivityStatus.values();
+    // Cada contador ocupa 16 bits de un long, uno por estado
+    private static final int COUNT_BITS = 16;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    // Observadores de cambios (por ejemplo, el write-ahead log de DataManager)
+    private static final List<ProgressListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Comprobación de los contadores en cada cambio (para pruebas)
+    private static volatile boolean checkInvariants = Boolean.getBoolean("learningpath.checkInvariants");
+
     private Student student;
     private LearningPath learningPath;
-    private Map<Activity, ActivityStatus> activityStatuses;
-    private Map<Survey, SurveyResponse> surveyResponses;
-    private Map<OpenEndedExam, OpenEndedResponse> examResponses;
+    // Versión fijada; si solo se conoce su número (al deserializar) se resuelve en el primer acceso
+    private transient LearningPathVersion version;
+    private transient int versionNumber;
+    // Estado de cada posición: 0 si la actividad no tiene estado, si no ordinal + 1
+    private transient byte[] statuses;
+    private transient SurveyResponse[] surveyResponses;
+    private transient OpenEndedResponse[] examResponses;
+    // Puntuación (0-100) de cada quiz; NaN si no se ha hecho
+    private transient float[] quizScores;
+    // Intentos de cada quiz, una respuesta por byte (ver recordQuizAttempt); null si no hay
+    private transient byte[][][] quizAttempts;
+    private transient int quizAttemptSlotCount;
+    private transient int surveyResponseCount;
+    private transient int examResponseCount;
+    // Un progreso nuevo aún no se ha guardado
+    private transient volatile boolean dirty = true;
+    // Número de actividades en cada estado, empaquetado por ordinal; se derivan de statuses
+    private transient long statusCounts;
+    private transient long mandatoryStatusCounts;
+    // Posiciones completadas (o entregadas), un bit por posición; se crea con la primera
+    private transient long[] completedSlots;
+
+    static {
+        if (STATUSES.length * COUNT_BITS > Long.SIZE) {
+            throw new ExceptionInInitializerError("Demasiados estados de actividad para los contadores");
+        }
+    }
 
     /**
      * Constructor para crear un progreso de Learning Path.
@@ -28,12 +94,27 @@ public class Progress implements Serializable {
     public Progress(Student student, LearningPath learningPath) {
         this.student = student;
         this.learningPath = learningPath;
-        this.activityStatuses = new HashMap<>();
-        this.surveyResponses = new HashMap<>();
-        this.examResponses = new HashMap<>();
-        // Inicializar estados de actividades
-        for (Activity activity : learningPath.getActivities()) {
-            activityStatuses.put(activity, ActivityStatus.PENDING);
+        this.version = learningPath.getCurrentVersion();
+        // Inicializar estados de actividades. Los contadores se calculan aquí directamente, sin
+        // pasar por putStatus, para no llamar a métodos que se pueden redefinir (la comprobación
+        // de invariantes) antes de terminar de construir el progreso
+        List<Activity> activities = version.getActivities();
+        if (activities.size() > COUNT_MASK) {
+            throw new IllegalStateException("Demasiadas actividades en el estado " + ActivityStatus.PENDING);
+        }
+        int[] slots = new int[activities.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = learningPath.assignActivitySlot(activities.get(i));
+        }
+        this.statuses = new byte[learningPath.getActivitySlotCount()];
+        long pending = 1L << (ActivityStatus.PENDING.ordinal() * COUNT_BITS);
+        for (int i = 0; i < slots.length; i++) {
+            statuses[slots[i]] = (byte) (ActivityStatus.PENDING.ordinal() + 1);
+            if (activities.get(i).isMandatory()) {
+                mandatoryStatusCounts += pending;
+            } else {
+                statusCounts += pending;
+            }
         }
     }
 
@@ -67,39 +148,181 @@ public class Progress implements Serializable {
     }
 
     /**
-     * Establece el Learning Path asociado a este progreso.
+     * Establece el Learning Path asociado a este progreso. Los estados y respuestas se trasladan a
+     * las posiciones de las mismas actividades en el nuevo Learning Path, y el progreso queda
+     * fijado a su versión actual.
      *
      * @param learningPath El nuevo Learning Path.
      */
     public void setLearningPath(LearningPath learningPath) {
+        Map<Activity, ActivityStatus> oldStatuses = new LinkedHashMap<>(getActivityStatuses());
+        Map<Survey, SurveyResponse> oldSurveys = new LinkedHashMap<>(getSurveyResponses());
+        Map<OpenEndedExam, OpenEndedResponse> oldExams = new LinkedHashMap<>(getExamResponses());
+        Map<Quiz, Double> oldScores = new LinkedHashMap<>(getQuizScores());
+        Map<Quiz, List<int[]>> oldAttempts = new LinkedHashMap<>(getQuizAttempts());
         this.learningPath = learningPath;
+        this.version = learningPath.getCurrentVersion();
+        restore(oldStatuses, oldSurveys, oldExams, oldScores, oldAttempts);
+    }
+
+    // Versión fijada
+
+    /**
+     * Versión del Learning Path que sigue el estudiante.
+     *
+     * @return La versión.
+     */
+    public LearningPathVersion getVersion() {
+        if (version == null) {
+            version = learningPath.findVersion(versionNumber);
+            if (version == null) {
+                version = learningPath.getCurrentVersion();
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Fija la versión guardada al cargar los datos. Si ya no existe, se mantiene la actual.
+     *
+     * @param number El número de la versión.
+     */
+    public void restoreVersion(int number) {
+        LearningPathVersion found = learningPath.findVersion(number);
+        if (found != null) {
+            version = found;
+        }
+    }
+
+    /**
+     * Actividades de la versión que sigue el estudiante.
+     *
+     * @return Las actividades, de solo lectura.
+     */
+    public List<Activity> getActivities() {
+        return getVersion().getActivities();
+    }
+
+    /**
+     * Grafo de prerrequisitos de las actividades de la versión que sigue el estudiante.
+     *
+     * @return El grafo.
+     */
+    public PrerequisiteGraph getPrerequisiteGraph() {
+        return learningPath.getPrerequisiteGraph(getVersion());
+    }
+
+    /**
+     * Indica si el Learning Path tiene una versión más reciente que la del estudiante.
+     *
+     * @return True si hay una versión nueva.
+     */
+    public boolean isOutdated() {
+        return getVersion() != learningPath.getCurrentVersion();
+    }
+
+    /**
+     * Pasa el progreso a la versión actual del Learning Path. Las actividades nuevas quedan
+     * pendientes y las eliminadas dejan de contar para el avance (sus respuestas y puntuaciones
+     * se conservan). Los observadores reciben cada cambio de estado, como con
+     * {@link #updateActivityStatus}.
+     *
+     * @return Los cambios entre la versión anterior del estudiante y la actual.
+     */
+    public List<LearningPathVersion.Change> upgradeToCurrentVersion() {
+        LearningPathVersion current = learningPath.getCurrentVersion();
+        List<LearningPathVersion.Change> changes = getVersion().diff(current);
+        double completionBefore = calculateCompletionPercentage();
+        List<Activity> changed = new ArrayList<>();
+        List<ActivityStatus> previousStatuses = new ArrayList<>();
+        for (LearningPathVersion.Change change : changes) {
+            Activity activity = change.getActivity();
+            ActivityStatus previous = getActivityStatus(activity);
+            if (change.getKind() == LearningPathVersion.Change.Kind.ADDED) {
+                if (previous == null) {
+                    putStatus(activity, ActivityStatus.PENDING);
+                    changed.add(activity);
+                    previousStatuses.add(null);
+                }
+            } else if (!current.contains(activity) && previous != null) {
+                putStatus(activity, null);
+                changed.add(activity);
+                previousStatuses.add(previous);
+            }
+        }
+        version = current;
+        dirty = true;
+        double completion = calculateCompletionPercentage();
+        for (ProgressListener listener : listeners) {
+            for (int i = 0; i < changed.size(); i++) {
+                listener.activityStatusChanged(this, changed.get(i), previousStatuses.get(i), getActivityStatus(changed.get(i)));
+            }
+            if (completion != completionBefore) {
+                listener.completionChanged(this, completionBefore, completion);
+            }
+        }
+        return changes;
     }
 
     /**
      * Obtiene el estado de todas las actividades.
      *
-     * @return El mapa de actividades y sus estados.
+     * @return El mapa de actividades y sus estados, de solo lectura. Los estados se cambian con
+     * {@link #updateActivityStatus} para mantener los contadores.
      */
     public Map<Activity, ActivityStatus> getActivityStatuses() {
-        return activityStatuses;
+        return new ActivitySlotMap<>(learningPath, Activity.class, this::statusAt,
+                () -> total(statusCounts) + total(mandatoryStatusCounts));
     }
 
     /**
      * Obtiene las respuestas a las encuestas.
      *
-     * @return El mapa de encuestas y sus respuestas.
+     * @return El mapa de encuestas y sus respuestas, de solo lectura.
      */
     public Map<Survey, SurveyResponse> getSurveyResponses() {
-        return surveyResponses;
+        return new ActivitySlotMap<>(learningPath, Survey.class,
+                slot -> surveyResponses != null && slot < surveyResponses.length ? surveyResponses[slot] : null,
+                () -> surveyResponseCount);
     }
 
     /**
      * Obtiene las respuestas a los exámenes de preguntas abiertas.
      *
-     * @return El mapa de exámenes y sus respuestas.
+     * @return El mapa de exámenes y sus respuestas, de solo lectura.
      */
     public Map<OpenEndedExam, OpenEndedResponse> getExamResponses() {
-        return examResponses;
+        return new ActivitySlotMap<>(learningPath, OpenEndedExam.class,
+                slot -> examResponses != null && slot < examResponses.length ? examResponses[slot] : null,
+                () -> examResponseCount);
+    }
+
+    /**
+     * Obtiene las puntuaciones de los quizzes realizados.
+     *
+     * @return El mapa de quizzes y sus puntuaciones, de solo lectura.
+     */
+    public Map<Quiz, Double> getQuizScores() {
+        return new ActivitySlotMap<>(learningPath, Quiz.class, this::quizScoreAt, () -> {
+            int count = 0;
+            if (quizScores != null) {
+                for (float score : quizScores) {
+                    if (!Float.isNaN(score)) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Obtiene los intentos guardados de los quizzes.
+     *
+     * @return El mapa de quizzes y sus intentos, en orden de registro, de solo lectura.
+     */
+    public Map<Quiz, List<int[]>> getQuizAttempts() {
+        return new ActivitySlotMap<>(learningPath, Quiz.class, this::quizAttemptsAt, () -> quizAttemptSlotCount);
     }
 
     // Métodos para gestionar actividades
@@ -111,7 +334,16 @@ public class Progress implements Serializable {
      * @param status   El nuevo estado.
      */
     public void updateActivityStatus(Activity activity, ActivityStatus status) {
-        activityStatuses.put(activity, status);
+        double completionBefore = calculateCompletionPercentage();
+        ActivityStatus previous = putStatus(activity, status);
+        dirty = true;
+        double completion = calculateCompletionPercentage();
+        for (ProgressListener listener : listeners) {
+            listener.activityStatusChanged(this, activity, previous, status);
+            if (completion != completionBefore) {
+                listener.completionChanged(this, completionBefore, completion);
+            }
+        }
     }
 
     /**
@@ -121,22 +353,366 @@ public class Progress implements Serializable {
      * @return El estado de la actividad.
      */
     public ActivityStatus getActivityStatus(Activity activity) {
-        return activityStatuses.get(activity);
+        int slot = learningPath.getActivitySlot(activity);
+        return slot < 0 ? null : statusAt(slot);
     }
 
     /**
-     * Calcula el porcentaje de actividades completadas.
+     * Restaura el estado de una actividad al cargar los datos, sin notificar a los observadores.
+     *
+     * @param activity La actividad.
+     * @param status   El estado guardado.
+     */
+    public void restoreActivityStatus(Activity activity, ActivityStatus status) {
+        putStatus(activity, status);
+    }
+
+    /**
+     * Elimina todos los estados antes de restaurar los guardados.
+     */
+    public void clearActivityStatuses() {
+        Arrays.fill(statuses, (byte) 0);
+        statusCounts = 0;
+        mandatoryStatusCounts = 0;
+        completedSlots = null;
+        verifyCounts();
+    }
+
+    /**
+     * Obtiene el estado de la actividad que ocupa una posición del Learning Path
+     * ({@link LearningPath#getActivitySlot}), sin buscar la actividad. Pensado para recorrer
+     * muchos progresos del mismo Learning Path.
+     *
+     * @param slot La posición de la actividad.
+     * @return El estado, o null si la actividad no tiene estado.
+     */
+    public ActivityStatus getActivityStatusAt(int slot) {
+        return statusAt(slot);
+    }
+
+    private ActivityStatus statusAt(int slot) {
+        return slot < statuses.length && statuses[slot] != 0 ? STATUSES[statuses[slot] - 1] : null;
+    }
+
+    /**
+     * Cambia el estado de una actividad y actualiza los contadores en O(1).
+     */
+    private ActivityStatus putStatus(Activity activity, ActivityStatus status) {
+        int slot = learningPath.assignActivitySlot(activity);
+        if (slot >= statuses.length) {
+            statuses = Arrays.copyOf(statuses, Math.max(slot + 1, learningPath.getActivitySlotCount()));
+        }
+        ActivityStatus previous = statusAt(slot);
+        statuses[slot] = status == null ? 0 : (byte) (status.ordinal() + 1);
+        setCompleted(slot, status == ActivityStatus.COMPLETED || status == ActivityStatus.SUBMITTED);
+        long counts = activity.isMandatory() ? mandatoryStatusCounts : statusCounts;
+        if (previous != null) {
+            counts -= 1L << (previous.ordinal() * COUNT_BITS);
+        }
+        if (status != null) {
+            if (count(counts, status) == COUNT_MASK) {
+                throw new IllegalStateException("Demasiadas actividades en el estado " + status);
+            }
+            counts += 1L << (status.ordinal() * COUNT_BITS);
+        }
+        if (activity.isMandatory()) {
+            mandatoryStatusCounts = counts;
+        } else {
+            statusCounts = counts;
+        }
+        verifyCounts();
+        return previous;
+    }
+
+    /**
+     * Calcula el porcentaje de actividades obligatorias completadas (o entregadas). Si el
+     * Learning Path no tiene actividades obligatorias, se tienen en cuenta todas; si no tiene
+     * ninguna actividad, el porcentaje es 0.
      *
      * @return El porcentaje de completado.
      */
     public double calculateCompletionPercentage() {
-        int total = activityStatuses.size();
-        long completed = activityStatuses.values().stream()
-                .filter(status -> status == ActivityStatus.COMPLETED || status == ActivityStatus.SUBMITTED)
-                .count();
+        // Sin actividades obligatorias, mandatoryStatusCounts está a cero y se usan los demás
+        long counts = mandatoryStatusCounts != 0 ? mandatoryStatusCounts : statusCounts;
+        int total = total(counts);
+        if (total == 0) {
+            return 0;
+        }
+        int completed = count(counts, ActivityStatus.COMPLETED) + count(counts, ActivityStatus.SUBMITTED);
         return (double) completed / total * 100;
     }
 
+    /**
+     * Número de actividades en un estado.
+     *
+     * @param status El estado.
+     * @return El número de actividades en ese estado.
+     */
+    public int countActivities(ActivityStatus status) {
+        return count(statusCounts, status) + count(mandatoryStatusCounts, status);
+    }
+
+    /**
+     * Número de actividades pendientes.
+     *
+     * @return El número de actividades pendientes.
+     */
+    public int getPendingCount() {
+        return countActivities(ActivityStatus.PENDING);
+    }
+
+    /**
+     * Número de actividades no aprobadas.
+     *
+     * @return El número de actividades no aprobadas.
+     */
+    public int getFailedCount() {
+        return countActivities(ActivityStatus.FAILED);
+    }
+
+    private void setCompleted(int slot, boolean completed) {
+        int word = slot >>> 6;
+        if (completed) {
+            if (completedSlots == null || word >= completedSlots.length) {
+                int words = (Math.max(slot + 1, learningPath.getActivitySlotCount()) + Long.SIZE - 1) / Long.SIZE;
+                completedSlots = completedSlots == null ? new long[words] : Arrays.copyOf(completedSlots, words);
+            }
+            completedSlots[word] |= 1L << slot;
+        } else if (completedSlots != null && word < completedSlots.length) {
+            completedSlots[word] &= ~(1L << slot);
+        }
+    }
+
+    /**
+     * Indica si la actividad de una posición está completada (o entregada).
+     */
+    boolean isCompletedAt(int slot) {
+        int word = slot >>> 6;
+        return completedSlots != null && word < completedSlots.length && (completedSlots[word] & (1L << slot)) != 0;
+    }
+
+    /**
+     * Indica si todas las posiciones de un bitset están completadas (o entregadas). Lo usa
+     * {@link PrerequisiteGraph} para comprobar los prerrequisitos de una actividad.
+     *
+     * @param slots Bitset de posiciones, una palabra por cada 64.
+     */
+    boolean hasCompletedAll(long[] slots) {
+        for (int w = 0; w < slots.length; w++) {
+            long done = completedSlots != null && w < completedSlots.length ? completedSlots[w] : 0;
+            if ((slots[w] & ~done) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int count(long counts, ActivityStatus status) {
+        return (int) ((counts >>> (status.ordinal() * COUNT_BITS)) & COUNT_MASK);
+    }
+
+    private static int total(long counts) {
+        int total = 0;
+        for (ActivityStatus status : STATUSES) {
+            total += count(counts, status);
+        }
+        return total;
+    }
+
+    // Invariantes de los contadores
+
+    /**
+     * Activa o desactiva la comprobación de los contadores en cada cambio de estado. También se
+     * activa con la propiedad de sistema {@code learningpath.checkInvariants}.
+     *
+     * @param enabled True para comprobar los contadores.
+     */
+    public static void setInvariantChecks(boolean enabled) {
+        checkInvariants = enabled;
+    }
+
+    /**
+     * Comprueba que los contadores y el bitset de completadas coinciden con los estados de las
+     * actividades.
+     *
+     * @throws IllegalStateException Si no coinciden.
+     */
+    public void checkInvariants() {
+        long expected = 0;
+        long expectedMandatory = 0;
+        for (int slot = 0; slot < statuses.length; slot++) {
+            ActivityStatus status = statusAt(slot);
+            if (status != null) {
+                long increment = 1L << (status.ordinal() * COUNT_BITS);
+                if (learningPath.getActivityAt(slot).isMandatory()) {
+                    expectedMandatory += increment;
+                } else {
+                    expected += increment;
+                }
+            }
+            if (isCompletedAt(slot) != (status == ActivityStatus.COMPLETED || status == ActivityStatus.SUBMITTED)) {
+                throw new IllegalStateException("Bitset de actividades completadas inconsistente en la posición " + slot);
+            }
+        }
+        if (expected != statusCounts || expectedMandatory != mandatoryStatusCounts) {
+            throw new IllegalStateException("Contadores de estado inconsistentes: " + describeCounts(statusCounts)
+                    + " / " + describeCounts(mandatoryStatusCounts) + ", esperados " + describeCounts(expected)
+                    + " / " + describeCounts(expectedMandatory));
+        }
+    }
+
+    private static String describeCounts(long counts) {
+        int[] values = new int[STATUSES.length];
+        for (ActivityStatus status : STATUSES) {
+            values[status.ordinal()] = count(counts, status);
+        }
+        return Arrays.toString(values);
+    }
+
+    private void verifyCounts() {
+        if (checkInvariants) {
+            checkInvariants();
+        }
+    }
+
+    // Métodos para gestionar puntuaciones de quizzes
+
+    /**
+     * Registra la puntuación obtenida en un quiz.
+     *
+     * @param quiz  El quiz.
+     * @param score La puntuación, en porcentaje.
+     */
+    public void recordQuizScore(Quiz quiz, double score) {
+        restoreQuizScore(quiz, score);
+        dirty = true;
+        for (ProgressListener listener : listeners) {
+            listener.quizScoreRecorded(this, quiz, score);
+        }
+    }
+
+    /**
+     * Restaura la puntuación de un quiz al cargar los datos, sin notificar a los observadores.
+     *
+     * @param quiz  El quiz.
+     * @param score La puntuación guardada.
+     */
+    public void restoreQuizScore(Quiz quiz, double score) {
+        int slot = learningPath.assignActivitySlot(quiz);
+        int length = Math.max(slot + 1, learningPath.getActivitySlotCount());
+        if (quizScores == null) {
+            quizScores = new float[length];
+            Arrays.fill(quizScores, Float.NaN);
+        } else if (slot >= quizScores.length) {
+            int oldLength = quizScores.length;
+            quizScores = Arrays.copyOf(quizScores, length);
+            Arrays.fill(quizScores, oldLength, length, Float.NaN);
+        }
+        quizScores[slot] = (float) score;
+    }
+
+    /**
+     * Obtiene la puntuación de un quiz.
+     *
+     * @param quiz El quiz.
+     * @return La puntuación, o null si no se ha hecho.
+     */
+    public Double getQuizScore(Quiz quiz) {
+        int slot = learningPath.getActivitySlot(quiz);
+        return slot < 0 ? null : quizScoreAt(slot);
+    }
+
+    /**
+     * Obtiene la puntuación del quiz que ocupa una posición del Learning Path, sin buscarlo.
+     *
+     * @param slot La posición del quiz.
+     * @return La puntuación, o NaN si no se ha hecho.
+     */
+    public double getQuizScoreAt(int slot) {
+        return quizScores != null && slot < quizScores.length ? quizScores[slot] : Double.NaN;
+    }
+
+    private Double quizScoreAt(int slot) {
+        double score = getQuizScoreAt(slot);
+        return Double.isNaN(score) ? null : score;
+    }
+
+    /**
+     * Guarda un intento de un quiz para poder volver a corregirlo si cambia su clave
+     * (ver {@link src.com.learningpath.grading.GradingEngine#restore}). Cada respuesta ocupa un
+     * byte: la opción elegida, o 0xFF si la pregunta no se respondió.
+     *
+     * @param quiz    El quiz.
+     * @param answers La opción elegida en cada pregunta (desde 0), o -1 en las no respondidas.
+     * @throws IllegalArgumentException Si alguna opción no cabe en un byte.
+     */
+    public void recordQuizAttempt(Quiz quiz, int[] answers) {
+        restoreQuizAttempt(quiz, answers);
+        dirty = true;
+        for (ProgressListener listener : listeners) {
+            listener.quizAttemptRecorded(this, quiz, answers);
+        }
+    }
+
+    /**
+     * Restaura un intento de un quiz al cargar los datos, sin notificar a los observadores.
+     *
+     * @param quiz    El quiz.
+     * @param answers La opción elegida en cada pregunta, o -1 en las no respondidas.
+     * @throws IllegalArgumentException Si alguna opción no cabe en un byte.
+     */
+    public void restoreQuizAttempt(Quiz quiz, int[] answers) {
+        byte[] packed = new byte[answers.length];
+        for (int i = 0; i < answers.length; i++) {
+            if (answers[i] < -1 || answers[i] >= 0xFF) {
+                throw new IllegalArgumentException("Opción fuera de rango en la pregunta " + (i + 1) + ": " + answers[i]);
+            }
+            packed[i] = (byte) answers[i];
+        }
+        int slot = learningPath.assignActivitySlot(quiz);
+        if (quizAttempts == null) {
+            quizAttempts = new byte[Math.max(slot + 1, learningPath.getActivitySlotCount())][][];
+        } else if (slot >= quizAttempts.length) {
+            quizAttempts = Arrays.copyOf(quizAttempts, Math.max(slot + 1, learningPath.getActivitySlotCount()));
+        }
+        byte[][] attempts = quizAttempts[slot];
+        if (attempts == null) {
+            attempts = new byte[1][];
+            quizAttemptSlotCount++;
+        } else {
+            attempts = Arrays.copyOf(attempts, attempts.length + 1);
+        }
+        attempts[attempts.length - 1] = packed;
+        quizAttempts[slot] = attempts;
+    }
+
+    /**
+     * Obtiene los intentos guardados de un quiz.
+     *
+     * @param quiz El quiz.
+     * @return Las respuestas de cada intento, en orden de registro (vacío si no hay).
+     */
+    public List<int[]> getQuizAttempts(Quiz quiz) {
+        int slot = learningPath.getActivitySlot(quiz);
+        List<int[]> attempts = slot < 0 ? null : quizAttemptsAt(slot);
+        return attempts != null ? attempts : new ArrayList<>();
+    }
+
+    private List<int[]> quizAttemptsAt(int slot) {
+        if (quizAttempts == null || slot >= quizAttempts.length || quizAttempts[slot] == null) {
+            return null;
+        }
+        List<int[]> attempts = new ArrayList<>(quizAttempts[slot].length);
+        for (byte[] packed : quizAttempts[slot]) {
+            int[] answers = new int[packed.length];
+            for (int i = 0; i < packed.length; i++) {
+                answers[i] = packed[i] == (byte) 0xFF ? -1 : packed[i] & 0xFF;
+            }
+            attempts.add(answers);
+        }
+        return attempts;
+    }
+
     // Métodos para gestionar respuestas a encuestas
 
     /**
@@ -146,7 +722,28 @@ public class Progress implements Serializable {
      * @param response La respuesta del estudiante.
      */
     public void addSurveyResponse(Survey survey, SurveyResponse response) {
-        surveyResponses.put(survey, response);
+        restoreSurveyResponse(survey, response);
+        dirty = true;
+        // La respuesta también se guarda en la encuesta, que pertenece al Learning Path
+        learningPath.markDirty();
+        for (ProgressListener listener : listeners) {
+            listener.surveyResponseAdded(this, survey, response);
+        }
+    }
+
+    /**
+     * Restaura la respuesta a una encuesta al cargar los datos, sin notificar a los observadores.
+     *
+     * @param survey   La encuesta.
+     * @param response La respuesta guardada.
+     */
+    public void restoreSurveyResponse(Survey survey, SurveyResponse response) {
+        int slot = learningPath.assignActivitySlot(survey);
+        surveyResponses = ensureCapacity(surveyResponses, slot, SurveyResponse[]::new);
+        if (surveyResponses[slot] == null) {
+            surveyResponseCount++;
+        }
+        surveyResponses[slot] = response;
     }
 
     /**
@@ -156,7 +753,11 @@ public class Progress implements Serializable {
      * @return La respuesta del estudiante.
      */
     public SurveyResponse getSurveyResponse(Survey survey) {
-        return surveyResponses.get(survey);
+        if (surveyResponses == null) {
+            return null;
+        }
+        int slot = learningPath.getActivitySlot(survey);
+        return slot >= 0 && slot < surveyResponses.length ? surveyResponses[slot] : null;
     }
 
     // Métodos para gestionar respuestas a exámenes de preguntas abiertas
@@ -168,7 +769,28 @@ public class Progress implements Serializable {
      * @param response La respuesta del estudiante.
      */
     public void addExamResponse(OpenEndedExam exam, OpenEndedResponse response) {
-        examResponses.put(exam, response);
+        restoreExamResponse(exam, response);
+        dirty = true;
+        learningPath.markDirty();
+        for (ProgressListener listener : listeners) {
+            listener.examResponseAdded(this, exam, response);
+        }
+    }
+
+    /**
+     * Restaura la respuesta a un examen al cargar los datos, sin notificar a los observadores.
+     *
+     * @param exam     El examen de preguntas abiertas.
+     * @param response La respuesta guardada.
+     */
+    public void restoreExamResponse(OpenEndedExam exam, OpenEndedResponse response) {
+        response.resolveLegacyAnswers(exam.getExamQuestions());
+        int slot = learningPath.assignActivitySlot(exam);
+        examResponses = ensureCapacity(examResponses, slot, OpenEndedResponse[]::new);
+        if (examResponses[slot] == null) {
+            examResponseCount++;
+        }
+        examResponses[slot] = response;
     }
 
     /**
@@ -178,10 +800,136 @@ public class Progress implements Serializable {
      * @return La respuesta del estudiante.
      */
     public OpenEndedResponse getExamResponse(OpenEndedExam exam) {
-        return examResponses.get(exam);
+        if (examResponses == null) {
+            return null;
+        }
+        int slot = learningPath.getActivitySlot(exam);
+        return slot >= 0 && slot < examResponses.length ? examResponses[slot] : null;
     }
-}
 
+    private <T> T[] ensureCapacity(T[] array, int slot, IntFunction<T[]> create) {
+        if (array == null) {
+            return create.apply(Math.max(slot + 1, learningPath.getActivitySlotCount()));
+        }
+        if (slot >= array.length) {
+            return Arrays.copyOf(array, Math.max(slot + 1, learningPath.getActivitySlotCount()));
+        }
+        return array;
+    }
+
+    // Seguimiento de cambios
+
+    @Override
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    @Override
+    public void markDirty() {
+        dirty = true;
+    }
+
+    @Override
+    public void markClean() {
+        dirty = false;
+    }
 
+    // Serialización
 
+    /**
+     * Reconstruye los arreglos a partir de los mapas.
+     */
+    private void restore(Map<Activity, ActivityStatus> activityStatuses, Map<Survey, SurveyResponse> surveys,
+                         Map<OpenEndedExam, OpenEndedResponse> exams, Map<Quiz, Double> scores,
+                         Map<Quiz, List<int[]>> attempts) {
+        statuses = new byte[learningPath.getActivitySlotCount()];
+        statusCounts = 0;
+        mandatoryStatusCounts = 0;
+        completedSlots = null;
+        surveyResponses = null;
+        examResponses = null;
+        quizScores = null;
+        quizAttempts = null;
+        quizAttemptSlotCount = 0;
+        surveyResponseCount = 0;
+        examResponseCount = 0;
+        if (activityStatuses != null) {
+            for (Map.Entry<Activity, ActivityStatus> entry : activityStatuses.entrySet()) {
+                putStatus(entry.getKey(), entry.getValue());
+            }
+        }
+        if (surveys != null) {
+            for (Map.Entry<Survey, SurveyResponse> entry : surveys.entrySet()) {
+                restoreSurveyResponse(entry.getKey(), entry.getValue());
+            }
+        }
+        if (exams != null) {
+            for (Map.Entry<OpenEndedExam, OpenEndedResponse> entry : exams.entrySet()) {
+                restoreExamResponse(entry.getKey(), entry.getValue());
+            }
+        }
+        if (scores != null) {
+            for (Map.Entry<Quiz, Double> entry : scores.entrySet()) {
+                restoreQuizScore(entry.getKey(), entry.getValue());
+            }
+        }
+        if (attempts != null) {
+            for (Map.Entry<Quiz, List<int[]>> entry : attempts.entrySet()) {
+                for (int[] answers : entry.getValue()) {
+                    restoreQuizAttempt(entry.getKey(), answers);
+                }
+            }
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("student", student);
+        fields.put("learningPath", learningPath);
+        fields.put("activityStatuses", new HashMap<>(getActivityStatuses()));
+        fields.put("surveyResponses", new HashMap<>(getSurveyResponses()));
+        fields.put("examResponses", new HashMap<>(getExamResponses()));
+        fields.put("quizScores", new HashMap<>(getQuizScores()));
+        fields.put("quizAttempts", new HashMap<>(getQuizAttempts()));
+        fields.put("version", getVersion().getNumber());
+        out.writeFields();
+    }
 
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        student = (Student) fields.get("student", null);
+        learningPath = (LearningPath) fields.get("learningPath", null);
+        // Los archivos antiguos no tienen versión: se usa la actual
+        versionNumber = fields.get("version", 0);
+        dirty = true;
+        restore((Map<Activity, ActivityStatus>) fields.get("activityStatuses", null),
+                (Map<Survey, SurveyResponse>) fields.get("surveyResponses", null),
+                (Map<OpenEndedExam, OpenEndedResponse>) fields.get("examResponses", null),
+                (Map<Quiz, Double>) fields.get("quizScores", null),
+                // Los archivos anteriores no guardan los intentos
+                (Map<Quiz, List<int[]>>) fields.get("quizAttempts", null));
+    }
+
+    // Gestión de observadores
+
+    /**
+     * Registra un observador que será notificado de los cambios en cualquier progreso.
+     *
+     * @param listener El observador a registrar.
+     */
+    public static void addListener(ProgressListener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Elimina un observador previamente registrado.
+     *
+     * @param listener El observador a eliminar.
+     */
+    public static void removeListener(ProgressListener listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,78 @@
+package src.com.learningpath;
+
+import src.com.learningpath.activities.Activity;
+import src.com.learningpath.activities.ActivityStatus;
+import src.com.learningpath.activities.OpenEndedExam;
+import src.com.learningpath.activities.OpenEndedResponse;
+import src.com.learningpath.activities.Quiz;
+import src.com.learningpath.activities.Survey;
+import src.com.learningpath.activities.SurveyResponse;
+
+/**
+ * Interfaz para observar los cambios realizados sobre un {@link Progress}.
+ * Se registra mediante {@link Progress#addListener(ProgressListener)}.
+ */
+public interface ProgressListener {
+
+    /**
+     * Se invoca después de actualizar el estado de una actividad.
+     *
+     * @param progress El progreso modificado.
+     * @param activity La actividad actualizada.
+     * @param previous El estado anterior (puede ser null).
+     * @param status   El nuevo estado.
+     */
+    default void activityStatusChanged(Progress progress, Activity activity, ActivityStatus previous, ActivityStatus status) {
+    }
+
+    /**
+     * Se invoca después de {@link #activityStatusChanged} si el cambio modificó el porcentaje de
+     * completado del progreso.
+     *
+     * @param progress El progreso modificado.
+     * @param previous El porcentaje anterior.
+     * @param current  El nuevo porcentaje.
+     */
+    default void completionChanged(Progress progress, double previous, double current) {
+    }
+
+    /**
+     * Se invoca después de añadir una respuesta a una encuesta.
+     *
+     * @param progress El progreso modificado.
+     * @param survey   La encuesta.
+     * @param response La respuesta del estudiante.
+     */
+    default void surveyResponseAdded(Progress progress, Survey survey, SurveyResponse response) {
+    }
+
+    /**
+     * Se invoca después de añadir una respuesta a un examen de preguntas abiertas.
+     *
+     * @param progress El progreso modificado.
+     * @param exam     El examen.
+     * @param response La respuesta del estudiante.
+     */
+    default void examResponseAdded(Progress progress, OpenEndedExam exam, OpenEndedResponse response) {
+    }
+
+    /**
+     * Se invoca después de registrar la puntuación de un quiz.
+     *
+     * @param progress El progreso modificado.
+     * @param quiz     El quiz.
+     * @param score    La puntuación, en porcentaje.
+     */
+    default void quizScoreRecorded(Progress progress, Quiz quiz, double score) {
+    }
+
+    /**
+     * Se invoca después de guardar un intento de un quiz.
+     *
+     * @param progress El progreso modificado.
+     * @param quiz     El quiz.
+     * @param answers  La opción elegida en cada pregunta, o -1 en las no respondidas.
+     */
+    default void quizAttemptRecorded(Progress progress, Quiz quiz, int[] answers) {
+    }
+}
@@ -0,0 +1,194 @@
+package src.com.learningpath;
+
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.Teacher;
+
+import java.util.*;
+
+/**
+ * Consultas sobre los Learning Paths y los progresos mediante índices secundarios:
+ * creador → Learning Paths, Learning Path → progresos y estudiante → progresos. Los índices se
+ * construyen al cargar los datos y se actualizan al crear, copiar o inscribirse, de modo que cada
+ * consulta cuesta lo mismo que el tamaño de su resultado y no recorre todas las listas.
+ *
+ * Los índices usan los identificadores de las entidades. Las consultas devuelven copias, así que
+ * pueden hacerse desde cualquier hilo. Las búsquedas por texto usan un {@link SearchIndex}, las
+ * consultas con filtros un {@link CatalogIndex} y el autocompletado de títulos un
+ * {@link TitleAutocomplete}, cada uno con su propio bloqueo.
+ */
+public class QueryService {
+
+    private final List<LearningPath> learningPaths = new ArrayList<>();
+    private final Map<Long, List<LearningPath>> pathsByCreator = new HashMap<>();
+    private final Map<Long, List<Progress>> progressesByPath = new HashMap<>();
+    private final Map<Long, List<Progress>> progressesByStudent = new HashMap<>();
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final CatalogIndex catalog = new CatalogIndex();
+    private final TitleAutocomplete titles = new TitleAutocomplete();
+
+    /**
+     * Indexa los Learning Paths cargados.
+     *
+     * @param paths Los Learning Paths.
+     */
+    public synchronized void indexLearningPaths(Collection<LearningPath> paths) {
+        for (LearningPath lp : paths) {
+            addLearningPath(lp);
+        }
+    }
+
+    /**
+     * Indexa los progresos cargados.
+     *
+     * @param progresses Los progresos.
+     */
+    public synchronized void indexProgresses(Collection<Progress> progresses) {
+        for (Progress progress : progresses) {
+            addProgress(progress);
+        }
+    }
+
+    /**
+     * Añade un Learning Path nuevo (creado o copiado).
+     *
+     * @param lp El Learning Path.
+     */
+    public synchronized void addLearningPath(LearningPath lp) {
+        learningPaths.add(lp);
+        pathsByCreator.computeIfAbsent(lp.getCreator().getId(), id -> new ArrayList<>()).add(lp);
+        searchIndex.add(lp);
+        catalog.add(lp);
+        titles.add(lp);
+    }
+
+    /**
+     * Añade un progreso nuevo (una inscripción).
+     *
+     * @param progress El progreso.
+     */
+    public synchronized void addProgress(Progress progress) {
+        progressesByPath.computeIfAbsent(progress.getLearningPath().getId(), id -> new ArrayList<>()).add(progress);
+        progressesByStudent.computeIfAbsent(progress.getStudent().getId(), id -> new ArrayList<>()).add(progress);
+        titles.enrolled(progress.getLearningPath());
+    }
+
+    /**
+     * Todos los Learning Paths, en orden de creación.
+     *
+     * @return Una copia de la lista.
+     */
+    public synchronized List<LearningPath> getLearningPaths() {
+        return new ArrayList<>(learningPaths);
+    }
+
+    /**
+     * Learning Paths creados por un profesor, en orden de creación.
+     *
+     * @param teacher El profesor.
+     * @return Sus Learning Paths.
+     */
+    public synchronized List<LearningPath> getLearningPathsCreatedBy(Teacher teacher) {
+        return copy(pathsByCreator.get(teacher.getId()));
+    }
+
+    /**
+     * Learning Paths creados por otros profesores, en orden de creación.
+     *
+     * @param teacher El profesor.
+     * @return Los Learning Paths de los demás.
+     */
+    public synchronized List<LearningPath> getLearningPathsNotCreatedBy(Teacher teacher) {
+        List<LearningPath> result = new ArrayList<>(learningPaths.size());
+        for (LearningPath lp : learningPaths) {
+            if (lp.getCreator().getId() != teacher.getId()) {
+                result.add(lp);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Progresos de los estudiantes inscritos en un Learning Path.
+     *
+     * @param lp El Learning Path.
+     * @return Sus progresos, en orden de inscripción.
+     */
+    public synchronized List<Progress> getEnrollments(LearningPath lp) {
+        return copy(progressesByPath.get(lp.getId()));
+    }
+
+    /**
+     * Progresos de un estudiante.
+     *
+     * @param student El estudiante.
+     * @return Sus progresos, en orden de inscripción.
+     */
+    public synchronized List<Progress> getProgressesOf(Student student) {
+        return copy(progressesByStudent.get(student.getId()));
+    }
+
+    /**
+     * Busca Learning Paths por texto en su título, descripción, objetivos y actividades.
+     *
+     * @param query La consulta.
+     * @param limit Número máximo de resultados.
+     * @return Los Learning Paths que contienen todos los términos, del más al menos relevante.
+     */
+    public List<LearningPath> search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    /**
+     * Consulta el catálogo con filtros por dificultad, duración y calificación.
+     *
+     * @param query La consulta.
+     * @return La página de resultados.
+     */
+    public CatalogPage queryCatalog(CatalogQuery query) {
+        return catalog.query(query);
+    }
+
+    /**
+     * Índice del catálogo. Debe registrarse con {@link LearningPath#addListener} para seguir los
+     * cambios de duración y calificación de los Learning Paths.
+     *
+     * @return El índice.
+     */
+    public CatalogIndex getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Títulos de Learning Paths y de actividades que empiezan por un prefijo.
+     *
+     * @param prefix El prefijo.
+     * @param limit  Número máximo de sugerencias.
+     * @return Las sugerencias, de más a menos inscripciones de su Learning Path.
+     */
+    public List<TitleAutocomplete.Suggestion> complete(String prefix, int limit) {
+        return titles.complete(prefix, limit);
+    }
+
+    /**
+     * Índice de autocompletado. Debe registrarse con {@link LearningPath#addListener} para seguir
+     * los cambios en las actividades de los Learning Paths.
+     *
+     * @return El índice.
+     */
+    public TitleAutocomplete getTitles() {
+        return titles;
+    }
+
+    /**
+     * Indexa para la búsqueda y el autocompletado los Learning Paths añadidos desde la última
+     * consulta.
+     */
+    public void prepareSearch() {
+        searchIndex.flush();
+        titles.flush();
+    }
+
+    private static <T> List<T> copy(List<T> list) {
+        return list == null ? new ArrayList<>() : new ArrayList<>(list);
+    }
+}
@@ -0,0 +1,157 @@
+package src.com.learningpath;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Calificaciones de un Learning Path, una por estudiante, de {@link #MIN_STARS} a
+ * {@link #MAX_STARS} estrellas. Además de la calificación de cada estudiante se mantienen el
+ * número de calificaciones, su suma, la suma de sus cuadrados y un histograma por estrellas, todos
+ * en {@link LongAdder}: cada hilo suma en su propia celda, así que muchos estudiantes pueden
+ * calificar a la vez un Learning Path popular sin competir por un bloqueo ni por una variable.
+ *
+ * Si un estudiante vuelve a calificar, su calificación anterior se resta de los acumuladores. Las
+ * lecturas no son una instantánea atómica: mientras otros hilos califican, la media puede ir una
+ * calificación por detrás, pero los acumuladores cuadran en cuanto terminan.
+ */
+public final class RatingAggregate implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int MIN_STARS = 1;
+    public static final int MAX_STARS = 5;
+
+    /**
+     * Media y peso (en calificaciones) que se suponen a priori para la puntuación bayesiana: un
+     * Learning Path con pocas calificaciones se acerca a la media del intervalo.
+     */
+    static final double PRIOR_MEAN = 3.0;
+    static final int PRIOR_WEIGHT = 5;
+
+    private final Map<Long, Byte> starsByStudent = new ConcurrentHashMap<>();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAdder sumOfSquares = new LongAdder();
+    private final LongAdder[] histogram = new LongAdder[MAX_STARS - MIN_STARS + 1];
+
+    public RatingAggregate() {
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Copia de las calificaciones de otro agregado (por ejemplo al copiar un Learning Path).
+     *
+     * @param original El agregado a copiar.
+     */
+    public RatingAggregate(RatingAggregate original) {
+        this();
+        for (Map.Entry<Long, Byte> entry : original.starsByStudent.entrySet()) {
+            submit(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Registra la calificación de un estudiante, sustituyendo la anterior si la había.
+     *
+     * @param studentId El identificador del estudiante.
+     * @param stars     El número de estrellas.
+     * @return Las estrellas de su calificación anterior, o 0 si es la primera.
+     * @throws IllegalArgumentException Si las estrellas están fuera del intervalo.
+     */
+    public int submit(long studentId, int stars) {
+        if (stars < MIN_STARS || stars > MAX_STARS) {
+            throw new IllegalArgumentException("La calificación debe estar entre " + MIN_STARS
+                    + " y " + MAX_STARS + ": " + stars);
+        }
+        Byte previous = starsByStudent.put(studentId, (byte) stars);
+        if (previous == null) {
+            count.increment();
+        } else {
+            sum.add(-previous);
+            sumOfSquares.add(-previous * previous);
+            histogram[previous - MIN_STARS].decrement();
+        }
+        sum.add(stars);
+        sumOfSquares.add(stars * stars);
+        histogram[stars - MIN_STARS].increment();
+        return previous == null ? 0 : previous;
+    }
+
+    /**
+     * Calificación de un estudiante.
+     *
+     * @param studentId El identificador del estudiante.
+     * @return Sus estrellas, o 0 si no ha calificado.
+     */
+    public int getStars(long studentId) {
+        Byte stars = starsByStudent.get(studentId);
+        return stars == null ? 0 : stars;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Media de las calificaciones.
+     *
+     * @return La media, o 0 si no hay calificaciones.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Varianza (poblacional) de las calificaciones.
+     *
+     * @return La varianza, o 0 si no hay calificaciones.
+     */
+    public double getVariance() {
+        long n = count.sum();
+        if (n == 0) {
+            return 0.0;
+        }
+        double mean = (double) sum.sum() / n;
+        return Math.max(0.0, (double) sumOfSquares.sum() / n - mean * mean);
+    }
+
+    /**
+     * Puntuación bayesiana: la media de las calificaciones junto con {@link #PRIOR_WEIGHT}
+     * calificaciones ficticias de {@link #PRIOR_MEAN}. Sirve para ordenar sin que un Learning
+     * Path con una sola calificación de 5 quede por encima de otro con cientos de 4,8.
+     *
+     * @return La puntuación.
+     */
+    public double getBayesianScore() {
+        return (PRIOR_WEIGHT * PRIOR_MEAN + sum.sum()) / (PRIOR_WEIGHT + count.sum());
+    }
+
+    /**
+     * Número de calificaciones de cada número de estrellas.
+     *
+     * @return El histograma: la posición i cuenta las calificaciones de MIN_STARS + i estrellas.
+     */
+    public long[] getHistogram() {
+        long[] result = new long[histogram.length];
+        for (int i = 0; i < histogram.length; i++) {
+            result[i] = histogram[i].sum();
+        }
+        return result;
+    }
+
+    /**
+     * Calificaciones de cada estudiante, ordenadas por identificador (para la persistencia).
+     *
+     * @return Una copia: identificador del estudiante → estrellas.
+     */
+    public Map<Long, Integer> getRatings() {
+        Map<Long, Integer> ratings = new TreeMap<>();
+        starsByStudent.forEach((student, stars) -> ratings.put(student, (int) stars));
+        return ratings;
+    }
+}
@@ -0,0 +1,383 @@
+package src.com.learningpath;
+
+import src.com.learningpath.activities.Activity;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Índice invertido para buscar Learning Paths por texto. Cada Learning Path es un documento con
+ * los términos de su título, descripción, objetivos y títulos de actividades; cada término tiene
+ * una lista de publicación con los documentos que lo contienen (ordenados por número de
+ * documento) y la frecuencia del término en cada uno.
+ *
+ * Una búsqueda devuelve los Learning Paths que contienen todos los términos de la consulta
+ * (intersección de las listas, empezando por la más corta) ordenados por BM25. El título cuenta
+ * {@link #TITLE_WEIGHT} veces.
+ *
+ * Añadir un Learning Path solo lo deja en una cola: se tokeniza en la siguiente búsqueda o al
+ * llamar a {@link #flush()}, para no cargar las actividades de todo el catálogo al iniciar.
+ */
+public class SearchIndex {
+
+    static final int TITLE_WEIGHT = 3;
+    // Un término aparece en al menos 1/DENSE_RATIO documentos: la intersección se hace con bitsets
+    private static final int DENSE_RATIO = 32;
+    // Parámetros habituales de BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "de", "la", "el", "en", "y", "a", "los", "las", "del", "un", "una", "por", "para", "con", "al", "se",
+            "lo", "su", "sus", "es", "the", "of", "and", "to", "in", "for", "on", "an", "with", "is"));
+
+    private final Queue<LearningPath> pending = new ConcurrentLinkedQueue<>();
+    private final List<LearningPath> documents = new ArrayList<>();
+    private int[] documentLengths = new int[16];
+    private long totalLength;
+    // Parte de BM25 que depende de la longitud de cada documento; se recalcula al añadir documentos
+    private float[] norms = new float[0];
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    /**
+     * Lista de publicación de un término: documentos en orden creciente y frecuencias.
+     */
+    private static final class Postings {
+        int[] documents = new int[4];
+        int[] frequencies = new int[4];
+        int size;
+        // Bitset de documentos; solo se crea para los términos frecuentes (ver DENSE_RATIO)
+        long[] bits;
+
+        void add(int document, int frequency) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            documents[size] = document;
+            frequencies[size] = frequency;
+            size++;
+            if (bits != null) {
+                if (document >>> 6 >= bits.length) {
+                    bits = Arrays.copyOf(bits, Math.max(bits.length * 2, (document >>> 6) + 1));
+                }
+                bits[document >>> 6] |= 1L << document;
+            }
+        }
+
+        long[] bits() {
+            if (bits == null) {
+                bits = new long[(documents[size - 1] >>> 6) + 1];
+                for (int i = 0; i < size; i++) {
+                    bits[documents[i] >>> 6] |= 1L << documents[i];
+                }
+            }
+            return bits;
+        }
+
+        /**
+         * Posición del primer documento mayor o igual que el indicado, a partir de from
+         * (búsqueda exponencial, porque las posiciones que se piden van creciendo).
+         */
+        int advance(int from, int document) {
+            if (from >= size || documents[from] >= document) {
+                return from;
+            }
+            int low = from;
+            int high = from + 1;
+            int step = 1;
+            while (high < size && documents[high] < document) {
+                low = high;
+                high += step;
+                step <<= 1;
+            }
+            // documents[low] < document <= documents[high] (o high fuera de la lista)
+            low++;
+            high = Math.min(high, size);
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (documents[middle] < document) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Añade un Learning Path al índice (se tokeniza en la siguiente búsqueda).
+     *
+     * @param learningPath El Learning Path.
+     */
+    public void add(LearningPath learningPath) {
+        pending.add(learningPath);
+    }
+
+    /**
+     * Tokeniza los Learning Paths pendientes. Se puede llamar en segundo plano para que la
+     * primera búsqueda no tenga que hacerlo.
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        LearningPath learningPath;
+        while ((learningPath = pending.poll()) != null) {
+            index(learningPath);
+        }
+        // La longitud media cambia, así que se recalculan todas las normas
+        int count = documents.size();
+        double averageLength = Math.max(1.0, (double) totalLength / count);
+        norms = new float[count];
+        for (int d = 0; d < count; d++) {
+            norms[d] = (float) (K1 * (1 - B + B * documentLengths[d] / averageLength));
+        }
+    }
+
+    private void index(LearningPath learningPath) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = addTerms(frequencies, learningPath.getTitle(), TITLE_WEIGHT);
+        length += addTerms(frequencies, learningPath.getDescription(), 1);
+        length += addTerms(frequencies, learningPath.getObjectives(), 1);
+        for (Activity activity : learningPath.getActivities()) {
+            length += addTerms(frequencies, activity.getTitle(), 1);
+        }
+        int document = documents.size();
+        documents.add(learningPath);
+        if (document == documentLengths.length) {
+            documentLengths = Arrays.copyOf(documentLengths, document * 2);
+        }
+        documentLengths[document] = length;
+        totalLength += length;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new Postings()).add(document, entry.getValue());
+        }
+    }
+
+    private static int addTerms(Map<String, Integer> frequencies, String text, int weight) {
+        List<String> terms = tokenize(text);
+        for (String term : terms) {
+            frequencies.merge(term, weight, Integer::sum);
+        }
+        return terms.size() * weight;
+    }
+
+    /**
+     * Divide un texto en términos: minúsculas, sin tildes, separando por todo lo que no sea letra
+     * o dígito y descartando las palabras vacías más comunes.
+     *
+     * @param text El texto (puede ser null).
+     * @return Los términos, en orden.
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        String normalized = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= normalized.length(); i++) {
+            char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                term.append(c);
+            } else if (term.length() > 0) {
+                String value = term.toString();
+                if (!STOP_WORDS.contains(value)) {
+                    terms.add(value);
+                }
+                term.setLength(0);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Busca los Learning Paths que contienen todos los términos de la consulta.
+     *
+     * @param query La consulta.
+     * @param limit Número máximo de resultados.
+     * @return Los Learning Paths encontrados, del más al menos relevante.
+     */
+    public synchronized List<LearningPath> search(String query, int limit) {
+        flush();
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        Postings[] lists = new Postings[terms.size()];
+        int t = 0;
+        for (String term : terms) {
+            Postings list = postings.get(term);
+            if (list == null) {
+                return new ArrayList<>();
+            }
+            lists[t++] = list;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+
+        int documentCount = documents.size();
+        float[] weights = new float[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            // idf * (k1 + 1)
+            weights[i] = (float) (Math.log(1 + (documentCount - lists[i].size + 0.5) / (lists[i].size + 0.5)) * (K1 + 1));
+        }
+
+        TopResults best = new TopResults(limit);
+        int[] cursors = new int[lists.length];
+        Postings shortest = lists[0];
+        if (lists.length > 1 && (long) shortest.size * DENSE_RATIO >= documentCount) {
+            intersectDense(lists, weights, best);
+            return results(best);
+        }
+        candidates:
+        for (int c = 0; c < shortest.size; c++) {
+            int document = shortest.documents[c];
+            for (int i = 1; i < lists.length; i++) {
+                cursors[i] = lists[i].advance(cursors[i], document);
+                if (cursors[i] == lists[i].size) {
+                    break candidates;
+                }
+                if (lists[i].documents[cursors[i]] != document) {
+                    continue candidates;
+                }
+            }
+            float norm = norms[document];
+            int frequency = shortest.frequencies[c];
+            float score = weights[0] * frequency / (frequency + norm);
+            for (int i = 1; i < lists.length; i++) {
+                frequency = lists[i].frequencies[cursors[i]];
+                score += weights[i] * frequency / (frequency + norm);
+            }
+            best.offer(document, score);
+        }
+        return results(best);
+    }
+
+    /**
+     * Intersección de términos frecuentes: se combinan sus bitsets palabra a palabra. La posición
+     * de un documento en cada lista (para leer su frecuencia) es el número de bits anteriores a
+     * él en el bitset de la lista.
+     */
+    private void intersectDense(Postings[] lists, float[] weights, TopResults best) {
+        long[][] bits = new long[lists.length][];
+        int words = Integer.MAX_VALUE;
+        for (int i = 0; i < lists.length; i++) {
+            bits[i] = lists[i].bits();
+            words = Math.min(words, bits[i].length);
+        }
+        // Documentos de cada lista en las palabras ya recorridas
+        int[] ranks = new int[lists.length];
+        for (int w = 0; w < words; w++) {
+            long common = bits[0][w];
+            for (int i = 1; i < lists.length && common != 0; i++) {
+                common &= bits[i][w];
+            }
+            while (common != 0) {
+                int bit = Long.numberOfTrailingZeros(common);
+                common &= common - 1;
+                int document = (w << 6) + bit;
+                long before = (1L << bit) - 1;
+                float norm = norms[document];
+                float score = 0;
+                for (int i = 0; i < lists.length; i++) {
+                    int frequency = lists[i].frequencies[ranks[i] + Long.bitCount(bits[i][w] & before)];
+                    score += weights[i] * frequency / (frequency + norm);
+                }
+                best.offer(document, score);
+            }
+            for (int i = 0; i < lists.length; i++) {
+                ranks[i] += Long.bitCount(bits[i][w]);
+            }
+        }
+    }
+
+    private List<LearningPath> results(TopResults best) {
+        int[] found = best.documentsByScore();
+        List<LearningPath> results = new ArrayList<>(found.length);
+        for (int document : found) {
+            results.add(documents.get(document));
+        }
+        return results;
+    }
+
+    /**
+     * Los mejores resultados de una búsqueda: un montículo de mínimos con el peor en la cabeza.
+     */
+    private static final class TopResults {
+        final int[] documents;
+        final float[] scores;
+        int size;
+
+        TopResults(int limit) {
+            documents = new int[limit];
+            scores = new float[limit];
+        }
+
+        void offer(int document, float score) {
+            if (size < documents.length) {
+                int i = size++;
+                while (i > 0 && scores[(i - 1) >>> 1] > score) {
+                    int parent = (i - 1) >>> 1;
+                    documents[i] = documents[parent];
+                    scores[i] = scores[parent];
+                    i = parent;
+                }
+                documents[i] = document;
+                scores[i] = score;
+            } else if (score > scores[0]) {
+                siftDown(document, score);
+            }
+        }
+
+        private void siftDown(int document, float score) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && scores[child + 1] < scores[child]) {
+                    child++;
+                }
+                if (scores[child] >= score) {
+                    break;
+                }
+                documents[i] = documents[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            documents[i] = document;
+            scores[i] = score;
+        }
+
+        /**
+         * Vacía el montículo y devuelve los documentos del mejor al peor.
+         */
+        int[] documentsByScore() {
+            int[] sorted = new int[size];
+            for (int i = sorted.length - 1; i >= 0; i--) {
+                sorted[i] = documents[0];
+                size--;
+                if (size > 0) {
+                    siftDown(documents[size], scores[size]);
+                }
+            }
+            return sorted;
+        }
+    }
+
+    /**
+     * Número de Learning Paths indexados (incluidos los pendientes de tokenizar).
+     *
+     * @return El número de Learning Paths.
+     */
+    public synchronized int size() {
+        return documents.size() + pending.size();
+    }
+}
@@ -0,0 +1,424 @@
+package src.com.learningpath;
+
+import src.com.learningpath.activities.Activity;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Autocompletado de títulos de Learning Paths y de actividades. Los títulos normalizados
+ * (minúsculas, sin tildes y con un solo espacio entre palabras) se guardan en un árbol de prefijos
+ * compacto (radix trie): cada nodo guarda un fragmento de texto en lugar de un carácter, así que
+ * hay como mucho dos nodos por título, y los hijos están en un array ordenado por su primer
+ * carácter.
+ *
+ * Cada título pesa tantas inscripciones como tenga su Learning Path, y cada nodo guarda el mayor
+ * peso de su subárbol. Para un prefijo se baja hasta su nodo y se recorre el subárbol de mayor a
+ * menor peso (primero el mejor), de modo que solo se visitan los nodos que pueden entrar entre los
+ * k primeros. Las inscripciones solo suman, así que actualizar un peso es subir por los padres
+ * mientras el máximo cambie.
+ *
+ * Como en {@link SearchIndex}, añadir un Learning Path solo lo deja en una cola que se procesa en
+ * la siguiente consulta o al llamar a {@link #flush()}. Si el índice se registra con
+ * {@link LearningPath#addListener}, los títulos de las actividades se actualizan al añadir o
+ * eliminar actividades.
+ */
+public class TitleAutocomplete implements LearningPathListener {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    /**
+     * Una sugerencia: un título que empieza por el prefijo pedido.
+     */
+    public static final class Suggestion {
+        private final String title;
+        private final LearningPath learningPath;
+        private final Activity activity;
+        private final int enrollments;
+
+        Suggestion(String title, LearningPath learningPath, Activity activity, int enrollments) {
+            this.title = title;
+            this.learningPath = learningPath;
+            this.activity = activity;
+            this.enrollments = enrollments;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public LearningPath getLearningPath() {
+            return learningPath;
+        }
+
+        /**
+         * Actividad cuyo título se sugiere.
+         *
+         * @return La actividad, o null si se sugiere el título del Learning Path.
+         */
+        public Activity getActivity() {
+            return activity;
+        }
+
+        public int getEnrollments() {
+            return enrollments;
+        }
+    }
+
+    /**
+     * Nodo del árbol: un fragmento de texto, sus hijos y los títulos que terminan en él.
+     */
+    private static final class Node {
+        String label;
+        Node parent;
+        Node[] children = NO_CHILDREN;
+        Entry[] entries = NO_ENTRIES;
+        // Mayor peso de los títulos del subárbol
+        int maxWeight;
+
+        Node(String label, Node parent) {
+            this.label = label;
+            this.parent = parent;
+        }
+
+        /**
+         * Busca el hijo que empieza por un carácter (búsqueda binaria).
+         *
+         * @return Su posición, o (-(punto de inserción) - 1) si no existe.
+         */
+        int childIndex(char c) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char first = children[mid].label.charAt(0);
+                if (first < c) {
+                    low = mid + 1;
+                } else if (first > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        void insertChild(int position, Node child) {
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, position);
+            grown[position] = child;
+            System.arraycopy(children, position, grown, position + 1, children.length - position);
+            children = grown;
+        }
+
+        void addEntry(Entry entry) {
+            entries = Arrays.copyOf(entries, entries.length + 1);
+            entries[entries.length - 1] = entry;
+        }
+
+        void removeEntry(Entry entry) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i] == entry) {
+                    Entry[] shrunk = new Entry[entries.length - 1];
+                    System.arraycopy(entries, 0, shrunk, 0, i);
+                    System.arraycopy(entries, i + 1, shrunk, i, shrunk.length - i);
+                    entries = shrunk.length == 0 ? NO_ENTRIES : shrunk;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Un título indexado y el nodo en el que termina.
+     */
+    private static final class Entry {
+        final String title;
+        final Indexed owner;
+        final Activity activity;
+        Node node;
+
+        Entry(String title, Indexed owner, Activity activity) {
+            this.title = title;
+            this.owner = owner;
+            this.activity = activity;
+        }
+    }
+
+    /**
+     * Un Learning Path: su número de inscripciones y sus títulos indexados.
+     */
+    private static final class Indexed {
+        LearningPath learningPath;
+        int enrollments;
+        final List<Entry> entries = new ArrayList<>(4);
+    }
+
+    private final Queue<LearningPath> pending = new ConcurrentLinkedQueue<>();
+    // Por identificador; también guarda las inscripciones de Learning Paths aún pendientes
+    private final Map<Long, Indexed> indexed = new HashMap<>();
+    private final Node root = new Node("", null);
+    private int titleCount;
+
+    /**
+     * Añade un Learning Path (se indexa en la siguiente consulta).
+     *
+     * @param learningPath El Learning Path.
+     */
+    public void add(LearningPath learningPath) {
+        pending.add(learningPath);
+    }
+
+    /**
+     * Suma una inscripción al peso de los títulos de un Learning Path.
+     *
+     * @param learningPath El Learning Path.
+     */
+    public synchronized void enrolled(LearningPath learningPath) {
+        Indexed path = indexed.computeIfAbsent(learningPath.getId(), id -> new Indexed());
+        path.enrollments++;
+        for (Entry entry : path.entries) {
+            raise(entry.node, path.enrollments);
+        }
+    }
+
+    @Override
+    public synchronized void learningPathChanged(LearningPath learningPath) {
+        Indexed path = indexed.get(learningPath.getId());
+        // Solo se actualizan los Learning Paths ya indexados de este índice
+        if (path == null || path.learningPath != learningPath) {
+            return;
+        }
+        // Los cambios de calificación o duración no tocan los títulos
+        List<Activity> activities = learningPath.getActivities();
+        List<Activity> current = new ArrayList<>(activities.size());
+        for (Entry entry : path.entries) {
+            if (entry.activity != null) {
+                current.add(entry.activity);
+            }
+        }
+        if (sameActivities(current, activities)) {
+            return;
+        }
+        Iterator<Entry> iterator = path.entries.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.activity != null) {
+                entry.node.removeEntry(entry);
+                titleCount--;
+                iterator.remove();
+            }
+        }
+        for (Activity activity : activities) {
+            insert(path, activity.getTitle(), activity);
+        }
+    }
+
+    private static boolean sameActivities(List<Activity> a, List<Activity> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indexa los Learning Paths pendientes. Se puede llamar en segundo plano para que la primera
+     * consulta no tenga que hacerlo.
+     */
+    public synchronized void flush() {
+        LearningPath learningPath;
+        while ((learningPath = pending.poll()) != null) {
+            Indexed path = indexed.computeIfAbsent(learningPath.getId(), id -> new Indexed());
+            if (path.learningPath != null) {
+                continue;
+            }
+            path.learningPath = learningPath;
+            insert(path, learningPath.getTitle(), null);
+            for (Activity activity : learningPath.getActivities()) {
+                insert(path, activity.getTitle(), activity);
+            }
+        }
+    }
+
+    /**
+     * Número de títulos indexados.
+     *
+     * @return El número de títulos.
+     */
+    public synchronized int size() {
+        flush();
+        return titleCount;
+    }
+
+    /**
+     * Títulos que empiezan por un prefijo, de más a menos inscripciones de su Learning Path. No
+     * se distinguen mayúsculas ni tildes.
+     *
+     * @param prefix El prefijo.
+     * @param limit  Número máximo de sugerencias.
+     * @return Las sugerencias.
+     */
+    public synchronized List<Suggestion> complete(String prefix, int limit) {
+        flush();
+        List<Suggestion> suggestions = new ArrayList<>();
+        String key = normalize(prefix);
+        Node node = find(key);
+        if (node == null || limit <= 0) {
+            return suggestions;
+        }
+        // Primero el mejor: los nodos cuentan con el mayor peso de su subárbol, los títulos con el suyo
+        PriorityQueue<Object> queue = new PriorityQueue<>(TitleAutocomplete::compareCandidates);
+        queue.add(node);
+        while (!queue.isEmpty() && suggestions.size() < limit) {
+            Object next = queue.poll();
+            if (next instanceof Entry) {
+                Entry entry = (Entry) next;
+                suggestions.add(new Suggestion(entry.title, entry.owner.learningPath, entry.activity,
+                        entry.owner.enrollments));
+            } else {
+                Node current = (Node) next;
+                Collections.addAll(queue, current.entries);
+                Collections.addAll(queue, current.children);
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Nodo en el que termina un prefijo (o el nodo cuyo fragmento lo contiene).
+     */
+    private Node find(String key) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int index = node.childIndex(key.charAt(i));
+            if (index < 0) {
+                return null;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, i);
+            if (i + common == key.length()) {
+                return child;
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    private void insert(Indexed path, String title, Activity activity) {
+        if (title == null) {
+            return;
+        }
+        String key = normalize(title);
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int index = node.childIndex(key.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(i), node);
+                node.insertChild(-index - 1, leaf);
+                node = leaf;
+                break;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // El título se separa a mitad del fragmento: se parte el nodo en dos
+                Node middle = new Node(child.label.substring(0, common), node);
+                middle.children = new Node[]{child};
+                middle.maxWeight = child.maxWeight;
+                node.children[index] = middle;
+                child.label = child.label.substring(common);
+                child.parent = middle;
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+        Entry entry = new Entry(title, path, activity);
+        entry.node = node;
+        node.addEntry(entry);
+        path.entries.add(entry);
+        titleCount++;
+        raise(node, path.enrollments);
+    }
+
+    /**
+     * Sube un peso por los antecesores de un nodo mientras sea mayor que su máximo.
+     */
+    private static void raise(Node node, int weight) {
+        while (node != null && node.maxWeight < weight) {
+            node.maxWeight = weight;
+            node = node.parent;
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int length = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < length && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int compareCandidates(Object a, Object b) {
+        int byWeight = Integer.compare(weight(b), weight(a));
+        if (byWeight != 0) {
+            return byWeight;
+        }
+        // A igual peso, los títulos salen antes que los nodos que aún hay que abrir
+        boolean aEntry = a instanceof Entry;
+        boolean bEntry = b instanceof Entry;
+        if (aEntry != bEntry) {
+            return aEntry ? -1 : 1;
+        }
+        return aEntry ? ((Entry) a).title.compareTo(((Entry) b).title) : 0;
+    }
+
+    private static int weight(Object candidate) {
+        return candidate instanceof Entry ? ((Entry) candidate).owner.enrollments : ((Node) candidate).maxWeight;
+    }
+
+    /**
+     * Normaliza un título: minúsculas, sin tildes y con un solo espacio entre palabras.
+     *
+     * @param text El título (puede ser null).
+     * @return El título normalizado.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean space = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                space = normalized.length() > 0;
+            } else {
+                if (space) {
+                    normalized.append(' ');
+                    space = false;
+                }
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+}
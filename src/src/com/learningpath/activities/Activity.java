@@ -1,13 +1,18 @@
 package src.com.learningpath.activities;
 
+import src.com.learningpath.IdGenerator;
+
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
-public abstract class Activity implements Serializable {
+public abstract class Activity implements Serializable, Cloneable {
     private static final long serialVersionUID = 1L;
 
+    protected long id;
     protected String title;
     protected String description;
     protected String objective;
@@ -16,8 +21,12 @@ public abstract class Activity implements Serializable {
     protected List<Activity> suggestedPrerequisites;
     protected Date deadline;
     protected boolean isMandatory;
+    // Plantilla con el contenido actual (ver ActivityTemplate); null si no se ha calculado o si
+    // el contenido cambió después
+    transient ActivityTemplate template;
 
     public Activity(String title, String description, String objective, int difficultyLevel, int expectedDuration, boolean isMandatory) {
+        this.id = IdGenerator.next();
         this.title = title;
         this.description = description;
         this.objective = objective;
@@ -38,6 +47,20 @@ public abstract class Activity implements Serializable {
     }
     // Getters para los campos privados/protegidos
 
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Asigna el identificador al cargar datos. Como equals y hashCode dependen de él, no debe
+     * cambiarse mientras la actividad esté en un mapa o conjunto.
+     *
+     * @param id El identificador.
+     */
+    public void setId(long id) {
+        this.id = id;
+    }
+
     public String getTitle() {
         return title;
     }
@@ -58,8 +81,53 @@ public abstract class Activity implements Serializable {
         return expectedDuration;
     }
 
+    /**
+     * Actividades que deben completarse antes que esta.
+     *
+     * @return Los prerrequisitos, de solo lectura (vacío si no tiene).
+     */
     public List<Activity> getSuggestedPrerequisites() {
-        return suggestedPrerequisites;
+        return suggestedPrerequisites == null ? Collections.emptyList() : Collections.unmodifiableList(suggestedPrerequisites);
+    }
+
+    /**
+     * Añade un prerrequisito a una actividad que aún no está en un Learning Path (al crearla o
+     * al cargarla). Dentro de un Learning Path debe usarse
+     * {@link src.com.learningpath.LearningPath#addPrerequisite}, que comprueba que no se formen
+     * ciclos y no modifica las actividades de las versiones anteriores.
+     *
+     * @param prerequisite La actividad que debe completarse antes.
+     * @return True si se añade, false si ya era un prerrequisito.
+     */
+    public boolean addSuggestedPrerequisite(Activity prerequisite) {
+        if (suggestedPrerequisites == null) {
+            suggestedPrerequisites = new ArrayList<>();
+        }
+        for (Activity existing : suggestedPrerequisites) {
+            if (existing == prerequisite) {
+                return false;
+            }
+        }
+        return suggestedPrerequisites.add(prerequisite);
+    }
+
+    /**
+     * Copia de la actividad con otros prerrequisitos, para la versión nueva de un Learning Path:
+     * las versiones anteriores conservan esta actividad sin cambios. La copia tiene el mismo
+     * identificador (es la misma actividad para equals y para los progresos) y comparte el
+     * contenido, la fecha límite y las respuestas.
+     *
+     * @param prerequisites Los prerrequisitos de la copia.
+     * @return La copia.
+     */
+    public Activity withSuggestedPrerequisites(List<Activity> prerequisites) {
+        try {
+            Activity copy = (Activity) super.clone();
+            copy.suggestedPrerequisites = prerequisites.isEmpty() ? null : new ArrayList<>(prerequisites);
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
     }
 
     public Date getDeadline() {
@@ -69,22 +137,28 @@ public abstract class Activity implements Serializable {
     public boolean isMandatory() {
         return isMandatory;
     }
+
+    public void setDeadline(Date deadline) {
+        this.deadline = deadline;
+    }
    
 
     // Método abstracto para obtener el tipo de actividad
     public abstract String getType();
 
-    // Sobrescribir equals y hashCode basados en title y description (asumiendo que juntos son únicos)
+    // equals y hashCode basados en el identificador: dos actividades con el mismo título y
+    // descripción en distintos Learning Paths son actividades distintas. Las que aún no tienen
+    // identificador (0, datos antiguos sin registrar) solo son iguales a sí mismas.
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (!(obj instanceof Activity)) return false;
         Activity other = (Activity) obj;
-        return title.equals(other.title) && description.equals(other.description);
+        return id != 0 && id == other.id;
     }
 
     @Override
     public int hashCode() {
-        return title.hashCode() * 31 + description.hashCode();
+        return id != 0 ? Long.hashCode(id) : System.identityHashCode(this);
     }
 }
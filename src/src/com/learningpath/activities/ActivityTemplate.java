@@ -0,0 +1,303 @@
+package src.com.learningpath.activities;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+/**
+ * Contenido inmutable de una actividad: título, descripción, objetivo, dificultad, duración,
+ * obligatoriedad y el contenido propio de cada tipo (preguntas, instrucciones o enlace). No
+ * incluye lo que es de cada actividad concreta: identificador, fecha límite, prerrequisitos y
+ * respuestas de los estudiantes.
+ *
+ * Las plantillas se identifican por su contenido y se internan ({@link #of(Activity)}): dos
+ * actividades con el mismo contenido comparten la misma plantilla. Las preguntas forman parte
+ * del contenido con su identificador, así que dos preguntas con el mismo texto creadas por
+ * separado son contenido distinto. Las actividades creadas con
+ * {@link #instantiate()} comparten además las listas de preguntas de la plantilla, así que copiar
+ * un Learning Path solo copia referencias. Las listas compartidas son de solo lectura; cuando un
+ * profesor edita una actividad (por ejemplo {@link Quiz#setCorrectOptionIndex} o
+ * {@link Survey#addSurveyQuestion}), la actividad pasa a tener su propia lista y deja de usar la
+ * plantilla (copia en escritura).
+ */
+public final class ActivityTemplate {
+
+    /**
+     * Tipo de actividad de una plantilla.
+     */
+    public enum Kind {
+        QUIZ,
+        ASSIGNMENT,
+        RESOURCE_REVIEW,
+        SURVEY,
+        OPEN_ENDED_EXAM
+    }
+
+    // Plantillas internadas; se liberan cuando ninguna actividad las usa
+    private static final Map<ActivityTemplate, WeakReference<ActivityTemplate>> POOL = new WeakHashMap<>();
+
+    private final Kind kind;
+    private final String title;
+    private final String description;
+    private final String objective;
+    private final int difficultyLevel;
+    private final int expectedDuration;
+    private final boolean mandatory;
+    // Quiz
+    private final double passingScore;
+    // Instrucciones de entrega o enlace del recurso
+    private final String text;
+    // Preguntas del quiz, de la encuesta o del examen (de solo lectura; null si el quiz no tiene lista)
+    private final List<?> questions;
+    private final int hash;
+
+    private ActivityTemplate(Activity activity) {
+        this.title = activity.getTitle();
+        this.description = activity.getDescription();
+        this.objective = activity.getObjective();
+        this.difficultyLevel = activity.getDifficultyLevel();
+        this.expectedDuration = activity.getExpectedDuration();
+        this.mandatory = activity.isMandatory();
+        double passing = 0.0;
+        String content = null;
+        List<?> list;
+        if (activity instanceof Quiz) {
+            Quiz quiz = (Quiz) activity;
+            kind = Kind.QUIZ;
+            passing = quiz.getPassingScore();
+            list = quiz.getQuestions();
+        } else if (activity instanceof Assignment) {
+            kind = Kind.ASSIGNMENT;
+            content = ((Assignment) activity).getSubmissionInstructions();
+            list = Collections.emptyList();
+        } else if (activity instanceof ResourceReview) {
+            kind = Kind.RESOURCE_REVIEW;
+            content = ((ResourceReview) activity).getResourceLink();
+            list = Collections.emptyList();
+        } else if (activity instanceof Survey) {
+            kind = Kind.SURVEY;
+            list = ((Survey) activity).getSurveyQuestions();
+        } else if (activity instanceof OpenEndedExam) {
+            kind = Kind.OPEN_ENDED_EXAM;
+            list = ((OpenEndedExam) activity).getExamQuestions();
+        } else {
+            throw new UnsupportedOperationException("Tipo de actividad no soportado: " + activity.getClass().getName());
+        }
+        this.passingScore = passing;
+        this.text = content;
+        this.questions = list == null ? null : Collections.unmodifiableList(new ArrayList<>(list));
+        this.hash = contentHash();
+    }
+
+    /**
+     * Plantilla con el contenido actual de una actividad. Si ya existe una plantilla con el mismo
+     * contenido se devuelve esa, así que las actividades iguales comparten una sola.
+     *
+     * @param activity La actividad.
+     * @return La plantilla internada.
+     * @throws UnsupportedOperationException Si el tipo de actividad no tiene plantilla.
+     */
+    public static ActivityTemplate of(Activity activity) {
+        ActivityTemplate template = activity.template;
+        if (template == null) {
+            template = intern(new ActivityTemplate(activity));
+            activity.template = template;
+        }
+        return template;
+    }
+
+    /**
+     * Interna el contenido de una actividad ya creada (por ejemplo al cargarla) y hace que use
+     * las preguntas de la plantilla internada, de modo que las actividades iguales compartan las
+     * listas en memoria como si se hubieran creado con {@link #instantiate()}.
+     *
+     * @param activity La actividad.
+     * @return La plantilla internada.
+     */
+    @SuppressWarnings("unchecked")
+    public static ActivityTemplate share(Activity activity) {
+        ActivityTemplate template = of(activity);
+        if (template.questions == null) {
+            return template;
+        }
+        switch (template.kind) {
+            case QUIZ:
+                ((Quiz) activity).shareQuestions((List<Question>) template.questions);
+                break;
+            case SURVEY:
+                ((Survey) activity).shareSurveyQuestions((List<SurveyQuestion>) template.questions);
+                break;
+            case OPEN_ENDED_EXAM:
+                ((OpenEndedExam) activity).shareExamQuestions((List<OpenEndedQuestion>) template.questions);
+                break;
+            default:
+                break;
+        }
+        return template;
+    }
+
+    private static ActivityTemplate intern(ActivityTemplate template) {
+        synchronized (POOL) {
+            WeakReference<ActivityTemplate> ref = POOL.get(template);
+            ActivityTemplate existing = ref == null ? null : ref.get();
+            if (existing != null) {
+                return existing;
+            }
+            POOL.put(template, new WeakReference<>(template));
+            return template;
+        }
+    }
+
+    /**
+     * Crea una actividad nueva con este contenido. La actividad comparte las cadenas y las
+     * preguntas de la plantilla; su identificador es nuevo y no tiene fecha límite,
+     * prerrequisitos ni respuestas.
+     *
+     * @return La actividad.
+     */
+    @SuppressWarnings("unchecked")
+    public Activity instantiate() {
+        Activity activity;
+        switch (kind) {
+            case QUIZ:
+                activity = new Quiz(title, description, objective, difficultyLevel, expectedDuration, mandatory,
+                        (List<Question>) questions, passingScore);
+                break;
+            case ASSIGNMENT:
+                activity = new Assignment(title, description, objective, difficultyLevel, expectedDuration, mandatory, text);
+                break;
+            case RESOURCE_REVIEW:
+                activity = new ResourceReview(title, description, objective, difficultyLevel, expectedDuration, mandatory, text);
+                break;
+            case SURVEY: {
+                Survey survey = new Survey(title, description, objective, difficultyLevel, expectedDuration, mandatory);
+                survey.shareSurveyQuestions((List<SurveyQuestion>) questions);
+                activity = survey;
+                break;
+            }
+            default: {
+                OpenEndedExam exam = new OpenEndedExam(title, description, objective, difficultyLevel, expectedDuration,
+                        mandatory, EnumSet.of(ActivityType.EXAMEN), null);
+                exam.shareExamQuestions((List<OpenEndedQuestion>) questions);
+                activity = exam;
+                break;
+            }
+        }
+        activity.template = this;
+        return activity;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Número de preguntas del contenido (0 en tareas y recursos).
+     *
+     * @return El número de preguntas.
+     */
+    public int getQuestionCount() {
+        return questions == null ? 0 : questions.size();
+    }
+
+    private int contentHash() {
+        int h = Objects.hash(kind, title, description, objective, difficultyLevel, expectedDuration, mandatory,
+                passingScore, text);
+        if (questions == null) {
+            return h;
+        }
+        for (Object question : questions) {
+            h = 31 * h + questionHash(question);
+        }
+        return h;
+    }
+
+    private static int questionHash(Object question) {
+        if (question instanceof Question) {
+            Question q = (Question) question;
+            return Objects.hash(q.getId(), q.getQuestionText(), Arrays.hashCode(q.getOptions()),
+                    q.getCorrectOptionIndex(), q.getExplanation());
+        }
+        if (question instanceof SurveyQuestion) {
+            SurveyQuestion q = (SurveyQuestion) question;
+            return Objects.hash(q.getId(), q.getQuestionText(), q.getAnswer());
+        }
+        if (question instanceof OpenEndedQuestion) {
+            OpenEndedQuestion q = (OpenEndedQuestion) question;
+            return Objects.hash(q.getId(), q.getQuestionText(), q.getStudentAnswer(), q.getProfessorFeedback(),
+                    q.getGrade());
+        }
+        return Objects.hashCode(question);
+    }
+
+    private static boolean sameQuestion(Object a, Object b) {
+        if (a == b) {
+            return true;
+        }
+        if (a instanceof Question && b instanceof Question) {
+            Question x = (Question) a;
+            Question y = (Question) b;
+            return x.getId() == y.getId()
+                    && Objects.equals(x.getQuestionText(), y.getQuestionText())
+                    && Arrays.equals(x.getOptions(), y.getOptions())
+                    && x.getCorrectOptionIndex() == y.getCorrectOptionIndex()
+                    && Objects.equals(x.getExplanation(), y.getExplanation());
+        }
+        if (a instanceof SurveyQuestion && b instanceof SurveyQuestion) {
+            SurveyQuestion x = (SurveyQuestion) a;
+            SurveyQuestion y = (SurveyQuestion) b;
+            return x.getId() == y.getId()
+                    && Objects.equals(x.getQuestionText(), y.getQuestionText())
+                    && Objects.equals(x.getAnswer(), y.getAnswer());
+        }
+        if (a instanceof OpenEndedQuestion && b instanceof OpenEndedQuestion) {
+            OpenEndedQuestion x = (OpenEndedQuestion) a;
+            OpenEndedQuestion y = (OpenEndedQuestion) b;
+            return x.getId() == y.getId()
+                    && Objects.equals(x.getQuestionText(), y.getQuestionText())
+                    && Objects.equals(x.getStudentAnswer(), y.getStudentAnswer())
+                    && Objects.equals(x.getProfessorFeedback(), y.getProfessorFeedback())
+                    && Double.compare(x.getGrade(), y.getGrade()) == 0;
+        }
+        return Objects.equals(a, b);
+    }
+
+    /**
+     * Dos plantillas son iguales si tienen el mismo contenido, comparando las preguntas campo a
+     * campo con su identificador (no solo con el equals de cada pregunta, que compara el
+     * identificador pero no el contenido).
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof ActivityTemplate)) return false;
+        ActivityTemplate other = (ActivityTemplate) obj;
+        if (hash != other.hash || kind != other.kind || difficultyLevel != other.difficultyLevel
+                || expectedDuration != other.expectedDuration || mandatory != other.mandatory
+                || Double.compare(passingScore, other.passingScore) != 0
+                || !Objects.equals(title, other.title) || !Objects.equals(description, other.description)
+                || !Objects.equals(objective, other.objective) || !Objects.equals(text, other.text)) {
+            return false;
+        }
+        if (questions == null || other.questions == null) {
+            return questions == other.questions;
+        }
+        if (questions.size() != other.questions.size()) {
+            return false;
+        }
+        for (int i = 0; i < questions.size(); i++) {
+            if (!sameQuestion(questions.get(i), other.questions.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -1,6 +1,8 @@
 package src.com.learningpath.activities;
 
 public class Assignment extends Activity {
+    private static final long serialVersionUID = 7864743679729807146L;
+
     private String submissionInstructions;
 
     public Assignment(String title, String description, String objective, int difficultyLevel, int expectedDuration, boolean isMandatory, String submissionInstructions) {
@@ -13,6 +13,8 @@ public class OpenEndedExam extends Activity implements Serializable {
 
     private List<OpenEndedQuestion> examQuestions;
     private List<OpenEndedResponse> examResponses;
+    // True si examQuestions es la lista de solo lectura de una plantilla
+    private boolean sharedQuestions;
 
     /**
      * Constructor para crear un examen de preguntas abiertas.
@@ -51,7 +53,20 @@ public class OpenEndedExam extends Activity implements Serializable {
      * @param question La pregunta a añadir.
      */
     public void addExamQuestion(OpenEndedQuestion question) {
+        if (sharedQuestions) {
+            examQuestions = new ArrayList<>(examQuestions);
+            sharedQuestions = false;
+        }
         examQuestions.add(question);
+        template = null;
+    }
+
+    /**
+     * Usa las preguntas de una plantilla hasta que el examen se edite.
+     */
+    void shareExamQuestions(List<OpenEndedQuestion> questions) {
+        examQuestions = questions;
+        sharedQuestions = true;
     }
 
     /**
@@ -69,9 +84,25 @@ public class OpenEndedExam extends Activity implements Serializable {
      * @param response La respuesta a añadir.
      */
     public void addExamResponse(OpenEndedResponse response) {
+        response.resolveLegacyAnswers(examQuestions);
         examResponses.add(response);
     }
 
+    /**
+     * Obtiene la respuesta de un estudiante.
+     *
+     * @param studentId El identificador del estudiante.
+     * @return La respuesta, o null si el estudiante no ha respondido.
+     */
+    public OpenEndedResponse getExamResponse(long studentId) {
+        for (OpenEndedResponse response : examResponses) {
+            if (response.getStudent() != null && response.getStudent().getId() == studentId) {
+                return response;
+            }
+        }
+        return null;
+    }
+
     @Override
     public String getType() {
         return "OpenEndedExam";
@@ -2,14 +2,19 @@ package src.com.learningpath.activities;
 
 
 
+import src.com.learningpath.IdGenerator;
+
 import java.io.Serializable;
 
 /**
  * Clase que representa una pregunta abierta en un examen.
+ * Las copias de un examen comparten sus preguntas ({@link ActivityTemplate}); las respuestas de
+ * cada estudiante van en {@link OpenEndedResponse}. equals y hashCode comparan el identificador.
  */
 public class OpenEndedQuestion implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    private long id;
     private String questionText;
     private String studentAnswer; // Respuesta del estudiante
     private String professorFeedback; // Retroalimentación del profesor
@@ -21,6 +26,7 @@ public class OpenEndedQuestion implements Serializable {
      * @param questionText Texto de la pregunta.
      */
     public OpenEndedQuestion(String questionText) {
+        this.id = IdGenerator.next();
         this.questionText = questionText;
         this.studentAnswer = "";
         this.professorFeedback = "";
@@ -29,6 +35,19 @@ public class OpenEndedQuestion implements Serializable {
 
     // Getters y Setters
 
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Asigna el identificador al cargar datos (0 en las preguntas guardadas antes de tenerlo).
+     *
+     * @param id El identificador.
+     */
+    public void setId(long id) {
+        this.id = id;
+    }
+
     public String getQuestionText() {
         return questionText;
     }
@@ -56,5 +75,17 @@ public class OpenEndedQuestion implements Serializable {
     public void setGrade(double grade) {
         this.grade = grade;
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof OpenEndedQuestion)) return false;
+        return id != 0 && id == ((OpenEndedQuestion) obj).id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id != 0 ? Long.hashCode(id) : System.identityHashCode(this);
+    }
 }
 
@@ -2,18 +2,56 @@ package src.com.learningpath.activities;
 
 import src.com.learningpath.users.Student;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Clase que almacena las respuestas de un estudiante a un examen de preguntas abiertas.
+ * Cada respuesta se identifica por la posición de su pregunta en el examen.
+ *
+ * Mientras no se guardan, las respuestas están en memoria. Una vez guardadas en un almacén de
+ * respuestas ({@link #store(AnswerSource)}) solo se conserva su número, y el texto se lee del
+ * almacén cada vez que se pide ({@link #getAnswer(int)}), así que las respuestas cargadas no
+ * ocupan memoria hasta que un profesor las abre.
  */
 public class OpenEndedResponse implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Origen de las respuestas ya guardadas.
+     */
+    public interface AnswerSource {
+        /**
+         * Lee una respuesta guardada.
+         *
+         * @param questionIndex La posición de la pregunta en el examen.
+         * @return La respuesta, o null si no está guardada.
+         */
+        String load(int questionIndex);
+    }
+
+    // Los datos guardados con la serialización de Java tienen las respuestas por texto de la pregunta
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("student", Student.class),
+            new ObjectStreamField("answers", Map.class)
+    };
+
     private Student student;
-    private Map<String, String> answers; // Mapea la pregunta al respuesta
+    // Respuestas en memoria, por posición de la pregunta (null si están en un almacén)
+    private transient List<String> answers;
+    private transient AnswerSource source;
+    private transient int storedCount;
+    // Respuestas leídas con la serialización de Java, por texto de la pregunta, hasta que se
+    // ordenan con las preguntas del examen
+    private transient Map<String, String> legacyAnswers;
 
     /**
      * Constructor para crear una respuesta a un examen de preguntas abiertas.
@@ -22,7 +60,23 @@ public class OpenEndedResponse implements Serializable {
      */
     public OpenEndedResponse(Student student) {
         this.student = student;
-        this.answers = new HashMap<>();
+        this.answers = new ArrayList<>();
+    }
+
+    /**
+     * Respuesta ya guardada en un almacén: las respuestas se leen de él al pedirlas.
+     *
+     * @param student     El estudiante que respondió el examen.
+     * @param answerCount El número de respuestas guardadas.
+     * @param source      El almacén.
+     * @return La respuesta.
+     */
+    public static OpenEndedResponse stored(Student student, int answerCount, AnswerSource source) {
+        OpenEndedResponse response = new OpenEndedResponse(student);
+        response.answers = null;
+        response.storedCount = answerCount;
+        response.source = source;
+        return response;
     }
 
     // Getters y Setters
@@ -46,21 +100,166 @@ public class OpenEndedResponse implements Serializable {
     }
 
     /**
-     * Obtiene el mapa de respuestas.
+     * Número de respuestas (una por pregunta respondida).
      *
-     * @return El mapa que relaciona preguntas con respuestas.
+     * @return El número de respuestas.
      */
-    public Map<String, String> getAnswers() {
-        return answers;
+    public int getAnswerCount() {
+        return answers != null ? answers.size() : storedCount;
     }
 
     /**
-     * Añade una respuesta a una pregunta específica.
+     * Obtiene la respuesta a una pregunta. Si la respuesta está guardada en un almacén se lee
+     * de él en cada llamada, sin conservarla en memoria.
      *
-     * @param question La pregunta del examen.
-     * @param answer   La respuesta proporcionada por el estudiante.
+     * @param questionIndex La posición de la pregunta en el examen.
+     * @return La respuesta, o null si no está disponible.
+     * @throws IndexOutOfBoundsException Si la pregunta no tiene respuesta.
      */
-    public void addAnswer(String question, String answer) {
-        answers.put(question, answer);
+    public String getAnswer(int questionIndex) {
+        if (questionIndex < 0 || questionIndex >= getAnswerCount()) {
+            throw new IndexOutOfBoundsException("Pregunta " + questionIndex + " fuera de " + getAnswerCount() + " respuestas");
+        }
+        return answers != null ? answers.get(questionIndex) : source.load(questionIndex);
+    }
+
+    /**
+     * Obtiene las respuestas en el orden de las preguntas.
+     *
+     * @return Una vista de solo lectura; cada respuesta se lee al acceder a ella.
+     */
+    public List<String> getAnswers() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return getAnswer(index);
+            }
+
+            @Override
+            public int size() {
+                return getAnswerCount();
+            }
+        };
+    }
+
+    /**
+     * Añade la respuesta a la siguiente pregunta del examen.
+     *
+     * @param answer La respuesta proporcionada por el estudiante.
+     * @throws IllegalStateException Si la respuesta ya está guardada en un almacén.
+     */
+    public void addAnswer(String answer) {
+        if (answers == null) {
+            throw new IllegalStateException("La respuesta ya está guardada y no se puede modificar");
+        }
+        answers.add(answer);
+    }
+
+    /**
+     * Respuesta con las respuestas identificadas por el texto de su pregunta, como en los datos
+     * guardados antes de identificarlas por posición. Se ordenan enseguida según las preguntas
+     * del examen; las respuestas a preguntas que ya no están en el examen se descartan.
+     *
+     * @param student   El estudiante que respondió el examen.
+     * @param answers   Las respuestas por texto de la pregunta.
+     * @param questions Las preguntas del examen (null si el examen no se conoce).
+     * @return La respuesta.
+     */
+    public static OpenEndedResponse byQuestionText(Student student, Map<String, String> answers,
+                                                   List<OpenEndedQuestion> questions) {
+        OpenEndedResponse response = new OpenEndedResponse(student);
+        if (questions != null) {
+            response.addByQuestionText(answers, questions);
+        }
+        return response;
+    }
+
+    /**
+     * Ordena las respuestas leídas con la serialización de Java, que están por texto de la
+     * pregunta, según las preguntas del examen. Hasta entonces la respuesta no tiene respuestas
+     * visibles; se llama al añadirla a un examen o a un progreso. No hace nada si no hay
+     * respuestas pendientes de ordenar.
+     *
+     * @param questions Las preguntas del examen.
+     */
+    public void resolveLegacyAnswers(List<OpenEndedQuestion> questions) {
+        if (legacyAnswers == null || questions == null) {
+            return;
+        }
+        Map<String, String> pending = legacyAnswers;
+        legacyAnswers = null;
+        addByQuestionText(pending, questions);
+    }
+
+    private void addByQuestionText(Map<String, String> pending, List<OpenEndedQuestion> questions) {
+        int count = 0;
+        for (int i = 0; i < questions.size(); i++) {
+            if (pending.containsKey(questions.get(i).getQuestionText())) {
+                count = i + 1;
+            }
+        }
+        // Las guardadas con la serialización de Java por esta versión usan la posición como clave
+        for (String key : pending.keySet()) {
+            int index = parseIndex(key);
+            if (index >= 0 && index < questions.size()) {
+                count = Math.max(count, index + 1);
+            }
+        }
+        for (int i = getAnswerCount(); i < count; i++) {
+            String answer = pending.get(questions.get(i).getQuestionText());
+            addAnswer(answer != null ? answer : pending.getOrDefault(Integer.toString(i), ""));
+        }
+    }
+
+    private static int parseIndex(String key) {
+        try {
+            return Integer.parseInt(key);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Indica si las respuestas están guardadas en un almacén en lugar de en memoria.
+     *
+     * @return True si están guardadas.
+     */
+    public boolean isStored() {
+        return answers == null;
+    }
+
+    /**
+     * Deja de conservar las respuestas en memoria una vez guardadas en un almacén.
+     *
+     * @param source El almacén donde se guardaron.
+     */
+    public void store(AnswerSource source) {
+        if (answers != null) {
+            storedCount = answers.size();
+            answers = null;
+        }
+        this.source = source;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        Map<String, String> byIndex = new LinkedHashMap<>();
+        for (int i = 0; i < getAnswerCount(); i++) {
+            byIndex.put(Integer.toString(i), getAnswer(i));
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("student", student);
+        fields.put("answers", byIndex);
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        student = (Student) fields.get("student", null);
+        answers = new ArrayList<>();
+        Map<String, String> saved = (Map<String, String>) fields.get("answers", null);
+        if (saved != null && !saved.isEmpty()) {
+            legacyAnswers = new LinkedHashMap<>(saved);
+        }
     }
 }
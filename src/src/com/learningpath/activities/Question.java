@@ -1,20 +1,56 @@
 package src.com.learningpath.activities;
 
+import src.com.learningpath.IdGenerator;
+
 import java.io.Serializable;
 
+/**
+ * Pregunta de opción múltiple de un {@link Quiz}. Su contenido es inmutable, porque las copias de
+ * un quiz comparten sus preguntas ({@link ActivityTemplate}); el arreglo de opciones no debe
+ * modificarse. Cada pregunta tiene un identificador estable, que es lo que comparan equals y
+ * hashCode.
+ */
 public class Question implements Serializable {
+    private static final long serialVersionUID = 7400396202155865301L;
+
+    private long id;
     private String questionText;
     private String[] options;
     private int correctOptionIndex;
     private String explanation;
 
     public Question(String questionText, String[] options, int correctOptionIndex, String explanation) {
+        this(IdGenerator.next(), questionText, options, correctOptionIndex, explanation);
+    }
+
+    private Question(long id, String questionText, String[] options, int correctOptionIndex, String explanation) {
+        this.id = id;
         this.questionText = questionText;
         this.options = options;
         this.correctOptionIndex = correctOptionIndex;
         this.explanation = explanation;
     }
 
+    /**
+     * Misma pregunta (mismo identificador) con otra opción correcta. No consume un identificador.
+     */
+    Question withCorrectOptionIndex(int correctOptionIndex) {
+        return new Question(id, questionText, options, correctOptionIndex, explanation);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Asigna el identificador al cargar datos (0 en las preguntas guardadas antes de tenerlo).
+     *
+     * @param id El identificador.
+     */
+    public void setId(long id) {
+        this.id = id;
+    }
+
     public String getQuestionText() {
         return questionText;
     }
@@ -30,4 +66,16 @@ public class Question implements Serializable {
     public String getExplanation() {
         return explanation;
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof Question)) return false;
+        return id != 0 && id == ((Question) obj).id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id != 0 ? Long.hashCode(id) : System.identityHashCode(this);
+    }
 }
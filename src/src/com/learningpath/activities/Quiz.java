@@ -1,8 +1,11 @@
 package src.com.learningpath.activities;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class Quiz extends Activity {
+    private static final long serialVersionUID = -2901853084603383726L;
+
     private List<Question> questions;
     private double passingScore;
 
@@ -12,10 +15,45 @@ public class Quiz extends Activity {
         this.passingScore = passingScore;
     }
 
+    /**
+     * Preguntas del quiz. Si el quiz comparte su contenido con otras copias
+     * ({@link ActivityTemplate}) la lista es de solo lectura.
+     *
+     * @return Las preguntas.
+     */
     public List<Question> getQuestions() {
         return questions;
     }
 
+    /**
+     * Corrige la opción correcta de una pregunta (los intentos ya hechos se vuelven a corregir
+     * con {@link src.com.learningpath.grading.GradingEngine#regrade}). Las preguntas pueden estar
+     * compartidas con otras copias del quiz, así que se sustituye la pregunta en una lista propia
+     * en lugar de modificarla. Solo cambia esta copia; para corregir también las de versiones
+     * anteriores del Learning Path se usa {@link src.com.learningpath.LearningPath#setCorrectOptionIndex}.
+     *
+     * @param question           La posición de la pregunta.
+     * @param correctOptionIndex La nueva opción correcta (desde 0).
+     * @throws IllegalArgumentException Si la opción no existe.
+     */
+    public void setCorrectOptionIndex(int question, int correctOptionIndex) {
+        Question current = questions.get(question);
+        if (current.getOptions() == null || correctOptionIndex < 0 || correctOptionIndex >= current.getOptions().length) {
+            throw new IllegalArgumentException("La pregunta no tiene la opción " + correctOptionIndex);
+        }
+        List<Question> updated = new ArrayList<>(questions);
+        updated.set(question, current.withCorrectOptionIndex(correctOptionIndex));
+        questions = updated;
+        template = null;
+    }
+
+    /**
+     * Pasa a usar la lista de preguntas de una plantilla con el mismo contenido.
+     */
+    void shareQuestions(List<Question> questions) {
+        this.questions = questions;
+    }
+
     public double getPassingScore() {
         return passingScore;
     }
@@ -1,6 +1,8 @@
 package src.com.learningpath.activities;
 
 public class ResourceReview extends Activity {
+    private static final long serialVersionUID = 8853765806553297910L;
+
     private String resourceLink; // URL o referencia al recurso
 
     public ResourceReview(String title, String description, String objective, int difficultyLevel, int expectedDuration, boolean isMandatory, String resourceLink) {
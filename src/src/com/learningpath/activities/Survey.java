@@ -9,6 +9,8 @@ public class Survey extends Activity implements Serializable {
 
     private List<SurveyQuestion> surveyQuestions;
     private List<SurveyResponse> surveyResponses;
+    // True si surveyQuestions es la lista de solo lectura de una plantilla
+    private boolean sharedQuestions;
 
     public Survey(String title, String description, String objective, int difficultyLevel, int expectedDuration, boolean isMandatory) {
         super(title, description, objective, difficultyLevel, expectedDuration, isMandatory);
@@ -19,7 +21,20 @@ public class Survey extends Activity implements Serializable {
     // Métodos para gestionar preguntas y respuestas
 
     public void addSurveyQuestion(SurveyQuestion question) {
+        if (sharedQuestions) {
+            surveyQuestions = new ArrayList<>(surveyQuestions);
+            sharedQuestions = false;
+        }
         surveyQuestions.add(question);
+        template = null;
+    }
+
+    /**
+     * Usa las preguntas de una plantilla hasta que la encuesta se edite.
+     */
+    void shareSurveyQuestions(List<SurveyQuestion> questions) {
+        surveyQuestions = questions;
+        sharedQuestions = true;
     }
 
     public List<SurveyQuestion> getSurveyQuestions() {
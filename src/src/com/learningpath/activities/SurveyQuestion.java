@@ -1,20 +1,42 @@
 package src.com.learningpath.activities;
 
+import src.com.learningpath.IdGenerator;
+
 import java.io.Serializable;
 
+/**
+ * Pregunta de una {@link Survey}. Las copias de una encuesta comparten sus preguntas
+ * ({@link ActivityTemplate}); las respuestas de cada estudiante van en {@link SurveyResponse}.
+ * equals y hashCode comparan el identificador.
+ */
 public class SurveyQuestion implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    private long id;
     private String questionText;
     private String answer; // Respuesta del estudiante
 
     public SurveyQuestion(String questionText) {
+        this.id = IdGenerator.next();
         this.questionText = questionText;
         this.answer = "";
     }
 
     // Getters y Setters
 
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Asigna el identificador al cargar datos (0 en las preguntas guardadas antes de tenerlo).
+     *
+     * @param id El identificador.
+     */
+    public void setId(long id) {
+        this.id = id;
+    }
+
     public String getQuestionText() {
         return questionText;
     }
@@ -26,4 +48,16 @@ public class SurveyQuestion implements Serializable {
     public void setAnswer(String answer) {
         this.answer = answer;
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof SurveyQuestion)) return false;
+        return id != 0 && id == ((SurveyQuestion) obj).id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id != 0 ? Long.hashCode(id) : System.identityHashCode(this);
+    }
 }
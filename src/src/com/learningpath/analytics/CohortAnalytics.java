@@ -0,0 +1,92 @@
+package src.com.learningpath.analytics;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.Progress;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Calcula las {@link CohortStatistics} de un Learning Path en paralelo con fork/join: la lista
+ * de progresos se divide por la mitad hasta llegar a tramos de {@link #THRESHOLD} progresos,
+ * cada tramo se acumula en su propio {@link CohortStatistics} y los resultados se combinan al
+ * volver. Como las tareas no comparten estado, el cálculo escala con el número de núcleos.
+ */
+public class CohortAnalytics {
+
+    /**
+     * Número de progresos por debajo del cual una tarea ya no se divide.
+     */
+    static final int THRESHOLD = 8192;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Crea el motor de análisis sobre el pool común de fork/join.
+     */
+    public CohortAnalytics() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Crea el motor de análisis sobre un pool concreto (por ejemplo, para limitar los núcleos).
+     *
+     * @param pool El pool de fork/join.
+     */
+    public CohortAnalytics(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Calcula las estadísticas de la cohorte de un Learning Path.
+     *
+     * @param learningPath El Learning Path.
+     * @param progresses   Los progresos de sus estudiantes. Los de otros Learning Paths se
+     *                     ignoran. La lista no debe modificarse durante el cálculo.
+     * @return Las estadísticas.
+     */
+    public CohortStatistics analyze(LearningPath learningPath, List<Progress> progresses) {
+        CohortStatistics empty = new CohortStatistics(learningPath);
+        if (progresses.size() <= THRESHOLD) {
+            return new CohortTask(empty, progresses, 0, progresses.size()).compute();
+        }
+        return pool.invoke(new CohortTask(empty, progresses, 0, progresses.size()));
+    }
+
+    /**
+     * Acumula un tramo [from, to) de la lista de progresos.
+     */
+    private static class CohortTask extends RecursiveTask<CohortStatistics> {
+        private static final long serialVersionUID = 1L;
+
+        private final CohortStatistics template;
+        private final List<Progress> progresses;
+        private final int from;
+        private final int to;
+
+        CohortTask(CohortStatistics template, List<Progress> progresses, int from, int to) {
+            this.template = template;
+            this.progresses = progresses;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected CohortStatistics compute() {
+            if (to - from <= THRESHOLD) {
+                CohortStatistics statistics = new CohortStatistics(template);
+                for (int i = from; i < to; i++) {
+                    statistics.add(progresses.get(i));
+                }
+                return statistics;
+            }
+            int middle = (from + to) >>> 1;
+            CohortTask left = new CohortTask(template, progresses, from, middle);
+            CohortTask right = new CohortTask(template, progresses, middle, to);
+            left.fork();
+            CohortStatistics result = right.compute();
+            return result.merge(left.join());
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package src.com.learningpath.analytics;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.Progress;
+import src.com.learningpath.activities.Activity;
+import src.com.learningpath.activities.ActivityStatus;
+import src.com.learningpath.activities.Quiz;
+
+import java.util.List;
+
+/**
+ * Estadísticas de la cohorte de estudiantes de un Learning Path. Es un acumulador que se puede
+ * combinar: cada tarea de {@link CohortAnalytics} acumula su parte de los progresos y después
+ * los resultados parciales se suman con {@link #merge}.
+ *
+ * Las estadísticas por actividad se indexan por la posición de la actividad en
+ * {@link LearningPath#getActivities()} al crear el acumulador.
+ */
+public class CohortStatistics {
+
+    private static final ActivityStatus[] STATUSES = ActivityStatus.values();
+
+    private final LearningPath learningPath;
+    private final List<Activity> activities;
+    // Posición de cada actividad en los arreglos de estados de Progress
+    private final int[] slots;
+
+    private long students;
+    private double completionSum;
+    private long fullyCompleted;
+    // Número de estudiantes en cada estado, por actividad y ordinal
+    private final long[][] statusCounts;
+    private final double[] scoreSums;
+    private final long[] scoreCounts;
+    // Número de estudiantes cuya primera actividad sin terminar es cada una
+    private final long[] dropOffs;
+
+    /**
+     * Crea un acumulador vacío.
+     *
+     * @param learningPath El Learning Path analizado.
+     */
+    public CohortStatistics(LearningPath learningPath) {
+        this.learningPath = learningPath;
+        this.activities = List.copyOf(learningPath.getActivities());
+        this.slots = new int[activities.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = learningPath.getActivitySlot(activities.get(i));
+        }
+        this.statusCounts = new long[activities.size()][STATUSES.length];
+        this.scoreSums = new double[activities.size()];
+        this.scoreCounts = new long[activities.size()];
+        this.dropOffs = new long[activities.size()];
+    }
+
+    /**
+     * Crea un acumulador vacío con las mismas actividades que otro.
+     */
+    CohortStatistics(CohortStatistics template) {
+        this.learningPath = template.learningPath;
+        this.activities = template.activities;
+        this.slots = template.slots;
+        this.statusCounts = new long[activities.size()][STATUSES.length];
+        this.scoreSums = new double[activities.size()];
+        this.scoreCounts = new long[activities.size()];
+        this.dropOffs = new long[activities.size()];
+    }
+
+    /**
+     * Acumula el progreso de un estudiante. Los progresos de otros Learning Paths se ignoran.
+     *
+     * @param progress El progreso.
+     */
+    public void add(Progress progress) {
+        if (progress.getLearningPath() != learningPath) {
+            return;
+        }
+        students++;
+        double completion = progress.calculateCompletionPercentage();
+        completionSum += completion;
+        if (completion >= 100.0) {
+            fullyCompleted++;
+        }
+        boolean stopped = false;
+        for (int i = 0; i < slots.length; i++) {
+            ActivityStatus status = progress.getActivityStatusAt(slots[i]);
+            if (status != null) {
+                statusCounts[i][status.ordinal()]++;
+            }
+            if (!stopped && status != ActivityStatus.COMPLETED && status != ActivityStatus.SUBMITTED) {
+                dropOffs[i]++;
+                stopped = true;
+            }
+            double score = progress.getQuizScoreAt(slots[i]);
+            if (!Double.isNaN(score)) {
+                scoreSums[i] += score;
+                scoreCounts[i]++;
+            }
+        }
+    }
+
+    /**
+     * Suma a este acumulador los resultados de otro del mismo Learning Path.
+     *
+     * @param other El otro acumulador.
+     * @return Este acumulador.
+     */
+    public CohortStatistics merge(CohortStatistics other) {
+        if (other.learningPath != learningPath || other.activities.size() != activities.size()) {
+            throw new IllegalArgumentException("Las estadísticas son de Learning Paths distintos");
+        }
+        students += other.students;
+        completionSum += other.completionSum;
+        fullyCompleted += other.fullyCompleted;
+        for (int i = 0; i < activities.size(); i++) {
+            for (int s = 0; s < STATUSES.length; s++) {
+                statusCounts[i][s] += other.statusCounts[i][s];
+            }
+            scoreSums[i] += other.scoreSums[i];
+            scoreCounts[i] += other.scoreCounts[i];
+            dropOffs[i] += other.dropOffs[i];
+        }
+        return this;
+    }
+
+    // Resultados
+
+    public LearningPath getLearningPath() {
+        return learningPath;
+    }
+
+    /**
+     * Actividades analizadas, en el orden del Learning Path.
+     *
+     * @return Las actividades.
+     */
+    public List<Activity> getActivities() {
+        return activities;
+    }
+
+    public long getStudentCount() {
+        return students;
+    }
+
+    /**
+     * Porcentaje de completado medio de los estudiantes.
+     *
+     * @return El porcentaje medio, o 0 si no hay estudiantes.
+     */
+    public double getAverageCompletion() {
+        return students == 0 ? 0 : completionSum / students;
+    }
+
+    /**
+     * Porcentaje de estudiantes que completaron el Learning Path.
+     *
+     * @return El porcentaje, o 0 si no hay estudiantes.
+     */
+    public double getCompletionRate() {
+        return students == 0 ? 0 : fullyCompleted * 100.0 / students;
+    }
+
+    /**
+     * Número de estudiantes con una actividad en un estado.
+     *
+     * @param index  La posición de la actividad en {@link #getActivities()}.
+     * @param status El estado.
+     * @return El número de estudiantes.
+     */
+    public long getStatusCount(int index, ActivityStatus status) {
+        return statusCounts[index][status.ordinal()];
+    }
+
+    /**
+     * Porcentaje de intentos no aprobados de una actividad (por ejemplo, un quiz).
+     *
+     * @param index La posición de la actividad en {@link #getActivities()}.
+     * @return El porcentaje de FAILED sobre COMPLETED y FAILED, o 0 si nadie la intentó.
+     */
+    public double getFailureRate(int index) {
+        long failed = getStatusCount(index, ActivityStatus.FAILED);
+        long attempts = failed + getStatusCount(index, ActivityStatus.COMPLETED);
+        return attempts == 0 ? 0 : failed * 100.0 / attempts;
+    }
+
+    /**
+     * Puntuación media de un quiz.
+     *
+     * @param index La posición del quiz en {@link #getActivities()}.
+     * @return La puntuación media, o NaN si nadie lo hizo.
+     */
+    public double getAverageScore(int index) {
+        return scoreCounts[index] == 0 ? Double.NaN : scoreSums[index] / scoreCounts[index];
+    }
+
+    /**
+     * Número de estudiantes que hicieron un quiz.
+     *
+     * @param index La posición del quiz en {@link #getActivities()}.
+     * @return El número de puntuaciones.
+     */
+    public long getScoreCount(int index) {
+        return scoreCounts[index];
+    }
+
+    /**
+     * Número de estudiantes cuya primera actividad sin completar (o entregar) es la indicada.
+     *
+     * @param index La posición de la actividad en {@link #getActivities()}.
+     * @return El número de estudiantes que se detuvieron en ella.
+     */
+    public long getDropOffCount(int index) {
+        return dropOffs[index];
+    }
+
+    /**
+     * Posición de la actividad en la que se detienen más estudiantes.
+     *
+     * @return La posición en {@link #getActivities()}, o -1 si nadie se detuvo.
+     */
+    public int getMainDropOff() {
+        int main = -1;
+        for (int i = 0; i < dropOffs.length; i++) {
+            if (dropOffs[i] > 0 && (main < 0 || dropOffs[i] > dropOffs[main])) {
+                main = i;
+            }
+        }
+        return main;
+    }
+
+    /**
+     * Indica si una actividad es un quiz.
+     *
+     * @param index La posición de la actividad en {@link #getActivities()}.
+     * @return True si es un quiz.
+     */
+    public boolean isQuiz(int index) {
+        return activities.get(index) instanceof Quiz;
+    }
+}
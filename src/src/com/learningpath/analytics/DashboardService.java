@@ -0,0 +1,188 @@
+package src.com.learningpath.analytics;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.Progress;
+import src.com.learningpath.ProgressListener;
+import src.com.learningpath.activities.Activity;
+import src.com.learningpath.activities.ActivityStatus;
+import src.com.learningpath.activities.Survey;
+import src.com.learningpath.activities.SurveyResponse;
+
+import java.io.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mantiene una {@link PathDashboard} por Learning Path. Se registra como observador de los
+ * progresos y actualiza la vista del Learning Path correspondiente con cada evento, en lugar
+ * de recorrer los progresos al mostrar el panel. Las inscripciones nuevas se notifican con
+ * {@link #enrolled}.
+ *
+ * Las vistas se guardan junto a los progresos (ver
+ * {@link src.com.learningpath.data.DataManager#saveDashboards()}), de modo que están disponibles
+ * al iniciar sin esperar a que se carguen todos los progresos. Los cambios del write-ahead log
+ * que se aplican al cargar llegan como eventos y se suman a las vistas guardadas.
+ */
+public class DashboardService implements ProgressListener {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final Map<Long, PathDashboard> dashboards = new HashMap<>();
+
+    private PathDashboard dashboard(Progress progress) {
+        return dashboards.computeIfAbsent(progress.getLearningPath().getId(), PathDashboard::new);
+    }
+
+    /**
+     * Vista de un Learning Path.
+     *
+     * @param learningPath El Learning Path.
+     * @return Una copia de su vista (vacía si no tiene estudiantes).
+     */
+    public synchronized PathDashboard getDashboard(LearningPath learningPath) {
+        PathDashboard dashboard = dashboards.get(learningPath.getId());
+        return dashboard == null ? new PathDashboard(learningPath.getId()) : new PathDashboard(dashboard);
+    }
+
+    /**
+     * Añade una inscripción nueva a la vista de su Learning Path.
+     *
+     * @param progress El progreso del estudiante inscrito.
+     */
+    public synchronized void enrolled(Progress progress) {
+        PathDashboard dashboard = dashboard(progress);
+        dashboard.enrolled++;
+        dashboard.completionHistogram[PathDashboard.bucket(progress.calculateCompletionPercentage())]++;
+        for (Map.Entry<Activity, ActivityStatus> entry : progress.getActivityStatuses().entrySet()) {
+            dashboard.addStatus(entry.getKey().getId(), entry.getValue(), 1);
+        }
+        for (Survey survey : progress.getSurveyResponses().keySet()) {
+            dashboard.surveyResponses.merge(survey.getId(), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Reconstruye todas las vistas a partir de los progresos.
+     *
+     * @param progresses Todos los progresos.
+     */
+    public synchronized void rebuild(Collection<Progress> progresses) {
+        dashboards.clear();
+        for (Progress progress : progresses) {
+            enrolled(progress);
+        }
+    }
+
+    /**
+     * Número total de inscripciones en todas las vistas.
+     *
+     * @return El número de inscripciones.
+     */
+    public synchronized long getEnrollmentCount() {
+        long total = 0;
+        for (PathDashboard dashboard : dashboards.values()) {
+            total += dashboard.enrolled;
+        }
+        return total;
+    }
+
+    // Implementación de ProgressListener
+
+    @Override
+    public synchronized void activityStatusChanged(Progress progress, Activity activity, ActivityStatus previous, ActivityStatus status) {
+        PathDashboard dashboard = dashboard(progress);
+        dashboard.addStatus(activity.getId(), previous, -1);
+        dashboard.addStatus(activity.getId(), status, 1);
+    }
+
+    @Override
+    public synchronized void completionChanged(Progress progress, double previous, double current) {
+        PathDashboard dashboard = dashboard(progress);
+        dashboard.completionHistogram[PathDashboard.bucket(previous)]--;
+        dashboard.completionHistogram[PathDashboard.bucket(current)]++;
+    }
+
+    @Override
+    public synchronized void surveyResponseAdded(Progress progress, Survey survey, SurveyResponse response) {
+        dashboard(progress).surveyResponses.merge(survey.getId(), 1, Integer::sum);
+    }
+
+    // Persistencia
+
+    /**
+     * Escribe todas las vistas.
+     *
+     * @param out El flujo de salida.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(FORMAT_VERSION);
+        data.writeInt(dashboards.size());
+        for (PathDashboard dashboard : dashboards.values()) {
+            data.writeLong(dashboard.getPathId());
+            data.writeInt(dashboard.enrolled);
+            for (int count : dashboard.completionHistogram) {
+                data.writeInt(count);
+            }
+            data.writeInt(dashboard.statusCounts.size());
+            for (Map.Entry<Long, int[]> entry : dashboard.statusCounts.entrySet()) {
+                data.writeLong(entry.getKey());
+                data.writeByte(entry.getValue().length);
+                for (int count : entry.getValue()) {
+                    data.writeInt(count);
+                }
+            }
+            data.writeInt(dashboard.surveyResponses.size());
+            for (Map.Entry<Long, Integer> entry : dashboard.surveyResponses.entrySet()) {
+                data.writeLong(entry.getKey());
+                data.writeInt(entry.getValue());
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Sustituye las vistas por las leídas de un flujo.
+     *
+     * @param in El flujo de entrada.
+     * @throws IOException Si el contenido no es válido.
+     */
+    public synchronized void readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        int version = data.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Versión de las vistas no soportada: " + version);
+        }
+        Map<Long, PathDashboard> loaded = new HashMap<>();
+        int pathCount = data.readInt();
+        for (int i = 0; i < pathCount; i++) {
+            PathDashboard dashboard = new PathDashboard(data.readLong());
+            dashboard.enrolled = data.readInt();
+            for (int b = 0; b < PathDashboard.HISTOGRAM_BUCKETS; b++) {
+                dashboard.completionHistogram[b] = data.readInt();
+            }
+            int activityCount = data.readInt();
+            for (int a = 0; a < activityCount; a++) {
+                long activityId = data.readLong();
+                int statusCount = data.readByte();
+                if (statusCount != ActivityStatus.values().length) {
+                    throw new IOException("Número de estados inesperado: " + statusCount);
+                }
+                int[] counts = new int[statusCount];
+                for (int s = 0; s < statusCount; s++) {
+                    counts[s] = data.readInt();
+                }
+                dashboard.statusCounts.put(activityId, counts);
+            }
+            int surveyCount = data.readInt();
+            for (int s = 0; s < surveyCount; s++) {
+                dashboard.surveyResponses.put(data.readLong(), data.readInt());
+            }
+            loaded.put(dashboard.getPathId(), dashboard);
+        }
+        dashboards.clear();
+        dashboards.putAll(loaded);
+    }
+}
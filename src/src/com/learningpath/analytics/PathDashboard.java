@@ -0,0 +1,120 @@
+package src.com.learningpath.analytics;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.activities.Activity;
+import src.com.learningpath.activities.ActivityStatus;
+import src.com.learningpath.activities.OpenEndedExam;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Vista materializada de un Learning Path para el panel del profesor: estudiantes inscritos,
+ * histograma de completado, estudiantes por estado de cada actividad y respuestas por encuesta.
+ * {@link DashboardService} la mantiene al día con cada evento de progreso, así que consultarla
+ * no depende del número de estudiantes.
+ *
+ * Las actividades se identifican por su identificador.
+ */
+public class PathDashboard {
+
+    /**
+     * Número de tramos del histograma: [0, 10), [10, 20), ..., [90, 100) y 100.
+     */
+    public static final int HISTOGRAM_BUCKETS = 11;
+
+    private static final int STATUS_COUNT = ActivityStatus.values().length;
+
+    private final long pathId;
+    int enrolled;
+    final int[] completionHistogram = new int[HISTOGRAM_BUCKETS];
+    // Estudiantes en cada estado (por ordinal), por actividad
+    final Map<Long, int[]> statusCounts = new HashMap<>();
+    final Map<Long, Integer> surveyResponses = new HashMap<>();
+
+    PathDashboard(long pathId) {
+        this.pathId = pathId;
+    }
+
+    /**
+     * Copia de una vista, para leerla sin bloquear las actualizaciones.
+     */
+    PathDashboard(PathDashboard other) {
+        this.pathId = other.pathId;
+        this.enrolled = other.enrolled;
+        System.arraycopy(other.completionHistogram, 0, completionHistogram, 0, HISTOGRAM_BUCKETS);
+        for (Map.Entry<Long, int[]> entry : other.statusCounts.entrySet()) {
+            statusCounts.put(entry.getKey(), entry.getValue().clone());
+        }
+        surveyResponses.putAll(other.surveyResponses);
+    }
+
+    /**
+     * Tramo del histograma de un porcentaje de completado.
+     */
+    static int bucket(double completion) {
+        return Math.max(0, Math.min(HISTOGRAM_BUCKETS - 1, (int) (completion / 10)));
+    }
+
+    void addStatus(long activityId, ActivityStatus status, int delta) {
+        if (status != null) {
+            statusCounts.computeIfAbsent(activityId, id -> new int[STATUS_COUNT])[status.ordinal()] += delta;
+        }
+    }
+
+    public long getPathId() {
+        return pathId;
+    }
+
+    public int getEnrolledCount() {
+        return enrolled;
+    }
+
+    /**
+     * Número de estudiantes en un tramo del histograma de completado.
+     *
+     * @param bucket El tramo, de 0 a {@link #HISTOGRAM_BUCKETS} - 1 (el último es 100%).
+     * @return El número de estudiantes.
+     */
+    public int getCompletionCount(int bucket) {
+        return completionHistogram[bucket];
+    }
+
+    /**
+     * Número de estudiantes con una actividad en un estado.
+     *
+     * @param activity La actividad.
+     * @param status   El estado.
+     * @return El número de estudiantes.
+     */
+    public int getStatusCount(Activity activity, ActivityStatus status) {
+        int[] counts = statusCounts.get(activity.getId());
+        return counts == null ? 0 : counts[status.ordinal()];
+    }
+
+    /**
+     * Número de respuestas a una encuesta.
+     *
+     * @param survey La encuesta.
+     * @return El número de respuestas.
+     */
+    public int getSurveyResponseCount(Activity survey) {
+        return surveyResponses.getOrDefault(survey.getId(), 0);
+    }
+
+    /**
+     * Número de exámenes de preguntas abiertas entregados y pendientes de revisión.
+     *
+     * @param learningPath El Learning Path de esta vista.
+     * @return El número de exámenes pendientes.
+     */
+    public int getPendingExamReviews(LearningPath learningPath) {
+        int pending = 0;
+        for (Activity activity : learningPath.getActivities()) {
+            if (activity instanceof OpenEndedExam) {
+                pending += getStatusCount(activity, ActivityStatus.SUBMITTED);
+            }
+        }
+        return pending;
+    }
+}
@@ -0,0 +1,170 @@
+package src.com.learningpath.data;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Lector binario correspondiente a {@link BinaryWriter}.
+ */
+public class BinaryReader {
+
+    private final InputStream in;
+    private final List<String> stringTable = new ArrayList<>();
+    private final byte[] buffer = new byte[8192];
+    private int position;
+    private int limit;
+
+    /**
+     * Constructor del lector.
+     *
+     * @param in El flujo de entrada.
+     */
+    public BinaryReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Constructor del lector sobre un buffer en memoria (por ejemplo, un archivo mapeado).
+     *
+     * @param source El buffer; se lee desde su posición hasta su límite.
+     */
+    public BinaryReader(ByteBuffer source) {
+        ByteBuffer data = source.slice();
+        this.in = new InputStream() {
+            @Override
+            public int read() {
+                return data.hasRemaining() ? data.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                if (!data.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(length, data.remaining());
+                data.get(bytes, offset, count);
+                return count;
+            }
+        };
+    }
+
+    private boolean fill() throws IOException {
+        limit = in.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit < 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Indica si quedan datos por leer.
+     *
+     * @return True si no se ha llegado al final.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    public boolean hasMore() throws IOException {
+        return position < limit || fill();
+    }
+
+    public int readByte() throws IOException {
+        if (position == limit && !fill()) {
+            throw new EOFException("Fin inesperado de los datos");
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public int readVarInt() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Varint demasiado largo");
+    }
+
+    public long readVarLong() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Varlong demasiado largo");
+    }
+
+    public int readSignedVarInt() throws IOException {
+        int raw = readVarInt();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public long readSignedVarLong() throws IOException {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public double readDouble() throws IOException {
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | readByte();
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    public byte[] readBytes() throws IOException {
+        byte[] bytes = new byte[readVarInt()];
+        readRaw(bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    public void readRaw(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == limit && !fill()) {
+                throw new EOFException("Fin inesperado de los datos");
+            }
+            int chunk = Math.min(length, limit - position);
+            System.arraycopy(buffer, position, bytes, offset, chunk);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    public String readString() throws IOException {
+        int marker = readVarInt();
+        if (marker == BinaryWriter.NULL_STRING) {
+            return null;
+        }
+        if (marker == BinaryWriter.NEW_STRING) {
+            String value = new String(readBytes(), StandardCharsets.UTF_8);
+            stringTable.add(value);
+            return value;
+        }
+        int index = marker - 2;
+        if (index >= stringTable.size()) {
+            throw new IOException("Referencia de cadena no válida: " + index);
+        }
+        return stringTable.get(index);
+    }
+
+    public Date readDate() throws IOException {
+        long value = readVarLong();
+        return value == 0 ? null : new Date(value - 1);
+    }
+}
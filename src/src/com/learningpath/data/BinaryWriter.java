@@ -0,0 +1,143 @@
+package src.com.learningpath.data;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Escritor binario compacto usado por {@link DomainCodec}.
+ * Los enteros se escriben como varints y las cadenas pasan por una tabla de cadenas:
+ * la primera aparición se escribe completa y las siguientes solo como una referencia.
+ */
+public class BinaryWriter {
+
+    // Marcadores de cadena: 0 = null, 1 = literal nuevo, n >= 2 = referencia a la entrada n - 2
+    static final int NULL_STRING = 0;
+    static final int NEW_STRING = 1;
+
+    private final OutputStream out;
+    private final Map<String, Integer> stringTable = new HashMap<>();
+    private byte[] buffer = new byte[8192];
+    private int position;
+
+    /**
+     * Constructor del escritor.
+     *
+     * @param out El flujo de salida. Debe tener su propio buffer o ser un archivo.
+     */
+    public BinaryWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            flush();
+            if (bytes > buffer.length) {
+                buffer = new byte[bytes];
+            }
+        }
+    }
+
+    public void writeByte(int value) throws IOException {
+        ensure(1);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * Escribe un entero sin signo como varint (7 bits por byte).
+     */
+    public void writeVarInt(int value) throws IOException {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Escribe un long sin signo como varint (7 bits por byte).
+     */
+    public void writeVarLong(long value) throws IOException {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Escribe un entero con signo usando codificación zigzag.
+     */
+    public void writeSignedVarInt(int value) throws IOException {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Escribe un long con signo usando codificación zigzag.
+     */
+    public void writeSignedVarLong(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeDouble(double value) throws IOException {
+        long bits = Double.doubleToLongBits(value);
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (bits >>> shift);
+        }
+    }
+
+    public void writeBytes(byte[] bytes) throws IOException {
+        writeVarInt(bytes.length);
+        writeRaw(bytes, 0, bytes.length);
+    }
+
+    public void writeRaw(byte[] bytes, int offset, int length) throws IOException {
+        if (length > buffer.length) {
+            flush();
+            out.write(bytes, offset, length);
+            return;
+        }
+        ensure(length);
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    /**
+     * Escribe una cadena usando la tabla de cadenas.
+     */
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(NULL_STRING);
+            return;
+        }
+        Integer index = stringTable.get(value);
+        if (index != null) {
+            writeVarInt(index + 2);
+            return;
+        }
+        stringTable.put(value, stringTable.size());
+        writeVarInt(NEW_STRING);
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Escribe una fecha como milisegundos + 1 (0 representa null).
+     */
+    public void writeDate(java.util.Date date) throws IOException {
+        writeVarLong(date == null ? 0 : date.getTime() + 1);
+    }
+
+    public void flush() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+}
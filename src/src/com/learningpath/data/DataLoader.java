@@ -0,0 +1,339 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.Progress;
+import src.com.learningpath.QueryService;
+import src.com.learningpath.analytics.DashboardService;
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.Teacher;
+import src.com.learningpath.users.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Carga inicial de los datos en segundo plano. Los usuarios y los Learning Paths se leen a la vez,
+ * de modo que la consola puede pedir el inicio de sesión en cuanto están los usuarios. Los
+ * progresos dependen de ambos (se decodifican por identificador), así que se cargan después,
+ * también en segundo plano; si un estudiante inicia sesión antes de que terminen, se leen solo
+ * sus progresos ({@link ProgressRepository#findByStudent}).
+ *
+ * Lo que se carga se añade a los índices del {@link QueryService}. Las vistas del panel de
+ * profesores ({@link DashboardService}) se leen de disco antes que los progresos, para que los
+ * cambios del log se sumen a ellas; si no estaban guardadas o no cuadran con los progresos
+ * cargados, se reconstruyen al terminar la carga.
+ *
+ * Un conjunto de datos que no se pudo cargar no se vuelve a guardar, para no sobrescribir los
+ * datos en disco con una lista vacía (ver {@link #available}).
+ *
+ * Los índices del catálogo observan los cambios de todos los Learning Paths mientras el cargador
+ * está abierto; {@link #close()} deja de observarlos, pero no cierra el almacenamiento.
+ */
+public class DataLoader implements Closeable {
+
+    /**
+     * Carga que puede lanzar una excepción comprobada.
+     */
+    private interface Load<T> {
+        T run() throws Exception;
+    }
+
+    private final Storage storage;
+    private final long startNanos = System.nanoTime();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "carga-datos");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final CompletableFuture<List<User>> users;
+    private final CompletableFuture<List<LearningPath>> learningPaths;
+    private final CompletableFuture<Boolean> dashboardsLoaded;
+    private final CompletableFuture<List<Progress>> allProgresses;
+
+    private final QueryService queries = new QueryService();
+    private final DashboardService dashboards = new DashboardService();
+
+    // Progresos cargados; la lista completa solo está lista al terminar la carga
+    private final Set<Long> loadedStudents = new HashSet<>();
+    private final List<Progress> progresses = new ArrayList<>();
+    private boolean progressesLoaded;
+
+    // Estadísticas
+    private volatile long usersNanos;
+    private volatile long learningPathsNanos;
+    private volatile long progressesNanos;
+    private volatile long firstPromptNanos;
+    private volatile int replayedRecords;
+    private volatile int studentsLoadedOnDemand;
+    private volatile boolean dashboardsRebuilt;
+
+    /**
+     * Inicia la carga desde el almacenamiento indicado.
+     *
+     * @param storage El almacenamiento.
+     */
+    public DataLoader(Storage storage) {
+        this.storage = storage;
+        LearningPath.addListener(queries.getCatalog());
+        LearningPath.addListener(queries.getTitles());
+        users = CompletableFuture.supplyAsync(() -> run(() -> storage.users().findAll()), executor)
+                .whenComplete((list, e) -> usersNanos = System.nanoTime() - startNanos);
+        CompletableFuture<List<LearningPath>> decodedPaths =
+                CompletableFuture.supplyAsync(() -> run(() -> storage.learningPaths().findAll()), executor);
+        learningPaths = decodedPaths.thenCombine(users.exceptionally(e -> new ArrayList<>()), (paths, userList) -> {
+            linkCreators(paths);
+            queries.indexLearningPaths(paths);
+            return paths;
+        }).whenComplete((list, e) -> learningPathsNanos = System.nanoTime() - startNanos);
+        DataManager.setDashboards(dashboards);
+        dashboardsLoaded = CompletableFuture.supplyAsync(() -> run(DataManager::loadDashboards), executor)
+                .exceptionally(e -> false);
+        allProgresses = learningPaths.thenCombine(dashboardsLoaded, (paths, saved) -> saved)
+                .thenApplyAsync(saved -> run(() -> loadRemainingProgresses(saved)), executor)
+                .whenComplete((list, e) -> {
+                    progressesNanos = System.nanoTime() - startNanos;
+                    // Con los datos ya cargados, se prepara el índice de búsqueda en segundo plano
+                    executor.execute(queries::prepareSearch);
+                    executor.shutdown();
+                });
+    }
+
+    private static <T> T run(Load<T> load) {
+        try {
+            return load.run();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Los Learning Paths guardan una copia de su creador; como se leen a la vez que los usuarios,
+     * se enlazan después con la instancia cargada del mismo usuario.
+     */
+    private void linkCreators(List<LearningPath> paths) {
+        EntityRegistry registry = DataManager.getRegistry();
+        for (LearningPath lp : paths) {
+            Teacher creator = lp.getCreator();
+            User loaded = creator != null ? registry.getUser(creator.getId()) : null;
+            if (loaded instanceof Teacher && loaded != creator) {
+                lp.setCreator((Teacher) loaded);
+            }
+        }
+    }
+
+    /**
+     * Carga todos los progresos salvo los de los estudiantes que ya se cargaron al iniciar sesión,
+     * y les aplica el log de cambios.
+     *
+     * @param dashboardsSaved Si las vistas del panel se leyeron de disco.
+     */
+    private List<Progress> loadRemainingProgresses(boolean dashboardsSaved) throws IOException {
+        List<Progress> loaded = storage.progresses().findAll();
+        synchronized (progresses) {
+            List<Progress> remaining = new ArrayList<>();
+            for (Progress progress : loaded) {
+                if (!loadedStudents.contains(progress.getStudent().getId())) {
+                    remaining.add(progress);
+                }
+            }
+            replayedRecords += storage.recover(remaining);
+            progresses.addAll(remaining);
+            queries.indexProgresses(remaining);
+            if (!dashboardsSaved || dashboards.getEnrollmentCount() != progresses.size()) {
+                dashboards.rebuild(progresses);
+                dashboardsRebuilt = true;
+            }
+            progressesLoaded = true;
+            return progresses;
+        }
+    }
+
+    /**
+     * Consultas con índices sobre los datos cargados. Los Learning Paths están indexados después
+     * de {@link #awaitLearningPaths()}, y todos los progresos después de {@link #awaitProgresses()}.
+     *
+     * @return El servicio de consultas.
+     */
+    public QueryService getQueries() {
+        return queries;
+    }
+
+    /**
+     * Vistas del panel de profesores. Están disponibles en cuanto se leen de disco, sin esperar
+     * a los progresos; si hay que reconstruirlas, espera a que termine la carga.
+     *
+     * @return Las vistas.
+     */
+    public DashboardService getDashboards() {
+        if (!dashboardsLoaded.join()) {
+            allProgresses.exceptionally(e -> null).join();
+        }
+        return dashboards;
+    }
+
+    /**
+     * Espera a que se carguen los usuarios.
+     *
+     * @return Los usuarios, o una lista vacía si no se pudieron cargar.
+     */
+    public List<User> awaitUsers() {
+        return await(users);
+    }
+
+    /**
+     * Espera a que se carguen los Learning Paths.
+     *
+     * @return Los Learning Paths, o una lista vacía si no se pudieron cargar.
+     */
+    public List<LearningPath> awaitLearningPaths() {
+        return await(learningPaths);
+    }
+
+    /**
+     * Espera a que se carguen todos los progresos.
+     *
+     * @return Una copia de la lista completa de progresos.
+     * @throws IOException Si no se pudieron cargar.
+     */
+    public List<Progress> awaitProgresses() throws IOException {
+        try {
+            allProgresses.join();
+        } catch (CompletionException e) {
+            throw new IOException("No se pudieron cargar los progresos: " + describe(e), e.getCause());
+        }
+        synchronized (progresses) {
+            return new ArrayList<>(progresses);
+        }
+    }
+
+    /**
+     * Obtiene los progresos de un estudiante. Si la carga completa no ha terminado, se leen
+     * solo los suyos y se les aplica el log de cambios.
+     *
+     * @param student El estudiante.
+     * @return Una copia de la lista de sus progresos.
+     * @throws IOException Si no se pudieron cargar.
+     */
+    public List<Progress> progressesOf(Student student) throws IOException {
+        awaitLearningPaths();
+        if (learningPaths.isCompletedExceptionally()) {
+            // Sin Learning Paths los progresos no pueden decodificarse
+            awaitProgresses();
+        }
+        // Los cambios del log se suman a las vistas guardadas, así que deben leerse antes
+        dashboardsLoaded.join();
+        synchronized (progresses) {
+            if (!progressesLoaded && !loadedStudents.contains(student.getId())) {
+                List<Progress> list = new ArrayList<>(storage.progresses().findByStudent(student.getId()));
+                replayedRecords += storage.recover(list);
+                loadedStudents.add(student.getId());
+                progresses.addAll(list);
+                queries.indexProgresses(list);
+                studentsLoadedOnDemand++;
+            }
+        }
+        return queries.getProgressesOf(student);
+    }
+
+    /**
+     * Añade un progreso nuevo (una inscripción).
+     *
+     * @param progress El progreso.
+     */
+    public void addProgress(Progress progress) {
+        synchronized (progresses) {
+            progresses.add(progress);
+            queries.addProgress(progress);
+            dashboards.enrolled(progress);
+        }
+    }
+
+    /**
+     * Espera a que termine la carga y devuelve los conjuntos de datos que se pueden guardar:
+     * los que se cargaron correctamente. Los progresos necesitan también los Learning Paths,
+     * porque las respuestas se guardan en las actividades.
+     *
+     * @param dataSets Los conjuntos de datos modificados.
+     * @return Los que se pueden guardar sin perder datos.
+     */
+    public Set<DataSet> available(Set<DataSet> dataSets) {
+        EnumSet<DataSet> result = EnumSet.noneOf(DataSet.class);
+        for (DataSet dataSet : dataSets) {
+            if (getFailure(dataSet) == null) {
+                result.add(dataSet);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Error de carga de un conjunto de datos, si lo hubo. Espera a que termine su carga.
+     *
+     * @param dataSet El conjunto de datos.
+     * @return El mensaje de error, o null si se cargó correctamente.
+     */
+    public String getFailure(DataSet dataSet) {
+        CompletableFuture<?> load = dataSet == DataSet.USERS ? users
+                : dataSet == DataSet.LEARNING_PATHS ? learningPaths
+                : allProgresses; // PROGRESSES y PROGRESS_LOG
+        try {
+            load.join();
+            return null;
+        } catch (CompletionException e) {
+            return describe(e);
+        }
+    }
+
+    private static <T> List<T> await(CompletableFuture<List<T>> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    private static String describe(CompletionException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage() != null ? cause.getMessage() : cause.toString();
+    }
+
+    /**
+     * Registra el momento en que la consola mostró el primer prompt.
+     *
+     * @return Milisegundos desde el inicio de la carga.
+     */
+    public double markFirstPrompt() {
+        if (firstPromptNanos == 0) {
+            firstPromptNanos = System.nanoTime() - startNanos;
+        }
+        return firstPromptNanos / 1_000_000.0;
+    }
+
+    /**
+     * Resumen de los tiempos de carga, medidos desde el inicio.
+     *
+     * @return Texto con las estadísticas.
+     */
+    public String getStatistics() {
+        return String.format("primer prompt %.1f ms, usuarios %.1f ms, Learning Paths %.1f ms, progresos %s"
+                        + " (%d estudiantes cargados al iniciar sesión, %d cambios recuperados del log, vistas del panel %s)",
+                firstPromptNanos / 1_000_000.0, usersNanos / 1_000_000.0, learningPathsNanos / 1_000_000.0,
+                allProgresses.isDone() ? String.format("%.1f ms", progressesNanos / 1_000_000.0) : "pendientes",
+                studentsLoadedOnDemand, replayedRecords, dashboardsRebuilt ? "reconstruidas" : "leídas de disco");
+    }
+
+    /**
+     * Deja de actualizar los índices del catálogo con los cambios de los Learning Paths.
+     */
+    @Override
+    public void close() {
+        LearningPath.removeListener(queries.getCatalog());
+        LearningPath.removeListener(queries.getTitles());
+    }
+}
@@ -0,0 +1,70 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.Progress;
+import src.com.learningpath.activities.*;
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.Teacher;
+import src.com.learningpath.users.User;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+public class DataLoaderTest {
+
+    @Test
+    public void testStudentProgressesLoadBeforeTheRest() throws Exception {
+        String tempDataFolder = "temp_loader_data/";
+        new File(tempDataFolder).mkdirs();
+        DataManager.setDataFolder(tempDataFolder);
+
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        Student first = new Student("first", "password456", "First Student");
+        Student second = new Student("second", "password789", "Second Student");
+        LearningPath lp = new LearningPath("Java Basics", "Intro", "Learn Java", 1, teacher);
+        Activity review = new ResourceReview("Variables", "Learn variables", "Understand", 1, 30, true, "http://example.com");
+        lp.addActivity(review);
+
+        List<User> users = new ArrayList<>(List.of(teacher, first, second));
+        List<LearningPath> learningPaths = new ArrayList<>(List.of(lp));
+        List<Progress> progresses = new ArrayList<>(List.of(new Progress(first, lp), new Progress(second, lp)));
+
+        try {
+            DataManager.enableWriteAheadLog();
+            DataManager.checkpoint(users, learningPaths, progresses);
+            // Cambios que solo quedan en el log
+            progresses.get(0).updateActivityStatus(review, ActivityStatus.COMPLETED);
+            progresses.get(1).updateActivityStatus(review, ActivityStatus.SUBMITTED);
+            DataManager.disableWriteAheadLog();
+
+            try (FileStorage storage = new FileStorage(true); DataLoader loader = new DataLoader(storage)) {
+                assertEquals(3, loader.awaitUsers().size());
+
+                List<Progress> mine = loader.progressesOf(first);
+                assertEquals(1, mine.size());
+                assertEquals(ActivityStatus.COMPLETED, mine.get(0).getActivityStatus(review));
+
+                // La carga completa no duplica los progresos ya cargados ni les vuelve a aplicar el log
+                List<Progress> all = loader.awaitProgresses();
+                assertEquals(2, all.size());
+                assertTrue(all.contains(mine.get(0)));
+                for (Progress progress : all) {
+                    if (progress.getStudent().getId() == second.getId()) {
+                        assertEquals(ActivityStatus.SUBMITTED, progress.getActivityStatus(review));
+                    } else {
+                        assertSame(mine.get(0), progress);
+                    }
+                }
+                assertEquals(EnumSet.allOf(DataSet.class), loader.available(EnumSet.allOf(DataSet.class)));
+            }
+        } finally {
+            DataManager.disableWriteAheadLog();
+            TestFiles.delete(new File(tempDataFolder));
+            DataManager.setDataFolder("data/");
+        }
+    }
+}
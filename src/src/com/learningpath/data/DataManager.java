@@ -1,73 +1,570 @@
 package src.com.learningpath.data;
 
+import src.com.learningpath.IdGenerator;
 import src.com.learningpath.LearningPath;
 import src.com.learningpath.Progress;
+import src.com.learningpath.activities.Activity;
+import src.com.learningpath.activities.ActivityStatus;
+import src.com.learningpath.activities.OpenEndedExam;
+import src.com.learningpath.activities.Survey;
+import src.com.learningpath.analytics.DashboardService;
+import src.com.learningpath.users.Student;
 import src.com.learningpath.users.User;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 public class DataManager {
 	
 	private static String DATA_FOLDER = "data/";
-	
-   
+
+    // Write-ahead log de progresos (null si el modo WAL está desactivado)
+    private static WriteAheadLog progressLog;
+
+    // Almacén de las respuestas a exámenes de preguntas abiertas (null si no está abierto)
+    static final String RESPONSES_FILE = "exam_answers.dat";
+    private static ResponseStore responseStore;
+    private static int checkpointInterval = 500;
+
+    // Vistas del panel de profesores que se guardan con cada instantánea de progresos (puede ser null)
+    private static DashboardService dashboards;
+
+    // Mapa de identidad usado para resolver las referencias por identificador al cargar
+    private static final EntityRegistry registry = new EntityRegistry();
+
+    // Último identificador asignado (ver IdGenerator#current), para no repetir identificadores
+    // de entidades borradas en sesiones anteriores
+    static final String IDS_FILE = "ids.dat";
+    private static long savedLastId;
+
+    // Instantáneas segmentadas de la carpeta de datos actual (se crean al primer uso)
+    private static SegmentedSnapshot<User> userSnapshot;
+    private static SegmentedSnapshot<LearningPath> learningPathSnapshot;
+    private static SegmentedSnapshot<Progress> progressSnapshot;
+
 
     public static void saveUsers(List<User> users) throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(DATA_FOLDER + "users.dat"))) {
-            oos.writeObject(users);
+        for (User user : users) {
+            registry.register(user);
         }
+        userSnapshot().save(users);
+        removeSingleFile("users.dat");
+        saveIdAllocator();
     }
 
-    @SuppressWarnings("unchecked")
     public static List<User> loadUsers() throws IOException, ClassNotFoundException {
-        File file = new File(DATA_FOLDER + "users.dat");
-        if (!file.exists()) {
+        loadIdAllocator();
+        if (userSnapshot().exists()) {
+            List<User> users = userSnapshot().load();
+            for (User user : users) {
+                registry.register(user);
+            }
+            return users;
+        }
+        File file = SnapshotFiles.recover(new File(DATA_FOLDER + "users.dat"));
+        if (file == null) {
             return new ArrayList<>();
         }
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-            return (List<User>) ois.readObject();
+        List<User> users;
+        if (!DomainCodec.isBinary(file)) {
+            users = readLegacy(file);
+        } else {
+            try (InputStream in = new FileInputStream(file)) {
+                users = DomainCodec.readUsers(in, registry);
+            }
+        }
+        for (User user : users) {
+            registry.register(user);
         }
+        return users;
     }
 
     public static void saveLearningPaths(List<LearningPath> learningPaths) throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(DATA_FOLDER + "learning_paths.dat"))) {
-            oos.writeObject(learningPaths);
+        for (LearningPath lp : learningPaths) {
+            registry.register(lp);
         }
+        learningPathSnapshot().save(learningPaths);
+        removeSingleFile("learning_paths.dat");
+        saveIdAllocator();
     }
 
-    @SuppressWarnings("unchecked")
     public static List<LearningPath> loadLearningPaths() throws IOException, ClassNotFoundException {
-        File file = new File(DATA_FOLDER + "learning_paths.dat");
-        if (!file.exists()) {
+        loadIdAllocator();
+        if (learningPathSnapshot().exists()) {
+            List<LearningPath> learningPaths = learningPathSnapshot().load();
+            for (LearningPath lp : learningPaths) {
+                registry.register(lp);
+            }
+            return learningPaths;
+        }
+        File file = SnapshotFiles.recover(new File(DATA_FOLDER + "learning_paths.dat"));
+        if (file == null) {
             return new ArrayList<>();
         }
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-            return (List<LearningPath>) ois.readObject();
+        List<LearningPath> learningPaths;
+        if (!DomainCodec.isBinary(file)) {
+            learningPaths = readLegacy(file);
+        } else if (DomainCodec.readFileKind(file) == DomainCodec.CATALOG_FILE) {
+            // Catálogo mapeado: las actividades se decodifican en el primer acceso
+            learningPaths = MappedCatalog.read(file, registry);
+        } else {
+            try (InputStream in = new FileInputStream(file)) {
+                learningPaths = DomainCodec.readLearningPaths(in, registry);
+            }
+        }
+        for (LearningPath lp : learningPaths) {
+            registry.register(lp);
         }
+        return learningPaths;
     }
 
     public static void saveProgresses(List<Progress> progresses) throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(DATA_FOLDER + "progresses.dat"))) {
-            oos.writeObject(progresses);
-        }
+        progressSnapshot().save(progresses);
+        removeSingleFile("progresses.dat");
+        saveIdAllocator();
     }
-    public static void setDataFolder(String folder) {
+    public static synchronized void setDataFolder(String folder) {
         DATA_FOLDER = folder;
+        savedLastId = 0;
+        userSnapshot = null;
+        learningPathSnapshot = null;
+        progressSnapshot = null;
+    }
+
+    public static String getDataFolder() {
+        return DATA_FOLDER;
     }
 
-    @SuppressWarnings("unchecked")
     public static List<Progress> loadProgresses() throws IOException, ClassNotFoundException {
-        File file = new File(DATA_FOLDER + "progresses.dat");
-        if (!file.exists()) {
+        loadIdAllocator();
+        if (progressSnapshot().exists()) {
+            return progressSnapshot().load();
+        }
+        File file = SnapshotFiles.recover(new File(DATA_FOLDER + "progresses.dat"));
+        if (file == null) {
             return new ArrayList<>();
         }
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-            return (List<Progress>) ois.readObject();
+        if (!DomainCodec.isBinary(file)) {
+            return relinkLegacyProgresses(readLegacy(file));
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return DomainCodec.readProgresses(in, registry);
         }
     }
 
-	
-	}
+    /**
+     * Carga los progresos de un estudiante. Con la instantánea segmentada solo se lee el
+     * segmento del estudiante; con el formato de un solo archivo se lee el archivo completo.
+     *
+     * @param studentId El identificador del estudiante.
+     * @return Sus progresos.
+     */
+    public static List<Progress> loadProgresses(long studentId) throws IOException, ClassNotFoundException {
+        List<Progress> progresses = progressSnapshot().exists()
+                ? progressSnapshot().loadSegment(studentId)
+                : loadProgresses();
+        List<Progress> result = new ArrayList<>();
+        for (Progress progress : progresses) {
+            if (progress.getStudent().getId() == studentId) {
+                result.add(progress);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Los progresos guardados con la serialización de Java contienen su propia copia del
+     * Learning Path. Se enlazan con las instancias ya cargadas (mismo título y creador),
+     * trasladando los estados y respuestas según la posición de cada actividad.
+     */
+    private static List<Progress> relinkLegacyProgresses(List<Progress> legacy) {
+        List<Progress> progresses = new ArrayList<>(legacy.size());
+        for (Progress old : legacy) {
+            LearningPath path = registry.findEqualLearningPath(old.getLearningPath());
+            if (path == null) {
+                registry.register(old.getLearningPath());
+                progresses.add(old);
+                continue;
+            }
+            User student = registry.findUserByUsername(old.getStudent().getUsername());
+            Progress progress = new Progress(student instanceof Student ? (Student) student : old.getStudent(), path);
+            List<Activity> oldActivities = old.getLearningPath().getActivities();
+            List<Activity> activities = path.getActivities();
+            for (int i = 0; i < oldActivities.size() && i < activities.size(); i++) {
+                Activity oldActivity = oldActivities.get(i);
+                Activity activity = activities.get(i);
+                ActivityStatus status = old.getActivityStatus(oldActivity);
+                if (status != null) {
+                    progress.restoreActivityStatus(activity, status);
+                }
+                if (activity instanceof Survey && old.getSurveyResponses().containsKey(oldActivity)) {
+                    progress.restoreSurveyResponse((Survey) activity, old.getSurveyResponses().get(oldActivity));
+                }
+                if (activity instanceof OpenEndedExam && old.getExamResponses().containsKey(oldActivity)) {
+                    progress.restoreExamResponse((OpenEndedExam) activity, old.getExamResponses().get(oldActivity));
+                }
+            }
+            progresses.add(progress);
+        }
+        return progresses;
+    }
+
+    // Instantáneas segmentadas: una carpeta por conjunto de datos con un archivo por segmento.
+    // Los usuarios y Learning Paths se reparten por su id y los progresos por el id del estudiante.
+
+    private static synchronized SegmentedSnapshot<User> userSnapshot() {
+        if (userSnapshot == null) {
+            userSnapshot = new SegmentedSnapshot<>(new File(DATA_FOLDER + "users"), User::getId,
+                    (file, users) -> SnapshotFiles.write(file, out -> DomainCodec.writeUsers(out, users)),
+                    file -> {
+                        try (InputStream in = new FileInputStream(file)) {
+                            return DomainCodec.readUsers(in, registry);
+                        }
+                    });
+        }
+        return userSnapshot;
+    }
+
+    private static synchronized SegmentedSnapshot<LearningPath> learningPathSnapshot() {
+        if (learningPathSnapshot == null) {
+            learningPathSnapshot = new SegmentedSnapshot<>(new File(DATA_FOLDER + "learning_paths"),
+                    LearningPath::getId, MappedCatalog::write,
+                    file -> MappedCatalog.read(file, registry));
+        }
+        return learningPathSnapshot;
+    }
+
+    private static synchronized SegmentedSnapshot<Progress> progressSnapshot() {
+        if (progressSnapshot == null) {
+            progressSnapshot = new SegmentedSnapshot<>(new File(DATA_FOLDER + "progresses"),
+                    progress -> progress.getStudent().getId(),
+                    (file, progresses) -> SnapshotFiles.write(file, out -> DomainCodec.writeProgresses(out, progresses)),
+                    file -> {
+                        try (InputStream in = new FileInputStream(file)) {
+                            return DomainCodec.readProgresses(in, registry);
+                        }
+                    });
+        }
+        return progressSnapshot;
+    }
+
+    /**
+     * Reserva los identificadores asignados en sesiones anteriores, incluidos los de entidades
+     * que ya no existen, para que {@link IdGenerator#next()} no los repita. Se llama antes de
+     * cargar cada conjunto de datos.
+     *
+     * @throws IOException Si el archivo existe pero no se puede leer.
+     */
+    public static synchronized void loadIdAllocator() throws IOException {
+        File file = SnapshotFiles.recover(new File(DATA_FOLDER + IDS_FILE));
+        if (file == null) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            long lastId = in.readLong();
+            IdGenerator.reserve(lastId);
+            savedLastId = Math.max(savedLastId, lastId);
+        }
+    }
+
+    /**
+     * Guarda el último identificador asignado, si cambió desde la última vez.
+     *
+     * @throws IOException Si ocurre un error al guardar.
+     */
+    public static synchronized void saveIdAllocator() throws IOException {
+        long lastId = IdGenerator.current();
+        if (lastId == savedLastId && new File(DATA_FOLDER + IDS_FILE).exists()) {
+            return;
+        }
+        SnapshotFiles.write(new File(DATA_FOLDER + IDS_FILE), out -> new DataOutputStream(out).writeLong(lastId));
+        savedLastId = lastId;
+    }
+
+    /**
+     * Borra la instantánea de un solo archivo (formato anterior a los segmentos) una vez que
+     * sus datos ya están en la carpeta de segmentos.
+     */
+    private static void removeSingleFile(String name) throws IOException {
+        File file = new File(DATA_FOLDER + name);
+        for (File candidate : new File[]{SnapshotFiles.tempFile(file), SnapshotFiles.previousFile(file), file}) {
+            if (candidate.exists() && !candidate.delete()) {
+                throw new IOException("No se pudo borrar " + candidate.getPath());
+            }
+        }
+    }
+
+    /**
+     * Indica si la carpeta de datos contiene datos guardados, en cualquiera de los formatos.
+     *
+     * @return True si hay usuarios guardados.
+     */
+    public static boolean hasSavedData() {
+        return userSnapshot().exists() || new File(DATA_FOLDER + "users.dat").exists();
+    }
+
+    /**
+     * Obtiene el mapa de identidad de las entidades cargadas.
+     *
+     * @return El registro de entidades.
+     */
+    public static EntityRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Lee un archivo guardado con la serialización de Java (formato anterior al binario).
+     * Se conserva para poder migrar los datos existentes; ver {@link DataMigration}.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> List<T> readLegacy(File file) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return (List<T>) ois.readObject();
+        }
+    }
 
+    // Vistas del panel de profesores
+
+    /**
+     * Registra las vistas del panel de profesores: se suscriben a los cambios de progreso y se
+     * guardan en dashboards.dat con cada instantánea de progresos. Sustituye a las anteriores.
+     *
+     * @param service Las vistas, o null para dejar de mantenerlas.
+     */
+    public static synchronized void setDashboards(DashboardService service) {
+        if (dashboards != null) {
+            Progress.removeListener(dashboards);
+        }
+        dashboards = service;
+        if (service != null) {
+            Progress.addListener(service);
+        }
+    }
+
+    public static synchronized DashboardService getDashboards() {
+        return dashboards;
+    }
+
+    /**
+     * Carga las vistas guardadas en las vistas registradas.
+     *
+     * @return True si había vistas guardadas; false si hay que reconstruirlas desde los progresos.
+     * @throws IOException Si el archivo existe pero no se puede leer.
+     */
+    public static boolean loadDashboards() throws IOException {
+        DashboardService service = getDashboards();
+        File file = SnapshotFiles.recover(new File(DATA_FOLDER + "dashboards.dat"));
+        if (service == null || file == null) {
+            return false;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            service.readFrom(in);
+        }
+        return true;
+    }
+
+    /**
+     * Guarda las vistas registradas, si las hay.
+     *
+     * @throws IOException Si ocurre un error al guardar.
+     */
+    public static synchronized void saveDashboards() throws IOException {
+        if (dashboards != null) {
+            DashboardService service = dashboards;
+            SnapshotFiles.write(new File(DATA_FOLDER + "dashboards.dat"), service::writeTo);
+        }
+    }
+
+    // Almacén de respuestas: el texto de las respuestas a exámenes se guarda una sola vez, fuera
+    // de los archivos de Learning Paths y progresos
+
+    /**
+     * Abre el almacén de respuestas (archivo exam_answers.dat de la carpeta de datos). A partir
+     * de este momento las respuestas a exámenes se guardan en él al entregarse, y los exámenes y
+     * progresos que se cargan leen sus respuestas del almacén. Debe abrirse antes de cargar los
+     * datos y del write-ahead log.
+     *
+     * @return True si se abrió; false si ya estaba abierto.
+     * @throws IOException Si el almacén no puede abrirse.
+     */
+    public static synchronized boolean enableResponseStore() throws IOException {
+        if (responseStore != null) {
+            return false;
+        }
+        responseStore = new ResponseStore(new File(DATA_FOLDER + RESPONSES_FILE));
+        registry.setResponseStore(responseStore);
+        Progress.addListener(responseStore);
+        return true;
+    }
+
+    /**
+     * Cierra el almacén de respuestas. Las respuestas cargadas desde él dejan de poder leerse.
+     *
+     * @throws IOException Si ocurre un error al cerrar el almacén.
+     */
+    public static synchronized void disableResponseStore() throws IOException {
+        if (responseStore == null) {
+            return;
+        }
+        Progress.removeListener(responseStore);
+        registry.setResponseStore(null);
+        responseStore.close();
+        responseStore = null;
+    }
+
+    public static synchronized ResponseStore getResponseStore() {
+        return responseStore;
+    }
+
+    // Modo WAL: los cambios de progreso se añaden a un log en lugar de reescribir todos los archivos
+
+    /**
+     * Activa el modo WAL. A partir de este momento cada cambio de un {@link Progress}
+     * se añade como un registro al archivo progresses.wal de la carpeta de datos.
+     *
+     * @throws IOException Si el log no puede abrirse.
+     */
+    public static synchronized void enableWriteAheadLog() throws IOException {
+        if (progressLog != null) {
+            return;
+        }
+        progressLog = new WriteAheadLog(new File(DATA_FOLDER + "progresses.wal"));
+        Progress.addListener(progressLog);
+    }
+
+    /**
+     * Desactiva el modo WAL y cierra el log.
+     *
+     * @throws IOException Si ocurre un error al cerrar el log.
+     */
+    public static synchronized void disableWriteAheadLog() throws IOException {
+        if (progressLog == null) {
+            return;
+        }
+        Progress.removeListener(progressLog);
+        progressLog.close();
+        progressLog = null;
+    }
+
+    public static synchronized boolean isWriteAheadLogEnabled() {
+        return progressLog != null;
+    }
+
+    /**
+     * Vuelve a aplicar los cambios registrados en el log desde la última instantánea.
+     * Debe llamarse justo después de cargar los datos.
+     *
+     * @param progresses Los progresos cargados.
+     * @return El número de registros aplicados.
+     * @throws IOException Si ocurre un error al leer el log.
+     */
+    public static synchronized int replayWriteAheadLog(List<Progress> progresses) throws IOException {
+        if (progressLog == null) {
+            return 0;
+        }
+        return progressLog.replay(progresses);
+    }
+
+    /**
+     * Guarda una instantánea completa de los datos y vacía el log.
+     *
+     * @param users         Los usuarios.
+     * @param learningPaths Los Learning Paths.
+     * @param progresses    Los progresos.
+     * @throws IOException Si ocurre un error al guardar.
+     */
+    public static synchronized void checkpoint(List<User> users, List<LearningPath> learningPaths, List<Progress> progresses) throws IOException {
+        saveUsers(users);
+        saveLearningPaths(learningPaths);
+        saveProgressSnapshot(progresses);
+    }
+
+    /**
+     * Guarda los progresos y vacía el log de forma atómica respecto a los nuevos registros,
+     * para que ningún cambio quede fuera tanto de la instantánea como del log.
+     */
+    private static void saveProgressSnapshot(List<Progress> progresses) throws IOException {
+        if (progressLog == null) {
+            saveProgresses(progresses);
+            saveDashboards();
+            return;
+        }
+        synchronized (progressLog) {
+            saveProgresses(progresses);
+            // Las vistas deben reflejar la instantánea: el log vaciado no se vuelve a aplicar sobre ellas
+            saveDashboards();
+            progressLog.truncate();
+        }
+    }
+
+    /**
+     * Guarda una instantánea solo si el log superó el intervalo de checkpoint.
+     * Sin modo WAL siempre guarda la instantánea completa.
+     *
+     * @param users         Los usuarios.
+     * @param learningPaths Los Learning Paths.
+     * @param progresses    Los progresos.
+     * @return True si se guardó una instantánea.
+     * @throws IOException Si ocurre un error al guardar.
+     */
+    public static synchronized boolean checkpointIfNeeded(List<User> users, List<LearningPath> learningPaths, List<Progress> progresses) throws IOException {
+        if (progressLog != null && progressLog.getRecordCount() < checkpointInterval) {
+            return false;
+        }
+        checkpoint(users, learningPaths, progresses);
+        return true;
+    }
+
+    /**
+     * Guarda únicamente los conjuntos de datos indicados. Si solo cambió el log de progreso,
+     * basta con una sincronización del log (una sola llamada a fsync) salvo que se haya
+     * alcanzado el intervalo de checkpoint.
+     *
+     * @param dataSets      Los conjuntos de datos modificados.
+     * @param users         Los usuarios.
+     * @param learningPaths Los Learning Paths.
+     * @param progresses    Los progresos.
+     * @throws IOException Si ocurre un error al guardar.
+     */
+    public static synchronized void save(Set<DataSet> dataSets, List<User> users, List<LearningPath> learningPaths, List<Progress> progresses) throws IOException {
+        boolean logFull = progressLog != null && progressLog.getRecordCount() >= checkpointInterval;
+        boolean progressSnapshot = dataSets.contains(DataSet.PROGRESSES)
+                || dataSets.contains(DataSet.PROGRESS_LOG) && (progressLog == null || logFull);
+        if (dataSets.contains(DataSet.USERS)) {
+            saveUsers(users);
+        }
+        // Las respuestas a encuestas y exámenes también viven en los Learning Paths,
+        // así que se guardan antes de vaciar el log
+        if (dataSets.contains(DataSet.LEARNING_PATHS) || progressSnapshot) {
+            saveLearningPaths(learningPaths);
+        }
+        if (progressSnapshot) {
+            saveProgressSnapshot(progresses);
+        } else if (dataSets.contains(DataSet.PROGRESS_LOG)) {
+            progressLog.sync();
+        }
+    }
+
+    /**
+     * Activa o desactiva la sincronización a disco de cada registro del log.
+     * Con un {@link PersistenceService} se desactiva para agrupar la sincronización.
+     *
+     * @param syncOnAppend True para sincronizar cada registro.
+     */
+    public static synchronized void setWriteAheadLogSyncOnAppend(boolean syncOnAppend) {
+        if (progressLog != null) {
+            progressLog.setSyncOnAppend(syncOnAppend);
+        }
+    }
+
+    /**
+     * Establece cuántos registros se acumulan en el log antes de guardar una nueva instantánea.
+     *
+     * @param records Número de registros (mínimo 1).
+     */
+    public static void setCheckpointInterval(int records) {
+        checkpointInterval = Math.max(1, records);
+    }
+}
@@ -1,5 +1,6 @@
 package src.com.learningpath.data;
 
+import src.com.learningpath.IdGenerator;
 import src.com.learningpath.LearningPath;
 import src.com.learningpath.users.Teacher;
 import org.junit.jupiter.api.Test;
@@ -40,7 +41,27 @@ public class DataManagerTest {
         assertEquals("LP2", loadedLearningPaths.get(1).getTitle());
 
         // Limpiamos los archivos temporales
-        new File(tempDataFolder + "learning_paths.dat").delete();
-        new File(tempDataFolder).delete();
+        TestFiles.delete(new File(tempDataFolder));
+    }
+
+    @Test
+    public void testIdAllocatorIsPersisted() throws Exception {
+        String tempDataFolder = "temp_ids/";
+        new File(tempDataFolder).mkdirs();
+        DataManager.setDataFolder(tempDataFolder);
+
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        DataManager.saveLearningPaths(new ArrayList<>(List.of(new LearningPath("LP1", "Description 1", "Objectives 1", 1, teacher))));
+        // Un identificador asignado después, de una entidad que nunca se guarda
+        long discarded = IdGenerator.next();
+        DataManager.saveIdAllocator();
+
+        // Una nueva sesión reserva hasta el descartado, aunque ninguna entidad guardada lo use
+        try (java.io.DataInputStream in = new java.io.DataInputStream(
+                new java.io.FileInputStream(tempDataFolder + DataManager.IDS_FILE))) {
+            assertEquals(discarded, in.readLong());
+        }
+
+        TestFiles.delete(new File(tempDataFolder));
     }
 }
@@ -0,0 +1,110 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.Progress;
+import src.com.learningpath.users.User;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Convierte los archivos de datos guardados con la serialización de Java al formato
+ * binario de {@link DomainCodec}, repartido en segmentos (ver {@link SegmentedSnapshot}). Los
+ * archivos originales se conservan con la extensión ".legacy" por si es necesario volver atrás.
+ *
+ * También asigna identificadores a las preguntas de los datos guardados antes de que los
+ * tuvieran, y guarda el último identificador asignado (ver {@link DataManager#loadIdAllocator()}).
+ *
+ * Uso: java src.com.learningpath.data.DataMigration [carpeta de datos]
+ */
+public class DataMigration {
+
+    public static void main(String[] args) throws Exception {
+        String folder = args.length > 0 ? args[0] : DataManager.getDataFolder();
+        if (!folder.endsWith("/")) {
+            folder += "/";
+        }
+        DataManager.setDataFolder(folder);
+        migrate(folder);
+    }
+
+    /**
+     * Migra los tres archivos de datos de la carpeta indicada.
+     *
+     * @param folder La carpeta de datos (terminada en "/").
+     * @return El número de archivos convertidos.
+     * @throws IOException            Si ocurre un error de lectura o escritura.
+     * @throws ClassNotFoundException Si un archivo antiguo contiene clases desconocidas.
+     */
+    public static int migrate(String folder) throws IOException, ClassNotFoundException {
+        File usersFile = new File(folder + "users.dat");
+        File pathsFile = new File(folder + "learning_paths.dat");
+        File progressesFile = new File(folder + "progresses.dat");
+        // Sin el archivo de identificadores, los datos son anteriores a los identificadores de las preguntas
+        boolean questionIds = new File(folder + DataManager.IDS_FILE).exists();
+
+        // Se cargan todos antes de escribir, ya que la carga detecta el formato de cada archivo
+        List<User> users = DataManager.loadUsers();
+        List<LearningPath> learningPaths = DataManager.loadLearningPaths();
+        List<Progress> progresses = DataManager.loadProgresses();
+
+        int converted = 0;
+        if (needsMigration(usersFile)) {
+            long before = backup(usersFile);
+            DataManager.saveUsers(users);
+            report(usersFile, before, new File(folder + "users"));
+            converted++;
+        }
+        boolean pathsConverted = needsMigration(pathsFile);
+        if (pathsConverted) {
+            long before = backup(pathsFile);
+            DataManager.saveLearningPaths(learningPaths);
+            report(pathsFile, before, new File(folder + "learning_paths"));
+            converted++;
+        }
+        if (needsMigration(progressesFile)) {
+            long before = backup(progressesFile);
+            DataManager.saveProgresses(progresses);
+            report(progressesFile, before, new File(folder + "progresses"));
+            converted++;
+        }
+        if (!questionIds && !learningPaths.isEmpty() && !pathsConverted) {
+            // Las preguntas recibieron identificadores nuevos al cargarse: se escriben de nuevo
+            // todas las actividades para conservarlos
+            for (LearningPath lp : learningPaths) {
+                lp.getActivities();
+            }
+            DataManager.saveLearningPaths(learningPaths);
+            System.out.println("Asignados identificadores a las preguntas de " + learningPaths.size() + " Learning Paths");
+            converted++;
+        }
+        DataManager.saveIdAllocator();
+        if (converted == 0) {
+            System.out.println("Los datos ya están en formato binario.");
+        }
+        return converted;
+    }
+
+    private static boolean needsMigration(File file) throws IOException {
+        return file.exists() && !DomainCodec.isBinary(file);
+    }
+
+    private static long backup(File file) throws IOException {
+        long size = file.length();
+        File legacy = new File(file.getPath() + ".legacy");
+        if (!file.renameTo(legacy)) {
+            throw new IOException("No se pudo respaldar " + file.getPath());
+        }
+        return size;
+    }
+
+    private static void report(File file, long before, File segments) {
+        long after = 0;
+        File[] files = segments.listFiles();
+        for (File segment : files != null ? files : new File[0]) {
+            after += segment.length();
+        }
+        System.out.println("Migrado " + file.getPath() + " a " + segments.getPath() + ": " + before + " -> " + after + " bytes");
+    }
+}
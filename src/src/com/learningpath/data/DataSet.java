@@ -0,0 +1,12 @@
+package src.com.learningpath.data;
+
+/**
+ * Enumeración de los conjuntos de datos que pueden marcarse como modificados
+ * para ser guardados por el {@link PersistenceService}.
+ */
+public enum DataSet {
+    USERS,            // users.dat
+    LEARNING_PATHS,   // learning_paths.dat
+    PROGRESSES,       // progresses.dat
+    PROGRESS_LOG      // progresses.wal (solo requiere sincronizar el log)
+}
@@ -0,0 +1,1317 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.LearningPathVersion;
+import src.com.learningpath.Progress;
+import src.com.learningpath.RatingAggregate;
+import src.com.learningpath.activities.*;
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.Teacher;
+import src.com.learningpath.users.User;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Codificación binaria del modelo de dominio, usada por {@link DataManager} en lugar de
+ * la serialización de Java. Cada archivo empieza con una cabecera (magic "LPDB", versión
+ * del esquema y tipo de archivo) seguida de registros con etiquetas de tipo, varints y
+ * una tabla de cadenas.
+ *
+ * Usuarios, Learning Paths y actividades llevan un identificador estable. Los progresos
+ * solo guardan referencias por identificador a su estudiante, su Learning Path y sus
+ * actividades, que se resuelven al cargar mediante un {@link EntityRegistry}; por eso
+ * los Learning Paths deben cargarse antes que los progresos.
+ *
+ * Versiones del esquema:
+ * 1 - cada archivo de progresos incluía una copia de los Learning Paths usados.
+ * 2 - identificadores estables y progresos normalizados (referencias por identificador).
+ * 3 - learning_paths.dat pasa a ser un catálogo con tabla de offsets (ver {@link MappedCatalog}).
+ * 4 - los progresos guardan la puntuación de los quizzes.
+ * 5 - las actividades guardan sus prerrequisitos dentro del Learning Path.
+ * 6 - los Learning Paths guardan la calificación de cada estudiante.
+ * 7 - los bloques de actividades del catálogo referencian plantillas compartidas
+ *     ({@link ActivityTemplate}) que se guardan una sola vez.
+ * 8 - los Learning Paths guardan el historial de versiones como cambios entre versiones
+ *     ({@link LearningPathVersion}) y los progresos, la versión fijada.
+ * 9 - identificadores de las preguntas, al final de cada Learning Path, bloque de actividades o
+ *     plantilla.
+ * 10 - los progresos guardan los intentos de cada quiz, una respuesta por byte, para volver a
+ *      corregirlos si cambia la clave ({@link src.com.learningpath.grading.GradingEngine}).
+ */
+public class DomainCodec {
+
+    private static final byte[] MAGIC = {'L', 'P', 'D', 'B'};
+    public static final int SCHEMA_VERSION = 10;
+
+    // Tipos de archivo
+    static final int USERS_FILE = 1;
+    static final int LEARNING_PATHS_FILE = 2;
+    static final int PROGRESSES_FILE = 3;
+    static final int CATALOG_FILE = 4;
+
+    // Etiquetas de tipo de usuario
+    private static final int STUDENT = 1;
+    private static final int TEACHER = 2;
+
+    // Etiquetas de tipo de actividad
+    private static final int QUIZ = 1;
+    private static final int ASSIGNMENT = 2;
+    private static final int SURVEY = 3;
+    private static final int OPEN_ENDED_EXAM = 4;
+    private static final int RESOURCE_REVIEW = 5;
+
+    // Referencias: 0 = null, 1 = definición nueva, n >= 2 = referencia a la entrada n - 2
+    private static final int NULL_REF = 0;
+    private static final int NEW_REF = 1;
+
+    private DomainCodec() {
+    }
+
+    /**
+     * Indica si un archivo está en formato binario (y no en serialización de Java).
+     *
+     * @param file El archivo a revisar.
+     * @return True si el archivo empieza con la cabecera binaria.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    public static boolean isBinary(File file) throws IOException {
+        byte[] header = new byte[MAGIC.length];
+        try (InputStream in = new FileInputStream(file)) {
+            return in.read(header) == MAGIC.length && Arrays.equals(header, MAGIC);
+        }
+    }
+
+    /**
+     * Lee el tipo de archivo de la cabecera de un archivo binario.
+     *
+     * @param file El archivo.
+     * @return El tipo de archivo (por ejemplo {@code CATALOG_FILE}).
+     * @throws IOException Si el archivo no está en formato binario.
+     */
+    static int readFileKind(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            BinaryReader reader = new BinaryReader(in);
+            byte[] header = new byte[MAGIC.length];
+            reader.readRaw(header, 0, header.length);
+            if (!Arrays.equals(header, MAGIC)) {
+                throw new IOException("El archivo no está en formato binario");
+            }
+            reader.readVarInt();
+            return reader.readVarInt();
+        }
+    }
+
+    static byte[] magic() {
+        return MAGIC.clone();
+    }
+
+    // Archivos completos
+
+    public static void writeUsers(OutputStream out, List<User> users) throws IOException {
+        Encoder encoder = new Encoder(out, USERS_FILE);
+        encoder.writer.writeVarInt(users.size());
+        for (User user : users) {
+            encoder.writeUser(user);
+        }
+        encoder.writer.flush();
+    }
+
+    public static List<User> readUsers(InputStream in, EntityRegistry registry) throws IOException {
+        Decoder decoder = new Decoder(in, USERS_FILE, registry);
+        int count = decoder.reader.readVarInt();
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(decoder.readUser());
+        }
+        return users;
+    }
+
+    public static void writeLearningPaths(OutputStream out, List<LearningPath> learningPaths) throws IOException {
+        Encoder encoder = new Encoder(out, LEARNING_PATHS_FILE);
+        encoder.writer.writeVarInt(learningPaths.size());
+        for (LearningPath lp : learningPaths) {
+            encoder.writeLearningPath(lp);
+        }
+        encoder.writer.flush();
+    }
+
+    public static List<LearningPath> readLearningPaths(InputStream in, EntityRegistry registry) throws IOException {
+        Decoder decoder = new Decoder(in, LEARNING_PATHS_FILE, registry);
+        int count = decoder.reader.readVarInt();
+        List<LearningPath> learningPaths = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            learningPaths.add(decoder.readLearningPath());
+        }
+        return learningPaths;
+    }
+
+    public static void writeProgresses(OutputStream out, List<Progress> progresses) throws IOException {
+        Encoder encoder = new Encoder(out, PROGRESSES_FILE);
+        encoder.writer.writeVarInt(progresses.size());
+        for (Progress progress : progresses) {
+            encoder.writeProgress(progress);
+        }
+        encoder.writer.flush();
+    }
+
+    /**
+     * Lee un archivo de progresos. Los Learning Paths referenciados deben estar registrados.
+     */
+    public static List<Progress> readProgresses(InputStream in, EntityRegistry registry) throws IOException {
+        Decoder decoder = new Decoder(in, PROGRESSES_FILE, registry);
+        int count = decoder.reader.readVarInt();
+        List<Progress> progresses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            progresses.add(decoder.readProgress());
+        }
+        return progresses;
+    }
+
+    // Bloques independientes, usados por el catálogo (MappedCatalog) y por el almacenamiento
+    // LSM (LsmStorage). Cada bloque tiene su propia tabla de cadenas para poder decodificarse
+    // por separado.
+
+    static byte[] encodeUser(User user) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        Encoder encoder = new Encoder(out);
+        encoder.writeUser(user);
+        encoder.writer.flush();
+        return out.toByteArray();
+    }
+
+    static User decodeUser(java.nio.ByteBuffer buffer, EntityRegistry registry) throws IOException {
+        return new Decoder(new BinaryReader(buffer), registry).readUser();
+    }
+
+    static byte[] encodeProgress(Progress progress) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        Encoder encoder = new Encoder(out);
+        encoder.writeProgress(progress);
+        encoder.writer.flush();
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodifica un progreso. Su Learning Path debe estar registrado.
+     */
+    static Progress decodeProgress(java.nio.ByteBuffer buffer, EntityRegistry registry) throws IOException {
+        return new Decoder(new BinaryReader(buffer), registry).readProgress();
+    }
+
+    static byte[] encodePathMetadata(LearningPath lp) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        Encoder encoder = new Encoder(out);
+        encoder.writePathMetadata(lp);
+        encoder.writer.flush();
+        return out.toByteArray();
+    }
+
+    static LearningPath decodePathMetadata(java.nio.ByteBuffer buffer, EntityRegistry registry) throws IOException {
+        return new Decoder(new BinaryReader(buffer), registry).readPathMetadata();
+    }
+
+    /**
+     * Codifica las actividades de una versión de un Learning Path y su historial. El bloque
+     * contiene las actividades de la versión seguidas de las que solo están en versiones
+     * anteriores, sus prerrequisitos y el historial ({@link Encoder#writeHistory}).
+     */
+    static byte[] encodeActivities(LearningPathVersion version) throws IOException {
+        List<Activity> activities = version.getAllActivities();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        Encoder encoder = new Encoder(out);
+        encoder.writer.writeVarInt(activities.size());
+        for (Activity activity : activities) {
+            encoder.writeActivity(activity);
+        }
+        encoder.writePrerequisites(activities);
+        encoder.writeHistory(version, activities);
+        encoder.writeQuestionIds(activities);
+        encoder.writer.flush();
+        return out.toByteArray();
+    }
+
+    static LearningPathVersion decodeActivities(java.nio.ByteBuffer buffer, EntityRegistry registry) throws IOException {
+        return decodeActivities(buffer, registry, null);
+    }
+
+    /**
+     * Codifica las actividades de una versión y su historial sin su contenido: cada actividad
+     * referencia su plantilla por hash y solo guarda su identificador, su fecha límite y sus
+     * respuestas. Las plantillas se añaden a {@code templates}, que las guarda una sola vez para
+     * todo el catálogo.
+     *
+     * Formato: 0 (marcador), número de actividades, hash de la plantilla de cada una, estado de
+     * cada una, prerrequisitos e historial. Un bloque del formato anterior sin actividades es un
+     * 0 y su historial, que empieza por otro 0, así que el marcador seguido de un número de
+     * actividades distinto de 0 distingue los dos formatos.
+     */
+    static byte[] encodeActivities(LearningPathVersion version, TemplateBlocks templates) throws IOException {
+        List<Activity> activities = version.getAllActivities();
+        if (activities.isEmpty()) {
+            return encodeActivities(version);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * activities.size() + 16);
+        Encoder encoder = new Encoder(out);
+        encoder.writer.writeVarInt(0);
+        encoder.writer.writeVarInt(activities.size());
+        for (Activity activity : activities) {
+            encoder.writer.writeVarLong(templates.add(activity));
+        }
+        for (Activity activity : activities) {
+            encoder.writer.writeVarLong(activity.getId());
+            encoder.writer.writeDate(activity.getDeadline());
+            encoder.writeActivityResponses(activity);
+        }
+        encoder.writePrerequisites(activities);
+        encoder.writeHistory(version, activities);
+        encoder.writer.flush();
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodifica un bloque de actividades en cualquiera de los dos formatos.
+     *
+     * @param templates Las plantillas del catálogo, o null si el bloque no puede referenciarlas.
+     * @return La versión actual con su historial. Los bloques escritos antes de la versión 8 no
+     * tienen historial y devuelven una versión con número 0 (ver
+     * {@link LearningPath#restoreVersions}).
+     */
+    static LearningPathVersion decodeActivities(java.nio.ByteBuffer buffer, EntityRegistry registry,
+                                                TemplateSource templates) throws IOException {
+        Decoder decoder = new Decoder(new BinaryReader(buffer), registry);
+        int count = decoder.reader.readVarInt();
+        if (count == 0 && decoder.reader.hasMore()) {
+            int templateCount = decoder.reader.readVarInt();
+            if (templateCount > 0) {
+                return decoder.readTemplateActivities(templateCount, templates);
+            }
+            // Bloque sin actividades: lo leído es el número de actividades de la versión actual
+            return decoder.readVersions(Collections.emptyList(), 0);
+        }
+        List<Activity> activities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            activities.add(decoder.readActivity());
+        }
+        // Los bloques escritos antes de la versión 5 terminan aquí
+        if (decoder.reader.hasMore()) {
+            decoder.readPrerequisites(activities);
+        }
+        // Los escritos antes de la versión 8, aquí
+        LearningPathVersion current = decoder.reader.hasMore()
+                ? decoder.readHistory(activities) : LearningPathVersion.initial(0, activities);
+        // Y los escritos antes de la versión 9, aquí: sus preguntas conservan los identificadores nuevos
+        if (decoder.reader.hasMore()) {
+            decoder.readQuestionIds(activities);
+        }
+        shareTemplates(activities);
+        return current;
+    }
+
+    /**
+     * Hashes de las plantillas que referencia un bloque de actividades, sin decodificarlo.
+     *
+     * @return Los hashes (vacío si el bloque guarda las actividades completas).
+     */
+    static long[] templateHashes(java.nio.ByteBuffer buffer) throws IOException {
+        BinaryReader reader = new BinaryReader(buffer);
+        if (reader.readVarInt() != 0 || !reader.hasMore()) {
+            return new long[0];
+        }
+        long[] hashes = new long[reader.readVarInt()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = reader.readVarLong();
+        }
+        return hashes;
+    }
+
+    static ActivityTemplate decodeTemplate(java.nio.ByteBuffer buffer) throws IOException {
+        Decoder decoder = new Decoder(new BinaryReader(buffer), null);
+        Activity prototype = decoder.readPrototype(decoder.reader.readByte(), false);
+        // Las plantillas escritas antes de la versión 9 terminan aquí
+        if (decoder.reader.hasMore()) {
+            decoder.readQuestionIds(Collections.singletonList(prototype));
+        }
+        return ActivityTemplate.of(prototype);
+    }
+
+    /**
+     * Interna el contenido de las actividades leídas, una vez asignados los identificadores de
+     * sus preguntas, para que las iguales compartan las preguntas en memoria.
+     */
+    private static void shareTemplates(List<Activity> activities) {
+        for (Activity activity : activities) {
+            ActivityTemplate.share(activity);
+        }
+    }
+
+    /**
+     * Preguntas de una actividad, de cualquiera de los tres tipos (vacío si no tiene).
+     */
+    private static List<?> questionsOf(Activity activity) {
+        List<?> questions = null;
+        if (activity instanceof Quiz) {
+            questions = ((Quiz) activity).getQuestions();
+        } else if (activity instanceof Survey) {
+            questions = ((Survey) activity).getSurveyQuestions();
+        } else if (activity instanceof OpenEndedExam) {
+            questions = ((OpenEndedExam) activity).getExamQuestions();
+        }
+        return questions == null ? Collections.emptyList() : questions;
+    }
+
+    private static long questionId(Object question) {
+        if (question instanceof Question) {
+            return ((Question) question).getId();
+        }
+        if (question instanceof SurveyQuestion) {
+            return ((SurveyQuestion) question).getId();
+        }
+        return ((OpenEndedQuestion) question).getId();
+    }
+
+    private static void setQuestionId(Object question, long id) {
+        if (question instanceof Question) {
+            ((Question) question).setId(id);
+        } else if (question instanceof SurveyQuestion) {
+            ((SurveyQuestion) question).setId(id);
+        } else {
+            ((OpenEndedQuestion) question).setId(id);
+        }
+    }
+
+    /**
+     * Hash de 64 bits del contenido codificado de una plantilla (FNV-1a con una mezcla final para
+     * repartir los bits).
+     */
+    static long contentHash(byte[] bytes) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Plantillas de un catálogo, resueltas por hash al cargar las actividades.
+     */
+    interface TemplateSource {
+        ActivityTemplate template(long hash) throws IOException;
+    }
+
+    /**
+     * Plantillas que se van a escribir en un catálogo, ordenadas por hash. Cada plantilla se
+     * codifica una vez aunque la compartan muchas actividades.
+     */
+    static final class TemplateBlocks {
+        private final SortedMap<Long, java.nio.ByteBuffer> blocks = new TreeMap<>();
+        private final Map<ActivityTemplate, Long> hashes = new IdentityHashMap<>();
+
+        /**
+         * Añade la plantilla de una actividad.
+         *
+         * @return El hash de la plantilla.
+         */
+        long add(Activity activity) throws IOException {
+            ActivityTemplate template = ActivityTemplate.of(activity);
+            Long hash = hashes.get(template);
+            if (hash == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+                Encoder encoder = new Encoder(out);
+                encoder.writeTemplate(activity);
+                encoder.writer.flush();
+                byte[] bytes = out.toByteArray();
+                hash = contentHash(bytes);
+                add(hash, java.nio.ByteBuffer.wrap(bytes));
+                hashes.put(template, hash);
+            }
+            return hash;
+        }
+
+        /**
+         * Añade una plantilla ya codificada (copiada del catálogo anterior).
+         */
+        void add(long hash, java.nio.ByteBuffer block) throws IOException {
+            java.nio.ByteBuffer existing = blocks.putIfAbsent(hash, block);
+            if (existing != null && !existing.equals(block)) {
+                throw new IOException("Dos plantillas distintas con el mismo hash: " + Long.toHexString(hash));
+            }
+        }
+
+        SortedMap<Long, java.nio.ByteBuffer> blocks() {
+            return blocks;
+        }
+    }
+
+    /**
+     * Estado de escritura de un archivo: tabla de cadenas y usuarios ya escritos.
+     */
+    private static class Encoder {
+        final BinaryWriter writer;
+        final Map<User, Integer> userRefs = new HashMap<>();
+
+        /**
+         * Codificador sin cabecera, para los bloques del catálogo.
+         */
+        Encoder(OutputStream out) {
+            writer = new BinaryWriter(out);
+        }
+
+        Encoder(OutputStream out, int fileKind) throws IOException {
+            writer = new BinaryWriter(out);
+            writer.writeRaw(MAGIC, 0, MAGIC.length);
+            writer.writeVarInt(SCHEMA_VERSION);
+            writer.writeVarInt(fileKind);
+        }
+
+        void writeUser(User user) throws IOException {
+            if (user == null) {
+                writer.writeVarInt(NULL_REF);
+                return;
+            }
+            Integer ref = userRefs.get(user);
+            if (ref != null) {
+                writer.writeVarInt(ref + 2);
+                return;
+            }
+            userRefs.put(user, userRefs.size());
+            writer.writeVarInt(NEW_REF);
+            writer.writeVarLong(user.getId());
+            writer.writeByte(user instanceof Teacher ? TEACHER : STUDENT);
+            writer.writeString(user.getUsername());
+            writer.writeString(user.getPassword());
+            writer.writeString(user.getName());
+        }
+
+        void writeLearningPath(LearningPath lp) throws IOException {
+            writer.writeVarLong(lp.getId());
+            writer.writeString(lp.getTitle());
+            writer.writeString(lp.getDescription());
+            writer.writeString(lp.getObjectives());
+            writer.writeSignedVarInt(lp.getDifficultyLevel());
+            writer.writeDouble(lp.getRating());
+            writer.writeDate(lp.getCreationDate());
+            writer.writeDate(lp.getModificationDate());
+            writer.writeString(lp.getVersion());
+            writeUser(lp.getCreator());
+            LearningPathVersion current = lp.getCurrentVersion();
+            List<Activity> activities = current.getAllActivities();
+            writer.writeVarInt(activities.size());
+            for (Activity activity : activities) {
+                writeActivity(activity);
+            }
+            writePrerequisites(activities);
+            writer.writeVarInt(lp.getFeedbackList().size());
+            for (String feedback : lp.getFeedbackList()) {
+                writer.writeString(feedback);
+            }
+            writeRatings(lp.getRatings());
+            writeHistory(current, activities);
+            writeQuestionIds(activities);
+        }
+
+        /**
+         * Escribe los metadatos de un Learning Path del catálogo, sin sus actividades.
+         */
+        void writePathMetadata(LearningPath lp) throws IOException {
+            writer.writeVarLong(lp.getId());
+            writer.writeString(lp.getTitle());
+            writer.writeString(lp.getDescription());
+            writer.writeString(lp.getObjectives());
+            writer.writeSignedVarInt(lp.getDifficultyLevel());
+            writer.writeSignedVarInt(lp.getDuration());
+            writer.writeDouble(lp.getRating());
+            writer.writeDate(lp.getCreationDate());
+            writer.writeDate(lp.getModificationDate());
+            writer.writeString(lp.getVersion());
+            writeUser(lp.getCreator());
+            writer.writeVarInt(lp.getFeedbackList().size());
+            for (String feedback : lp.getFeedbackList()) {
+                writer.writeString(feedback);
+            }
+            writeRatings(lp.getRatings());
+        }
+
+        void writeActivity(Activity activity) throws IOException {
+            writeActivityTag(activity);
+            writer.writeVarLong(activity.getId());
+            writeActivityHeader(activity);
+            writer.writeDate(activity.getDeadline());
+            writeActivityContent(activity);
+            writeActivityResponses(activity);
+        }
+
+        /**
+         * Escribe el contenido de una actividad, el de su plantilla, sin identificador ni fecha
+         * límite ni respuestas.
+         */
+        void writeTemplate(Activity activity) throws IOException {
+            writeActivityTag(activity);
+            writeActivityHeader(activity);
+            writeActivityContent(activity);
+            writeQuestionIds(Collections.singletonList(activity));
+        }
+
+        void writeActivityTag(Activity activity) throws IOException {
+            if (activity instanceof Quiz) {
+                writer.writeByte(QUIZ);
+            } else if (activity instanceof Assignment) {
+                writer.writeByte(ASSIGNMENT);
+            } else if (activity instanceof Survey) {
+                writer.writeByte(SURVEY);
+            } else if (activity instanceof OpenEndedExam) {
+                writer.writeByte(OPEN_ENDED_EXAM);
+            } else if (activity instanceof ResourceReview) {
+                writer.writeByte(RESOURCE_REVIEW);
+            } else {
+                throw new IOException("Tipo de actividad no soportado: " + activity.getClass().getName());
+            }
+        }
+
+        void writeActivityHeader(Activity activity) throws IOException {
+            writer.writeString(activity.getTitle());
+            writer.writeString(activity.getDescription());
+            writer.writeString(activity.getObjective());
+            writer.writeSignedVarInt(activity.getDifficultyLevel());
+            writer.writeSignedVarInt(activity.getExpectedDuration());
+            writer.writeBoolean(activity.isMandatory());
+        }
+
+        void writeActivityContent(Activity activity) throws IOException {
+            if (activity instanceof Quiz) {
+                Quiz quiz = (Quiz) activity;
+                writer.writeDouble(quiz.getPassingScore());
+                List<Question> questions = quiz.getQuestions();
+                // 0 = lista nula, n = n - 1 preguntas
+                writer.writeVarInt(questions == null ? 0 : questions.size() + 1);
+                if (questions != null) {
+                    for (Question q : questions) {
+                        writer.writeString(q.getQuestionText());
+                        String[] options = q.getOptions();
+                        writer.writeVarInt(options.length);
+                        for (String option : options) {
+                            writer.writeString(option);
+                        }
+                        writer.writeSignedVarInt(q.getCorrectOptionIndex());
+                        writer.writeString(q.getExplanation());
+                    }
+                }
+            } else if (activity instanceof Assignment) {
+                writer.writeString(((Assignment) activity).getSubmissionInstructions());
+            } else if (activity instanceof ResourceReview) {
+                writer.writeString(((ResourceReview) activity).getResourceLink());
+            } else if (activity instanceof Survey) {
+                Survey survey = (Survey) activity;
+                writer.writeVarInt(survey.getSurveyQuestions().size());
+                for (SurveyQuestion q : survey.getSurveyQuestions()) {
+                    writer.writeString(q.getQuestionText());
+                    writer.writeString(q.getAnswer());
+                }
+            } else {
+                OpenEndedExam exam = (OpenEndedExam) activity;
+                writer.writeVarInt(exam.getExamQuestions().size());
+                for (OpenEndedQuestion q : exam.getExamQuestions()) {
+                    writer.writeString(q.getQuestionText());
+                    writer.writeString(q.getStudentAnswer());
+                    writer.writeString(q.getProfessorFeedback());
+                    writer.writeDouble(q.getGrade());
+                }
+            }
+        }
+
+        /**
+         * Escribe las respuestas de los estudiantes (solo encuestas y exámenes las tienen).
+         */
+        void writeActivityResponses(Activity activity) throws IOException {
+            if (activity instanceof Survey) {
+                Survey survey = (Survey) activity;
+                writer.writeVarInt(survey.getSurveyResponses().size());
+                for (SurveyResponse response : survey.getSurveyResponses()) {
+                    writeSurveyResponse(response);
+                }
+            } else if (activity instanceof OpenEndedExam) {
+                // Las respuestas guardadas en el almacén de respuestas no se repiten aquí
+                OpenEndedExam exam = (OpenEndedExam) activity;
+                List<OpenEndedResponse> inMemory = new ArrayList<>();
+                for (OpenEndedResponse response : exam.getExamResponses()) {
+                    if (!response.isStored()) {
+                        inMemory.add(response);
+                    }
+                }
+                writer.writeVarInt(inMemory.size());
+                for (OpenEndedResponse response : inMemory) {
+                    writeExamResponse(exam, response);
+                }
+            }
+        }
+
+        /**
+         * Escribe las calificaciones ordenadas por estudiante: cada una ocupa un solo varlong con
+         * la diferencia respecto al identificador anterior y, en los 3 bits bajos, las estrellas.
+         */
+        void writeRatings(RatingAggregate ratings) throws IOException {
+            Map<Long, Integer> byStudent = ratings.getRatings();
+            writer.writeVarInt(byStudent.size());
+            long previous = 0;
+            for (Map.Entry<Long, Integer> rating : byStudent.entrySet()) {
+                writer.writeVarLong((rating.getKey() - previous) << 3 | rating.getValue());
+                previous = rating.getKey();
+            }
+        }
+
+        /**
+         * Escribe los prerrequisitos de cada actividad como posiciones en la lista. Los que no
+         * pertenecen a la lista no se guardan.
+         */
+        void writePrerequisites(List<Activity> activities) throws IOException {
+            Map<Activity, Integer> positions = new IdentityHashMap<>(activities.size());
+            for (int i = 0; i < activities.size(); i++) {
+                positions.putIfAbsent(activities.get(i), i);
+            }
+            for (Activity activity : activities) {
+                List<Integer> prerequisites = new ArrayList<>();
+                for (Activity prerequisite : activity.getSuggestedPrerequisites()) {
+                    Integer position = positions.get(prerequisite);
+                    if (position != null) {
+                        prerequisites.add(position);
+                    }
+                }
+                writer.writeVarInt(prerequisites.size());
+                for (int position : prerequisites) {
+                    writer.writeVarInt(position);
+                }
+            }
+        }
+
+        /**
+         * Escribe el historial de versiones que termina en {@code current}: cuántas de las
+         * actividades de la lista forman la versión actual (las primeras, en orden) y, para cada
+         * versión desde la primera, su número, su fecha y sus cambios, con cada actividad como
+         * posición en la lista. Las versiones solo guardan lo que cambió, no sus actividades.
+         */
+        void writeHistory(LearningPathVersion current, List<Activity> activities) throws IOException {
+            Map<Activity, Integer> positions = new IdentityHashMap<>(activities.size());
+            for (int i = 0; i < activities.size(); i++) {
+                positions.putIfAbsent(activities.get(i), i);
+            }
+            writer.writeVarInt(current.getActivityCount());
+            List<LearningPathVersion> history = current.getHistory();
+            writer.writeVarInt(history.size());
+            for (LearningPathVersion version : history) {
+                writer.writeVarInt(version.getNumber());
+                writer.writeDate(version.getDate());
+                writer.writeVarInt(version.getChanges().size());
+                for (LearningPathVersion.Change change : version.getChanges()) {
+                    writer.writeByte(change.getKind().ordinal());
+                    writer.writeVarInt(positions.get(change.getActivity()));
+                    writer.writeVarInt(change.getPosition());
+                }
+            }
+        }
+
+        /**
+         * Escribe los identificadores de las preguntas de cada actividad. Van aparte, después de
+         * todo lo demás, para que los bloques sin cabecera escritos antes sigan siendo legibles;
+         * cada uno se escribe como diferencia respecto al anterior, ya que las preguntas de una
+         * actividad suelen crearse seguidas.
+         */
+        void writeQuestionIds(List<Activity> activities) throws IOException {
+            for (Activity activity : activities) {
+                List<?> questions = questionsOf(activity);
+                writer.writeVarInt(questions.size());
+                long previous = 0;
+                for (Object question : questions) {
+                    long id = questionId(question);
+                    writer.writeSignedVarLong(id - previous);
+                    previous = id;
+                }
+            }
+        }
+
+        void writeSurveyResponse(SurveyResponse response) throws IOException {
+            writeUser(response.getStudent());
+            writer.writeVarInt(response.getAnswers().size());
+            for (String answer : response.getAnswers()) {
+                writer.writeString(answer);
+            }
+        }
+
+        /**
+         * Escribe una respuesta que está en memoria. Cada respuesta va precedida del texto de su
+         * pregunta, como antes de identificarlas por posición, para que los archivos sigan
+         * siendo legibles por versiones anteriores.
+         */
+        void writeExamResponse(OpenEndedExam exam, OpenEndedResponse response) throws IOException {
+            writeUser(response.getStudent());
+            List<OpenEndedQuestion> questions = exam.getExamQuestions();
+            writer.writeVarInt(response.getAnswerCount());
+            for (int i = 0; i < response.getAnswerCount(); i++) {
+                writer.writeString(questions != null && i < questions.size()
+                        ? questions.get(i).getQuestionText() : Integer.toString(i));
+                writer.writeString(response.getAnswer(i));
+            }
+        }
+
+        void writeProgress(Progress progress) throws IOException {
+            long pathId = progress.getLearningPath().getId();
+            writeUser(progress.getStudent());
+            writer.writeVarLong(pathId);
+
+            writer.writeVarInt(progress.getActivityStatuses().size());
+            for (Map.Entry<Activity, ActivityStatus> entry : progress.getActivityStatuses().entrySet()) {
+                writeActivityRef(pathId, entry.getKey());
+                writer.writeByte(entry.getValue().ordinal());
+            }
+            writer.writeVarInt(progress.getSurveyResponses().size());
+            for (Map.Entry<Survey, SurveyResponse> entry : progress.getSurveyResponses().entrySet()) {
+                writeActivityRef(pathId, entry.getKey());
+                writeSurveyResponse(entry.getValue());
+            }
+            Map<OpenEndedExam, OpenEndedResponse> exams = new LinkedHashMap<>();
+            for (Map.Entry<OpenEndedExam, OpenEndedResponse> entry : progress.getExamResponses().entrySet()) {
+                if (!entry.getValue().isStored()) {
+                    exams.put(entry.getKey(), entry.getValue());
+                }
+            }
+            writer.writeVarInt(exams.size());
+            for (Map.Entry<OpenEndedExam, OpenEndedResponse> entry : exams.entrySet()) {
+                writeActivityRef(pathId, entry.getKey());
+                writeExamResponse(entry.getKey(), entry.getValue());
+            }
+            Map<Quiz, Double> scores = progress.getQuizScores();
+            writer.writeVarInt(scores.size());
+            for (Map.Entry<Quiz, Double> entry : scores.entrySet()) {
+                writeActivityRef(pathId, entry.getKey());
+                writer.writeDouble(entry.getValue());
+            }
+            writer.writeVarInt(progress.getVersion().getNumber());
+            Map<Quiz, List<int[]>> attempts = progress.getQuizAttempts();
+            writer.writeVarInt(attempts.size());
+            for (Map.Entry<Quiz, List<int[]>> entry : attempts.entrySet()) {
+                writeActivityRef(pathId, entry.getKey());
+                writer.writeVarInt(entry.getValue().size());
+                for (int[] answers : entry.getValue()) {
+                    byte[] packed = new byte[answers.length];
+                    for (int i = 0; i < answers.length; i++) {
+                        packed[i] = (byte) answers[i];
+                    }
+                    writer.writeBytes(packed);
+                }
+            }
+        }
+
+        /**
+         * Las actividades suelen crearse justo después de su Learning Path, así que su
+         * identificador se escribe como diferencia respecto al del Learning Path.
+         */
+        void writeActivityRef(long pathId, Activity activity) throws IOException {
+            writer.writeSignedVarLong(activity.getId() - pathId);
+        }
+    }
+
+    /**
+     * Estado de lectura de un archivo.
+     */
+    private static class Decoder {
+        final BinaryReader reader;
+        final EntityRegistry registry;
+        final List<User> users = new ArrayList<>();
+        final List<LearningPath> paths = new ArrayList<>();
+        final int version;
+
+        /**
+         * Decodificador sin cabecera, para los bloques del catálogo.
+         */
+        Decoder(BinaryReader reader, EntityRegistry registry) {
+            this.reader = reader;
+            this.registry = registry;
+            this.version = SCHEMA_VERSION;
+        }
+
+        Decoder(InputStream in, int expectedKind, EntityRegistry registry) throws IOException {
+            this.registry = registry;
+            reader = new BinaryReader(in);
+            byte[] header = new byte[MAGIC.length];
+            reader.readRaw(header, 0, header.length);
+            if (!Arrays.equals(header, MAGIC)) {
+                throw new IOException("El archivo no está en formato binario");
+            }
+            version = reader.readVarInt();
+            if (version > SCHEMA_VERSION) {
+                throw new IOException("Versión de esquema no soportada: " + version);
+            }
+            int kind = reader.readVarInt();
+            if (kind != expectedKind) {
+                throw new IOException("Tipo de archivo inesperado: " + kind);
+            }
+        }
+
+        User readUser() throws IOException {
+            int marker = reader.readVarInt();
+            if (marker == NULL_REF) {
+                return null;
+            }
+            if (marker != NEW_REF) {
+                return users.get(marker - 2);
+            }
+            long id = version >= 2 ? reader.readVarLong() : 0;
+            int type = reader.readByte();
+            String username = reader.readString();
+            String password = reader.readString();
+            String name = reader.readString();
+            // Si el usuario ya está cargado se reutiliza la misma instancia
+            User user = id != 0 ? registry.getUser(id) : null;
+            if (user == null) {
+                user = type == TEACHER ? new Teacher(username, password, name) : new Student(username, password, name);
+                user.setId(id);
+            }
+            users.add(user);
+            return user;
+        }
+
+        LearningPath readLearningPath() throws IOException {
+            long id = 0;
+            if (version >= 2) {
+                id = reader.readVarLong();
+            } else {
+                // En la versión 1 los Learning Paths podían ser referencias dentro del archivo
+                int marker = reader.readVarInt();
+                if (marker != NEW_REF) {
+                    return paths.get(marker - 2);
+                }
+            }
+            String title = reader.readString();
+            String description = reader.readString();
+            String objectives = reader.readString();
+            int difficultyLevel = reader.readSignedVarInt();
+            double rating = reader.readDouble();
+            Date creationDate = reader.readDate();
+            Date modificationDate = reader.readDate();
+            String pathVersion = reader.readString();
+            Teacher creator = (Teacher) readUser();
+
+            LearningPath lp = new LearningPath(title, description, objectives, difficultyLevel, creator);
+            lp.setId(id);
+            paths.add(lp);
+            int activityCount = reader.readVarInt();
+            List<Activity> activities = new ArrayList<>(activityCount);
+            for (int i = 0; i < activityCount; i++) {
+                activities.add(readActivity());
+            }
+            if (version >= 5) {
+                readPrerequisites(activities);
+            }
+            int feedbackCount = reader.readVarInt();
+            for (int i = 0; i < feedbackCount; i++) {
+                lp.getFeedbackList().add(reader.readString());
+            }
+            if (version >= 6) {
+                readRatings(lp.getRatings());
+            }
+            LearningPathVersion current = version >= 8 ? readHistory(activities) : LearningPathVersion.initial(0, activities);
+            if (version >= 9) {
+                readQuestionIds(activities);
+            }
+            shareTemplates(activities);
+            lp.setVersion(pathVersion);
+            lp.restoreVersions(current);
+            int duration = 0;
+            for (Activity activity : current.getActivities()) {
+                duration += activity.getExpectedDuration();
+            }
+            lp.setDuration(duration);
+            lp.updateRating(rating);
+            lp.setCreationDate(creationDate);
+            lp.setModificationDate(modificationDate);
+            return lp;
+        }
+
+        /**
+         * Lee los metadatos de un Learning Path del catálogo, sin sus actividades.
+         */
+        LearningPath readPathMetadata() throws IOException {
+            long id = reader.readVarLong();
+            String title = reader.readString();
+            String description = reader.readString();
+            String objectives = reader.readString();
+            int difficultyLevel = reader.readSignedVarInt();
+            int duration = reader.readSignedVarInt();
+            double rating = reader.readDouble();
+            Date creationDate = reader.readDate();
+            Date modificationDate = reader.readDate();
+            String pathVersion = reader.readString();
+            Teacher creator = (Teacher) readUser();
+
+            LearningPath lp = new LearningPath(title, description, objectives, difficultyLevel, creator);
+            lp.setId(id);
+            int feedbackCount = reader.readVarInt();
+            for (int i = 0; i < feedbackCount; i++) {
+                lp.getFeedbackList().add(reader.readString());
+            }
+            // Los bloques escritos antes de la versión 6 terminan aquí
+            if (reader.hasMore()) {
+                readRatings(lp.getRatings());
+            }
+            lp.updateRating(rating);
+            lp.setDuration(duration);
+            lp.setCreationDate(creationDate);
+            lp.setModificationDate(modificationDate);
+            lp.setVersion(pathVersion);
+            return lp;
+        }
+
+        /**
+         * Lee una actividad completa. Su contenido se interna como plantilla
+         * ({@link DomainCodec#shareTemplates}) después de leer los identificadores de las
+         * preguntas, que van al final.
+         */
+        Activity readActivity() throws IOException {
+            int type = reader.readByte();
+            long id = version >= 2 ? reader.readVarLong() : 0;
+            Activity activity = readPrototype(type, true);
+            activity.setId(id);
+            readActivityResponses(activity);
+            return activity;
+        }
+
+        /**
+         * Lee los identificadores escritos por {@link Encoder#writeQuestionIds} y los asigna a las
+         * preguntas de cada actividad.
+         */
+        void readQuestionIds(List<Activity> activities) throws IOException {
+            for (Activity activity : activities) {
+                List<?> questions = questionsOf(activity);
+                int count = reader.readVarInt();
+                if (count != questions.size()) {
+                    throw new IOException("La actividad " + activity.getId() + " tiene " + questions.size()
+                            + " preguntas y se guardaron " + count + " identificadores");
+                }
+                long id = 0;
+                for (Object question : questions) {
+                    id += reader.readSignedVarLong();
+                    setQuestionId(question, id);
+                }
+            }
+        }
+
+        /**
+         * Lee el contenido de una actividad y crea una actividad con él (sin identificador ni
+         * respuestas).
+         *
+         * @param withDeadline True si la fecha límite va entre la cabecera y el contenido.
+         */
+        Activity readPrototype(int type, boolean withDeadline) throws IOException {
+            String title = reader.readString();
+            String description = reader.readString();
+            String objective = reader.readString();
+            int difficultyLevel = reader.readSignedVarInt();
+            int expectedDuration = reader.readSignedVarInt();
+            boolean mandatory = reader.readBoolean();
+            Date deadline = withDeadline ? reader.readDate() : null;
+
+            Activity activity;
+            switch (type) {
+                case QUIZ: {
+                    double passingScore = reader.readDouble();
+                    int count = reader.readVarInt();
+                    List<Question> questions = null;
+                    if (count > 0) {
+                        questions = new ArrayList<>(count - 1);
+                        for (int i = 0; i < count - 1; i++) {
+                            String text = reader.readString();
+                            String[] options = new String[reader.readVarInt()];
+                            for (int j = 0; j < options.length; j++) {
+                                options[j] = reader.readString();
+                            }
+                            int correct = reader.readSignedVarInt();
+                            questions.add(new Question(text, options, correct, reader.readString()));
+                        }
+                    }
+                    activity = new Quiz(title, description, objective, difficultyLevel, expectedDuration, mandatory, questions, passingScore);
+                    break;
+                }
+                case ASSIGNMENT:
+                    activity = new Assignment(title, description, objective, difficultyLevel, expectedDuration, mandatory, reader.readString());
+                    break;
+                case RESOURCE_REVIEW:
+                    activity = new ResourceReview(title, description, objective, difficultyLevel, expectedDuration, mandatory, reader.readString());
+                    break;
+                case SURVEY: {
+                    Survey survey = new Survey(title, description, objective, difficultyLevel, expectedDuration, mandatory);
+                    int questionCount = reader.readVarInt();
+                    for (int i = 0; i < questionCount; i++) {
+                        SurveyQuestion question = new SurveyQuestion(reader.readString());
+                        question.setAnswer(reader.readString());
+                        survey.addSurveyQuestion(question);
+                    }
+                    activity = survey;
+                    break;
+                }
+                case OPEN_ENDED_EXAM: {
+                    int questionCount = reader.readVarInt();
+                    List<OpenEndedQuestion> questions = new ArrayList<>(questionCount);
+                    for (int i = 0; i < questionCount; i++) {
+                        OpenEndedQuestion question = new OpenEndedQuestion(reader.readString());
+                        question.setStudentAnswer(reader.readString());
+                        question.setProfessorFeedback(reader.readString());
+                        question.setGrade(reader.readDouble());
+                        questions.add(question);
+                    }
+                    activity = new OpenEndedExam(title, description, objective, difficultyLevel, expectedDuration,
+                            mandatory, EnumSet.of(ActivityType.EXAMEN), questions);
+                    break;
+                }
+                default:
+                    throw new IOException("Etiqueta de actividad desconocida: " + type);
+            }
+            activity.setDeadline(deadline);
+            return activity;
+        }
+
+        void readActivityResponses(Activity activity) throws IOException {
+            if (activity instanceof Survey) {
+                Survey survey = (Survey) activity;
+                int responseCount = reader.readVarInt();
+                for (int i = 0; i < responseCount; i++) {
+                    survey.addSurveyResponse(readSurveyResponse());
+                }
+            } else if (activity instanceof OpenEndedExam) {
+                OpenEndedExam exam = (OpenEndedExam) activity;
+                int responseCount = reader.readVarInt();
+                for (int i = 0; i < responseCount; i++) {
+                    exam.addExamResponse(readExamResponse(exam));
+                }
+            }
+        }
+
+        /**
+         * Lee un bloque de actividades que referencian plantillas (ver
+         * {@link DomainCodec#encodeActivities(LearningPathVersion, TemplateBlocks)}), ya leídos el
+         * marcador y el número de actividades.
+         */
+        LearningPathVersion readTemplateActivities(int count, TemplateSource templates) throws IOException {
+            if (templates == null) {
+                throw new IOException("El bloque de actividades referencia plantillas que no están disponibles");
+            }
+            ActivityTemplate[] contents = new ActivityTemplate[count];
+            for (int i = 0; i < count; i++) {
+                contents[i] = templates.template(reader.readVarLong());
+            }
+            List<Activity> activities = new ArrayList<>(count);
+            for (ActivityTemplate template : contents) {
+                Activity activity = template.instantiate();
+                activity.setId(reader.readVarLong());
+                activity.setDeadline(reader.readDate());
+                readActivityResponses(activity);
+                activities.add(activity);
+            }
+            readPrerequisites(activities);
+            // Los bloques escritos con la versión 7 terminan aquí
+            return reader.hasMore() ? readHistory(activities) : LearningPathVersion.initial(0, activities);
+        }
+
+        /**
+         * Lee el historial escrito por {@link Encoder#writeHistory} y reconstruye las versiones.
+         *
+         * @param activities Las actividades del bloque.
+         * @return La versión actual.
+         */
+        LearningPathVersion readHistory(List<Activity> activities) throws IOException {
+            return readVersions(activities, reader.readVarInt());
+        }
+
+        /**
+         * Lee las versiones del historial, ya leído el número de actividades de la versión actual.
+         */
+        LearningPathVersion readVersions(List<Activity> activities, int currentCount) throws IOException {
+            if (currentCount > activities.size()) {
+                throw new IOException("La versión actual tiene más actividades que el Learning Path: " + currentCount);
+            }
+            LearningPathVersion.Change.Kind[] kinds = LearningPathVersion.Change.Kind.values();
+            int versionCount = reader.readVarInt();
+            LearningPathVersion current = null;
+            for (int v = 0; v < versionCount; v++) {
+                int number = reader.readVarInt();
+                Date date = reader.readDate();
+                int changeCount = reader.readVarInt();
+                List<LearningPathVersion.Change> changes = new ArrayList<>(changeCount);
+                for (int i = 0; i < changeCount; i++) {
+                    int kind = reader.readByte();
+                    int position = reader.readVarInt();
+                    if (kind >= kinds.length || position >= activities.size()) {
+                        throw new IOException("Cambio no válido en la versión " + number);
+                    }
+                    changes.add(new LearningPathVersion.Change(kinds[kind], activities.get(position), reader.readVarInt()));
+                }
+                try {
+                    current = LearningPathVersion.replay(current, number, date, changes);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            }
+            if (current == null || current.getActivityCount() != currentCount) {
+                throw new IOException("El historial no corresponde a las actividades del Learning Path");
+            }
+            for (int i = 0; i < currentCount; i++) {
+                if (current.getActivities().get(i) != activities.get(i)) {
+                    throw new IOException("El historial no corresponde a las actividades del Learning Path");
+                }
+            }
+            return current;
+        }
+
+        void readRatings(RatingAggregate ratings) throws IOException {
+            int count = reader.readVarInt();
+            long student = 0;
+            for (int i = 0; i < count; i++) {
+                long packed = reader.readVarLong();
+                student += packed >>> 3;
+                int stars = (int) (packed & 7);
+                if (stars < RatingAggregate.MIN_STARS || stars > RatingAggregate.MAX_STARS) {
+                    throw new IOException("Calificación no válida: " + stars);
+                }
+                ratings.submit(student, stars);
+            }
+        }
+
+        void readPrerequisites(List<Activity> activities) throws IOException {
+            for (Activity activity : activities) {
+                int count = reader.readVarInt();
+                for (int i = 0; i < count; i++) {
+                    int position = reader.readVarInt();
+                    if (position >= activities.size()) {
+                        throw new IOException("Prerrequisito fuera del Learning Path: " + position);
+                    }
+                    activity.addSuggestedPrerequisite(activities.get(position));
+                }
+            }
+        }
+
+        SurveyResponse readSurveyResponse() throws IOException {
+            SurveyResponse response = new SurveyResponse((Student) readUser());
+            int count = reader.readVarInt();
+            for (int i = 0; i < count; i++) {
+                response.addAnswer(reader.readString());
+            }
+            return response;
+        }
+
+        OpenEndedResponse readExamResponse(OpenEndedExam exam) throws IOException {
+            Student student = (Student) readUser();
+            int count = reader.readVarInt();
+            Map<String, String> answers = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                answers.put(reader.readString(), reader.readString());
+            }
+            return OpenEndedResponse.byQuestionText(student, answers,
+                    exam != null ? exam.getExamQuestions() : null);
+        }
+
+        Progress readProgress() throws IOException {
+            Student student = (Student) readUser();
+            LearningPath lp;
+            if (version >= 2) {
+                long pathId = reader.readVarLong();
+                lp = registry.getLearningPath(pathId);
+                if (lp == null) {
+                    throw new IOException("Learning Path desconocido: " + pathId);
+                }
+            } else {
+                lp = readLearningPath();
+                registry.register(lp);
+            }
+            // Las referencias pueden ser a actividades que solo están en la versión fijada
+            List<Activity> activities = version >= 2 ? lp.getCurrentVersion().getAllActivities() : lp.getActivities();
+            Progress progress = new Progress(student, lp);
+            // Se restauran los estados directamente para no notificar a los observadores
+            progress.clearActivityStatuses();
+            ActivityStatus[] statuses = ActivityStatus.values();
+            int statusCount = reader.readVarInt();
+            for (int i = 0; i < statusCount; i++) {
+                Activity activity = readActivityRef(lp.getId(), activities);
+                ActivityStatus status = statuses[reader.readByte()];
+                if (activity != null) {
+                    progress.restoreActivityStatus(activity, status);
+                }
+            }
+            int surveyCount = reader.readVarInt();
+            for (int i = 0; i < surveyCount; i++) {
+                Activity survey = readActivityRef(lp.getId(), activities);
+                SurveyResponse response = readSurveyResponse();
+                if (survey instanceof Survey) {
+                    progress.restoreSurveyResponse((Survey) survey, response);
+                }
+            }
+            int examCount = reader.readVarInt();
+            for (int i = 0; i < examCount; i++) {
+                Activity exam = readActivityRef(lp.getId(), activities);
+                OpenEndedExam openEnded = exam instanceof OpenEndedExam ? (OpenEndedExam) exam : null;
+                OpenEndedResponse response = readExamResponse(openEnded);
+                if (openEnded != null) {
+                    progress.restoreExamResponse(openEnded, response);
+                }
+            }
+            // Los valores sin cabecera (almacén LSM) escritos con la versión 3 terminan aquí
+            if (version >= 4 && reader.hasMore()) {
+                int scoreCount = reader.readVarInt();
+                for (int i = 0; i < scoreCount; i++) {
+                    Activity quiz = readActivityRef(lp.getId(), activities);
+                    double score = reader.readDouble();
+                    if (quiz instanceof Quiz) {
+                        progress.restoreQuizScore((Quiz) quiz, score);
+                    }
+                }
+            }
+            if (version >= 8 && reader.hasMore()) {
+                progress.restoreVersion(reader.readVarInt());
+            }
+            if (version >= 10 && reader.hasMore()) {
+                int quizCount = reader.readVarInt();
+                for (int i = 0; i < quizCount; i++) {
+                    Activity quiz = readActivityRef(lp.getId(), activities);
+                    int attemptCount = reader.readVarInt();
+                    for (int j = 0; j < attemptCount; j++) {
+                        byte[] packed = reader.readBytes();
+                        int[] answers = new int[packed.length];
+                        for (int k = 0; k < packed.length; k++) {
+                            answers[k] = packed[k] == (byte) 0xFF ? -1 : packed[k] & 0xFF;
+                        }
+                        if (quiz instanceof Quiz) {
+                            progress.restoreQuizAttempt((Quiz) quiz, answers);
+                        }
+                    }
+                }
+            }
+            ResponseStore responses = registry.getResponseStore();
+            if (responses != null) {
+                responses.attach(progress, activities);
+            }
+            return progress;
+        }
+
+        /**
+         * Lee la referencia a una actividad: su identificador relativo al del Learning Path
+         * (versión 2) o su posición en el Learning Path (versión 1). Devuelve null si la
+         * actividad ya no existe.
+         */
+        Activity readActivityRef(long pathId, List<Activity> activities) throws IOException {
+            if (version >= 2) {
+                long id = pathId + reader.readSignedVarLong();
+                // Los Learning Paths tienen pocas actividades: una búsqueda lineal evita el mapa global
+                for (Activity activity : activities) {
+                    if (activity.getId() == id) {
+                        return activity;
+                    }
+                }
+                return registry.getActivity(id);
+            }
+            return activities.get(reader.readVarInt());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.LearningPathVersion;
+import src.com.learningpath.Progress;
+import src.com.learningpath.activities.*;
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.Teacher;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class DomainCodecTest {
+
+    @Test
+    public void testProgressesReferenceLoadedLearningPath() throws Exception {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        Student student1 = new Student("ana", "pw1", "Ana");
+        Student student2 = new Student("luis", "pw2", "Luis");
+        LearningPath lp = new LearningPath("Java Basics", "Intro", "Learn Java", 2, teacher);
+        Question q = new Question("What is Java?", new String[]{"Language", "Coffee"}, 0, "It is a language.");
+        Quiz quiz = new Quiz("Quiz 1", "First quiz", "Assess", 1, 20, true, new ArrayList<>(Arrays.asList(q)), 70.0);
+        Survey survey = new Survey("Opinión", "Encuesta", "Feedback", 1, 5, false);
+        survey.addSurveyQuestion(new SurveyQuestion("¿Te gustó?"));
+        lp.addActivity(quiz);
+        lp.addActivity(survey);
+        lp.addPrerequisite(survey, quiz);
+
+        Progress p1 = new Progress(student1, lp);
+        p1.recordQuizAttempt(quiz, new int[]{-1});
+        p1.recordQuizAttempt(quiz, new int[]{0});
+        p1.recordQuizScore(quiz, 100.0);
+        p1.updateActivityStatus(quiz, ActivityStatus.COMPLETED);
+        SurveyResponse response = new SurveyResponse(student1);
+        response.addAnswer("Sí");
+        p1.addSurveyResponse(survey, response);
+        survey.addSurveyResponse(response);
+        Progress p2 = new Progress(student2, lp);
+        lp.rate(student1, 4);
+        lp.rate(student2, 5);
+
+        ByteArrayOutputStream pathsOut = new ByteArrayOutputStream();
+        DomainCodec.writeLearningPaths(pathsOut, Arrays.asList(lp));
+        ByteArrayOutputStream progressesOut = new ByteArrayOutputStream();
+        DomainCodec.writeProgresses(progressesOut, Arrays.asList(p1, p2));
+
+        EntityRegistry registry = new EntityRegistry();
+        List<LearningPath> loadedPaths = DomainCodec.readLearningPaths(new ByteArrayInputStream(pathsOut.toByteArray()), registry);
+        registry.register(loadedPaths.get(0));
+        List<Progress> loaded = DomainCodec.readProgresses(new ByteArrayInputStream(progressesOut.toByteArray()), registry);
+
+        assertEquals(2, loaded.size());
+        // Los progresos se resuelven a la misma instancia del Learning Path cargado
+        LearningPath loadedPath = loadedPaths.get(0);
+        assertSame(loadedPath, loaded.get(0).getLearningPath());
+        assertSame(loadedPath, loaded.get(1).getLearningPath());
+        assertEquals(lp.getId(), loadedPath.getId());
+        assertEquals(25, loadedPath.getDuration());
+        assertEquals("jdoe", loadedPath.getCreator().getUsername());
+        assertTrue(loadedPath.getCreator().authenticate("password123"));
+
+        Quiz loadedQuiz = (Quiz) loadedPath.getActivities().get(0);
+        assertEquals("Coffee", loadedQuiz.getQuestions().get(0).getOptions()[1]);
+        assertEquals(ActivityStatus.COMPLETED, loaded.get(0).getActivityStatus(loadedQuiz));
+        assertEquals(ActivityStatus.PENDING, loaded.get(1).getActivityStatus(loadedQuiz));
+        assertEquals(100.0, loaded.get(0).getQuizScore(loadedQuiz).doubleValue());
+        assertNull(loaded.get(1).getQuizScore(loadedQuiz));
+        List<int[]> attempts = loaded.get(0).getQuizAttempts(loadedQuiz);
+        assertEquals(2, attempts.size());
+        assertArrayEquals(new int[]{-1}, attempts.get(0));
+        assertArrayEquals(new int[]{0}, attempts.get(1));
+        assertTrue(loaded.get(1).getQuizAttempts(loadedQuiz).isEmpty());
+
+        Survey loadedSurvey = (Survey) loadedPath.getActivities().get(1);
+        assertSame(loadedQuiz, loadedSurvey.getSuggestedPrerequisites().get(0));
+        assertTrue(loaded.get(0).getLearningPath().getPrerequisiteGraph().isUnlocked(loaded.get(0), loadedSurvey));
+        assertFalse(loadedPath.getPrerequisiteGraph().isUnlocked(loaded.get(1), loadedSurvey));
+        assertEquals("Sí", loaded.get(0).getSurveyResponse(loadedSurvey).getAnswers().get(0));
+        assertEquals(student1.getId(), loadedSurvey.getSurveyResponses().get(0).getStudent().getId());
+
+        assertEquals(2, loadedPath.getRatings().getCount());
+        assertEquals(5, loadedPath.getRatings().getStars(student2.getId()));
+        assertEquals(4.5, loadedPath.getRating(), 0.0001);
+        // Los metadatos del catálogo también guardan las calificaciones
+        LearningPath metadata = DomainCodec.decodePathMetadata(
+                java.nio.ByteBuffer.wrap(DomainCodec.encodePathMetadata(lp)), new EntityRegistry());
+        assertArrayEquals(lp.getRatings().getHistogram(), metadata.getRatings().getHistogram());
+        assertEquals(4, metadata.getRatings().getStars(student1.getId()));
+    }
+
+    @Test
+    public void testVersionHistoryRoundTrip() throws Exception {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        Student student = new Student("ana", "pw1", "Ana");
+        LearningPath lp = new LearningPath("Java Basics", "Intro", "Learn Java", 2, teacher);
+        ResourceReview intro = new ResourceReview("Intro", "Lectura", "Leer", 1, 10, true, "https://example.com/intro");
+        Assignment task = new Assignment("Tarea", "Entrega", "Practicar", 2, 30, true, "Subir el código");
+        lp.addActivity(intro);
+        lp.addActivity(task);
+        Progress pinned = new Progress(student, lp);
+        pinned.updateActivityStatus(intro, ActivityStatus.COMPLETED);
+        lp.removeActivity(intro);
+        lp.addActivity(new ResourceReview("Loops", "Lectura", "Leer", 1, 15, true, "https://example.com/loops"));
+
+        ByteArrayOutputStream pathsOut = new ByteArrayOutputStream();
+        DomainCodec.writeLearningPaths(pathsOut, Arrays.asList(lp));
+        ByteArrayOutputStream progressesOut = new ByteArrayOutputStream();
+        DomainCodec.writeProgresses(progressesOut, Arrays.asList(pinned));
+        EntityRegistry registry = new EntityRegistry();
+        LearningPath loadedPath = DomainCodec.readLearningPaths(new ByteArrayInputStream(pathsOut.toByteArray()), registry).get(0);
+        registry.register(loadedPath);
+        Progress loaded = DomainCodec.readProgresses(new ByteArrayInputStream(progressesOut.toByteArray()), registry).get(0);
+
+        assertEquals("5.0", loadedPath.getVersion());
+        assertEquals(45, loadedPath.getDuration());
+        assertEquals(5, loadedPath.getVersions().size());
+        assertEquals(Arrays.asList("Tarea", "Loops"), titles(loadedPath.getActivities()));
+        assertEquals(Arrays.asList("Intro", "Tarea"), titles(loadedPath.findVersion(3).getActivities()));
+        assertEquals(3, loaded.getVersion().getNumber());
+        Activity loadedIntro = loaded.getActivities().get(0);
+        assertEquals(ActivityStatus.COMPLETED, loaded.getActivityStatus(loadedIntro));
+
+        // El bloque del catálogo guarda el mismo historial
+        LearningPathVersion block = DomainCodec.decodeActivities(
+                java.nio.ByteBuffer.wrap(DomainCodec.encodeActivities(lp.getCurrentVersion())), new EntityRegistry());
+        assertEquals(5, block.getNumber());
+        assertEquals(Arrays.asList("Intro", "Tarea"), titles(block.find(3).getActivities()));
+        LearningPathVersion empty = DomainCodec.decodeActivities(java.nio.ByteBuffer.wrap(
+                DomainCodec.encodeActivities(LearningPathVersion.initial(1, new ArrayList<>()))), new EntityRegistry());
+        assertEquals(0, empty.getActivityCount());
+        assertEquals(1, empty.getNumber());
+    }
+
+    @Test
+    public void testQuestionIdsRoundTrip() throws Exception {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        LearningPath lp = new LearningPath("Java Basics", "Intro", "Learn Java", 2, teacher);
+        Question q1 = new Question("What is Java?", new String[]{"Language", "Coffee"}, 0, "");
+        Question q2 = new Question("What is JDK?", new String[]{"Kit", "Coffee"}, 0, "");
+        Quiz quiz = new Quiz("Quiz 1", "First quiz", "Assess", 1, 20, true, new ArrayList<>(Arrays.asList(q1, q2)), 70.0);
+        Survey survey = new Survey("Opinión", "Encuesta", "Feedback", 1, 5, false);
+        SurveyQuestion s1 = new SurveyQuestion("¿Te gustó?");
+        survey.addSurveyQuestion(s1);
+        lp.addActivity(quiz);
+        lp.addActivity(survey);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DomainCodec.writeLearningPaths(out, Arrays.asList(lp));
+        LearningPath loaded = DomainCodec.readLearningPaths(new ByteArrayInputStream(out.toByteArray()), new EntityRegistry()).get(0);
+        Quiz loadedQuiz = (Quiz) loaded.getActivities().get(0);
+        assertEquals(q1, loadedQuiz.getQuestions().get(0));
+        assertEquals(q2.getId(), loadedQuiz.getQuestions().get(1).getId());
+        assertEquals(s1.getId(), ((Survey) loaded.getActivities().get(1)).getSurveyQuestions().get(0).getId());
+        assertEquals(quiz, loadedQuiz);
+
+        LearningPathVersion block = DomainCodec.decodeActivities(
+                java.nio.ByteBuffer.wrap(DomainCodec.encodeActivities(lp.getCurrentVersion())), new EntityRegistry());
+        assertEquals(q2, ((Quiz) block.getActivities().get(0)).getQuestions().get(1));
+
+        // Las plantillas del catálogo guardan los identificadores de sus preguntas
+        DomainCodec.TemplateBlocks templates = new DomainCodec.TemplateBlocks();
+        byte[] refs = DomainCodec.encodeActivities(lp.getCurrentVersion(), templates);
+        LearningPathVersion fromTemplates = DomainCodec.decodeActivities(java.nio.ByteBuffer.wrap(refs), new EntityRegistry(),
+                hash -> DomainCodec.decodeTemplate(templates.blocks().get(hash).duplicate()));
+        assertEquals(q1, ((Quiz) fromTemplates.getActivities().get(0)).getQuestions().get(0));
+    }
+
+    private static List<String> titles(List<Activity> activities) {
+        List<String> titles = new ArrayList<>();
+        for (Activity activity : activities) {
+            titles.add(activity.getTitle());
+        }
+        return titles;
+    }
+}
@@ -0,0 +1,220 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.IdGenerator;
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.LearningPathVersion;
+import src.com.learningpath.activities.Activity;
+import src.com.learningpath.activities.OpenEndedExam;
+import src.com.learningpath.activities.OpenEndedQuestion;
+import src.com.learningpath.activities.OpenEndedResponse;
+import src.com.learningpath.activities.Question;
+import src.com.learningpath.activities.Quiz;
+import src.com.learningpath.activities.Survey;
+import src.com.learningpath.activities.SurveyQuestion;
+import src.com.learningpath.activities.SurveyResponse;
+import src.com.learningpath.users.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mapa de identidad de las entidades cargadas. Permite resolver las referencias por
+ * identificador de los archivos de datos (por ejemplo, el Learning Path de un progreso)
+ * a la misma instancia que usa el resto de la aplicación.
+ */
+public class EntityRegistry {
+
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    private final Map<Long, LearningPath> learningPaths = new ConcurrentHashMap<>();
+    private final Map<Long, Activity> activities = new ConcurrentHashMap<>();
+    // Almacén de las respuestas a exámenes (null si no está abierto)
+    private volatile ResponseStore responseStore;
+
+    /**
+     * Registra un usuario, asignándole un identificador si no tiene uno.
+     *
+     * @param user El usuario.
+     */
+    public void register(User user) {
+        if (user.getId() == 0) {
+            user.setId(IdGenerator.next());
+        }
+        IdGenerator.reserve(user.getId());
+        users.put(user.getId(), user);
+    }
+
+    /**
+     * Registra un Learning Path junto con sus actividades, asignando identificadores si faltan.
+     * Si las actividades aún no se han cargado no se fuerza su carga; se registran al decodificarse.
+     *
+     * @param learningPath El Learning Path.
+     */
+    public void register(LearningPath learningPath) {
+        if (learningPath.getId() == 0) {
+            learningPath.setId(IdGenerator.next());
+        }
+        IdGenerator.reserve(learningPath.getId());
+        learningPaths.put(learningPath.getId(), learningPath);
+        adoptUserId(learningPath.getCreator());
+        if (learningPath.isActivitiesLoaded()) {
+            register(learningPath.getCurrentVersion());
+        }
+    }
+
+    /**
+     * Registra las actividades de una versión y también las que solo están en versiones
+     * anteriores, que los progresos fijados aún usan. Una actividad sustituida por una copia
+     * con otros prerrequisitos (mismo identificador) se resuelve a la de la versión más reciente.
+     *
+     * @param version La versión actual.
+     */
+    public void register(LearningPathVersion version) {
+        Set<Long> registered = new HashSet<>();
+        for (Activity activity : version.getAllActivities()) {
+            if (activity.getId() == 0 || registered.add(activity.getId())) {
+                register(activity);
+            }
+        }
+    }
+
+    /**
+     * Registra una actividad, asignándole un identificador si no tiene uno. Sus preguntas
+     * reciben también un identificador si no lo tienen (datos guardados antes de que existiera).
+     *
+     * @param activity La actividad.
+     */
+    public void register(Activity activity) {
+        if (activity.getId() == 0) {
+            activity.setId(IdGenerator.next());
+        }
+        IdGenerator.reserve(activity.getId());
+        activities.put(activity.getId(), activity);
+        registerQuestions(activity);
+        if (activity instanceof Survey) {
+            for (SurveyResponse response : ((Survey) activity).getSurveyResponses()) {
+                adoptUserId(response.getStudent());
+            }
+        } else if (activity instanceof OpenEndedExam) {
+            OpenEndedExam exam = (OpenEndedExam) activity;
+            for (OpenEndedResponse response : exam.getExamResponses()) {
+                adoptUserId(response.getStudent());
+                // Las leídas con la serialización de Java no pasan por addExamResponse
+                response.resolveLegacyAnswers(exam.getExamQuestions());
+            }
+            ResponseStore store = responseStore;
+            if (store != null) {
+                try {
+                    store.attach(exam, this);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("No se pudieron guardar las respuestas del examen " + exam.getTitle(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Establece el almacén de respuestas con el que se enlazan los exámenes y progresos al
+     * registrarse o decodificarse (ver {@link ResponseStore#attach(OpenEndedExam, EntityRegistry)}).
+     *
+     * @param store El almacén, o null si no hay ninguno abierto.
+     */
+    public void setResponseStore(ResponseStore store) {
+        this.responseStore = store;
+    }
+
+    public ResponseStore getResponseStore() {
+        return responseStore;
+    }
+
+    private static void registerQuestions(Activity activity) {
+        if (activity instanceof Quiz && ((Quiz) activity).getQuestions() != null) {
+            for (Question question : ((Quiz) activity).getQuestions()) {
+                if (question.getId() == 0) {
+                    question.setId(IdGenerator.next());
+                }
+                IdGenerator.reserve(question.getId());
+            }
+        } else if (activity instanceof Survey) {
+            for (SurveyQuestion question : ((Survey) activity).getSurveyQuestions()) {
+                if (question.getId() == 0) {
+                    question.setId(IdGenerator.next());
+                }
+                IdGenerator.reserve(question.getId());
+            }
+        } else if (activity instanceof OpenEndedExam && ((OpenEndedExam) activity).getExamQuestions() != null) {
+            for (OpenEndedQuestion question : ((OpenEndedExam) activity).getExamQuestions()) {
+                if (question.getId() == 0) {
+                    question.setId(IdGenerator.next());
+                }
+                IdGenerator.reserve(question.getId());
+            }
+        }
+    }
+
+    /**
+     * Los usuarios referenciados desde datos antiguos no tienen identificador; toman el del
+     * usuario registrado con el mismo nombre de usuario.
+     */
+    private void adoptUserId(User user) {
+        if (user == null || user.getId() != 0) {
+            return;
+        }
+        User registered = findUserByUsername(user.getUsername());
+        user.setId(registered != null ? registered.getId() : IdGenerator.next());
+    }
+
+    public User getUser(long id) {
+        return users.get(id);
+    }
+
+    public LearningPath getLearningPath(long id) {
+        return learningPaths.get(id);
+    }
+
+    public Activity getActivity(long id) {
+        return activities.get(id);
+    }
+
+    /**
+     * Busca un usuario por nombre de usuario. Solo se usa al migrar datos antiguos sin identificadores.
+     *
+     * @param username El nombre de usuario.
+     * @return El usuario, o null si no está registrado.
+     */
+    public User findUserByUsername(String username) {
+        for (User user : users.values()) {
+            if (user.getUsername().equals(username)) {
+                return user;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Busca un Learning Path igual (mismo título y creador). Solo se usa al migrar datos antiguos.
+     *
+     * @param learningPath El Learning Path a buscar.
+     * @return La instancia registrada, o null si no existe.
+     */
+    public LearningPath findEqualLearningPath(LearningPath learningPath) {
+        for (LearningPath lp : learningPaths.values()) {
+            if (lp.equals(learningPath)) {
+                return lp;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Elimina todas las entidades registradas.
+     */
+    public void clear() {
+        users.clear();
+        learningPaths.clear();
+        activities.clear();
+    }
+}
@@ -0,0 +1,144 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.Progress;
+import src.com.learningpath.users.User;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Almacenamiento en los archivos de la carpeta de datos, a través de {@link DataManager}.
+ * Cada guardado reescribe el archivo completo; los cambios de progreso intermedios quedan
+ * en el write-ahead log si está activado.
+ */
+public class FileStorage implements Storage {
+
+    private final UserRepository users = new UserRepository() {
+        @Override
+        public List<User> findAll() throws IOException {
+            try {
+                return DataManager.loadUsers();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Formato de usuarios desconocido", e);
+            }
+        }
+
+        @Override
+        public User findById(long id) {
+            return DataManager.getRegistry().getUser(id);
+        }
+
+        @Override
+        public void saveAll(List<User> list) throws IOException {
+            DataManager.saveUsers(list);
+        }
+    };
+
+    private final LearningPathRepository learningPaths = new LearningPathRepository() {
+        @Override
+        public List<LearningPath> findAll() throws IOException {
+            try {
+                return DataManager.loadLearningPaths();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Formato de Learning Paths desconocido", e);
+            }
+        }
+
+        @Override
+        public LearningPath findById(long id) {
+            return DataManager.getRegistry().getLearningPath(id);
+        }
+
+        @Override
+        public void saveAll(List<LearningPath> list) throws IOException {
+            DataManager.saveLearningPaths(list);
+        }
+    };
+
+    private final ProgressRepository progresses = new ProgressRepository() {
+        @Override
+        public List<Progress> findAll() throws IOException {
+            try {
+                return DataManager.loadProgresses();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Formato de progresos desconocido", e);
+            }
+        }
+
+        /**
+         * Lee solo el segmento del estudiante (ver {@link DataManager#loadProgresses(long)}).
+         */
+        @Override
+        public List<Progress> findByStudent(long studentId) throws IOException {
+            try {
+                return DataManager.loadProgresses(studentId);
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Formato de progresos desconocido", e);
+            }
+        }
+
+        @Override
+        public void saveAll(List<Progress> list) throws IOException {
+            DataManager.saveProgresses(list);
+        }
+    };
+
+    // True si este almacenamiento abrió el almacén de respuestas y debe cerrarlo
+    private boolean ownsResponseStore;
+
+    /**
+     * Constructor del almacenamiento en archivos, sin write-ahead log.
+     */
+    public FileStorage() {
+    }
+
+    /**
+     * Constructor del almacenamiento en archivos. Abre también el almacén de respuestas a
+     * exámenes ({@link DataManager#enableResponseStore()}) si no está abierto.
+     *
+     * @param writeAheadLog True para registrar los cambios de progreso en el write-ahead log.
+     * @throws IOException Si el log o el almacén de respuestas no pueden abrirse.
+     */
+    public FileStorage(boolean writeAheadLog) throws IOException {
+        // El almacén de respuestas se abre antes que el log para que este registre las respuestas ya guardadas
+        ownsResponseStore = DataManager.enableResponseStore();
+        if (writeAheadLog) {
+            DataManager.enableWriteAheadLog();
+        }
+    }
+
+    @Override
+    public UserRepository users() {
+        return users;
+    }
+
+    @Override
+    public LearningPathRepository learningPaths() {
+        return learningPaths;
+    }
+
+    @Override
+    public ProgressRepository progresses() {
+        return progresses;
+    }
+
+    @Override
+    public int recover(List<Progress> progressList) throws IOException {
+        return DataManager.replayWriteAheadLog(progressList);
+    }
+
+    @Override
+    public void save(Set<DataSet> dataSets, List<User> userList, List<LearningPath> learningPathList, List<Progress> progressList) throws IOException {
+        DataManager.save(dataSets, userList, learningPathList, progressList);
+    }
+
+    @Override
+    public void close() throws IOException {
+        DataManager.disableWriteAheadLog();
+        if (ownsResponseStore) {
+            DataManager.disableResponseStore();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.LearningPath;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Acceso a los Learning Paths guardados, independiente del formato de almacenamiento.
+ * Las implementaciones pueden diferir la carga de las actividades hasta su primer acceso.
+ */
+public interface LearningPathRepository {
+
+    /**
+     * Carga todos los Learning Paths. Los usuarios deben haberse cargado antes.
+     *
+     * @return Los Learning Paths guardados.
+     * @throws IOException Si ocurre un error de lectura.
+     */
+    List<LearningPath> findAll() throws IOException;
+
+    /**
+     * Busca un Learning Path por su identificador.
+     *
+     * @param id El identificador.
+     * @return El Learning Path, o null si no existe.
+     * @throws IOException Si ocurre un error de lectura.
+     */
+    LearningPath findById(long id) throws IOException;
+
+    /**
+     * Guarda la lista completa de Learning Paths.
+     *
+     * @param learningPaths Los Learning Paths.
+     * @throws IOException Si ocurre un error de escritura.
+     */
+    void saveAll(List<LearningPath> learningPaths) throws IOException;
+}
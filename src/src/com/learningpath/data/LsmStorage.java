@@ -0,0 +1,403 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.DirtyTracked;
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.LearningPathVersion;
+import src.com.learningpath.Progress;
+import src.com.learningpath.data.lsm.LsmStore;
+import src.com.learningpath.users.User;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Almacenamiento sobre el motor clave-valor embebido {@link LsmStore}. Cada entidad se guarda
+ * bajo su propia clave, codificada con {@link DomainCodec}:
+ * <pre>
+ * 1 + id usuario                       usuario
+ * 2 + id Learning Path + 0             metadatos del Learning Path
+ * 2 + id Learning Path + 1             actividades del Learning Path
+ * 3 + id estudiante + id Learning Path progreso
+ * </pre>
+ * Los identificadores se escriben en big-endian, así que los progresos de un estudiante son
+ * un rango contiguo de claves. Al guardar no se codifican las entidades sin cambios
+ * ({@link src.com.learningpath.DirtyTracked}); de las modificadas solo se escriben aquellas cuyo
+ * contenido cambió (se compara un CRC32 de su codificación) y se borran las que ya no están en la lista.
+ */
+public class LsmStorage implements Storage {
+
+    private static final byte USER = 1;
+    private static final byte LEARNING_PATH = 2;
+    private static final byte PROGRESS = 3;
+    private static final byte METADATA = 0;
+    private static final byte ACTIVITIES = 1;
+
+    private final LsmStore store;
+    private final EntityRegistry registry = DataManager.getRegistry();
+    // True si este almacenamiento abrió el almacén de respuestas y debe cerrarlo
+    private boolean ownsResponseStore;
+
+    // CRC32 de lo último escrito o leído para cada clave, por tipo de entidad
+    private final Map<ByteBuffer, Long> userChecksums = new HashMap<>();
+    private final Map<ByteBuffer, Long> learningPathChecksums = new HashMap<>();
+    private final Map<ByteBuffer, Long> progressChecksums = new HashMap<>();
+
+    /**
+     * Actividades de un Learning Path pendientes de leer del almacenamiento.
+     */
+    private class StoredActivities implements LearningPath.ActivitySource {
+        private final long pathId;
+
+        StoredActivities(long pathId) {
+            this.pathId = pathId;
+        }
+
+        @Override
+        public LearningPathVersion load() {
+            try {
+                byte[] value = store.get(learningPathKey(pathId, ACTIVITIES));
+                if (value == null) {
+                    return LearningPathVersion.initial(0, new ArrayList<>());
+                }
+                LearningPathVersion version = DomainCodec.decodeActivities(ByteBuffer.wrap(value), registry);
+                registry.register(version);
+                return version;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al leer las actividades del Learning Path " + pathId, e);
+            }
+        }
+    }
+
+    private final UserRepository users = new UserRepository() {
+        @Override
+        public List<User> findAll() throws IOException {
+            List<User> result = new ArrayList<>();
+            for (Map.Entry<byte[], byte[]> entry : store.scanPrefix(new byte[]{USER}).entrySet()) {
+                synchronized (LsmStorage.this) {
+                    userChecksums.put(ByteBuffer.wrap(entry.getKey()), checksum(entry.getValue()));
+                }
+                User user = DomainCodec.decodeUser(ByteBuffer.wrap(entry.getValue()), registry);
+                user.markClean();
+                registry.register(user);
+                result.add(user);
+            }
+            return result;
+        }
+
+        @Override
+        public User findById(long id) throws IOException {
+            User user = registry.getUser(id);
+            if (user != null) {
+                return user;
+            }
+            byte[] value = store.get(key(USER, id));
+            if (value == null) {
+                return null;
+            }
+            user = DomainCodec.decodeUser(ByteBuffer.wrap(value), registry);
+            user.markClean();
+            registry.register(user);
+            return user;
+        }
+
+        @Override
+        public void saveAll(List<User> list) throws IOException {
+            synchronized (LsmStorage.this) {
+                Set<ByteBuffer> live = new HashSet<>();
+                for (User user : list) {
+                    registry.register(user);
+                    byte[] key = key(USER, user.getId());
+                    if (isUnchanged(user, userChecksums, key, live)) {
+                        continue;
+                    }
+                    user.markClean();
+                    try {
+                        writeIfChanged(userChecksums, key, DomainCodec.encodeUser(user), live);
+                    } catch (IOException | RuntimeException e) {
+                        user.markDirty();
+                        throw e;
+                    }
+                }
+                deleteMissing(userChecksums, live);
+            }
+        }
+    };
+
+    private final LearningPathRepository learningPaths = new LearningPathRepository() {
+        @Override
+        public List<LearningPath> findAll() throws IOException {
+            List<LearningPath> result = new ArrayList<>();
+            for (Map.Entry<byte[], byte[]> entry : store.scanPrefix(new byte[]{LEARNING_PATH}).entrySet()) {
+                byte[] key = entry.getKey();
+                synchronized (LsmStorage.this) {
+                    learningPathChecksums.put(ByteBuffer.wrap(key), checksum(entry.getValue()));
+                }
+                // Las actividades se leen en el primer acceso
+                if (key[key.length - 1] == METADATA) {
+                    result.add(decodeLearningPath(entry.getValue()));
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public LearningPath findById(long id) throws IOException {
+            LearningPath lp = registry.getLearningPath(id);
+            if (lp != null) {
+                return lp;
+            }
+            byte[] value = store.get(learningPathKey(id, METADATA));
+            return value == null ? null : decodeLearningPath(value);
+        }
+
+        @Override
+        public void saveAll(List<LearningPath> list) throws IOException {
+            synchronized (LsmStorage.this) {
+                Set<ByteBuffer> live = new HashSet<>();
+                for (LearningPath lp : list) {
+                    registry.register(lp);
+                    byte[] metadataKey = learningPathKey(lp.getId(), METADATA);
+                    byte[] activitiesKey = learningPathKey(lp.getId(), ACTIVITIES);
+                    if (isUnchanged(lp, learningPathChecksums, metadataKey, live)) {
+                        live.add(ByteBuffer.wrap(activitiesKey));
+                        continue;
+                    }
+                    lp.markClean();
+                    try {
+                        writeIfChanged(learningPathChecksums, metadataKey, DomainCodec.encodePathMetadata(lp), live);
+                        if (lp.getActivitySource() instanceof StoredActivities) {
+                            // Sin cargar no pueden haber cambiado
+                            live.add(ByteBuffer.wrap(activitiesKey));
+                        } else {
+                            writeIfChanged(learningPathChecksums, activitiesKey,
+                                    DomainCodec.encodeActivities(lp.getCurrentVersion()), live);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        lp.markDirty();
+                        throw e;
+                    }
+                }
+                deleteMissing(learningPathChecksums, live);
+            }
+        }
+    };
+
+    private final ProgressRepository progresses = new ProgressRepository() {
+        @Override
+        public List<Progress> findAll() throws IOException {
+            return decodeProgresses(store.scanPrefix(new byte[]{PROGRESS}));
+        }
+
+        @Override
+        public List<Progress> findByStudent(long studentId) throws IOException {
+            return decodeProgresses(store.scanPrefix(key(PROGRESS, studentId)));
+        }
+
+        @Override
+        public void saveAll(List<Progress> list) throws IOException {
+            synchronized (LsmStorage.this) {
+                Set<ByteBuffer> live = new HashSet<>();
+                for (Progress progress : list) {
+                    byte[] key = progressKey(progress);
+                    if (isUnchanged(progress, progressChecksums, key, live)) {
+                        continue;
+                    }
+                    progress.markClean();
+                    try {
+                        writeIfChanged(progressChecksums, key, DomainCodec.encodeProgress(progress), live);
+                    } catch (IOException | RuntimeException e) {
+                        progress.markDirty();
+                        throw e;
+                    }
+                }
+                deleteMissing(progressChecksums, live);
+            }
+        }
+    };
+
+    /**
+     * Abre el almacenamiento en la carpeta indicada.
+     *
+     * @param directory           La carpeta del almacenamiento.
+     * @param memtableLimit       Tamaño en bytes a partir del cual la memtable se vuelca a disco.
+     * @param compactionThreshold Número de segmentos a partir del cual se compactan.
+     * @throws IOException Si no se puede abrir.
+     */
+    public LsmStorage(File directory, long memtableLimit, int compactionThreshold) throws IOException {
+        this.store = new LsmStore(directory, memtableLimit, compactionThreshold);
+    }
+
+    /**
+     * Abre el almacén de respuestas a exámenes de la carpeta de datos si no está abierto; se
+     * cierra con este almacenamiento. Debe llamarse antes de cargar los datos.
+     *
+     * @throws IOException Si el almacén de respuestas no puede abrirse.
+     */
+    void openResponseStore() throws IOException {
+        ownsResponseStore = DataManager.enableResponseStore();
+    }
+
+    private LearningPath decodeLearningPath(byte[] value) throws IOException {
+        LearningPath lp = DomainCodec.decodePathMetadata(ByteBuffer.wrap(value), registry);
+        lp.setActivitySource(new StoredActivities(lp.getId()));
+        lp.markClean();
+        registry.register(lp);
+        return lp;
+    }
+
+    private List<Progress> decodeProgresses(SortedMap<byte[], byte[]> entries) throws IOException {
+        List<Progress> result = new ArrayList<>(entries.size());
+        for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+            synchronized (this) {
+                progressChecksums.put(ByteBuffer.wrap(entry.getKey()), checksum(entry.getValue()));
+            }
+            Progress progress = DomainCodec.decodeProgress(ByteBuffer.wrap(entry.getValue()), registry);
+            progress.markClean();
+            result.add(progress);
+        }
+        return result;
+    }
+
+    /**
+     * Si el almacenamiento está vacío y la carpeta de datos tiene archivos de la implementación
+     * basada en archivos, los importa. Permite cambiar de implementación sin perder datos.
+     *
+     * @throws IOException Si ocurre un error al importar.
+     */
+    void importIfEmpty() throws IOException {
+        if (!store.isEmpty() || !DataManager.hasSavedData()) {
+            return;
+        }
+        List<User> userList;
+        List<LearningPath> learningPathList;
+        List<Progress> progressList;
+        try (FileStorage files = new FileStorage(true)) {
+            userList = files.users().findAll();
+            learningPathList = files.learningPaths().findAll();
+            progressList = files.progresses().findAll();
+            files.recover(progressList);
+        }
+        save(EnumSet.allOf(DataSet.class), userList, learningPathList, progressList);
+    }
+
+    @Override
+    public UserRepository users() {
+        return users;
+    }
+
+    @Override
+    public LearningPathRepository learningPaths() {
+        return learningPaths;
+    }
+
+    @Override
+    public ProgressRepository progresses() {
+        return progresses;
+    }
+
+    /**
+     * Los cambios se recuperan del log del propio almacenamiento al abrirlo.
+     */
+    @Override
+    public int recover(List<Progress> progressList) {
+        return 0;
+    }
+
+    /**
+     * Guarda los conjuntos de datos modificados y sincroniza el log del almacenamiento una sola vez.
+     */
+    @Override
+    public synchronized void save(Set<DataSet> dataSets, List<User> userList, List<LearningPath> learningPathList, List<Progress> progressList) throws IOException {
+        boolean progressChanged = dataSets.contains(DataSet.PROGRESSES) || dataSets.contains(DataSet.PROGRESS_LOG);
+        if (dataSets.contains(DataSet.USERS)) {
+            users.saveAll(userList);
+        }
+        // Las respuestas a encuestas y exámenes también viven en las actividades
+        if (dataSets.contains(DataSet.LEARNING_PATHS) || progressChanged) {
+            learningPaths.saveAll(learningPathList);
+        }
+        if (progressChanged) {
+            progresses.saveAll(progressList);
+        }
+        store.sync();
+        if (progressChanged) {
+            DataManager.saveDashboards();
+        }
+    }
+
+    /**
+     * Motor clave-valor subyacente, para consultar sus estadísticas.
+     *
+     * @return El almacenamiento LSM.
+     */
+    public LsmStore getStore() {
+        return store;
+    }
+
+    @Override
+    public void close() throws IOException {
+        store.close();
+        if (ownsResponseStore) {
+            DataManager.disableResponseStore();
+        }
+    }
+
+    /**
+     * Una entidad sin cambios que ya está en el almacenamiento no se vuelve a codificar.
+     */
+    private static boolean isUnchanged(DirtyTracked entity, Map<ByteBuffer, Long> checksums, byte[] key, Set<ByteBuffer> live) {
+        ByteBuffer wrapped = ByteBuffer.wrap(key);
+        if (entity.isDirty() || !checksums.containsKey(wrapped)) {
+            return false;
+        }
+        live.add(wrapped);
+        return true;
+    }
+
+    private void writeIfChanged(Map<ByteBuffer, Long> checksums, byte[] key, byte[] value, Set<ByteBuffer> live) throws IOException {
+        ByteBuffer wrapped = ByteBuffer.wrap(key);
+        live.add(wrapped);
+        long checksum = checksum(value);
+        Long previous = checksums.get(wrapped);
+        if (previous == null || previous != checksum) {
+            store.put(key, value);
+            checksums.put(wrapped, checksum);
+        }
+    }
+
+    private void deleteMissing(Map<ByteBuffer, Long> checksums, Set<ByteBuffer> live) throws IOException {
+        Iterator<ByteBuffer> iterator = checksums.keySet().iterator();
+        while (iterator.hasNext()) {
+            ByteBuffer key = iterator.next();
+            if (!live.contains(key)) {
+                store.delete(key.array());
+                iterator.remove();
+            }
+        }
+    }
+
+    private static long checksum(byte[] value) {
+        CRC32 crc = new CRC32();
+        crc.update(value);
+        return crc.getValue();
+    }
+
+    private static byte[] key(byte type, long id) {
+        return ByteBuffer.allocate(9).put(type).putLong(id).array();
+    }
+
+    private static byte[] learningPathKey(long id, byte part) {
+        return ByteBuffer.allocate(10).put(LEARNING_PATH).putLong(id).put(part).array();
+    }
+
+    private static byte[] progressKey(Progress progress) {
+        return ByteBuffer.allocate(17).put(PROGRESS)
+                .putLong(progress.getStudent().getId())
+                .putLong(progress.getLearningPath().getId())
+                .array();
+    }
+}
@@ -0,0 +1,279 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.LearningPathVersion;
+import src.com.learningpath.activities.ActivityTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Catálogo de Learning Paths en disco, optimizado para lectura. El archivo se abre con
+ * {@link FileChannel#map} y tiene una tabla de offsets de tamaño fijo, de modo que los
+ * metadatos de cada Learning Path se listan sin decodificar sus actividades. Las actividades
+ * se decodifican del archivo mapeado la primera vez que se accede a ellas.
+ *
+ * El contenido de las actividades ({@link ActivityTemplate}) se guarda una sola vez aunque lo
+ * compartan muchas copias de un Learning Path: los bloques de actividades solo referencian cada
+ * plantilla por su hash, y cada plantilla se decodifica una vez por catálogo.
+ *
+ * Formato:
+ * <pre>
+ * cabecera (16 bytes): "LPDB", versión, tipo de archivo, 2 bytes de relleno, número de
+ *                      Learning Paths (int), número de plantillas (int; 0 antes de la versión 7)
+ * tabla (32 bytes por Learning Path): id (long), offset de metadatos (long), longitud de
+ *                      metadatos (int), offset de actividades (long), longitud de actividades (int)
+ * tabla de plantillas (20 bytes por plantilla, ordenada por hash): hash (long), offset (long),
+ *                      longitud (int)
+ * bloques de metadatos, de actividades y de plantillas codificados con {@link DomainCodec}
+ * </pre>
+ */
+public class MappedCatalog {
+
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 32;
+    static final int TEMPLATE_ENTRY_SIZE = 20;
+
+    /**
+     * Tabla de plantillas de un catálogo mapeado. Cada plantilla se decodifica la primera vez
+     * que la pide un bloque de actividades y después se reutiliza.
+     */
+    static class MappedTemplates implements DomainCodec.TemplateSource {
+        private final ByteBuffer data;
+        private final int tableOffset;
+        private final int count;
+        private final Map<Long, ActivityTemplate> decoded = new ConcurrentHashMap<>();
+
+        MappedTemplates(ByteBuffer data, int tableOffset, int count) {
+            this.data = data;
+            this.tableOffset = tableOffset;
+            this.count = count;
+        }
+
+        @Override
+        public ActivityTemplate template(long hash) throws IOException {
+            ActivityTemplate template = decoded.get(hash);
+            if (template == null) {
+                template = DomainCodec.decodeTemplate(block(hash));
+                decoded.putIfAbsent(hash, template);
+            }
+            return template;
+        }
+
+        /**
+         * Bloque codificado de una plantilla (búsqueda binaria en la tabla).
+         */
+        ByteBuffer block(long hash) throws IOException {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int entry = tableOffset + mid * TEMPLATE_ENTRY_SIZE;
+                int cmp = Long.compare(data.getLong(entry), hash);
+                if (cmp == 0) {
+                    return MappedCatalog.block(data, data.getLong(entry + 8), data.getInt(entry + 16));
+                }
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            throw new IOException("Plantilla de actividad no encontrada en el catálogo: " + Long.toHexString(hash));
+        }
+    }
+
+    /**
+     * Actividades pendientes de decodificar desde el archivo mapeado.
+     */
+    static class MappedActivities implements LearningPath.ActivitySource {
+        private final ByteBuffer block;
+        private final EntityRegistry registry;
+        private final MappedTemplates templates;
+
+        MappedActivities(ByteBuffer block, EntityRegistry registry, MappedTemplates templates) {
+            this.block = block;
+            this.registry = registry;
+            this.templates = templates;
+        }
+
+        @Override
+        public LearningPathVersion load() {
+            try {
+                LearningPathVersion version = DomainCodec.decodeActivities(block.duplicate(), registry, templates);
+                registry.register(version);
+                return version;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al leer las actividades del catálogo", e);
+            }
+        }
+
+        ByteBuffer getBlock() {
+            return block.duplicate();
+        }
+
+        /**
+         * Añade a la escritura de un catálogo las plantillas que referencia el bloque, para
+         * poder copiarlo tal cual.
+         */
+        void copyTemplates(DomainCodec.TemplateBlocks target) throws IOException {
+            for (long hash : DomainCodec.templateHashes(block.duplicate())) {
+                target.add(hash, templates.block(hash));
+            }
+        }
+    }
+
+    private MappedCatalog() {
+    }
+
+    /**
+     * Abre el catálogo y lee los metadatos de todos los Learning Paths. Las actividades
+     * quedan en el archivo mapeado hasta su primer acceso.
+     *
+     * @param file     El archivo del catálogo.
+     * @param registry El registro usado para resolver usuarios y registrar las actividades.
+     * @return Los Learning Paths con sus actividades diferidas.
+     * @throws IOException Si el archivo no puede leerse o no es un catálogo válido.
+     */
+    public static List<LearningPath> read(File file, EntityRegistry registry) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Catálogo demasiado grande: " + channel.size() + " bytes");
+            }
+            // El mapeo sigue siendo válido después de cerrar el canal
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (data.limit() < HEADER_SIZE) {
+            throw new IOException("Catálogo incompleto");
+        }
+        byte[] magic = DomainCodec.magic();
+        for (int i = 0; i < magic.length; i++) {
+            if (data.get(i) != magic[i]) {
+                throw new IOException("El archivo no está en formato binario");
+            }
+        }
+        if (data.get(5) != DomainCodec.CATALOG_FILE) {
+            throw new IOException("Tipo de archivo inesperado: " + data.get(5));
+        }
+        int count = data.getInt(8);
+        int templateCount = data.getInt(12);
+        if (count < 0 || templateCount < 0
+                || HEADER_SIZE + (long) count * ENTRY_SIZE + (long) templateCount * TEMPLATE_ENTRY_SIZE > data.limit()) {
+            throw new IOException("Tabla de offsets inválida");
+        }
+        MappedTemplates templates = new MappedTemplates(data, HEADER_SIZE + count * ENTRY_SIZE, templateCount);
+
+        List<LearningPath> paths = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int entry = HEADER_SIZE + i * ENTRY_SIZE;
+            long id = data.getLong(entry);
+            ByteBuffer metadata = block(data, data.getLong(entry + 8), data.getInt(entry + 16));
+            ByteBuffer activities = block(data, data.getLong(entry + 20), data.getInt(entry + 28));
+            LearningPath lp = DomainCodec.decodePathMetadata(metadata, registry);
+            if (lp.getId() != id) {
+                throw new IOException("Entrada del catálogo inconsistente: " + id);
+            }
+            lp.setActivitySource(new MappedActivities(activities, registry, templates));
+            paths.add(lp);
+        }
+        return paths;
+    }
+
+    private static ByteBuffer block(ByteBuffer data, long offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > data.limit()) {
+            throw new IOException("Bloque fuera del catálogo: " + offset);
+        }
+        ByteBuffer view = data.duplicate();
+        view.position((int) offset).limit((int) offset + length);
+        return view.slice();
+    }
+
+    /**
+     * Escribe el catálogo como una nueva generación de la instantánea (ver {@link SnapshotFiles}).
+     * El archivo anterior se renombra, no se sobrescribe, así que los bloques aún mapeados del
+     * catálogo anterior siguen siendo válidos. Las actividades que nunca se cargaron se copian
+     * tal cual desde el catálogo anterior sin decodificarlas, junto con las plantillas que usan.
+     *
+     * @param file  El archivo del catálogo.
+     * @param paths Los Learning Paths a guardar.
+     * @throws IOException Si ocurre un error de escritura.
+     */
+    public static void write(File file, List<LearningPath> paths) throws IOException {
+        int count = paths.size();
+        List<ByteBuffer> blocks = new ArrayList<>(count * 2);
+        DomainCodec.TemplateBlocks templates = new DomainCodec.TemplateBlocks();
+        for (LearningPath lp : paths) {
+            blocks.add(ByteBuffer.wrap(DomainCodec.encodePathMetadata(lp)));
+            LearningPath.ActivitySource source = lp.getActivitySource();
+            if (source instanceof MappedActivities) {
+                ((MappedActivities) source).copyTemplates(templates);
+                blocks.add(((MappedActivities) source).getBlock());
+            } else {
+                blocks.add(ByteBuffer.wrap(DomainCodec.encodeActivities(lp.getCurrentVersion(), templates)));
+            }
+        }
+        int templateCount = templates.blocks().size();
+
+        ByteBuffer table = ByteBuffer.allocate(HEADER_SIZE + count * ENTRY_SIZE + templateCount * TEMPLATE_ENTRY_SIZE);
+        table.put(DomainCodec.magic());
+        table.put((byte) DomainCodec.SCHEMA_VERSION);
+        table.put((byte) DomainCodec.CATALOG_FILE);
+        table.putShort((short) 0);
+        table.putInt(count);
+        table.putInt(templateCount);
+
+        long offset = table.capacity();
+        for (int i = 0; i < count; i++) {
+            ByteBuffer metadata = blocks.get(2 * i);
+            ByteBuffer activities = blocks.get(2 * i + 1);
+            table.putLong(paths.get(i).getId());
+            table.putLong(offset);
+            table.putInt(metadata.remaining());
+            offset += metadata.remaining();
+            table.putLong(offset);
+            table.putInt(activities.remaining());
+            offset += activities.remaining();
+        }
+        for (Map.Entry<Long, ByteBuffer> template : templates.blocks().entrySet()) {
+            ByteBuffer block = template.getValue().duplicate();
+            table.putLong(template.getKey());
+            table.putLong(offset);
+            table.putInt(block.remaining());
+            offset += block.remaining();
+            blocks.add(block);
+        }
+        table.flip();
+
+        SnapshotFiles.write(file, out -> {
+            byte[] chunk = new byte[8192];
+            writeFully(out, table, chunk);
+            for (ByteBuffer block : blocks) {
+                writeFully(out, block, chunk);
+            }
+        });
+    }
+
+    private static void writeFully(OutputStream out, ByteBuffer buffer, byte[] chunk) throws IOException {
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            return;
+        }
+        // Bloques copiados del catálogo mapeado anterior
+        while (buffer.hasRemaining()) {
+            int count = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, count);
+            out.write(chunk, 0, count);
+        }
+    }
+}
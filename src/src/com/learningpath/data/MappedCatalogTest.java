@@ -0,0 +1,88 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.activities.Activity;
+import src.com.learningpath.activities.Question;
+import src.com.learningpath.activities.Quiz;
+import src.com.learningpath.activities.ResourceReview;
+import src.com.learningpath.users.Teacher;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MappedCatalogTest {
+
+    @Test
+    public void testActivitiesAreDecodedOnFirstAccess() throws Exception {
+        File file = File.createTempFile("catalog", ".dat");
+        try {
+            Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+            LearningPath lp1 = new LearningPath("LP1", "Description 1", "Objectives 1", 1, teacher);
+            lp1.addActivity(new ResourceReview("Variables", "Learn variables", "Understand", 1, 30, true, "http://example.com"));
+            LearningPath lp2 = new LearningPath("LP2", "Description 2", "Objectives 2", 2, teacher);
+            lp2.addActivity(new ResourceReview("Loops", "Learn loops", "Understand", 2, 45, false, "http://example.com/loops"));
+            MappedCatalog.write(file, List.of(lp1, lp2));
+
+            List<LearningPath> loaded = MappedCatalog.read(file, new EntityRegistry());
+            assertEquals("LP1", loaded.get(0).getTitle());
+            assertEquals(30, loaded.get(0).getDuration());
+            assertFalse(loaded.get(0).isActivitiesLoaded());
+
+            // Al reescribir el catálogo, las actividades no cargadas se copian sin decodificar
+            Activity first = loaded.get(0).getActivities().get(0);
+            assertEquals("Variables", first.getTitle());
+            MappedCatalog.write(file, new ArrayList<>(loaded));
+            assertFalse(loaded.get(1).isActivitiesLoaded());
+
+            List<LearningPath> reloaded = MappedCatalog.read(file, new EntityRegistry());
+            assertEquals(first.getId(), reloaded.get(0).getActivities().get(0).getId());
+            assertEquals("Loops", reloaded.get(1).getActivities().get(0).getTitle());
+        } finally {
+            TestFiles.deleteSnapshot(file);
+        }
+    }
+
+    @Test
+    public void testCopiesStoreSharedTemplatesOnce() throws Exception {
+        File file = File.createTempFile("catalog", ".dat");
+        try {
+            Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+            LearningPath original = new LearningPath("Java", "Intro", "Learn Java", 1, teacher);
+            original.addActivity(new Quiz("Quiz", "Basics", "Assess", 1, 20, true, List.of(
+                    new Question("What is Java?", new String[]{"Language", "Coffee"}, 0, "A language."),
+                    new Question("What is JDK?", new String[]{"Kit", "Game"}, 0, "Development kit.")), 70.0));
+            original.addActivity(new ResourceReview("Variables", "Learn variables", "Understand", 1, 30, true, "http://example.com"));
+            List<LearningPath> paths = new ArrayList<>();
+            paths.add(original);
+            for (int i = 0; i < 50; i++) {
+                paths.add(new LearningPath(original, new Teacher("t" + i, "pw", "T" + i)));
+            }
+            MappedCatalog.write(file, paths);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                raf.seek(12);
+                assertEquals(2, raf.readInt());
+            }
+
+            List<LearningPath> loaded = MappedCatalog.read(file, new EntityRegistry());
+            Quiz first = (Quiz) loaded.get(1).getActivities().get(0);
+            Quiz last = (Quiz) loaded.get(50).getActivities().get(0);
+            assertEquals(paths.get(50).getActivities().get(0).getId(), last.getId());
+            assertEquals("Kit", last.getQuestions().get(1).getOptions()[0]);
+            assertSame(first.getQuestions(), last.getQuestions());
+
+            // Un profesor edita su copia: solo esa copia deja de compartir la plantilla
+            last.setCorrectOptionIndex(0, 1);
+            MappedCatalog.write(file, new ArrayList<>(loaded));
+            List<LearningPath> reloaded = MappedCatalog.read(file, new EntityRegistry());
+            assertEquals(1, ((Quiz) reloaded.get(50).getActivities().get(0)).getQuestions().get(0).getCorrectOptionIndex());
+            assertEquals(0, ((Quiz) reloaded.get(49).getActivities().get(0)).getQuestions().get(0).getCorrectOptionIndex());
+            assertEquals("Variables", reloaded.get(0).getActivities().get(1).getTitle());
+        } finally {
+            TestFiles.deleteSnapshot(file);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package src.com.learningpath.data;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Servicio de persistencia asíncrono. Recibe notificaciones de datos modificados,
+ * las agrupa durante una ventana de tiempo configurable y las guarda en un solo paso
+ * desde un hilo en segundo plano, de modo que la consola no se bloquea esperando al disco.
+ *
+ * También registra la profundidad de la cola y la latencia de cada guardado para
+ * poder ajustar la ventana.
+ */
+public class PersistenceService {
+
+    /**
+     * Acción que guarda los conjuntos de datos modificados.
+     */
+    public interface Flusher {
+        void flush(Set<DataSet> dataSets) throws IOException;
+    }
+
+    private final Flusher flusher;
+    private final long windowMillis;
+    private final Object lock = new Object();
+    private final Object flushLock = new Object();
+    private final EnumSet<DataSet> pending = EnumSet.noneOf(DataSet.class);
+    private Thread worker;
+    private boolean running;
+
+    // Estadísticas
+    private int queueDepth;
+    private int maxQueueDepth;
+    private long notificationCount;
+    private long flushCount;
+    private long failedFlushCount;
+    private long totalFlushNanos;
+    private long lastFlushNanos;
+    private long maxFlushNanos;
+
+    /**
+     * Constructor del servicio de persistencia.
+     *
+     * @param flusher      La acción que guarda los datos.
+     * @param windowMillis Tiempo en milisegundos durante el cual se agrupan las notificaciones.
+     */
+    public PersistenceService(Flusher flusher, long windowMillis) {
+        this.flusher = flusher;
+        this.windowMillis = Math.max(0, windowMillis);
+    }
+
+    /**
+     * Inicia el hilo de persistencia en segundo plano.
+     */
+    public void start() {
+        synchronized (lock) {
+            if (running) {
+                return;
+            }
+            running = true;
+            worker = new Thread(this::run, "persistence-service");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Marca conjuntos de datos como modificados. El guardado ocurre en segundo plano.
+     *
+     * @param dataSets Los conjuntos de datos modificados.
+     */
+    public void markDirty(DataSet... dataSets) {
+        synchronized (lock) {
+            for (DataSet dataSet : dataSets) {
+                pending.add(dataSet);
+            }
+            notificationCount++;
+            queueDepth++;
+            maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+            lock.notifyAll();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            synchronized (lock) {
+                while (running && pending.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // Se revisa de nuevo el estado del servicio
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+            }
+            // Esperar la ventana para agrupar más notificaciones en un solo guardado
+            try {
+                Thread.sleep(windowMillis);
+            } catch (InterruptedException e) {
+                // Se guarda de inmediato
+            }
+            flush();
+        }
+    }
+
+    /**
+     * Guarda de inmediato, en el hilo que llama, todos los datos pendientes.
+     *
+     * @return True si no quedan datos pendientes tras el guardado.
+     */
+    public boolean flush() {
+        synchronized (flushLock) {
+            Set<DataSet> batch;
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    return true;
+                }
+                batch = EnumSet.copyOf(pending);
+                pending.clear();
+                queueDepth = 0;
+            }
+            long start = System.nanoTime();
+            try {
+                flusher.flush(batch);
+            } catch (IOException | RuntimeException e) {
+                // Se vuelven a marcar los datos para reintentar en el siguiente guardado
+                synchronized (lock) {
+                    pending.addAll(batch);
+                    failedFlushCount++;
+                }
+                System.out.println("Error al guardar datos: " + e.getMessage());
+                return false;
+            }
+            long elapsed = System.nanoTime() - start;
+            synchronized (lock) {
+                flushCount++;
+                lastFlushNanos = elapsed;
+                totalFlushNanos += elapsed;
+                maxFlushNanos = Math.max(maxFlushNanos, elapsed);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Detiene el hilo de persistencia y guarda los datos pendientes.
+     * Se llama desde el shutdown hook de la aplicación.
+     */
+    public void shutdown() {
+        Thread current;
+        synchronized (lock) {
+            running = false;
+            current = worker;
+            lock.notifyAll();
+        }
+        if (current != null) {
+            current.interrupt();
+            try {
+                current.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Un segundo intento cubre un guardado fallido por modificaciones concurrentes
+        if (!flush()) {
+            flush();
+        }
+    }
+
+    // Estadísticas
+
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return queueDepth;
+        }
+    }
+
+    public int getMaxQueueDepth() {
+        synchronized (lock) {
+            return maxQueueDepth;
+        }
+    }
+
+    public long getFlushCount() {
+        synchronized (lock) {
+            return flushCount;
+        }
+    }
+
+    public double getLastFlushLatencyMillis() {
+        synchronized (lock) {
+            return lastFlushNanos / 1_000_000.0;
+        }
+    }
+
+    public double getAverageFlushLatencyMillis() {
+        synchronized (lock) {
+            return flushCount == 0 ? 0.0 : totalFlushNanos / 1_000_000.0 / flushCount;
+        }
+    }
+
+    public double getMaxFlushLatencyMillis() {
+        synchronized (lock) {
+            return maxFlushNanos / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Resumen de las estadísticas del servicio.
+     *
+     * @return Texto con notificaciones, guardados, profundidad de cola y latencias.
+     */
+    public String getStatistics() {
+        synchronized (lock) {
+            return String.format("ventana %d ms, %d notificaciones en %d guardados (%d fallidos), cola actual %d, cola máx %d, "
+                            + "latencia media %.2f ms, última %.2f ms, máx %.2f ms",
+                    windowMillis, notificationCount, flushCount, failedFlushCount, queueDepth, maxQueueDepth,
+                    flushCount == 0 ? 0.0 : totalFlushNanos / 1_000_000.0 / flushCount,
+                    lastFlushNanos / 1_000_000.0, maxFlushNanos / 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package src.com.learningpath.data;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+public class PersistenceServiceTest {
+
+    @Test
+    public void testBurstOfNotificationsIsFlushedOnce() {
+        List<Set<DataSet>> flushes = new ArrayList<>();
+        PersistenceService service = new PersistenceService(dataSets -> flushes.add(EnumSet.copyOf(dataSets)), 0);
+        DataSet[] values = DataSet.values();
+        int burst = 50;
+        for (int i = 0; i < burst; i++) {
+            service.markDirty(values[i % values.length]);
+        }
+        assertEquals(burst, service.getQueueDepth());
+
+        assertTrue(service.flush());
+        assertEquals(1, flushes.size());
+        assertEquals(EnumSet.allOf(DataSet.class), flushes.get(0));
+        assertEquals(1, service.getFlushCount());
+        assertEquals(0, service.getQueueDepth());
+        assertEquals(burst, service.getMaxQueueDepth());
+
+        // Sin datos pendientes no se vuelve a guardar
+        assertTrue(service.flush());
+        assertEquals(1, flushes.size());
+    }
+
+    @Test
+    public void testWorkerGroupsBurstWithinWindow() throws Exception {
+        List<Set<DataSet>> flushes = new ArrayList<>();
+        PersistenceService service = new PersistenceService(dataSets -> {
+            synchronized (flushes) {
+                flushes.add(EnumSet.copyOf(dataSets));
+            }
+        }, 500);
+        service.start();
+        int burst = 20;
+        for (int i = 0; i < burst; i++) {
+            service.markDirty(DataSet.PROGRESSES, DataSet.PROGRESS_LOG);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getFlushCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        service.shutdown();
+
+        synchronized (flushes) {
+            assertEquals(1, flushes.size());
+            assertEquals(EnumSet.of(DataSet.PROGRESSES, DataSet.PROGRESS_LOG), flushes.get(0));
+        }
+        assertEquals(1, service.getFlushCount());
+        assertEquals(burst, service.getMaxQueueDepth());
+        assertEquals(0, service.getQueueDepth());
+    }
+}
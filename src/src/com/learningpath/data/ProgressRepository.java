@@ -0,0 +1,37 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.Progress;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Acceso a los progresos guardados, independiente del formato de almacenamiento.
+ */
+public interface ProgressRepository {
+
+    /**
+     * Carga todos los progresos. Los Learning Paths deben haberse cargado antes.
+     *
+     * @return Los progresos guardados.
+     * @throws IOException Si ocurre un error de lectura.
+     */
+    List<Progress> findAll() throws IOException;
+
+    /**
+     * Carga los progresos de un estudiante.
+     *
+     * @param studentId El identificador del estudiante.
+     * @return Sus progresos.
+     * @throws IOException Si ocurre un error de lectura.
+     */
+    List<Progress> findByStudent(long studentId) throws IOException;
+
+    /**
+     * Guarda la lista completa de progresos.
+     *
+     * @param progresses Los progresos.
+     * @throws IOException Si ocurre un error de escritura.
+     */
+    void saveAll(List<Progress> progresses) throws IOException;
+}
@@ -0,0 +1,422 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.Progress;
+import src.com.learningpath.ProgressListener;
+import src.com.learningpath.activities.Activity;
+import src.com.learningpath.activities.OpenEndedExam;
+import src.com.learningpath.activities.OpenEndedResponse;
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.User;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Almacén de las respuestas a exámenes de preguntas abiertas. Cada respuesta se identifica por
+ * (examen, posición de la pregunta, estudiante) y su texto se guarda una sola vez, en un archivo
+ * de solo escritura al final que se lee con {@link FileChannel#map} por ventanas de tamaño fijo.
+ * En memoria solo está el índice con la posición de cada respuesta en el archivo y unas pocas
+ * ventanas mapeadas; el texto se decodifica cuando un profesor abre la respuesta. Las
+ * respuestas de los exámenes y de los progresos cargados son referencias al almacén
+ * ({@link OpenEndedResponse#stored}), así que no se duplican.
+ *
+ * Como observador de los progresos, guarda cada respuesta nueva en cuanto se entrega
+ * ({@link Progress#addExamResponse}), antes de que la registre el write-ahead log.
+ *
+ * Formato de cada registro (las respuestas de un estudiante a un examen):
+ * <pre>
+ * examen (long), estudiante (long), número de respuestas (int), CRC32 del resto (int),
+ * longitud de cada respuesta (int), texto de cada respuesta en UTF-8
+ * </pre>
+ * Cada registro se sincroniza a disco al añadirlo, así que solo el último puede estar
+ * incompleto; si lo está se descarta al abrir el archivo. Si un estudiante vuelve a responder
+ * un examen, el registro nuevo sustituye al anterior, que queda en el archivo sin usarse.
+ */
+public class ResponseStore implements ProgressListener, Closeable {
+
+    static final int RECORD_HEADER_SIZE = 24;
+    static final int WINDOW_SIZE = 8 * 1024 * 1024;
+    // Ventanas mapeadas que se conservan (las menos usadas recientemente se liberan)
+    private static final int MAX_WINDOWS = 16;
+
+    private final FileChannel channel;
+    // examen -> estudiante -> offsets de las respuestas (el inicio de cada una y el final de la última)
+    private final Map<Long, Map<Long, long[]>> index = new HashMap<>();
+    private long size;
+    private final int windowSize;
+    // Ventanas mapeadas del archivo por número de ventana, en orden de uso
+    private final LinkedHashMap<Long, MappedByteBuffer> windows = new LinkedHashMap<>(MAX_WINDOWS, 0.75f, true);
+
+    /**
+     * Abre (o crea) el almacén en el archivo indicado y reconstruye el índice leyendo solo las
+     * cabeceras de los registros.
+     *
+     * @param file El archivo de respuestas.
+     * @throws IOException Si el archivo no puede abrirse.
+     */
+    public ResponseStore(File file) throws IOException {
+        this(file, WINDOW_SIZE);
+    }
+
+    /**
+     * Abre el almacén con otro tamaño de ventana (para pruebas).
+     */
+    ResponseStore(File file, int windowSize) throws IOException {
+        this.windowSize = windowSize;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            this.size = scan();
+            if (size < channel.size()) {
+                channel.truncate(size);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Lee las cabeceras de los registros y devuelve el tamaño de la parte válida del archivo.
+     */
+    private long scan() throws IOException {
+        long fileSize = channel.size();
+        long position = 0;
+        long last = -1;
+        // Respuestas que sustituyó el último registro, por si hay que descartarlo
+        long[] replaced = null;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (position + RECORD_HEADER_SIZE <= fileSize) {
+            header.clear();
+            readFully(header, position);
+            long examId = header.getLong(0);
+            long studentId = header.getLong(8);
+            int count = header.getInt(16);
+            if (examId == 0 || count < 0 || position + RECORD_HEADER_SIZE + 4L * count > fileSize) {
+                break;
+            }
+            ByteBuffer lengths = ByteBuffer.allocate(4 * count);
+            readFully(lengths, position + RECORD_HEADER_SIZE);
+            long[] offsets = new long[count + 1];
+            long offset = position + RECORD_HEADER_SIZE + 4L * count;
+            boolean valid = true;
+            for (int i = 0; i < count; i++) {
+                int length = lengths.getInt(4 * i);
+                if (length < 0) {
+                    valid = false;
+                    break;
+                }
+                offsets[i] = offset;
+                offset += length;
+            }
+            if (!valid || offset > fileSize) {
+                break;
+            }
+            offsets[count] = offset;
+            replaced = index.computeIfAbsent(examId, id -> new HashMap<>()).put(studentId, offsets);
+            last = position;
+            position = offset;
+        }
+        // Solo el último registro puede haber quedado a medias: se comprueba su CRC
+        if (last >= 0 && !checksumMatches(last, position)) {
+            header.clear();
+            readFully(header, last);
+            if (replaced != null) {
+                index.get(header.getLong(0)).put(header.getLong(8), replaced);
+            } else {
+                index.get(header.getLong(0)).remove(header.getLong(8));
+            }
+            return last;
+        }
+        return position;
+    }
+
+    private boolean checksumMatches(long start, long end) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(header, start);
+        // El registro se lee por partes para no cargar en memoria respuestas largas
+        ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+        CRC32 crc = new CRC32();
+        for (long position = start + RECORD_HEADER_SIZE; position < end; position += chunk.limit()) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunk.capacity(), end - position));
+            readFully(chunk, position);
+            chunk.flip();
+            crc.update(chunk);
+        }
+        return (int) crc.getValue() == header.getInt(20);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Fin inesperado del archivo de respuestas");
+            }
+        }
+    }
+
+    /**
+     * Guarda las respuestas de un estudiante a un examen y las sincroniza a disco.
+     *
+     * @param examId    El identificador del examen.
+     * @param studentId El identificador del estudiante.
+     * @param answers   Las respuestas, en el orden de las preguntas.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public synchronized void put(long examId, long studentId, List<String> answers) throws IOException {
+        if (examId == 0) {
+            throw new IllegalArgumentException("El examen no tiene identificador");
+        }
+        byte[][] texts = new byte[answers.size()][];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = answers.get(i) == null ? new byte[0] : answers.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        // La cabecera y las longitudes van en un buffer; cada texto se escribe tal cual, sin
+        // copiar el registro completo en otro buffer
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE + 4 * texts.length);
+        header.putLong(examId).putLong(studentId).putInt(texts.length).putInt(0);
+        long[] offsets = new long[texts.length + 1];
+        long offset = size + header.capacity();
+        for (int i = 0; i < texts.length; i++) {
+            header.putInt(texts[i].length);
+            offsets[i] = offset;
+            offset += texts[i].length;
+        }
+        offsets[texts.length] = offset;
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), RECORD_HEADER_SIZE, 4 * texts.length);
+        for (byte[] text : texts) {
+            crc.update(text);
+        }
+        header.putInt(20, (int) crc.getValue());
+        header.flip();
+        long position = writeFully(header, size);
+        for (byte[] text : texts) {
+            position = writeFully(ByteBuffer.wrap(text), position);
+        }
+        channel.force(false);
+        size = offset;
+        index.computeIfAbsent(examId, id -> new HashMap<>()).put(studentId, offsets);
+    }
+
+    private long writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return position;
+    }
+
+    /**
+     * Lee una respuesta del archivo mapeado.
+     *
+     * @param examId        El identificador del examen.
+     * @param studentId     El identificador del estudiante.
+     * @param questionIndex La posición de la pregunta.
+     * @return La respuesta, o null si no está guardada.
+     * @throws IOException Si el archivo no puede mapearse.
+     */
+    public synchronized String read(long examId, long studentId, int questionIndex) throws IOException {
+        long[] offsets = offsets(examId, studentId);
+        if (offsets == null || questionIndex < 0 || questionIndex >= offsets.length - 1) {
+            return null;
+        }
+        return StandardCharsets.UTF_8.decode(map(offsets[questionIndex], offsets[questionIndex + 1])).toString();
+    }
+
+    /**
+     * Vista de una parte del archivo. Las partes que caben en una ventana se leen de la ventana
+     * mapeada que las contiene, que se reutiliza entre lecturas; las que cruzan el límite de una
+     * ventana se mapean por separado. Así el archivo no tiene límite de tamaño y escribir no
+     * obliga a volver a mapearlo: solo la última ventana se vuelve a mapear, y solo si se lee
+     * una respuesta escrita después de mapearla.
+     */
+    private ByteBuffer map(long start, long end) throws IOException {
+        if (!channel.isOpen()) {
+            throw new IOException("El almacén de respuestas está cerrado");
+        }
+        long window = start / windowSize;
+        long windowStart = window * windowSize;
+        if (end > windowStart + windowSize) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        }
+        MappedByteBuffer mapped = windows.get(window);
+        if (mapped == null || windowStart + mapped.capacity() < end) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(windowSize, size - windowStart));
+            windows.put(window, mapped);
+            if (windows.size() > MAX_WINDOWS) {
+                windows.remove(windows.keySet().iterator().next());
+            }
+        }
+        ByteBuffer data = mapped.duplicate();
+        data.limit((int) (end - windowStart)).position((int) (start - windowStart));
+        return data;
+    }
+
+    private long[] offsets(long examId, long studentId) {
+        Map<Long, long[]> byStudent = index.get(examId);
+        return byStudent == null ? null : byStudent.get(studentId);
+    }
+
+    /**
+     * Indica si hay respuestas guardadas de un estudiante a un examen.
+     *
+     * @param examId    El identificador del examen.
+     * @param studentId El identificador del estudiante.
+     * @return True si las hay.
+     */
+    public synchronized boolean contains(long examId, long studentId) {
+        return offsets(examId, studentId) != null;
+    }
+
+    /**
+     * Estudiantes con respuestas guardadas a un examen.
+     *
+     * @param examId El identificador del examen.
+     * @return Sus identificadores.
+     */
+    public synchronized Set<Long> getStudents(long examId) {
+        Map<Long, long[]> byStudent = index.get(examId);
+        return byStudent == null ? Collections.emptySet() : new HashSet<>(byStudent.keySet());
+    }
+
+    /**
+     * Tamaño de la parte válida del archivo.
+     *
+     * @return El tamaño en bytes.
+     */
+    public synchronized long getFileSize() {
+        return size;
+    }
+
+    /**
+     * Respuesta guardada de un estudiante, que lee el texto del almacén al pedirlo.
+     *
+     * @param examId  El identificador del examen.
+     * @param student El estudiante.
+     * @return La respuesta, o null si no está guardada.
+     */
+    public synchronized OpenEndedResponse open(long examId, Student student) {
+        long[] offsets = offsets(examId, student.getId());
+        if (offsets == null) {
+            return null;
+        }
+        return OpenEndedResponse.stored(student, offsets.length - 1, source(examId, student.getId()));
+    }
+
+    private OpenEndedResponse.AnswerSource source(long examId, long studentId) {
+        return questionIndex -> {
+            try {
+                return read(examId, studentId, questionIndex);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * Guarda en el almacén las respuestas que aún están en memoria y hace que la respuesta las
+     * lea del almacén. Si el estudiante ya había respondido el examen, el registro nuevo sustituye
+     * al anterior. Las de estudiantes o exámenes sin identificador se quedan en memoria.
+     *
+     * @param exam     El examen.
+     * @param response La respuesta.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public void store(OpenEndedExam exam, OpenEndedResponse response) throws IOException {
+        store(exam, response, true);
+    }
+
+    /**
+     * Como {@link #store(OpenEndedExam, OpenEndedResponse)}, pero para las respuestas cargadas:
+     * si el almacén ya tiene un registro del estudiante para el examen, la respuesta es una copia
+     * de él (por ejemplo, la del examen y la del progreso) y solo se enlaza.
+     */
+    private void storeLoaded(OpenEndedExam exam, OpenEndedResponse response) throws IOException {
+        store(exam, response, false);
+    }
+
+    private void store(OpenEndedExam exam, OpenEndedResponse response, boolean replace) throws IOException {
+        Student student = response.getStudent();
+        if (response.isStored() || exam.getId() == 0 || student == null || student.getId() == 0) {
+            return;
+        }
+        response.resolveLegacyAnswers(exam.getExamQuestions());
+        if (replace || !contains(exam.getId(), student.getId())) {
+            put(exam.getId(), student.getId(), response.getAnswers());
+        }
+        response.store(source(exam.getId(), student.getId()));
+    }
+
+    /**
+     * Enlaza las respuestas de un examen cargado con el almacén: guarda las que están en
+     * memoria (datos anteriores al almacén) y añade al examen las guardadas que no tiene.
+     *
+     * @param exam     El examen.
+     * @param registry El registro donde buscar a los estudiantes.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public void attach(OpenEndedExam exam, EntityRegistry registry) throws IOException {
+        Set<Long> present = new HashSet<>();
+        for (OpenEndedResponse response : exam.getExamResponses()) {
+            storeLoaded(exam, response);
+            if (response.getStudent() != null) {
+                present.add(response.getStudent().getId());
+            }
+        }
+        for (long studentId : getStudents(exam.getId())) {
+            User user = registry.getUser(studentId);
+            if (!present.contains(studentId) && user instanceof Student) {
+                exam.addExamResponse(open(exam.getId(), (Student) user));
+            }
+        }
+    }
+
+    /**
+     * Enlaza las respuestas de un progreso cargado con el almacén, como
+     * {@link #attach(OpenEndedExam, EntityRegistry)}.
+     *
+     * @param progress   El progreso.
+     * @param activities Las actividades de su Learning Path (de todas las versiones).
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public void attach(Progress progress, List<Activity> activities) throws IOException {
+        for (Activity activity : activities) {
+            if (!(activity instanceof OpenEndedExam)) {
+                continue;
+            }
+            OpenEndedExam exam = (OpenEndedExam) activity;
+            OpenEndedResponse response = progress.getExamResponse(exam);
+            if (response != null) {
+                storeLoaded(exam, response);
+            } else if (contains(exam.getId(), progress.getStudent().getId())) {
+                progress.restoreExamResponse(exam, open(exam.getId(), progress.getStudent()));
+            }
+        }
+    }
+
+    // Implementación de ProgressListener
+
+    @Override
+    public void examResponseAdded(Progress progress, OpenEndedExam exam, OpenEndedResponse response) {
+        try {
+            store(exam, response);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo guardar la respuesta al examen", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        windows.clear();
+        channel.close();
+    }
+}
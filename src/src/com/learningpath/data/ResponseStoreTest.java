@@ -0,0 +1,176 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.Progress;
+import src.com.learningpath.activities.*;
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.Teacher;
+import src.com.learningpath.users.User;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+public class ResponseStoreTest {
+
+    @Test
+    public void testAnswersAreIndexedAndTornRecordIsDropped() throws Exception {
+        File file = new File("temp_exam_answers.dat");
+        file.delete();
+        try {
+            // Ventanas pequeñas para leer respuestas dentro de una ventana y entre dos
+            String essay = String.join(" ", Collections.nCopies(40, "ensayo"));
+            try (ResponseStore store = new ResponseStore(file, 64)) {
+                store.put(10, 1, Arrays.asList("Primera", "Segunda con acentuación"));
+                store.put(10, 2, Arrays.asList("Otra"));
+                assertEquals("Segunda con acentuación", store.read(10, 1, 1));
+                store.put(11, 1, Arrays.asList("Después de mapear", essay));
+                assertEquals("Después de mapear", store.read(11, 1, 0));
+                assertEquals(essay, store.read(11, 1, 1));
+                assertEquals("Otra", store.read(10, 2, 0));
+                assertNull(store.read(10, 3, 0));
+            }
+            long size = file.length();
+            // Simular un registro escrito a medias al final del archivo
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(size);
+                raf.writeLong(12);
+                raf.writeLong(1);
+                raf.writeInt(1);
+            }
+
+            try (ResponseStore store = new ResponseStore(file)) {
+                assertEquals(size, store.getFileSize());
+                assertEquals(size, file.length());
+                assertEquals("Primera", store.read(10, 1, 0));
+                assertEquals("Otra", store.read(10, 2, 0));
+                assertEquals(2, store.getStudents(10).size());
+                assertFalse(store.contains(12, 1));
+                Student ana = new Student("ana", "pw", "Ana");
+                ana.setId(1);
+                OpenEndedResponse response = store.open(10, ana);
+                assertTrue(response.isStored());
+                assertEquals(Arrays.asList("Primera", "Segunda con acentuación"), response.getAnswers());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSnapshotsReferenceStoredAnswers() throws Exception {
+        String tempDataFolder = "temp_responses_data/";
+        new File(tempDataFolder).mkdirs();
+        DataManager.setDataFolder(tempDataFolder);
+
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        Student student = new Student("sstudent", "password456", "Sarah Student");
+        LearningPath lp = new LearningPath("Java Basics", "Intro", "Learn Java", 1, teacher);
+        OpenEndedExam exam = new OpenEndedExam("Ensayo", "Examen final", "Evaluar", 2, 60, true,
+                EnumSet.of(ActivityType.EXAMEN), new ArrayList<>());
+        exam.addExamQuestion(new OpenEndedQuestion("Explique la herencia"));
+        exam.addExamQuestion(new OpenEndedQuestion("Explique el polimorfismo"));
+        lp.addActivity(exam);
+        List<User> users = new ArrayList<>(List.of(teacher, student));
+        List<LearningPath> learningPaths = new ArrayList<>(List.of(lp));
+        Progress progress = new Progress(student, lp);
+        List<Progress> progresses = new ArrayList<>(List.of(progress));
+        String essay = "Un ensayo largo sobre la herencia que no debe repetirse en las instantáneas";
+
+        try {
+            DataManager.enableResponseStore();
+            DataManager.saveUsers(users);
+            OpenEndedResponse response = new OpenEndedResponse(student);
+            response.addAnswer(essay);
+            response.addAnswer("Sobrecarga y sobrescritura");
+            progress.addExamResponse(exam, response);
+            exam.addExamResponse(response);
+            assertTrue(response.isStored());
+            DataManager.saveLearningPaths(learningPaths);
+            DataManager.saveProgresses(progresses);
+            assertEquals(1, occurrences(new File(tempDataFolder), essay));
+
+            // Al volver a abrir, el índice se reconstruye desde el archivo
+            DataManager.disableResponseStore();
+            DataManager.enableResponseStore();
+            DataManager.loadUsers();
+            LearningPath loadedPath = DataManager.loadLearningPaths().get(0);
+            Progress loaded = DataManager.loadProgresses().get(0);
+            OpenEndedExam loadedExam = (OpenEndedExam) loadedPath.getActivities().get(0);
+            OpenEndedResponse fromProgress = loaded.getExamResponse(loadedExam);
+            assertTrue(fromProgress.isStored());
+            assertEquals(2, fromProgress.getAnswerCount());
+            assertEquals(essay, fromProgress.getAnswer(0));
+            assertEquals(1, loadedExam.getExamResponses().size());
+            assertEquals("Sobrecarga y sobrescritura", loadedExam.getExamResponse(student.getId()).getAnswer(1));
+        } finally {
+            DataManager.disableResponseStore();
+            TestFiles.delete(new File(tempDataFolder));
+            DataManager.setDataFolder("data/");
+        }
+    }
+
+    @Test
+    public void testResubmittedAnswersReplaceStoredOnes() throws Exception {
+        String tempDataFolder = "temp_resubmit_data/";
+        new File(tempDataFolder).mkdirs();
+        DataManager.setDataFolder(tempDataFolder);
+
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        Student student = new Student("sstudent", "password456", "Sarah Student");
+        LearningPath lp = new LearningPath("Java Basics", "Intro", "Learn Java", 1, teacher);
+        OpenEndedExam exam = new OpenEndedExam("Ensayo", "Examen final", "Evaluar", 2, 60, true,
+                EnumSet.of(ActivityType.EXAMEN), new ArrayList<>());
+        exam.addExamQuestion(new OpenEndedQuestion("Explique la herencia"));
+        lp.addActivity(exam);
+        Progress progress = new Progress(student, lp);
+
+        try {
+            DataManager.enableResponseStore();
+            OpenEndedResponse draft = new OpenEndedResponse(student);
+            draft.addAnswer("first draft");
+            progress.addExamResponse(exam, draft);
+            OpenEndedResponse last = new OpenEndedResponse(student);
+            last.addAnswer("final answer");
+            progress.addExamResponse(exam, last);
+            assertTrue(last.isStored());
+            assertEquals(List.of("final answer"), progress.getExamResponse(exam).getAnswers());
+
+            // Al volver a abrir, el índice apunta al último registro
+            DataManager.disableResponseStore();
+            DataManager.enableResponseStore();
+            assertEquals(List.of("final answer"),
+                    DataManager.getResponseStore().open(exam.getId(), student).getAnswers());
+        } finally {
+            DataManager.disableResponseStore();
+            TestFiles.delete(new File(tempDataFolder));
+            DataManager.setDataFolder("data/");
+        }
+    }
+
+    /**
+     * Número de archivos de la carpeta que contienen el texto.
+     */
+    private static int occurrences(File folder, String text) throws Exception {
+        int count = 0;
+        File[] children = folder.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    count += occurrences(child, text);
+                } else if (new String(Files.readAllBytes(child.toPath()), StandardCharsets.UTF_8).contains(text)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,233 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.DirtyTracked;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.ToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Instantánea repartida en segmentos: cada entidad va al segmento {@code clave >>> SEGMENT_BITS}
+ * (por ejemplo, el identificador del usuario) y cada segmento es un archivo independiente escrito
+ * con {@link SnapshotFiles}. Al guardar solo se reescriben los segmentos que contienen alguna
+ * entidad modificada ({@link DirtyTracked#isDirty()}) o que perdió alguna entidad; las altas no
+ * necesitan comprobarse aparte porque una entidad nueva siempre está marcada como modificada. Los
+ * segmentos que quedan vacíos se borran. Así el coste de guardar depende de lo que cambió y
+ * no del tamaño total de los datos.
+ *
+ * Los archivos se llaman {@code segment-NNNNNN.dat} dentro de la carpeta de la instantánea.
+ *
+ * @param <T> El tipo de entidad.
+ */
+class SegmentedSnapshot<T extends DirtyTracked> {
+
+    /**
+     * Número de bits de la clave que comparten las entidades de un mismo segmento (4096 claves).
+     */
+    static final int SEGMENT_BITS = 12;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.dat(\\.prev|\\.tmp)?");
+
+    /**
+     * Escribe las entidades de un segmento en su archivo.
+     */
+    interface SegmentWriter<T> {
+        void write(File file, List<T> entities) throws IOException;
+    }
+
+    /**
+     * Lee las entidades de un segmento.
+     */
+    interface SegmentReader<T> {
+        List<T> read(File file) throws IOException, ClassNotFoundException;
+    }
+
+    private final File directory;
+    private final ToLongFunction<T> segmentKey;
+    private final SegmentWriter<T> writer;
+    private final SegmentReader<T> reader;
+
+    // Número de entidades guardadas en cada segmento, para detectar las bajas
+    private final Map<Long, Integer> persisted = new HashMap<>();
+    private boolean scanned;
+
+    /**
+     * @param directory  La carpeta de los segmentos.
+     * @param segmentKey Clave que decide el segmento de cada entidad; no debe cambiar.
+     * @param writer     Escribe un segmento.
+     * @param reader     Lee un segmento.
+     */
+    SegmentedSnapshot(File directory, ToLongFunction<T> segmentKey, SegmentWriter<T> writer, SegmentReader<T> reader) {
+        this.directory = directory;
+        this.segmentKey = segmentKey;
+        this.writer = writer;
+        this.reader = reader;
+    }
+
+    /**
+     * Indica si la instantánea ya se guardó alguna vez en formato segmentado.
+     *
+     * @return True si la carpeta de segmentos existe.
+     */
+    boolean exists() {
+        return directory.isDirectory();
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Lee todos los segmentos, verificando cada uno con {@link SnapshotFiles#recover}. Las
+     * entidades leídas quedan marcadas como guardadas. La lectura no bloquea la instantánea, de
+     * modo que {@link #loadSegment} puede leer un segmento mientras tanto.
+     *
+     * @return Las entidades, en orden de segmento.
+     * @throws IOException            Si un segmento está dañado y no tiene ninguna generación válida.
+     * @throws ClassNotFoundException Si el lector lo lanza.
+     */
+    List<T> load() throws IOException, ClassNotFoundException {
+        synchronized (this) {
+            persisted.clear();
+            scanned = true;
+        }
+        List<T> entities = new ArrayList<>();
+        for (long segment : listSegments()) {
+            entities.addAll(readSegment(segment));
+        }
+        return entities;
+    }
+
+    /**
+     * Lee solo el segmento que corresponde a una clave. Las entidades leídas quedan marcadas
+     * como guardadas.
+     *
+     * @param key La clave (por ejemplo, el identificador del estudiante).
+     * @return Todas las entidades del segmento, no solo las de esa clave.
+     * @throws IOException            Si el segmento está dañado y no tiene ninguna generación válida.
+     * @throws ClassNotFoundException Si el lector lo lanza.
+     */
+    List<T> loadSegment(long key) throws IOException, ClassNotFoundException {
+        return readSegment(key >>> SEGMENT_BITS);
+    }
+
+    private List<T> readSegment(long segment) throws IOException, ClassNotFoundException {
+        File file = SnapshotFiles.recover(segmentFile(segment));
+        if (file == null) {
+            return new ArrayList<>();
+        }
+        List<T> members = reader.read(file);
+        for (T entity : members) {
+            entity.markClean();
+        }
+        synchronized (this) {
+            if (scanned) {
+                persisted.put(segment, members.size());
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Guarda las entidades reescribiendo solo los segmentos que cambiaron.
+     *
+     * @param entities Todas las entidades de la instantánea.
+     * @return El número de segmentos escritos o borrados.
+     * @throws IOException Si ocurre un error de escritura. Las entidades de los segmentos que no
+     *                     llegaron a escribirse siguen marcadas como modificadas.
+     */
+    synchronized int save(List<T> entities) throws IOException {
+        // Cada segmento sincroniza su contenido; la carpeta se sincroniza una vez al final
+        return SnapshotFiles.batch(() -> saveSegments(entities));
+    }
+
+    private int saveSegments(List<T> entities) throws IOException {
+        Map<Long, List<T>> segments = new TreeMap<>();
+        for (T entity : entities) {
+            segments.computeIfAbsent(segmentKey.applyAsLong(entity) >>> SEGMENT_BITS, k -> new ArrayList<>()).add(entity);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("No se pudo crear la carpeta " + directory.getPath());
+        }
+        if (!scanned) {
+            // Sin una carga previa se desconoce el contenido de los segmentos existentes:
+            // se reescriben o se borran todos
+            for (long segment : listSegments()) {
+                persisted.put(segment, -1);
+            }
+            scanned = true;
+        }
+
+        int written = 0;
+        for (Map.Entry<Long, List<T>> entry : segments.entrySet()) {
+            List<T> members = entry.getValue();
+            boolean dirty = false;
+            for (T entity : members) {
+                if (entity.isDirty()) {
+                    dirty = true;
+                    break;
+                }
+            }
+            if (!dirty && Integer.valueOf(members.size()).equals(persisted.get(entry.getKey()))) {
+                continue;
+            }
+            // Se marcan antes de codificar: un cambio concurrente vuelve a marcar la entidad
+            for (T entity : members) {
+                entity.markClean();
+            }
+            try {
+                writer.write(segmentFile(entry.getKey()), members);
+            } catch (IOException | RuntimeException e) {
+                for (T entity : members) {
+                    entity.markDirty();
+                }
+                throw e;
+            }
+            persisted.put(entry.getKey(), members.size());
+            written++;
+        }
+
+        Iterator<Long> iterator = persisted.keySet().iterator();
+        while (iterator.hasNext()) {
+            long segment = iterator.next();
+            if (!segments.containsKey(segment)) {
+                deleteSegment(segment);
+                iterator.remove();
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private SortedSet<Long> listSegments() {
+        SortedSet<Long> segments = new TreeSet<>();
+        String[] names = directory.list();
+        if (names == null) {
+            return segments;
+        }
+        for (String name : names) {
+            Matcher matcher = SEGMENT_NAME.matcher(name);
+            if (matcher.matches()) {
+                segments.add(Long.parseLong(matcher.group(1)));
+            }
+        }
+        return segments;
+    }
+
+    private File segmentFile(long segment) {
+        return new File(directory, String.format("segment-%06d.dat", segment));
+    }
+
+    private void deleteSegment(long segment) throws IOException {
+        File file = segmentFile(segment);
+        // El archivo definitivo se borra el último para que una caída no resucite una generación antigua
+        for (File candidate : new File[]{SnapshotFiles.tempFile(file), SnapshotFiles.previousFile(file), file}) {
+            if (candidate.exists() && !candidate.delete()) {
+                throw new IOException("No se pudo borrar " + candidate.getPath());
+            }
+        }
+    }
+}
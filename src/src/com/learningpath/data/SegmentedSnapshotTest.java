@@ -0,0 +1,60 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.users.Teacher;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SegmentedSnapshotTest {
+
+    @Test
+    public void testOnlyChangedSegmentsAreRewritten() throws Exception {
+        String tempDataFolder = "temp_segment_data/";
+        DataManager.setDataFolder(tempDataFolder);
+        try {
+            Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+            LearningPath first = new LearningPath("LP1", "Description 1", "Objectives 1", 1, teacher);
+            LearningPath second = new LearningPath("LP2", "Description 2", "Objectives 2", 2, teacher);
+            // Identificadores en segmentos distintos
+            first.setId(1);
+            second.setId(1L << SegmentedSnapshot.SEGMENT_BITS);
+            List<LearningPath> paths = new ArrayList<>();
+            paths.add(first);
+            paths.add(second);
+
+            DataManager.saveLearningPaths(paths);
+            assertFalse(first.isDirty());
+            File folder = new File(tempDataFolder + "learning_paths");
+            File firstSegment = new File(folder, "segment-000000.dat");
+            File secondSegment = new File(folder, "segment-000001.dat");
+            assertTrue(firstSegment.exists());
+            assertTrue(secondSegment.exists());
+
+            // Sin cambios no se escribe nada; con un cambio solo se reescribe su segmento
+            DataManager.saveLearningPaths(paths);
+            assertFalse(SnapshotFiles.previousFile(firstSegment).exists());
+            second.updateRating(4.5);
+            assertTrue(second.isDirty());
+            DataManager.saveLearningPaths(paths);
+            assertFalse(SnapshotFiles.previousFile(firstSegment).exists());
+            assertTrue(SnapshotFiles.previousFile(secondSegment).exists());
+
+            // Un segmento que queda vacío se borra
+            paths.remove(first);
+            DataManager.saveLearningPaths(paths);
+            assertFalse(firstSegment.exists());
+
+            List<LearningPath> loaded = DataManager.loadLearningPaths();
+            assertEquals(1, loaded.size());
+            assertEquals(4.5, loaded.get(0).getRating(), 0.0001);
+            assertFalse(loaded.get(0).isDirty());
+        } finally {
+            TestFiles.delete(new File(tempDataFolder));
+            DataManager.setDataFolder("data/");
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package src.com.learningpath.data;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+/**
+ * Escritura atómica y recuperación de las instantáneas de datos (users.dat, learning_paths.dat
+ * y progresses.dat).
+ *
+ * Cada instantánea se escribe en un archivo temporal, se sincroniza con el disco y solo entonces
+ * se renombra sobre el archivo definitivo; la instantánea anterior se conserva como
+ * {@code <archivo>.prev}. Al final del contenido se añade un pie con el número de generación y
+ * una suma CRC32C por cada bloque de {@link #BLOCK_SIZE} bytes. El contenido empieza en el
+ * byte 0, así que los lectores existentes (y el catálogo mapeado) no cambian.
+ *
+ * Al cargar, {@link #recover} verifica los candidatos (archivo definitivo, generación anterior y
+ * temporal completo) y elige la generación válida más reciente.
+ *
+ * Formato del pie:
+ * <pre>
+ * CRC32C de cada bloque (int por bloque)
+ * pie fijo (32 bytes): longitud del contenido (long), generación (long), tamaño de bloque (int),
+ *                      número de bloques (int), CRC32C de la tabla de sumas (int), magic (int)
+ * </pre>
+ */
+public class SnapshotFiles {
+
+    static final int BLOCK_SIZE = 64 * 1024;
+    private static final int FOOTER_SIZE = 32;
+    private static final int MAGIC = 0x4C50434B; // "LPCK"
+    // Bloques verificados por cada región mapeada durante la recuperación (64 MB)
+    private static final int BLOCKS_PER_REGION = 1024;
+
+    /**
+     * Escribe el contenido de una instantánea en un flujo.
+     */
+    public interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Resultado de verificar un archivo.
+     */
+    static class Verification {
+        final boolean valid;
+        final boolean checked;
+        final long generation;
+        final long bytes;
+
+        Verification(boolean valid, boolean checked, long generation, long bytes) {
+            this.valid = valid;
+            this.checked = checked;
+            this.generation = generation;
+            this.bytes = bytes;
+        }
+    }
+
+    // Carpetas que sincronizar al terminar el lote en curso del hilo (ver batch); null sin lote
+    private static final ThreadLocal<Set<File>> batchDirectories = new ThreadLocal<>();
+
+    // Estadísticas de recuperación desde el inicio de la aplicación
+    private static long recoveredFiles;
+    private static long verifiedBytes;
+    private static long recoveryNanos;
+    private static final StringBuilder recoveryNotes = new StringBuilder();
+
+    private SnapshotFiles() {
+    }
+
+    static File previousFile(File file) {
+        return new File(file.getPath() + ".prev");
+    }
+
+    static File tempFile(File file) {
+        return new File(file.getPath() + ".tmp");
+    }
+
+    /**
+     * Escribe una nueva generación de la instantánea de forma atómica.
+     *
+     * @param file    El archivo definitivo.
+     * @param content El contenido a escribir.
+     * @throws IOException Si ocurre un error de escritura; el archivo definitivo no se modifica.
+     */
+    public static void write(File file, Content content) throws IOException {
+        long generation = Math.max(footerGeneration(file), footerGeneration(previousFile(file))) + 1;
+        File temp = tempFile(file);
+        try (FileOutputStream fileOut = new FileOutputStream(temp)) {
+            BlockChecksumOutputStream out = new BlockChecksumOutputStream(fileOut);
+            content.writeTo(out);
+            out.finish(generation);
+            fileOut.getFD().sync();
+        }
+        if (file.exists()) {
+            Files.move(file.toPath(), previousFile(file).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        File directory = file.getAbsoluteFile().getParentFile();
+        Set<File> pending = batchDirectories.get();
+        if (pending != null) {
+            pending.add(directory);
+        } else {
+            syncDirectory(directory);
+        }
+    }
+
+    /**
+     * Operación que escribe varias instantáneas.
+     */
+    interface Batch<R> {
+        R run() throws IOException;
+    }
+
+    /**
+     * Ejecuta varias escrituras sincronizando cada carpeta una sola vez al final, en lugar de una
+     * vez por archivo. El contenido de cada archivo se sigue sincronizando antes de su renombre:
+     * si el sistema cae antes de sincronizar la carpeta, {@link #recover} encuentra la generación
+     * nueva en el temporal o la anterior en el archivo definitivo.
+     *
+     * @param batch Las escrituras.
+     * @return El resultado de las escrituras.
+     * @throws IOException Si alguna escritura falla; las carpetas se sincronizan igualmente.
+     */
+    static <R> R batch(Batch<R> batch) throws IOException {
+        if (batchDirectories.get() != null) {
+            return batch.run();
+        }
+        Set<File> directories = new LinkedHashSet<>();
+        batchDirectories.set(directories);
+        try {
+            return batch.run();
+        } finally {
+            batchDirectories.remove();
+            for (File directory : directories) {
+                syncDirectory(directory);
+            }
+        }
+    }
+
+    private static long footerGeneration(File file) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        Verification verification = verify(file, false);
+        return verification.valid ? verification.generation : 0;
+    }
+
+    /**
+     * Sincroniza la carpeta para que los renombres sobrevivan a una caída del sistema.
+     * No todos los sistemas permiten abrir una carpeta; en ese caso se omite.
+     */
+    private static void syncDirectory(File directory) {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            // Best effort
+        }
+    }
+
+    /**
+     * Elige la generación válida más reciente de una instantánea. Si no es el archivo definitivo,
+     * la restaura en su lugar y conserva el archivo dañado como {@code <archivo>.corrupt}.
+     *
+     * @param file El archivo definitivo.
+     * @return El archivo definitivo con la generación válida, o null si la instantánea no existe.
+     * @throws IOException Si existe pero ninguna generación es válida, o si ocurre un error al restaurar.
+     */
+    public static File recover(File file) throws IOException {
+        long start = System.nanoTime();
+        File[] candidates = {file, previousFile(file), tempFile(file)};
+        File best = null;
+        Verification bestVerification = null;
+        long bytes = 0;
+        for (File candidate : candidates) {
+            if (!candidate.exists()) {
+                continue;
+            }
+            // Un temporal sin pie no llegó a completarse
+            Verification verification = verify(candidate, true);
+            bytes += verification.bytes;
+            if (!verification.valid || candidate != file && !verification.checked) {
+                continue;
+            }
+            if (bestVerification == null || verification.generation > bestVerification.generation) {
+                best = candidate;
+                bestVerification = verification;
+            }
+        }
+
+        if (best != null && best != file) {
+            if (file.exists()) {
+                Files.move(file.toPath(), new File(file.getPath() + ".corrupt").toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.copy(best.toPath(), file.toPath());
+            syncDirectory(file.getAbsoluteFile().getParentFile());
+            note(file.getName() + " restaurado desde " + best.getName() + " (generación " + bestVerification.generation + ")");
+        }
+        synchronized (SnapshotFiles.class) {
+            recoveredFiles++;
+            verifiedBytes += bytes;
+            recoveryNanos += System.nanoTime() - start;
+        }
+        if (best == null && bytes > 0) {
+            throw new IOException(file.getName() + " está dañado y no hay ninguna generación válida");
+        }
+        return best != null ? file : null;
+    }
+
+    /**
+     * Verifica un archivo. Los archivos sin pie (escritos antes de este formato) se consideran
+     * válidos con generación 0, sin comprobar.
+     *
+     * @param file      El archivo.
+     * @param checkData True para comprobar las sumas de todos los bloques; false para leer solo el pie.
+     */
+    static Verification verify(File file, boolean checkData) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FOOTER_SIZE) {
+                return new Verification(size > 0, false, 0, size);
+            }
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+            channel.read(footer, size - FOOTER_SIZE);
+            footer.flip();
+            long length = footer.getLong();
+            long generation = footer.getLong();
+            int blockSize = footer.getInt();
+            int blockCount = footer.getInt();
+            int tableChecksum = footer.getInt();
+            if (footer.getInt() != MAGIC) {
+                return new Verification(true, false, 0, size);
+            }
+            if (blockSize <= 0 || blockCount < 0 || length < 0
+                    || length + 4L * blockCount + FOOTER_SIZE != size
+                    || (length + blockSize - 1) / blockSize != blockCount) {
+                return new Verification(false, true, generation, size);
+            }
+            ByteBuffer table = ByteBuffer.allocate(4 * blockCount);
+            while (table.hasRemaining()) {
+                if (channel.read(table, length + table.position()) < 0) {
+                    return new Verification(false, true, generation, size);
+                }
+            }
+            table.flip();
+            CRC32C crc = new CRC32C();
+            crc.update(table.duplicate());
+            if ((int) crc.getValue() != tableChecksum) {
+                return new Verification(false, true, generation, size);
+            }
+            if (!checkData) {
+                return new Verification(true, true, generation, size);
+            }
+            return new Verification(checkBlocks(channel, length, blockSize, blockCount, table), true, generation, size);
+        }
+    }
+
+    /**
+     * Comprueba en paralelo las sumas de los bloques, mapeando el archivo por regiones.
+     */
+    private static boolean checkBlocks(FileChannel channel, long length, int blockSize, int blockCount, ByteBuffer table) {
+        int regions = (blockCount + BLOCKS_PER_REGION - 1) / BLOCKS_PER_REGION;
+        return IntStream.range(0, regions).parallel().allMatch(region -> {
+            int first = region * BLOCKS_PER_REGION;
+            int last = Math.min(blockCount, first + BLOCKS_PER_REGION);
+            long start = (long) first * blockSize;
+            long end = Math.min(length, (long) last * blockSize);
+            try {
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                CRC32C crc = new CRC32C();
+                for (int block = first; block < last; block++) {
+                    int offset = (int) ((long) (block - first) * blockSize);
+                    int size = (int) Math.min(blockSize, end - start - offset);
+                    ByteBuffer slice = data.duplicate();
+                    slice.position(offset).limit(offset + size);
+                    crc.reset();
+                    crc.update(slice);
+                    if ((int) crc.getValue() != table.getInt(4 * block)) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        });
+    }
+
+    private static synchronized void note(String message) {
+        if (recoveryNotes.length() > 0) {
+            recoveryNotes.append("; ");
+        }
+        recoveryNotes.append(message);
+    }
+
+    /**
+     * Resumen de la recuperación: archivos y bytes verificados, tiempo empleado y generaciones restauradas.
+     *
+     * @return Texto con el resumen.
+     */
+    public static synchronized String getRecoveryReport() {
+        String report = String.format("%d instantáneas verificadas (%.1f MB) en %.1f ms",
+                recoveredFiles, verifiedBytes / (1024.0 * 1024.0), recoveryNanos / 1_000_000.0);
+        return recoveryNotes.length() == 0 ? report : report + "; " + recoveryNotes;
+    }
+
+    public static synchronized double getRecoveryMillis() {
+        return recoveryNanos / 1_000_000.0;
+    }
+
+    /**
+     * Flujo que agrupa lo escrito en bloques y calcula la suma CRC32C de cada uno.
+     */
+    private static class BlockChecksumOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private final ByteArrayOutputStream checksums = new ByteArrayOutputStream();
+        private final DataOutputStream checksumOut = new DataOutputStream(checksums);
+        private final CRC32C crc = new CRC32C();
+        private int position;
+        private long length;
+        private int blockCount;
+
+        BlockChecksumOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            block[position++] = (byte) b;
+            if (position == BLOCK_SIZE) {
+                flushBlock();
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int count) throws IOException {
+            while (count > 0) {
+                int chunk = Math.min(count, BLOCK_SIZE - position);
+                System.arraycopy(bytes, offset, block, position, chunk);
+                position += chunk;
+                offset += chunk;
+                count -= chunk;
+                if (position == BLOCK_SIZE) {
+                    flushBlock();
+                }
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (position == 0) {
+                return;
+            }
+            crc.reset();
+            crc.update(block, 0, position);
+            checksumOut.writeInt((int) crc.getValue());
+            out.write(block, 0, position);
+            length += position;
+            blockCount++;
+            position = 0;
+        }
+
+        /**
+         * Escribe el último bloque y el pie. No cierra el flujo subyacente.
+         */
+        void finish(long generation) throws IOException {
+            flushBlock();
+            byte[] table = checksums.toByteArray();
+            crc.reset();
+            crc.update(table, 0, table.length);
+            out.write(table);
+            DataOutputStream footer = new DataOutputStream(out);
+            footer.writeLong(length);
+            footer.writeLong(generation);
+            footer.writeInt(BLOCK_SIZE);
+            footer.writeInt(blockCount);
+            footer.writeInt((int) crc.getValue());
+            footer.writeInt(MAGIC);
+            footer.flush();
+        }
+
+        @Override
+        public void flush() {
+            // Los bloques se escriben completos; el último se escribe en finish
+        }
+
+        @Override
+        public void close() {
+            // El flujo subyacente lo cierra quien lo abrió
+        }
+    }
+}
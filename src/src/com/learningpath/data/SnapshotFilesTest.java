@@ -0,0 +1,41 @@
+package src.com.learningpath.data;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+public class SnapshotFilesTest {
+
+    @Test
+    public void testRecoverPicksNewestValidGeneration() throws Exception {
+        File folder = new File("temp_snapshot_data/");
+        folder.mkdirs();
+        File file = new File(folder, "users.dat");
+        try {
+            byte[] first = new byte[200_000];
+            byte[] second = new byte[200_000];
+            java.util.Arrays.fill(first, (byte) 1);
+            java.util.Arrays.fill(second, (byte) 2);
+            SnapshotFiles.write(file, out -> out.write(first));
+            SnapshotFiles.write(file, out -> out.write(second));
+            assertEquals(file, SnapshotFiles.recover(file));
+            assertEquals(2, Files.readAllBytes(file.toPath())[150_000]);
+
+            // Un bloque dañado en la última generación: se restaura la anterior
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(150_000);
+                raf.writeByte(7);
+            }
+            // Un temporal a medias (sin pie) nunca se elige
+            Files.write(SnapshotFiles.tempFile(file).toPath(), new byte[]{3, 3, 3});
+            assertEquals(file, SnapshotFiles.recover(file));
+            assertEquals(1, Files.readAllBytes(file.toPath())[150_000]);
+            assertTrue(new File(folder, "users.dat.corrupt").exists());
+        } finally {
+            TestFiles.delete(folder);
+        }
+    }
+}
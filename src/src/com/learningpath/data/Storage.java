@@ -0,0 +1,73 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.Progress;
+import src.com.learningpath.users.User;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Almacenamiento de los datos de la aplicación: agrupa los repositorios de usuarios,
+ * Learning Paths y progresos de una misma implementación.
+ *
+ * La implementación se elige con la propiedad del sistema {@code learningpath.storage}:
+ * {@code file} (por defecto) usa los archivos de {@link DataManager}; {@code lsm} usa el
+ * almacenamiento clave-valor embebido de {@link LsmStorage}.
+ */
+public interface Storage extends Closeable {
+
+    UserRepository users();
+
+    LearningPathRepository learningPaths();
+
+    ProgressRepository progresses();
+
+    /**
+     * Recupera los cambios de progreso registrados después del último guardado completo.
+     * Debe llamarse justo después de cargar los progresos.
+     *
+     * @param progresses Los progresos cargados.
+     * @return El número de cambios recuperados.
+     * @throws IOException Si ocurre un error al leer los cambios.
+     */
+    int recover(List<Progress> progresses) throws IOException;
+
+    /**
+     * Guarda los conjuntos de datos modificados.
+     *
+     * @param dataSets      Los conjuntos de datos modificados.
+     * @param users         Los usuarios.
+     * @param learningPaths Los Learning Paths.
+     * @param progresses    Los progresos.
+     * @throws IOException Si ocurre un error al guardar.
+     */
+    void save(Set<DataSet> dataSets, List<User> users, List<LearningPath> learningPaths, List<Progress> progresses) throws IOException;
+
+    /**
+     * Abre el almacenamiento indicado por la configuración del sistema, sobre la carpeta de
+     * datos de {@link DataManager}.
+     *
+     * @return El almacenamiento abierto.
+     * @throws IOException Si no se puede abrir.
+     */
+    static Storage fromConfiguration() throws IOException {
+        String type = System.getProperty("learningpath.storage", "file");
+        switch (type) {
+            case "file":
+                return new FileStorage(Boolean.parseBoolean(System.getProperty("learningpath.wal", "true")));
+            case "lsm":
+                LsmStorage storage = new LsmStorage(new File(DataManager.getDataFolder(), "lsm"),
+                        Long.getLong("learningpath.lsm.memtableBytes", 4L * 1024 * 1024),
+                        Integer.getInteger("learningpath.lsm.compactionThreshold", 4));
+                storage.openResponseStore();
+                storage.importIfEmpty();
+                return storage;
+            default:
+                throw new IOException("Tipo de almacenamiento desconocido: " + type);
+        }
+    }
+}
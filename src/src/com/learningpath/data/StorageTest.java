@@ -0,0 +1,63 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.Progress;
+import src.com.learningpath.activities.ActivityStatus;
+import src.com.learningpath.activities.ResourceReview;
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.Teacher;
+import src.com.learningpath.users.User;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+public class StorageTest {
+
+    @Test
+    public void testRoundTripWithEachConfiguredStorage() throws Exception {
+        for (String type : new String[]{"file", "lsm"}) {
+            String tempDataFolder = "temp_storage_data/";
+            new File(tempDataFolder).mkdirs();
+            DataManager.setDataFolder(tempDataFolder);
+            System.setProperty("learningpath.storage", type);
+            System.setProperty("learningpath.wal", "false");
+            try {
+                Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+                Student student = new Student("sstudent", "password456", "Sarah Student");
+                LearningPath lp = new LearningPath("Java Basics", "Intro", "Learn Java", 1, teacher);
+                ResourceReview review = new ResourceReview("Variables", "Learn variables", "Understand", 1, 30, true, "http://example.com");
+                lp.addActivity(review);
+                Progress progress = new Progress(student, lp);
+                progress.updateActivityStatus(review, ActivityStatus.COMPLETED);
+
+                try (Storage storage = Storage.fromConfiguration()) {
+                    storage.save(EnumSet.allOf(DataSet.class), new ArrayList<>(List.of(teacher, student)),
+                            new ArrayList<>(List.of(lp)), new ArrayList<>(List.of(progress)));
+                }
+
+                DataManager.getRegistry().clear();
+                try (Storage storage = Storage.fromConfiguration()) {
+                    List<User> users = storage.users().findAll();
+                    List<LearningPath> paths = storage.learningPaths().findAll();
+                    List<Progress> progresses = storage.progresses().findByStudent(student.getId());
+                    assertEquals(2, users.size(), type);
+                    assertEquals("Java Basics", storage.learningPaths().findById(lp.getId()).getTitle(), type);
+                    assertEquals(1, progresses.size(), type);
+                    assertSame(paths.get(0), progresses.get(0).getLearningPath(), type);
+                    assertEquals(ActivityStatus.COMPLETED,
+                            progresses.get(0).getActivityStatus(paths.get(0).getActivities().get(0)), type);
+                    assertTrue(storage.progresses().findByStudent(teacher.getId()).isEmpty(), type);
+                }
+            } finally {
+                System.clearProperty("learningpath.storage");
+                System.clearProperty("learningpath.wal");
+                DataManager.getRegistry().clear();
+                TestFiles.delete(new File(tempDataFolder));
+            }
+        }
+    }
+}
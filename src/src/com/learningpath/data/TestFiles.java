@@ -0,0 +1,39 @@
+package src.com.learningpath.data;
+
+import java.io.File;
+
+/**
+ * Utilidades de las pruebas para borrar los archivos de datos que crean.
+ */
+public final class TestFiles {
+
+    private TestFiles() {
+    }
+
+    /**
+     * Borra un archivo o una carpeta con todo su contenido.
+     *
+     * @param file El archivo o la carpeta.
+     */
+    public static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Borra una instantánea junto con la generación anterior y el temporal que deja
+     * {@link SnapshotFiles}.
+     *
+     * @param file El archivo de la instantánea.
+     */
+    public static void deleteSnapshot(File file) {
+        SnapshotFiles.previousFile(file).delete();
+        SnapshotFiles.tempFile(file).delete();
+        file.delete();
+    }
+}
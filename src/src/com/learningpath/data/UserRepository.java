@@ -0,0 +1,37 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.users.User;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Acceso a los usuarios guardados, independiente del formato de almacenamiento.
+ */
+public interface UserRepository {
+
+    /**
+     * Carga todos los usuarios.
+     *
+     * @return Los usuarios guardados.
+     * @throws IOException Si ocurre un error de lectura.
+     */
+    List<User> findAll() throws IOException;
+
+    /**
+     * Busca un usuario por su identificador.
+     *
+     * @param id El identificador.
+     * @return El usuario, o null si no existe.
+     * @throws IOException Si ocurre un error de lectura.
+     */
+    User findById(long id) throws IOException;
+
+    /**
+     * Guarda la lista completa de usuarios.
+     *
+     * @param users Los usuarios.
+     * @throws IOException Si ocurre un error de escritura.
+     */
+    void saveAll(List<User> users) throws IOException;
+}
@@ -0,0 +1,409 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.Progress;
+import src.com.learningpath.ProgressListener;
+import src.com.learningpath.activities.Activity;
+import src.com.learningpath.activities.ActivityStatus;
+import src.com.learningpath.activities.OpenEndedExam;
+import src.com.learningpath.activities.OpenEndedQuestion;
+import src.com.learningpath.activities.OpenEndedResponse;
+import src.com.learningpath.activities.Quiz;
+import src.com.learningpath.activities.Survey;
+import src.com.learningpath.activities.SurveyResponse;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Registro de solo escritura al final (write-ahead log) para los cambios de progreso.
+ * Cada llamada a {@link Progress#updateActivityStatus}, {@link Progress#addSurveyResponse},
+ * {@link Progress#addExamResponse}, {@link Progress#recordQuizScore} y
+ * {@link Progress#recordQuizAttempt} se guarda como un registro pequeño en lugar de reescribir
+ * todos los archivos de datos. Al iniciar, los registros se vuelven a aplicar sobre la última
+ * instantánea.
+ *
+ * Cada registro identifica el progreso por los identificadores del estudiante y del
+ * Learning Path, y la actividad por su identificador. Las respuestas a exámenes que ya están en
+ * el almacén de respuestas ({@link ResponseStore}) se registran sin su texto.
+ *
+ * Formato de cada registro: longitud (int), contenido, CRC32 del contenido (long).
+ * Un registro incompleto o corrupto al final del archivo se descarta en la recuperación.
+ */
+public class WriteAheadLog implements ProgressListener, Closeable {
+
+    private static final byte STATUS_RECORD = 1;
+    private static final byte SURVEY_RECORD = 2;
+    private static final byte EXAM_RECORD = 3;
+    private static final byte QUIZ_SCORE_RECORD = 4;
+    // Respuesta a un examen ya guardada en el almacén de respuestas: el registro no lleva el texto
+    private static final byte STORED_EXAM_RECORD = 5;
+    // Intento de un quiz con su número de orden, para no repetir los que ya están en la instantánea
+    private static final byte QUIZ_ATTEMPT_RECORD = 6;
+
+    private final File file;
+    private FileOutputStream fileStream;
+    private DataOutputStream out;
+    private int recordCount;
+    // Hilo que está aplicando el log; sus cambios no se vuelven a registrar, los de otros hilos sí
+    private volatile Thread replayingThread;
+    private boolean syncOnAppend = true;
+
+    /**
+     * Abre (o crea) el log en el archivo indicado.
+     *
+     * @param file El archivo del log.
+     * @throws IOException Si el archivo no puede abrirse.
+     */
+    public WriteAheadLog(File file) throws IOException {
+        this.file = file;
+        this.recordCount = countValidRecords();
+        open(true);
+    }
+
+    private void open(boolean append) throws IOException {
+        fileStream = new FileOutputStream(file, append);
+        out = new DataOutputStream(new BufferedOutputStream(fileStream));
+    }
+
+    // Implementación de ProgressListener
+
+    @Override
+    public void activityStatusChanged(Progress progress, Activity activity, ActivityStatus previous, ActivityStatus status) {
+        if (replayingThread == Thread.currentThread()) {
+            return;
+        }
+        // Al pasar a una versión nueva, las actividades eliminadas quedan sin estado (-1)
+        append(progress, STATUS_RECORD, activity, payload -> payload.writeByte(status == null ? -1 : status.ordinal()));
+    }
+
+    @Override
+    public void surveyResponseAdded(Progress progress, Survey survey, SurveyResponse response) {
+        if (replayingThread == Thread.currentThread()) {
+            return;
+        }
+        append(progress, SURVEY_RECORD, survey, payload -> {
+            List<String> answers = response.getAnswers();
+            payload.writeInt(answers.size());
+            for (String answer : answers) {
+                payload.writeUTF(answer);
+            }
+        });
+    }
+
+    @Override
+    public void examResponseAdded(Progress progress, OpenEndedExam exam, OpenEndedResponse response) {
+        if (replayingThread == Thread.currentThread()) {
+            return;
+        }
+        if (response.isStored()) {
+            append(progress, STORED_EXAM_RECORD, exam, payload -> payload.writeInt(response.getAnswerCount()));
+            return;
+        }
+        append(progress, EXAM_RECORD, exam, payload -> {
+            List<OpenEndedQuestion> questions = exam.getExamQuestions();
+            payload.writeInt(response.getAnswerCount());
+            for (int i = 0; i < response.getAnswerCount(); i++) {
+                payload.writeUTF(questions != null && i < questions.size() ? questions.get(i).getQuestionText() : Integer.toString(i));
+                payload.writeUTF(response.getAnswer(i));
+            }
+        });
+    }
+
+    @Override
+    public void quizScoreRecorded(Progress progress, Quiz quiz, double score) {
+        if (replayingThread == Thread.currentThread()) {
+            return;
+        }
+        append(progress, QUIZ_SCORE_RECORD, quiz, payload -> payload.writeDouble(score));
+    }
+
+    @Override
+    public void quizAttemptRecorded(Progress progress, Quiz quiz, int[] answers) {
+        if (replayingThread == Thread.currentThread()) {
+            return;
+        }
+        int index = progress.getQuizAttempts(quiz).size() - 1;
+        append(progress, QUIZ_ATTEMPT_RECORD, quiz, payload -> {
+            payload.writeInt(index);
+            payload.writeInt(answers.length);
+            for (int answer : answers) {
+                payload.writeByte(answer);
+            }
+        });
+    }
+
+    private interface PayloadWriter {
+        void write(DataOutputStream payload) throws IOException;
+    }
+
+    /**
+     * Escribe un registro en el log. Si la sincronización por registro está activa
+     * también lo fuerza a disco; de lo contrario el registro queda en el buffer hasta
+     * la siguiente llamada a {@link #sync()}.
+     */
+    private synchronized void append(Progress progress, byte type, Activity activity, PayloadWriter body) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(buffer);
+            payload.writeByte(type);
+            payload.writeLong(progress.getStudent().getId());
+            payload.writeLong(progress.getLearningPath().getId());
+            payload.writeLong(activity.getId());
+            body.write(payload);
+            payload.flush();
+
+            byte[] bytes = buffer.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeLong(crc.getValue());
+            if (syncOnAppend) {
+                out.flush();
+                fileStream.getChannel().force(false);
+            }
+            recordCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al escribir en el log de progreso", e);
+        }
+    }
+
+    /**
+     * Vuelve a aplicar los registros del log sobre los datos cargados de la última instantánea.
+     * Puede llamarse varias veces con listas disjuntas (por ejemplo, los progresos de un
+     * estudiante al iniciar sesión y luego el resto); los registros de progresos que no están
+     * en la lista se ignoran.
+     *
+     * @param progresses Los progresos cargados.
+     * @return El número de registros aplicados.
+     * @throws IOException Si ocurre un error al leer el log.
+     */
+    public synchronized int replay(List<Progress> progresses) throws IOException {
+        Map<String, Progress> progressByKey = new HashMap<>();
+        for (Progress p : progresses) {
+            progressByKey.put(key(p.getStudent().getId(), p.getLearningPath().getId()), p);
+        }
+
+        int applied = 0;
+        // Los registros en el buffer también se aplican
+        out.flush();
+        replayingThread = Thread.currentThread();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] record;
+            // Actividades de cada Learning Path por identificador, construidas una vez por Learning Path
+            Map<Long, Map<Long, Activity>> activitiesByPath = new HashMap<>();
+            long remaining = file.length();
+            while ((record = readRecord(in, remaining)) != null) {
+                remaining -= Integer.BYTES + record.length + Long.BYTES;
+                if (apply(record, progressByKey, activitiesByPath)) {
+                    applied++;
+                }
+            }
+        } finally {
+            replayingThread = null;
+        }
+        return applied;
+    }
+
+    private boolean apply(byte[] record, Map<String, Progress> progressByKey,
+                          Map<Long, Map<Long, Activity>> activitiesByPath) throws IOException {
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(record));
+        byte type = payload.readByte();
+        long studentId = payload.readLong();
+        long pathId = payload.readLong();
+        long activityId = payload.readLong();
+
+        Progress progress = progressByKey.get(key(studentId, pathId));
+        if (progress == null) {
+            return false;
+        }
+        Activity activity = activitiesByPath.computeIfAbsent(pathId, id -> {
+            Map<Long, Activity> byId = new HashMap<>();
+            for (Activity candidate : progress.getLearningPath().getCurrentVersion().getAllActivities()) {
+                // La versión actual va primero: prevalece sobre las copias anteriores
+                byId.putIfAbsent(candidate.getId(), candidate);
+            }
+            return byId;
+        }).get(activityId);
+        if (activity == null) {
+            return false;
+        }
+
+        switch (type) {
+            case STATUS_RECORD: {
+                byte status = payload.readByte();
+                progress.updateActivityStatus(activity, status < 0 ? null : ActivityStatus.values()[status]);
+                return true;
+            }
+            case SURVEY_RECORD: {
+                Survey survey = (Survey) activity;
+                if (progress.getSurveyResponse(survey) != null) {
+                    return false; // Ya incluido en la instantánea
+                }
+                SurveyResponse response = new SurveyResponse(progress.getStudent());
+                int count = payload.readInt();
+                for (int i = 0; i < count; i++) {
+                    response.addAnswer(payload.readUTF());
+                }
+                progress.addSurveyResponse(survey, response);
+                survey.addSurveyResponse(response);
+                return true;
+            }
+            case EXAM_RECORD: {
+                OpenEndedExam exam = (OpenEndedExam) activity;
+                if (progress.getExamResponse(exam) != null) {
+                    return false; // Ya incluido en la instantánea
+                }
+                int count = payload.readInt();
+                Map<String, String> answers = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++) {
+                    answers.put(payload.readUTF(), payload.readUTF());
+                }
+                OpenEndedResponse response = OpenEndedResponse.byQuestionText(progress.getStudent(),
+                        answers, exam.getExamQuestions());
+                progress.addExamResponse(exam, response);
+                exam.addExamResponse(response);
+                return true;
+            }
+            case STORED_EXAM_RECORD: {
+                OpenEndedExam exam = (OpenEndedExam) activity;
+                if (progress.getExamResponse(exam) != null) {
+                    return false; // Ya enlazada al cargar el progreso
+                }
+                ResponseStore store = DataManager.getRegistry().getResponseStore();
+                OpenEndedResponse response = store == null ? null : store.open(exam.getId(), progress.getStudent());
+                if (response == null) {
+                    throw new IOException("La respuesta al examen " + exam.getTitle()
+                            + " no está en el almacén de respuestas");
+                }
+                progress.addExamResponse(exam, response);
+                if (exam.getExamResponse(progress.getStudent().getId()) == null) {
+                    exam.addExamResponse(response);
+                }
+                return true;
+            }
+            case QUIZ_SCORE_RECORD:
+                progress.recordQuizScore((Quiz) activity, payload.readDouble());
+                return true;
+            case QUIZ_ATTEMPT_RECORD: {
+                Quiz quiz = (Quiz) activity;
+                if (progress.getQuizAttempts(quiz).size() > payload.readInt()) {
+                    return false; // Ya incluido en la instantánea
+                }
+                int[] answers = new int[payload.readInt()];
+                for (int i = 0; i < answers.length; i++) {
+                    int answer = payload.readUnsignedByte();
+                    answers[i] = answer == 0xFF ? -1 : answer;
+                }
+                progress.recordQuizAttempt(quiz, answers);
+                return true;
+            }
+            default:
+                throw new IOException("Tipo de registro desconocido en el log: " + type);
+        }
+    }
+
+    /**
+     * Lee el siguiente registro válido, o null si se llegó al final o a un registro dañado.
+     * Una longitud mayor que los bytes que quedan en el archivo es la de un registro dañado y
+     * no se reserva memoria para ella.
+     *
+     * @param remaining Los bytes del archivo desde la posición actual.
+     */
+    private static byte[] readRecord(DataInputStream in, long remaining) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0 || Integer.BYTES + (long) length + Long.BYTES > remaining) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            long expected = in.readLong();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            return crc.getValue() == expected ? bytes : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Cuenta los registros válidos y descarta cualquier registro incompleto al final del archivo,
+     * para que los nuevos registros no queden detrás de datos dañados.
+     */
+    private int countValidRecords() throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        int count = 0;
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] record;
+            long size = file.length();
+            while ((record = readRecord(in, size - validLength)) != null) {
+                count++;
+                validLength += Integer.BYTES + record.length + Long.BYTES;
+            }
+        }
+        if (validLength < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+        return count;
+    }
+
+    private static String key(long studentId, long pathId) {
+        return studentId + ":" + pathId;
+    }
+
+    /**
+     * Vacía el log. Se llama después de guardar una instantánea completa.
+     *
+     * @throws IOException Si ocurre un error al truncar el archivo.
+     */
+    public synchronized void truncate() throws IOException {
+        out.close();
+        open(false);
+        fileStream.getChannel().force(true);
+        recordCount = 0;
+    }
+
+    /**
+     * Escribe a disco los registros pendientes con una sola llamada a fsync.
+     *
+     * @throws IOException Si ocurre un error al sincronizar.
+     */
+    public synchronized void sync() throws IOException {
+        out.flush();
+        fileStream.getChannel().force(false);
+    }
+
+    /**
+     * Indica si cada registro debe forzarse a disco al escribirse. Se desactiva cuando
+     * un {@link PersistenceService} agrupa varios registros en una sola sincronización.
+     *
+     * @param syncOnAppend True para sincronizar cada registro.
+     */
+    public synchronized void setSyncOnAppend(boolean syncOnAppend) {
+        this.syncOnAppend = syncOnAppend;
+    }
+
+    /**
+     * Obtiene el número de registros escritos desde la última instantánea.
+     *
+     * @return El número de registros.
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,84 @@
+package src.com.learningpath.data;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.Progress;
+import src.com.learningpath.activities.*;
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.Teacher;
+import src.com.learningpath.users.User;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+public class WriteAheadLogTest {
+
+    @Test
+    public void testReplayRestoresChangesAfterSnapshot() throws Exception {
+        String tempDataFolder = "temp_wal_data/";
+        new File(tempDataFolder).mkdirs();
+        DataManager.setDataFolder(tempDataFolder);
+
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        Student student = new Student("sstudent", "password456", "Sarah Student");
+        LearningPath lp = new LearningPath("Java Basics", "Intro", "Learn Java", 1, teacher);
+        Activity review = new ResourceReview("Variables", "Learn variables", "Understand", 1, 30, true, "http://example.com");
+        Survey survey = new Survey("Opinión", "Encuesta final", "Feedback", 1, 5, false);
+        survey.addSurveyQuestion(new SurveyQuestion("¿Te gustó?"));
+        Quiz quiz = new Quiz("Quiz", "Repaso", "Evaluar", 1, 10, true, new ArrayList<>(List.of(
+                new Question("¿Qué es una variable?", new String[]{"Un valor con nombre", "Un bucle"}, 0, ""))), 60.0);
+        lp.addActivity(review);
+        lp.addActivity(survey);
+        lp.addActivity(quiz);
+
+        List<User> users = new ArrayList<>(List.of(teacher, student));
+        List<LearningPath> learningPaths = new ArrayList<>(List.of(lp));
+        List<Progress> progresses = new ArrayList<>(List.of(new Progress(student, lp)));
+
+        try {
+            DataManager.enableWriteAheadLog();
+            DataManager.checkpoint(users, learningPaths, progresses);
+
+            // Cambios posteriores a la instantánea: solo quedan en el log
+            progresses.get(0).updateActivityStatus(review, ActivityStatus.COMPLETED);
+            SurveyResponse response = new SurveyResponse(student);
+            response.addAnswer("Sí");
+            progresses.get(0).addSurveyResponse(survey, response);
+            progresses.get(0).recordQuizAttempt(quiz, new int[]{1});
+            DataManager.disableWriteAheadLog();
+
+            // Simular un registro escrito a medias al final del log, con una longitud dañada mucho
+            // mayor que el archivo
+            try (RandomAccessFile raf = new RandomAccessFile(tempDataFolder + "progresses.wal", "rw")) {
+                raf.seek(raf.length());
+                raf.writeInt(Integer.MAX_VALUE - 16);
+                raf.writeByte(1);
+            }
+
+            List<LearningPath> loadedPaths = DataManager.loadLearningPaths();
+            List<Progress> loadedProgresses = DataManager.loadProgresses();
+            Progress loaded = loadedProgresses.get(0);
+            Activity loadedReview = loaded.getLearningPath().getActivities().get(0);
+            Survey loadedSurvey = (Survey) loaded.getLearningPath().getActivities().get(1);
+            assertEquals(ActivityStatus.PENDING, loaded.getActivityStatus(loadedReview));
+
+            DataManager.enableWriteAheadLog();
+            assertEquals(3, DataManager.replayWriteAheadLog(loadedProgresses));
+            assertEquals(ActivityStatus.COMPLETED, loaded.getActivityStatus(loadedReview));
+            assertEquals("Sí", loaded.getSurveyResponse(loadedSurvey).getAnswers().get(0));
+            assertEquals(1, ((Survey) loadedPaths.get(0).getActivities().get(1)).getSurveyResponses().size());
+            Quiz loadedQuiz = (Quiz) loaded.getLearningPath().getActivities().get(2);
+            assertArrayEquals(new int[]{1}, loaded.getQuizAttempts(loadedQuiz).get(0));
+
+            // Tras una nueva instantánea el log queda vacío
+            DataManager.checkpoint(users, loadedPaths, loadedProgresses);
+            assertEquals(0, new File(tempDataFolder + "progresses.wal").length());
+        } finally {
+            DataManager.disableWriteAheadLog();
+            TestFiles.delete(new File(tempDataFolder));
+        }
+    }
+}
@@ -0,0 +1,631 @@
+package src.com.learningpath.data.lsm;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Almacenamiento clave-valor embebido con estructura LSM. Las escrituras van a un log y a una
+ * tabla en memoria ordenada (memtable); cuando la memtable supera su tamaño máximo se vuelca a
+ * un segmento inmutable en disco ({@link Segment}). Un hilo en segundo plano compacta los
+ * segmentos en uno solo cuando se acumulan demasiados; si esa compactación falla, el error se
+ * lanza en la siguiente llamada a {@link #flush()} o {@link #compact()}.
+ *
+ * Las lecturas consultan la memtable y luego los segmentos del más reciente al más antiguo;
+ * el filtro de Bloom de cada segmento evita leer disco para las claves que no contiene.
+ * Las claves se ordenan como bytes sin signo, lo que permite recorrer rangos de claves.
+ */
+public class LsmStore implements Closeable {
+
+    /** Marca de borrado en la memtable y en los segmentos. */
+    static final byte[] TOMBSTONE = new byte[0];
+
+    private static final String LOG_FILE = "memtable.log";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".sst";
+
+    /** Orden lexicográfico de bytes sin signo. */
+    public static final Comparator<byte[]> KEY_ORDER = LsmStore::compare;
+
+    private final File directory;
+    private final long memtableLimit;
+    private final int compactionThreshold;
+    private final ReadWriteLock segmentLock = new ReentrantReadWriteLock();
+    private final ExecutorService compactor;
+
+    private ConcurrentSkipListMap<byte[], byte[]> memtable = new ConcurrentSkipListMap<>(KEY_ORDER);
+    private long memtableBytes;
+    // Segmentos del más reciente al más antiguo
+    private List<Segment> segments = new ArrayList<>();
+    private long nextGeneration = 1;
+    private FileChannel log;
+    private boolean compacting;
+    private boolean closed;
+    // Último error de la compactación en segundo plano que aún no se ha lanzado a quien llama
+    private IOException compactionFailure;
+
+    // Estadísticas
+    private long flushCount;
+    private long compactionCount;
+
+    /**
+     * Abre (o crea) un almacenamiento en la carpeta indicada y recupera los cambios del log
+     * que aún no se habían volcado a un segmento.
+     *
+     * @param directory           La carpeta del almacenamiento.
+     * @param memtableLimit       Tamaño aproximado en bytes a partir del cual se vuelca la memtable.
+     * @param compactionThreshold Número de segmentos a partir del cual se compactan.
+     * @throws IOException Si no se puede abrir el almacenamiento.
+     */
+    public LsmStore(File directory, long memtableLimit, int compactionThreshold) throws IOException {
+        this.directory = directory;
+        this.memtableLimit = Math.max(1, memtableLimit);
+        this.compactionThreshold = Math.max(2, compactionThreshold);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("No se pudo crear la carpeta " + directory);
+        }
+        openSegments();
+        replayLog();
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lsm-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Abre los segmentos existentes. Si una compactación terminó pero no llegó a borrar los
+     * segmentos que reemplazaba, se borran ahora.
+     */
+    private void openSegments() throws IOException {
+        File[] files = directory.listFiles();
+        List<Segment> opened = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(SEGMENT_SUFFIX + ".tmp")) {
+                    file.delete();
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    long generation = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                    opened.add(Segment.open(file, generation));
+                }
+            }
+        }
+        // Del más reciente al más antiguo: un segmento dentro del rango cubierto por un
+        // segmento compactado más reciente ya está incluido en él
+        opened.sort(Comparator.comparingLong(Segment::getGeneration).reversed());
+        long coveredFrom = Long.MAX_VALUE;
+        for (Segment segment : opened) {
+            if (segment.getGeneration() < coveredFrom) {
+                segments.add(segment);
+                coveredFrom = Math.min(coveredFrom, segment.getCoveredFrom());
+            } else {
+                segment.close();
+                segment.getFile().delete();
+            }
+            nextGeneration = Math.max(nextGeneration, segment.getGeneration() + 1);
+        }
+    }
+
+    /**
+     * Vuelve a aplicar a la memtable los registros del log. Un registro incompleto o con un
+     * CRC incorrecto al final del log se descarta.
+     */
+    private void replayLog() throws IOException {
+        File file = new File(directory, LOG_FILE);
+        log = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long valid = 0;
+        if (log.size() > 0) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    if (length < 5 || valid + 12 + length > log.size()) {
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if (in.readLong() != crc.getValue()) {
+                        break;
+                    }
+                    applyLogRecord(ByteBuffer.wrap(payload));
+                    valid += 12 + length;
+                }
+            }
+        }
+        log.truncate(valid);
+        log.position(valid);
+    }
+
+    private void applyLogRecord(ByteBuffer payload) {
+        boolean tombstone = payload.get() == 1;
+        byte[] key = new byte[payload.getInt()];
+        payload.get(key);
+        byte[] value = TOMBSTONE;
+        if (!tombstone) {
+            value = new byte[payload.remaining()];
+            payload.get(value);
+        }
+        memtable.put(key, value);
+        memtableBytes += key.length + value.length + 32;
+    }
+
+    /**
+     * Guarda un valor.
+     *
+     * @param key   La clave.
+     * @param value El valor.
+     * @throws IOException Si ocurre un error al escribir el log.
+     */
+    public void put(byte[] key, byte[] value) throws IOException {
+        write(key, Objects.requireNonNull(value));
+    }
+
+    /**
+     * Borra una clave.
+     *
+     * @param key La clave.
+     * @throws IOException Si ocurre un error al escribir el log.
+     */
+    public void delete(byte[] key) throws IOException {
+        write(key, TOMBSTONE);
+    }
+
+    private synchronized void write(byte[] key, byte[] value) throws IOException {
+        ensureOpen();
+        boolean tombstone = value == TOMBSTONE;
+        ByteBuffer record = ByteBuffer.allocate(4 + 5 + key.length + value.length + 8);
+        record.putInt(5 + key.length + value.length);
+        record.put((byte) (tombstone ? 1 : 0));
+        record.putInt(key.length);
+        record.put(key);
+        record.put(value);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, 5 + key.length + value.length);
+        record.putLong(crc.getValue());
+        record.flip();
+        while (record.hasRemaining()) {
+            log.write(record);
+        }
+        memtable.put(key.clone(), tombstone ? TOMBSTONE : value.clone());
+        memtableBytes += key.length + value.length + 32;
+        if (memtableBytes >= memtableLimit) {
+            flushMemtable();
+        }
+    }
+
+    /**
+     * Sincroniza el log con el disco. Las escrituras anteriores sobreviven a una caída del proceso
+     * en cuanto se escriben; esta llamada las protege también ante una caída del sistema.
+     *
+     * @throws IOException Si ocurre un error al sincronizar.
+     */
+    public synchronized void sync() throws IOException {
+        ensureOpen();
+        log.force(false);
+    }
+
+    /**
+     * Busca una clave.
+     *
+     * @param key La clave.
+     * @return El valor, o null si la clave no existe.
+     * @throws IOException Si ocurre un error de lectura.
+     */
+    public byte[] get(byte[] key) throws IOException {
+        ConcurrentSkipListMap<byte[], byte[]> current;
+        synchronized (this) {
+            ensureOpen();
+            current = memtable;
+        }
+        byte[] value = current.get(key);
+        if (value == null) {
+            segmentLock.readLock().lock();
+            try {
+                for (Segment segment : segments) {
+                    value = segment.get(key);
+                    if (value != null) {
+                        break;
+                    }
+                }
+            } finally {
+                segmentLock.readLock().unlock();
+            }
+        }
+        return value == TOMBSTONE ? null : value;
+    }
+
+    /**
+     * Devuelve en orden las entradas con clave en [from, to).
+     *
+     * @param from Clave inicial (inclusiva), o null para empezar desde el principio.
+     * @param to   Clave final (exclusiva), o null para llegar hasta el final.
+     * @return Las entradas ordenadas por clave.
+     * @throws IOException Si ocurre un error de lectura.
+     */
+    public SortedMap<byte[], byte[]> scan(byte[] from, byte[] to) throws IOException {
+        TreeMap<byte[], byte[]> result = new TreeMap<>(KEY_ORDER);
+        ConcurrentSkipListMap<byte[], byte[]> current;
+        synchronized (this) {
+            ensureOpen();
+            current = memtable;
+        }
+        segmentLock.readLock().lock();
+        try {
+            // Del más antiguo al más reciente, para que los valores nuevos reemplacen a los viejos
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                segments.get(i).scan(from, to, result::put);
+            }
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+        NavigableMap<byte[], byte[]> range = current;
+        if (from != null && to != null) {
+            range = current.subMap(from, true, to, false);
+        } else if (from != null) {
+            range = current.tailMap(from, true);
+        } else if (to != null) {
+            range = current.headMap(to, false);
+        }
+        result.putAll(range);
+        result.values().removeIf(value -> value == TOMBSTONE);
+        return result;
+    }
+
+    /**
+     * Devuelve las entradas cuya clave empieza con el prefijo indicado.
+     *
+     * @param prefix El prefijo.
+     * @return Las entradas ordenadas por clave.
+     * @throws IOException Si ocurre un error de lectura.
+     */
+    public SortedMap<byte[], byte[]> scanPrefix(byte[] prefix) throws IOException {
+        return scan(prefix, prefixEnd(prefix));
+    }
+
+    /**
+     * Vuelca la memtable a un nuevo segmento y vacía el log.
+     *
+     * @throws IOException Si ocurre un error al escribir el segmento, o si falló la última
+     *                     compactación en segundo plano (la memtable se vuelca igualmente).
+     */
+    public synchronized void flush() throws IOException {
+        ensureOpen();
+        flushMemtable();
+        throwCompactionFailure();
+    }
+
+    private synchronized void throwCompactionFailure() throws IOException {
+        IOException failure = compactionFailure;
+        if (failure != null) {
+            compactionFailure = null;
+            throw new IOException("Error al compactar el almacenamiento en segundo plano", failure);
+        }
+    }
+
+    private void flushMemtable() throws IOException {
+        if (memtable.isEmpty()) {
+            return;
+        }
+        long generation = nextGeneration++;
+        Segment segment = Segment.write(segmentFile(generation), generation, generation,
+                memtable.entrySet().iterator(), memtable.size());
+        segmentLock.writeLock().lock();
+        try {
+            List<Segment> updated = new ArrayList<>(segments.size() + 1);
+            updated.add(segment);
+            updated.addAll(segments);
+            segments = updated;
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+        // La memtable anterior puede seguir en uso por lecturas en curso, por eso se reemplaza
+        memtable = new ConcurrentSkipListMap<>(KEY_ORDER);
+        memtableBytes = 0;
+        log.truncate(0);
+        log.position(0);
+        flushCount++;
+        if (segments.size() >= compactionThreshold && !compacting) {
+            compacting = true;
+            compactor.execute(this::compactInBackground);
+        }
+    }
+
+    private void compactInBackground() {
+        synchronized (this) {
+            if (closed) {
+                compacting = false;
+                return;
+            }
+        }
+        try {
+            compactSegments();
+        } catch (IOException e) {
+            synchronized (this) {
+                compactionFailure = e;
+            }
+            return;
+        }
+        // Los volcados ocurridos durante la compactación pueden haber superado de nuevo el umbral
+        synchronized (this) {
+            if (!closed && !compacting && segments.size() >= compactionThreshold) {
+                compacting = true;
+                compactor.execute(this::compactInBackground);
+            }
+        }
+    }
+
+    /**
+     * Compacta todos los segmentos actuales en uno solo, descartando los valores reemplazados
+     * y los borrados. Las escrituras siguen funcionando mientras tanto.
+     *
+     * @throws IOException Si ocurre un error al escribir el segmento compactado, o si falló la
+     *                     última compactación en segundo plano (en ese caso no se compacta).
+     */
+    public void compact() throws IOException {
+        throwCompactionFailure();
+        compactSegments();
+    }
+
+    private void compactSegments() throws IOException {
+        List<Segment> inputs;
+        long generation;
+        synchronized (this) {
+            ensureOpen();
+            inputs = new ArrayList<>(segments);
+            if (inputs.size() < 2) {
+                compacting = false;
+                return;
+            }
+            // El resultado es más reciente que los segmentos que reemplaza y más antiguo que
+            // los que se vuelquen mientras dura la compactación
+            generation = nextGeneration++;
+        }
+        try {
+            int size = 0;
+            for (Segment segment : inputs) {
+                size += segment.getEntryCount();
+            }
+            long coveredFrom = inputs.get(inputs.size() - 1).getGeneration();
+            Segment result;
+            try {
+                result = Segment.write(segmentFile(generation), generation, coveredFrom, merge(inputs), size);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            segmentLock.writeLock().lock();
+            try {
+                List<Segment> updated = new ArrayList<>();
+                for (Segment segment : segments) {
+                    if (!inputs.contains(segment)) {
+                        updated.add(segment);
+                    }
+                }
+                // Los segmentos volcados durante la compactación son más recientes que el resultado
+                updated.add(result);
+                segments = updated;
+            } finally {
+                segmentLock.writeLock().unlock();
+            }
+            for (Segment segment : inputs) {
+                segment.close();
+                segment.getFile().delete();
+            }
+            synchronized (this) {
+                compactionCount++;
+            }
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Mezcla los segmentos en orden de clave, leyéndolos bloque a bloque. Para cada clave se
+     * queda con el valor del segmento más reciente y descarta los borrados, ya que el resultado
+     * reemplaza a todos los segmentos anteriores.
+     *
+     * @param inputs Los segmentos, del más reciente al más antiguo.
+     */
+    private static Iterator<Map.Entry<byte[], byte[]>> merge(List<Segment> inputs) {
+        // Cada cabeza guarda la entrada actual de un segmento y su antigüedad (0 = el más reciente)
+        PriorityQueue<Object[]> heads = new PriorityQueue<>((a, b) -> {
+            int comparison = compare(entryOf(a).getKey(), entryOf(b).getKey());
+            return comparison != 0 ? comparison : Integer.compare((Integer) a[2], (Integer) b[2]);
+        });
+        for (int i = 0; i < inputs.size(); i++) {
+            Iterator<Map.Entry<byte[], byte[]>> iterator = inputs.get(i).iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Object[]{iterator.next(), iterator, i});
+            }
+        }
+        return new Iterator<Map.Entry<byte[], byte[]>>() {
+            private Map.Entry<byte[], byte[]> next = advance();
+
+            private Map.Entry<byte[], byte[]> advance() {
+                while (!heads.isEmpty()) {
+                    Object[] head = heads.poll();
+                    Map.Entry<byte[], byte[]> entry = entryOf(head);
+                    step(head);
+                    // Descartar las versiones más antiguas de la misma clave
+                    while (!heads.isEmpty() && compare(entryOf(heads.peek()).getKey(), entry.getKey()) == 0) {
+                        step(heads.poll());
+                    }
+                    if (entry.getValue() != TOMBSTONE) {
+                        return entry;
+                    }
+                }
+                return null;
+            }
+
+            @SuppressWarnings("unchecked")
+            private void step(Object[] head) {
+                Iterator<Map.Entry<byte[], byte[]>> iterator = (Iterator<Map.Entry<byte[], byte[]>>) head[1];
+                if (iterator.hasNext()) {
+                    head[0] = iterator.next();
+                    heads.add(head);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Map.Entry<byte[], byte[]> next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<byte[], byte[]> current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map.Entry<byte[], byte[]> entryOf(Object[] head) {
+        return (Map.Entry<byte[], byte[]>) head[0];
+    }
+
+    /**
+     * Espera a que terminen las compactaciones en curso o pendientes, si las hay.
+     *
+     * @throws InterruptedException Si el hilo se interrumpe mientras espera.
+     */
+    public void awaitCompaction() throws InterruptedException {
+        while (true) {
+            synchronized (this) {
+                if (!compacting || closed) {
+                    return;
+                }
+            }
+            try {
+                compactor.submit(() -> { }).get();
+            } catch (ExecutionException e) {
+                // La tarea vacía no puede fallar
+            }
+        }
+    }
+
+    private File segmentFile(long generation) {
+        return new File(directory, String.format("%s%012d%s", SEGMENT_PREFIX, generation, SEGMENT_SUFFIX));
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("El almacenamiento está cerrado");
+        }
+    }
+
+    /**
+     * Indica si el almacenamiento nunca ha recibido escrituras.
+     *
+     * @return True si no hay datos en la memtable ni segmentos en disco.
+     */
+    public synchronized boolean isEmpty() {
+        return memtable.isEmpty() && segments.isEmpty();
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public synchronized long getFlushCount() {
+        return flushCount;
+    }
+
+    public synchronized long getCompactionCount() {
+        return compactionCount;
+    }
+
+    /**
+     * Error de la última compactación en segundo plano que aún no se ha lanzado.
+     *
+     * @return El error, o null si no hay ninguno pendiente.
+     */
+    public synchronized IOException getCompactionFailure() {
+        return compactionFailure;
+    }
+
+    /**
+     * Cierra el almacenamiento. Los cambios de la memtable quedan en el log y se recuperan
+     * al volver a abrirlo.
+     *
+     * @throws IOException Si ocurre un error al cerrar los archivos.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            log.force(false);
+            log.close();
+            segmentLock.writeLock().lock();
+            try {
+                for (Segment segment : segments) {
+                    segment.close();
+                }
+            } finally {
+                segmentLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Compara dos claves como bytes sin signo.
+     */
+    public static int compare(byte[] a, byte[] b) {
+        int common = Math.min(a.length, b.length);
+        for (int i = 0; i < common; i++) {
+            int comparison = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    /**
+     * Primera clave mayor que todas las que empiezan con el prefijo, o null si no existe.
+     */
+    static byte[] prefixEnd(byte[] prefix) {
+        byte[] end = prefix.clone();
+        for (int i = end.length - 1; i >= 0; i--) {
+            if (end[i] != (byte) 0xFF) {
+                end[i]++;
+                return Arrays.copyOf(end, i + 1);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package src.com.learningpath.data.lsm;
+
+import src.com.learningpath.data.TestFiles;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.SortedMap;
+
+public class LsmStoreTest {
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testReadsSurviveFlushCompactionAndReopen() throws Exception {
+        File directory = new File("temp_lsm_data/");
+        try {
+            // Memtable pequeña para forzar varios segmentos y una compactación
+            LsmStore store = new LsmStore(directory, 512, 3);
+            for (int i = 0; i < 200; i++) {
+                store.put(bytes(String.format("key-%03d", i)), bytes("value-" + i));
+            }
+            store.delete(bytes("key-010"));
+            store.put(bytes("key-020"), bytes("updated"));
+            store.awaitCompaction();
+            assertTrue(store.getFlushCount() > 2);
+            assertTrue(store.getCompactionCount() > 0);
+
+            assertArrayEquals(bytes("value-150"), store.get(bytes("key-150")));
+            assertArrayEquals(bytes("updated"), store.get(bytes("key-020")));
+            assertNull(store.get(bytes("key-010")));
+            assertNull(store.get(bytes("missing")));
+
+            SortedMap<byte[], byte[]> range = store.scan(bytes("key-008"), bytes("key-013"));
+            assertEquals(4, range.size()); // 008, 009, 011, 012
+            assertArrayEquals(bytes("key-011"), range.keySet().toArray(new byte[0][])[2]);
+            store.close();
+
+            // Lo que quedó en la memtable se recupera del log
+            LsmStore reopened = new LsmStore(directory, 512, 3);
+            assertArrayEquals(bytes("value-199"), reopened.get(bytes("key-199")));
+            assertArrayEquals(bytes("updated"), reopened.get(bytes("key-020")));
+            assertNull(reopened.get(bytes("key-010")));
+            assertEquals(199, reopened.scanPrefix(bytes("key-")).size());
+            reopened.close();
+        } finally {
+            TestFiles.delete(directory);
+        }
+    }
+}
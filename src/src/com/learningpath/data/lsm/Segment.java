@@ -0,0 +1,346 @@
+package src.com.learningpath.data.lsm;
+
+import src.com.learningpath.util.BloomFilter;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Segmento inmutable del almacenamiento LSM: claves ordenadas en disco, un índice disperso
+ * (una de cada {@link #INDEX_INTERVAL} claves) y un filtro de Bloom. Solo el índice y el
+ * filtro se mantienen en memoria; una búsqueda puntual lee un único bloque del archivo,
+ * por lo que sigue siendo rápida aunque los datos no quepan en memoria.
+ *
+ * Formato:
+ * <pre>
+ * entradas: longitud de clave (int), clave, marca (0 = valor, 1 = borrado), longitud de valor (int), valor
+ * índice:   número de entradas del índice (int), y por cada una longitud de clave, clave, offset (long)
+ * filtro:   ver {@link BloomFilter#writeTo}
+ * pie (32 bytes): offset del índice (long), offset del filtro (long), primera generación
+ *                 cubierta (long), número de entradas (int), magic (int)
+ * </pre>
+ */
+class Segment implements Closeable {
+
+    static final int INDEX_INTERVAL = 16;
+    private static final int FOOTER_SIZE = 32;
+    private static final int MAGIC = 0x4C505353; // "LPSS"
+    private static final byte VALUE = 0;
+    private static final byte TOMBSTONE = 1;
+
+    private final File file;
+    private final long generation;
+    private final long coveredFrom;
+    private final int entryCount;
+    private final FileChannel channel;
+    private final byte[][] indexKeys;
+    private final long[] indexOffsets;
+    private final long dataEnd;
+    private final BloomFilter bloom;
+
+    private Segment(File file, long generation) throws IOException {
+        this.file = file;
+        this.generation = generation;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < FOOTER_SIZE) {
+                throw new IOException("Segmento incompleto: " + file.getName());
+            }
+            ByteBuffer footer = read(size - FOOTER_SIZE, FOOTER_SIZE);
+            long indexOffset = footer.getLong();
+            long bloomOffset = footer.getLong();
+            this.coveredFrom = footer.getLong();
+            this.entryCount = footer.getInt();
+            if (footer.getInt() != MAGIC || indexOffset > bloomOffset || bloomOffset > size - FOOTER_SIZE) {
+                throw new IOException("Segmento inválido: " + file.getName());
+            }
+            this.dataEnd = indexOffset;
+
+            DataInputStream index = new DataInputStream(new ByteArrayInputStream(
+                    read(indexOffset, (int) (size - FOOTER_SIZE - indexOffset)).array()));
+            int count = index.readInt();
+            this.indexKeys = new byte[count][];
+            this.indexOffsets = new long[count];
+            for (int i = 0; i < count; i++) {
+                indexKeys[i] = new byte[index.readInt()];
+                index.readFully(indexKeys[i]);
+                indexOffsets[i] = index.readLong();
+            }
+            this.bloom = BloomFilter.readFrom(index);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Abre un segmento existente.
+     *
+     * @param file       El archivo del segmento.
+     * @param generation Su generación (tomada del nombre del archivo).
+     * @return El segmento.
+     * @throws IOException Si el archivo está dañado.
+     */
+    static Segment open(File file, long generation) throws IOException {
+        return new Segment(file, generation);
+    }
+
+    /**
+     * Escribe un segmento con las entradas indicadas, ya ordenadas por clave. Un valor igual a
+     * {@link LsmStore#TOMBSTONE} se guarda como borrado. El archivo se escribe en un temporal y se
+     * renombra, de modo que nunca queda un segmento a medias con el nombre definitivo.
+     *
+     * @param file        El archivo del segmento.
+     * @param generation  Su generación.
+     * @param coveredFrom Primera generación que reemplaza (igual a generation si no es una compactación).
+     * @param entries     Las entradas ordenadas.
+     * @param size        Número de entradas, para dimensionar el filtro de Bloom.
+     * @return El segmento abierto.
+     * @throws IOException Si ocurre un error de escritura.
+     */
+    static Segment write(File file, long generation, long coveredFrom,
+                         Iterator<Map.Entry<byte[], byte[]>> entries, int size) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        BloomFilter bloom = new BloomFilter(size, 0.01);
+        List<byte[]> indexKeys = new ArrayList<>();
+        List<Long> indexOffsets = new ArrayList<>();
+        int count = 0;
+        try (FileOutputStream fileOut = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+            long offset = 0;
+            while (entries.hasNext()) {
+                Map.Entry<byte[], byte[]> entry = entries.next();
+                byte[] key = entry.getKey();
+                byte[] value = entry.getValue();
+                if (count % INDEX_INTERVAL == 0) {
+                    indexKeys.add(key);
+                    indexOffsets.add(offset);
+                }
+                bloom.add(key);
+                out.writeInt(key.length);
+                out.write(key);
+                if (value == LsmStore.TOMBSTONE) {
+                    out.writeByte(TOMBSTONE);
+                    out.writeInt(0);
+                    offset += 9 + key.length;
+                } else {
+                    out.writeByte(VALUE);
+                    out.writeInt(value.length);
+                    out.write(value);
+                    offset += 9 + key.length + value.length;
+                }
+                count++;
+            }
+            long indexOffset = offset;
+            out.writeInt(indexKeys.size());
+            offset += 4;
+            for (int i = 0; i < indexKeys.size(); i++) {
+                out.writeInt(indexKeys.get(i).length);
+                out.write(indexKeys.get(i));
+                out.writeLong(indexOffsets.get(i));
+                offset += 12 + indexKeys.get(i).length;
+            }
+            long bloomOffset = offset;
+            bloom.writeTo(out);
+            out.writeLong(indexOffset);
+            out.writeLong(bloomOffset);
+            out.writeLong(coveredFrom);
+            out.writeInt(count);
+            out.writeInt(MAGIC);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return open(file, generation);
+    }
+
+    /**
+     * Busca una clave.
+     *
+     * @param key La clave.
+     * @return El valor, {@link LsmStore#TOMBSTONE} si la clave fue borrada, o null si el segmento no la contiene.
+     * @throws IOException Si ocurre un error de lectura.
+     */
+    byte[] get(byte[] key) throws IOException {
+        if (!bloom.mightContain(key)) {
+            return null;
+        }
+        int block = floorIndex(key);
+        if (block < 0) {
+            return null;
+        }
+        long start = indexOffsets[block];
+        long end = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : dataEnd;
+        ByteBuffer data = read(start, (int) (end - start));
+        while (data.hasRemaining()) {
+            int comparison = compareEntryKey(data, key);
+            if (comparison == 0) {
+                return readValue(data);
+            }
+            if (comparison > 0) {
+                return null;
+            }
+            skipValue(data);
+        }
+        return null;
+    }
+
+    /**
+     * Recorre en orden las entradas con clave en [from, to). Los borrados se entregan como
+     * {@link LsmStore#TOMBSTONE}.
+     *
+     * @param from     Clave inicial (inclusiva), o null para empezar desde el principio.
+     * @param to       Clave final (exclusiva), o null para llegar hasta el final.
+     * @param consumer Recibe cada clave y su valor.
+     * @throws IOException Si ocurre un error de lectura.
+     */
+    void scan(byte[] from, byte[] to, BiConsumer<byte[], byte[]> consumer) throws IOException {
+        int block = from == null ? 0 : Math.max(0, floorIndex(from));
+        for (; block < indexOffsets.length; block++) {
+            long start = indexOffsets[block];
+            long end = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : dataEnd;
+            ByteBuffer data = read(start, (int) (end - start));
+            while (data.hasRemaining()) {
+                byte[] key = new byte[data.getInt()];
+                data.get(key);
+                if (to != null && LsmStore.compare(key, to) >= 0) {
+                    return;
+                }
+                byte[] value = readValue(data);
+                if (from == null || LsmStore.compare(key, from) >= 0) {
+                    consumer.accept(key, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recorre todas las entradas en orden, leyendo un bloque cada vez. Se usa en la
+     * compactación para no cargar el segmento completo en memoria.
+     *
+     * @return Iterador sobre las entradas; los borrados se entregan como {@link LsmStore#TOMBSTONE}.
+     */
+    Iterator<Map.Entry<byte[], byte[]>> iterator() {
+        return new Iterator<Map.Entry<byte[], byte[]>>() {
+            private int block;
+            private ByteBuffer data = ByteBuffer.allocate(0);
+
+            @Override
+            public boolean hasNext() {
+                while (!data.hasRemaining() && block < indexOffsets.length) {
+                    long start = indexOffsets[block];
+                    long end = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : dataEnd;
+                    try {
+                        data = read(start, (int) (end - start));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    block++;
+                }
+                return data.hasRemaining();
+            }
+
+            @Override
+            public Map.Entry<byte[], byte[]> next() {
+                if (!hasNext()) {
+                    throw new java.util.NoSuchElementException();
+                }
+                byte[] key = new byte[data.getInt()];
+                data.get(key);
+                return new java.util.AbstractMap.SimpleImmutableEntry<>(key, readValue(data));
+            }
+        };
+    }
+
+    /**
+     * Índice del último bloque cuya primera clave es menor o igual que la clave buscada.
+     */
+    private int floorIndex(byte[] key) {
+        int low = 0;
+        int high = indexKeys.length - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (LsmStore.compare(indexKeys[mid], key) <= 0) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    private static int compareEntryKey(ByteBuffer data, byte[] key) {
+        int length = data.getInt();
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int comparison = Integer.compare(data.get() & 0xFF, key[i] & 0xFF);
+            if (comparison != 0) {
+                data.position(data.position() + length - i - 1);
+                return comparison;
+            }
+        }
+        data.position(data.position() + length - common);
+        return Integer.compare(length, key.length);
+    }
+
+    private static byte[] readValue(ByteBuffer data) {
+        byte marker = data.get();
+        byte[] value = new byte[data.getInt()];
+        data.get(value);
+        return marker == TOMBSTONE ? LsmStore.TOMBSTONE : value;
+    }
+
+    private static void skipValue(ByteBuffer data) {
+        data.get();
+        int length = data.getInt();
+        data.position(data.position() + length);
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Fin inesperado del segmento " + file.getName());
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    long getCoveredFrom() {
+        return coveredFrom;
+    }
+
+    int getEntryCount() {
+        return entryCount;
+    }
+
+    long getSize() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,225 @@
+package src.com.learningpath.grading;
+
+import src.com.learningpath.activities.Question;
+import src.com.learningpath.activities.Quiz;
+import src.com.learningpath.users.Student;
+
+import java.util.List;
+
+/**
+ * Clave de respuestas de un {@link Quiz} compilada para corregir rápido. La opción correcta de
+ * cada pregunta ocupa un carril de {@link #getLaneBits()} bits (4 si ninguna pregunta tiene más de
+ * 15 opciones, 8 si no) dentro de un arreglo de long, y los intentos ({@link QuizAttempt}) se
+ * empaquetan igual. Corregir un intento es un XOR por palabra: un carril queda a cero si la
+ * respuesta coincide, así que con 4 bits se corrigen 16 preguntas por operación y los aciertos
+ * se cuentan con {@link Long#bitCount}.
+ *
+ * El valor con todos los bits del carril a uno indica una pregunta sin responder; nunca coincide
+ * con la clave porque las opciones válidas son menores.
+ *
+ * La clave es una instantánea: si cambia la opción correcta de una pregunta hay que compilarla
+ * de nuevo ({@link #isCurrent()} indica si sigue al día).
+ */
+public final class AnswerKey {
+
+    private final Quiz quiz;
+    private final int questionCount;
+    private final int laneBits;
+    private final int lanesPerWord;
+    private final long laneMask;
+    // Bit bajo de cada carril
+    private final long lowBits;
+    private final int[] optionCounts;
+    private final int[] correct;
+    private final long[] packed;
+
+    private AnswerKey(Quiz quiz, int[] optionCounts, int[] correct, int laneBits) {
+        this.quiz = quiz;
+        this.questionCount = correct.length;
+        this.optionCounts = optionCounts;
+        this.correct = correct;
+        this.laneBits = laneBits;
+        this.lanesPerWord = Long.SIZE / laneBits;
+        this.laneMask = (1L << laneBits) - 1;
+        long low = 0;
+        for (int lane = 0; lane < lanesPerWord; lane++) {
+            low |= 1L << (lane * laneBits);
+        }
+        this.lowBits = low;
+        this.packed = pack(correct);
+    }
+
+    /**
+     * Compila la clave de las respuestas actuales de un quiz.
+     *
+     * @param quiz El quiz.
+     * @return La clave.
+     * @throws IllegalArgumentException Si una pregunta no tiene opciones, tiene más de 254 o su
+     *                                  opción correcta no existe.
+     */
+    public static AnswerKey compile(Quiz quiz) {
+        List<Question> questions = quiz.getQuestions();
+        int[] optionCounts = new int[questions.size()];
+        int[] correct = new int[questions.size()];
+        int maxOptions = 0;
+        for (int i = 0; i < questions.size(); i++) {
+            Question question = questions.get(i);
+            int options = question.getOptions() == null ? 0 : question.getOptions().length;
+            if (options == 0 || options > 254) {
+                throw new IllegalArgumentException("La pregunta " + (i + 1) + " de " + quiz.getTitle()
+                        + " tiene " + options + " opciones");
+            }
+            if (question.getCorrectOptionIndex() < 0 || question.getCorrectOptionIndex() >= options) {
+                throw new IllegalArgumentException("La pregunta " + (i + 1) + " de " + quiz.getTitle()
+                        + " no tiene una respuesta correcta válida");
+            }
+            optionCounts[i] = options;
+            correct[i] = question.getCorrectOptionIndex();
+            maxOptions = Math.max(maxOptions, options);
+        }
+        // El valor máximo del carril queda reservado para las preguntas sin responder
+        return new AnswerKey(quiz, optionCounts, correct, maxOptions < 16 ? 4 : 8);
+    }
+
+    public Quiz getQuiz() {
+        return quiz;
+    }
+
+    public int getQuestionCount() {
+        return questionCount;
+    }
+
+    public int getLaneBits() {
+        return laneBits;
+    }
+
+    /**
+     * Indica si la clave sigue coincidiendo con las opciones correctas del quiz.
+     *
+     * @return True si ninguna pregunta ha cambiado desde que se compiló.
+     */
+    public boolean isCurrent() {
+        List<Question> questions = quiz.getQuestions();
+        if (questions.size() != questionCount) {
+            return false;
+        }
+        for (int i = 0; i < questionCount; i++) {
+            Question question = questions.get(i);
+            if (question.getCorrectOptionIndex() != correct[i]
+                    || question.getOptions() == null || question.getOptions().length != optionCounts[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indica si una respuesta a una pregunta es correcta.
+     *
+     * @param question La posición de la pregunta.
+     * @param answer   La opción elegida (desde 0).
+     * @return True si es la opción correcta.
+     */
+    public boolean isCorrect(int question, int answer) {
+        return correct[question] == answer;
+    }
+
+    /**
+     * Crea un intento con las respuestas de un estudiante.
+     *
+     * @param student El estudiante (puede ser null, por ejemplo en una importación).
+     * @param answers La opción elegida en cada pregunta (desde 0), o -1 si no la respondió.
+     * @return El intento.
+     * @throws IllegalArgumentException Si el número de respuestas no coincide o alguna no existe.
+     */
+    public QuizAttempt attempt(Student student, int[] answers) {
+        if (answers.length != questionCount) {
+            throw new IllegalArgumentException("Se esperaban " + questionCount + " respuestas y hay " + answers.length);
+        }
+        for (int i = 0; i < answers.length; i++) {
+            if (answers[i] < -1 || answers[i] >= optionCounts[i]) {
+                throw new IllegalArgumentException("La pregunta " + (i + 1) + " no tiene la opción " + answers[i]);
+            }
+        }
+        return new QuizAttempt(quiz, student, pack(answers), laneBits, questionCount);
+    }
+
+    /**
+     * Número de respuestas correctas de un intento.
+     *
+     * @param attempt El intento.
+     * @return Los aciertos.
+     */
+    public int countCorrect(QuizAttempt attempt) {
+        long[] answers = packedAnswers(attempt);
+        int wrong = 0;
+        for (int w = 0; w < packed.length; w++) {
+            wrong += Long.bitCount(mismatches(answers[w] ^ packed[w]));
+        }
+        // Los carriles sobrantes de la última palabra valen cero en los dos lados
+        return questionCount - wrong;
+    }
+
+    /**
+     * Puntuación de un intento.
+     *
+     * @param attempt El intento.
+     * @return El porcentaje de respuestas correctas (100 si el quiz no tiene preguntas).
+     */
+    public double score(QuizAttempt attempt) {
+        return percentage(countCorrect(attempt));
+    }
+
+    double percentage(int correctAnswers) {
+        return questionCount == 0 ? 100.0 : (double) correctAnswers / questionCount * 100;
+    }
+
+    /**
+     * Acumula un intento en las estadísticas y devuelve sus aciertos.
+     */
+    int accumulate(QuizAttempt attempt, GradingReport report) {
+        long[] answers = packedAnswers(attempt);
+        int total = 0;
+        long[] correctWords = report.scratch(packed.length);
+        for (int w = 0; w < packed.length; w++) {
+            long hits = ~mismatches(answers[w] ^ packed[w]) & lowBits;
+            int valid = Math.min(lanesPerWord, questionCount - w * lanesPerWord);
+            if (valid < lanesPerWord) {
+                hits &= (1L << (valid * laneBits)) - 1;
+            }
+            correctWords[w] = hits;
+            total += Long.bitCount(hits);
+        }
+        report.add(total, correctWords, lanesPerWord, laneBits);
+        return total;
+    }
+
+    /**
+     * Deja en el bit bajo de cada carril un 1 si el carril no es cero.
+     */
+    private long mismatches(long difference) {
+        long folded = difference;
+        for (int shift = laneBits >>> 1; shift > 0; shift >>>= 1) {
+            folded |= folded >>> shift;
+        }
+        return folded & lowBits;
+    }
+
+    private long[] packedAnswers(QuizAttempt attempt) {
+        // Por igualdad: las copias de un quiz con otros prerrequisitos son el mismo quiz
+        if (!quiz.equals(attempt.getQuiz()) || attempt.getQuestionCount() != questionCount) {
+            throw new IllegalArgumentException("El intento no es de este quiz");
+        }
+        // Un intento empaquetado con otro ancho de carril (el quiz ganó opciones) se reempaqueta
+        return attempt.getLaneBits() == laneBits ? attempt.packed() : pack(attempt.getAnswers());
+    }
+
+    private long[] pack(int[] values) {
+        long[] words = new long[(values.length + lanesPerWord - 1) / lanesPerWord];
+        for (int i = 0; i < values.length; i++) {
+            long lane = values[i] < 0 ? laneMask : values[i];
+            words[i / lanesPerWord] |= lane << ((i % lanesPerWord) * laneBits);
+        }
+        return words;
+    }
+}
@@ -0,0 +1,230 @@
+package src.com.learningpath.grading;
+
+import src.com.learningpath.Progress;
+import src.com.learningpath.activities.ActivityStatus;
+import src.com.learningpath.activities.Quiz;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Corrige quizzes con claves compiladas ({@link AnswerKey}). Los lotes de intentos (por ejemplo,
+ * una importación de exámenes en papel) se corrigen en paralelo con fork/join, como en
+ * {@link src.com.learningpath.analytics.CohortAnalytics}: la lista se divide por la mitad hasta
+ * tramos de {@link #THRESHOLD} intentos y cada tramo acumula su propio {@link GradingReport}.
+ *
+ * El motor guarda el historial de intentos registrados con {@link #record} junto con el progreso
+ * al que pertenecen, de modo que si se corrige la clave de un quiz, {@link #regrade} vuelve a
+ * corregir todos sus intentos y actualiza la puntuación y el estado de cada progreso. Cada
+ * intento se guarda también en su progreso ({@link Progress#recordQuizAttempt}), que lo persiste;
+ * al cargar los datos, {@link #restore} reconstruye el historial a partir de los progresos.
+ */
+public class GradingEngine {
+
+    /**
+     * Número de intentos por debajo del cual una tarea ya no se divide.
+     */
+    static final int THRESHOLD = 4096;
+
+    /**
+     * Un intento registrado y el progreso al que se aplicó.
+     */
+    private static final class Submission {
+        final Progress progress;
+        final QuizAttempt attempt;
+
+        Submission(Progress progress, QuizAttempt attempt) {
+            this.progress = progress;
+            this.attempt = attempt;
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final Map<Quiz, AnswerKey> keys = new IdentityHashMap<>();
+    // Por igualdad: un quiz sustituido por una copia con otros prerrequisitos es el mismo quiz
+    private final Map<Quiz, List<Submission>> history = new HashMap<>();
+
+    /**
+     * Crea el motor sobre el pool común de fork/join.
+     */
+    public GradingEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Crea el motor sobre un pool concreto (por ejemplo, para limitar los núcleos).
+     *
+     * @param pool El pool de fork/join.
+     */
+    public GradingEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Clave compilada de un quiz. Se compila la primera vez y de nuevo si sus respuestas
+     * correctas han cambiado.
+     *
+     * @param quiz El quiz.
+     * @return La clave.
+     * @throws IllegalArgumentException Si el quiz tiene preguntas sin respuesta correcta válida.
+     */
+    public synchronized AnswerKey getKey(Quiz quiz) {
+        AnswerKey key = keys.get(quiz);
+        if (key == null || !key.isCurrent()) {
+            key = AnswerKey.compile(quiz);
+            keys.put(quiz, key);
+        }
+        return key;
+    }
+
+    /**
+     * Corrige un lote de intentos en paralelo.
+     *
+     * @param key      La clave.
+     * @param attempts Los intentos, todos del quiz de la clave. La lista no debe modificarse
+     *                 durante la corrección.
+     * @return Los aciertos de cada intento y las estadísticas por pregunta.
+     */
+    public GradingReport grade(AnswerKey key, List<QuizAttempt> attempts) {
+        GradingReport empty = new GradingReport(key, attempts.size());
+        GradingTask task = new GradingTask(key, empty, attempts, 0, attempts.size());
+        return attempts.size() <= THRESHOLD ? task.compute() : pool.invoke(task);
+    }
+
+    /**
+     * Corrige un intento, aplica la puntuación al progreso del estudiante (completado si llega a
+     * la puntuación mínima del quiz, fallido si no) y lo guarda en el historial y en el progreso.
+     *
+     * @param progress El progreso del estudiante.
+     * @param attempt  El intento.
+     * @return La puntuación, en porcentaje.
+     */
+    public double record(Progress progress, QuizAttempt attempt) {
+        double score = getKey(attempt.getQuiz()).score(attempt);
+        synchronized (this) {
+            history.computeIfAbsent(attempt.getQuiz(), quiz -> new ArrayList<>()).add(new Submission(progress, attempt));
+        }
+        progress.recordQuizAttempt(attempt.getQuiz(), attempt.getAnswers());
+        apply(progress, attempt.getQuiz(), score);
+        return score;
+    }
+
+    /**
+     * Sustituye el historial por los intentos guardados en los progresos (al cargar los datos).
+     * Los intentos quedan en el orden de los progresos y, dentro de cada uno, en el de registro.
+     * Se omiten los intentos cuyas respuestas ya no corresponden a las preguntas del quiz.
+     *
+     * @param progresses Los progresos cargados.
+     */
+    public void restore(Collection<Progress> progresses) {
+        Map<Quiz, List<Submission>> restored = new HashMap<>();
+        for (Progress progress : progresses) {
+            for (Map.Entry<Quiz, List<int[]>> entry : progress.getQuizAttempts().entrySet()) {
+                Quiz quiz = entry.getKey();
+                for (int[] answers : entry.getValue()) {
+                    QuizAttempt attempt;
+                    try {
+                        attempt = getKey(quiz).attempt(progress.getStudent(), answers);
+                    } catch (IllegalArgumentException e) {
+                        continue;
+                    }
+                    restored.computeIfAbsent(quiz, q -> new ArrayList<>()).add(new Submission(progress, attempt));
+                }
+            }
+        }
+        synchronized (this) {
+            history.clear();
+            history.putAll(restored);
+        }
+    }
+
+    /**
+     * Vuelve a corregir todos los intentos registrados de un quiz con su clave actual y
+     * actualiza los progresos. Si un estudiante hizo varios intentos, prevalece el último.
+     *
+     * @param quiz El quiz cuya clave ha cambiado.
+     * @return La corrección de todos los intentos, en orden de registro.
+     */
+    public GradingReport regrade(Quiz quiz) {
+        List<Submission> submissions;
+        synchronized (this) {
+            submissions = new ArrayList<>(history.getOrDefault(quiz, new ArrayList<>()));
+        }
+        List<QuizAttempt> attempts = new ArrayList<>(submissions.size());
+        for (Submission submission : submissions) {
+            attempts.add(submission.attempt);
+        }
+        GradingReport report = grade(getKey(quiz), attempts);
+        for (int i = 0; i < submissions.size(); i++) {
+            apply(submissions.get(i).progress, quiz, report.getScore(i));
+        }
+        return report;
+    }
+
+    /**
+     * Estadísticas de todos los intentos registrados de un quiz, con su clave actual.
+     *
+     * @param quiz El quiz.
+     * @return La corrección de sus intentos, en orden de registro.
+     */
+    public GradingReport getReport(Quiz quiz) {
+        List<QuizAttempt> attempts = new ArrayList<>();
+        synchronized (this) {
+            for (Submission submission : history.getOrDefault(quiz, new ArrayList<>())) {
+                attempts.add(submission.attempt);
+            }
+        }
+        return grade(getKey(quiz), attempts);
+    }
+
+    private static void apply(Progress progress, Quiz quiz, double score) {
+        progress.recordQuizScore(quiz, score);
+        progress.updateActivityStatus(quiz, score >= quiz.getPassingScore() ? ActivityStatus.COMPLETED : ActivityStatus.FAILED);
+    }
+
+    /**
+     * Corrige un tramo [from, to) del lote.
+     */
+    private static class GradingTask extends RecursiveTask<GradingReport> {
+        private static final long serialVersionUID = 1L;
+
+        // Las tareas no se serializan: RecursiveTask es Serializable, pero estos campos no
+        private final transient AnswerKey key;
+        private final transient GradingReport template;
+        private final transient List<QuizAttempt> attempts;
+        private final int from;
+        private final int to;
+
+        GradingTask(AnswerKey key, GradingReport template, List<QuizAttempt> attempts, int from, int to) {
+            this.key = key;
+            this.template = template;
+            this.attempts = attempts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected GradingReport compute() {
+            if (to - from <= THRESHOLD) {
+                GradingReport report = new GradingReport(template);
+                for (int i = from; i < to; i++) {
+                    // Cada tarea escribe solo las posiciones de su tramo
+                    report.setCorrectAnswers(i, key.accumulate(attempts.get(i), report));
+                }
+                return report;
+            }
+            int middle = (from + to) >>> 1;
+            GradingTask left = new GradingTask(key, template, attempts, from, middle);
+            GradingTask right = new GradingTask(key, template, attempts, middle, to);
+            left.fork();
+            GradingReport result = right.compute();
+            return result.merge(left.join());
+        }
+    }
+}
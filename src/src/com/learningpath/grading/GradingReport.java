@@ -0,0 +1,156 @@
+package src.com.learningpath.grading;
+
+/**
+ * Resultado de corregir un lote de intentos de un quiz: los aciertos de cada intento y las
+ * estadísticas de cada pregunta. Como {@link src.com.learningpath.analytics.CohortStatistics},
+ * es un acumulador que se puede combinar: cada tarea de {@link GradingEngine} corrige su tramo
+ * de intentos y los resultados parciales se suman con {@link #merge}.
+ *
+ * Por pregunta se calculan la dificultad (proporción de aciertos, de 0 a 1) y la discriminación:
+ * la correlación entre acertar la pregunta y la puntuación en el resto del quiz. Una
+ * discriminación baja o negativa suele indicar una pregunta ambigua o una clave equivocada.
+ */
+public class GradingReport {
+
+    private final AnswerKey key;
+    // Aciertos de cada intento, en el orden del lote (compartido entre las tareas)
+    private final int[] correctAnswers;
+
+    private long attempts;
+    private long totalSum;
+    private long totalSquares;
+    // Por pregunta: aciertos y suma de las puntuaciones de quienes la acertaron
+    private final long[] itemCorrect;
+    private final long[] itemTotalSum;
+    private long[] scratch = new long[0];
+
+    GradingReport(AnswerKey key, int attemptCount) {
+        this.key = key;
+        this.correctAnswers = new int[attemptCount];
+        this.itemCorrect = new long[key.getQuestionCount()];
+        this.itemTotalSum = new long[key.getQuestionCount()];
+    }
+
+    /**
+     * Acumulador vacío de otra tarea del mismo lote.
+     */
+    GradingReport(GradingReport template) {
+        this.key = template.key;
+        this.correctAnswers = template.correctAnswers;
+        this.itemCorrect = new long[key.getQuestionCount()];
+        this.itemTotalSum = new long[key.getQuestionCount()];
+    }
+
+    long[] scratch(int words) {
+        if (scratch.length < words) {
+            scratch = new long[words];
+        }
+        return scratch;
+    }
+
+    void setCorrectAnswers(int attempt, int correct) {
+        correctAnswers[attempt] = correct;
+    }
+
+    /**
+     * Acumula un intento: sus aciertos y, en el bit bajo de cada carril, las preguntas acertadas.
+     */
+    void add(int total, long[] correctWords, int lanesPerWord, int laneBits) {
+        attempts++;
+        totalSum += total;
+        totalSquares += (long) total * total;
+        int words = (itemCorrect.length + lanesPerWord - 1) / lanesPerWord;
+        for (int w = 0; w < words; w++) {
+            long hits = correctWords[w];
+            while (hits != 0) {
+                int question = w * lanesPerWord + Long.numberOfTrailingZeros(hits) / laneBits;
+                itemCorrect[question]++;
+                itemTotalSum[question] += total;
+                hits &= hits - 1;
+            }
+        }
+    }
+
+    GradingReport merge(GradingReport other) {
+        attempts += other.attempts;
+        totalSum += other.totalSum;
+        totalSquares += other.totalSquares;
+        for (int i = 0; i < itemCorrect.length; i++) {
+            itemCorrect[i] += other.itemCorrect[i];
+            itemTotalSum[i] += other.itemTotalSum[i];
+        }
+        return this;
+    }
+
+    public AnswerKey getKey() {
+        return key;
+    }
+
+    public int getAttemptCount() {
+        return correctAnswers.length;
+    }
+
+    /**
+     * Aciertos de un intento.
+     *
+     * @param attempt La posición del intento en el lote.
+     * @return El número de respuestas correctas.
+     */
+    public int getCorrectAnswers(int attempt) {
+        return correctAnswers[attempt];
+    }
+
+    /**
+     * Puntuación de un intento.
+     *
+     * @param attempt La posición del intento en el lote.
+     * @return El porcentaje de respuestas correctas.
+     */
+    public double getScore(int attempt) {
+        return key.percentage(correctAnswers[attempt]);
+    }
+
+    /**
+     * Puntuación media del lote.
+     *
+     * @return El porcentaje medio, o 0 si no hay intentos.
+     */
+    public double getAverageScore() {
+        if (attempts == 0) {
+            return 0.0;
+        }
+        return key.getQuestionCount() == 0 ? 100.0 : (double) totalSum / attempts / key.getQuestionCount() * 100;
+    }
+
+    /**
+     * Dificultad de una pregunta: la proporción de intentos que la aciertan.
+     *
+     * @param question La posición de la pregunta.
+     * @return Un valor de 0 (nadie la acierta) a 1 (todos la aciertan), o 0 si no hay intentos.
+     */
+    public double getDifficulty(int question) {
+        return attempts == 0 ? 0.0 : (double) itemCorrect[question] / attempts;
+    }
+
+    /**
+     * Discriminación de una pregunta: correlación (punto biserial) entre acertarla y la
+     * puntuación en las demás preguntas.
+     *
+     * @param question La posición de la pregunta.
+     * @return Un valor de -1 a 1, o 0 si todos (o nadie) la aciertan o si el resto no varía.
+     */
+    public double getDiscrimination(int question) {
+        // x = acierto en la pregunta, y = aciertos en el resto
+        double n = attempts;
+        double sumX = itemCorrect[question];
+        double sumY = totalSum - sumX;
+        double sumXY = itemTotalSum[question] - sumX;
+        double sumYY = totalSquares - 2.0 * itemTotalSum[question] + sumX;
+        double varianceX = n * sumX - sumX * sumX;
+        double varianceY = n * sumYY - sumY * sumY;
+        if (varianceX <= 0 || varianceY <= 0) {
+            return 0.0;
+        }
+        return (n * sumXY - sumX * sumY) / Math.sqrt(varianceX * varianceY);
+    }
+}
@@ -0,0 +1,72 @@
+package src.com.learningpath.grading;
+
+import src.com.learningpath.activities.Quiz;
+import src.com.learningpath.users.Student;
+
+/**
+ * Respuestas de un estudiante a un quiz, empaquetadas como la {@link AnswerKey} que lo creó: una
+ * respuesta por carril de 4 u 8 bits. Es inmutable, así que se puede volver a corregir cuando
+ * cambia la clave.
+ */
+public final class QuizAttempt {
+
+    private final Quiz quiz;
+    private final Student student;
+    private final long[] packed;
+    private final int laneBits;
+    private final int questionCount;
+
+    QuizAttempt(Quiz quiz, Student student, long[] packed, int laneBits, int questionCount) {
+        this.quiz = quiz;
+        this.student = student;
+        this.packed = packed;
+        this.laneBits = laneBits;
+        this.questionCount = questionCount;
+    }
+
+    public Quiz getQuiz() {
+        return quiz;
+    }
+
+    public Student getStudent() {
+        return student;
+    }
+
+    public int getQuestionCount() {
+        return questionCount;
+    }
+
+    int getLaneBits() {
+        return laneBits;
+    }
+
+    long[] packed() {
+        return packed;
+    }
+
+    /**
+     * Respuesta a una pregunta.
+     *
+     * @param question La posición de la pregunta.
+     * @return La opción elegida (desde 0), o -1 si no la respondió.
+     */
+    public int getAnswer(int question) {
+        int lanesPerWord = Long.SIZE / laneBits;
+        long laneMask = (1L << laneBits) - 1;
+        int lane = (int) ((packed[question / lanesPerWord] >>> ((question % lanesPerWord) * laneBits)) & laneMask);
+        return lane == laneMask ? -1 : lane;
+    }
+
+    /**
+     * Todas las respuestas.
+     *
+     * @return La opción elegida en cada pregunta, o -1 en las no respondidas.
+     */
+    public int[] getAnswers() {
+        int[] answers = new int[questionCount];
+        for (int i = 0; i < questionCount; i++) {
+            answers[i] = getAnswer(i);
+        }
+        return answers;
+    }
+}
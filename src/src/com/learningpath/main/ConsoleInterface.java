@@ -5,13 +5,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
 import java.util.Scanner;
 import java.util.Set;
 
+import src.com.learningpath.CatalogPage;
+import src.com.learningpath.CatalogQuery;
 import src.com.learningpath.LearningPath;
+import src.com.learningpath.LearningPathVersion;
+import src.com.learningpath.PrerequisiteGraph;
 import src.com.learningpath.Progress;
+import src.com.learningpath.QueryService;
+import src.com.learningpath.RatingAggregate;
+import src.com.learningpath.TitleAutocomplete;
 import src.com.learningpath.activities.Activity;
 import src.com.learningpath.activities.ActivityStatus;
 import src.com.learningpath.activities.ActivityType;
@@ -25,20 +30,44 @@ import src.com.learningpath.activities.ResourceReview;
 import src.com.learningpath.activities.Survey;
 import src.com.learningpath.activities.SurveyQuestion;
 import src.com.learningpath.activities.SurveyResponse;
+import src.com.learningpath.analytics.CohortAnalytics;
+import src.com.learningpath.analytics.CohortStatistics;
+import src.com.learningpath.analytics.PathDashboard;
+import src.com.learningpath.data.DataLoader;
+import src.com.learningpath.grading.AnswerKey;
+import src.com.learningpath.grading.GradingEngine;
+import src.com.learningpath.grading.GradingReport;
 import src.com.learningpath.data.DataManager;
+import src.com.learningpath.data.DataSet;
+import src.com.learningpath.data.FileStorage;
+import src.com.learningpath.data.PersistenceService;
+import src.com.learningpath.data.SnapshotFiles;
+import src.com.learningpath.data.Storage;
 import src.com.learningpath.users.Student;
 import src.com.learningpath.users.Teacher;
 import src.com.learningpath.users.User;
+import src.com.learningpath.users.UserDirectory;
 
 /**
  * Clase que gestiona la interfaz de consola para la aplicación de Learning Paths.
  */
 public class ConsoleInterface {
+    // Número máximo de resultados de una búsqueda
+    private static final int SEARCH_RESULTS = 20;
+    private static final int CATALOG_PAGE_SIZE = 10;
+    private static final String SEARCH_PROMPT = "Buscar (termine con * para buscar por el inicio del título): ";
+
     private Scanner scanner;
-    private List<User> users;
-    private List<LearningPath> learningPaths;
-    private List<Progress> progresses;
+    private UserDirectory users;
+    private QueryService queries;
     private User currentUser;
+    private PersistenceService persistence;
+    private Storage storage;
+    private DataLoader loader;
+    private final CohortAnalytics analytics = new CohortAnalytics();
+    private final GradingEngine grading = new GradingEngine();
+    // El historial de intentos se reconstruye de los progresos la primera vez que se necesita
+    private boolean gradingRestored;
 
     /**
      * Constructor de la clase ConsoleInterface.
@@ -46,20 +75,43 @@ public class ConsoleInterface {
      */
     public ConsoleInterface() {
         scanner = new Scanner(System.in);
-        // Cargar datos
+        // Abrir el almacenamiento configurado (propiedad learningpath.storage: file o lsm)
         try {
-            users = DataManager.loadUsers();
-            learningPaths = DataManager.loadLearningPaths();
-            progresses = DataManager.loadProgresses();
-        } catch (Exception e) {
-            users = new ArrayList<>();
-            learningPaths = new ArrayList<>();
-            progresses = new ArrayList<>();
-            System.out.println("No se encontraron datos previos. Se iniciará con datos vacíos.");
-        }
-
-        // Registrar el shutdown hook para guardar datos al cerrar la aplicación
-        Runtime.getRuntime().addShutdownHook(new Thread(this::saveData));
+            storage = Storage.fromConfiguration();
+        } catch (IOException e) {
+            System.out.println("No se pudo abrir el almacenamiento configurado: " + e.getMessage()
+                    + ". Se usarán los archivos de datos sin log.");
+            storage = new FileStorage();
+        }
+
+        // Cargar datos en segundo plano: para iniciar sesión basta con los usuarios; los Learning
+        // Paths y los progresos (con los cambios del log) siguen cargándose mientras tanto
+        loader = new DataLoader(storage);
+        users = new UserDirectory(loader.awaitUsers());
+        String usersFailure = loader.getFailure(DataSet.USERS);
+        if (usersFailure != null) {
+            System.out.println("No se pudieron cargar los usuarios (" + usersFailure + "). Se iniciará sin usuarios"
+                    + " y no se guardarán para no sobrescribir los datos previos.");
+        }
+        System.out.println("Recuperación: " + SnapshotFiles.getRecoveryReport());
+
+        // Guardado en segundo plano: agrupa los cambios durante la ventana configurada
+        persistence = new PersistenceService(this::flushData, Long.getLong("learningpath.flushWindowMs", 200L));
+        DataManager.setWriteAheadLogSyncOnAppend(false);
+        persistence.start();
+
+        // Registrar el shutdown hook para guardar los datos pendientes al cerrar la aplicación
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            persistence.shutdown();
+            System.out.println("Carga: " + loader.getStatistics());
+            System.out.println("Persistencia: " + persistence.getStatistics());
+            loader.close();
+            try {
+                storage.close();
+            } catch (IOException e) {
+                System.out.println("Error al cerrar el almacenamiento: " + e.getMessage());
+            }
+        }));
     }
 
     /**
@@ -67,6 +119,7 @@ public class ConsoleInterface {
      */
     public void start() {
         System.out.println("=== Sistema de Gestión de Learning Paths ===");
+        System.out.printf("Tiempo hasta el primer prompt: %.1f ms%n", loader.markFirstPrompt());
         boolean exit = false;
         while (!exit) {
             if (currentUser == null) {
@@ -102,17 +155,45 @@ public class ConsoleInterface {
     }
 
     /**
-     * Guarda todos los datos utilizando DataManager.
+     * Solicita guardar todos los datos en el almacenamiento configurado.
      */
     private void saveData() {
-        try {
-            DataManager.saveUsers(users);
-            DataManager.saveLearningPaths(learningPaths);
-            DataManager.saveProgresses(progresses);
-            System.out.println("Datos guardados exitosamente.");
-        } catch (IOException e) {
-            System.out.println("Error al guardar datos: " + e.getMessage());
+        saveData(DataSet.USERS, DataSet.LEARNING_PATHS, DataSet.PROGRESSES);
+    }
+
+    /**
+     * Marca los conjuntos de datos indicados como modificados; el servicio de persistencia
+     * los guarda en segundo plano agrupando los cambios cercanos en el tiempo.
+     *
+     * @param dataSets Los conjuntos de datos modificados.
+     */
+    private void saveData(DataSet... dataSets) {
+        persistence.markDirty(dataSets);
+    }
+
+    /**
+     * Guarda los cambios de progreso de un estudiante. Con el write-ahead log activo los
+     * cambios ya quedaron registrados, así que basta con sincronizar el log.
+     */
+    private void saveProgressChanges() {
+        saveData(DataSet.PROGRESS_LOG);
+    }
+
+    /**
+     * Guarda los conjuntos de datos modificados. Se ejecuta en el hilo del servicio de persistencia.
+     *
+     * @param dataSets Los conjuntos de datos a guardar.
+     * @throws IOException Si ocurre un error al guardar.
+     */
+    private void flushData(Set<DataSet> dataSets) throws IOException {
+        // Espera a que termine la carga y omite lo que no se pudo cargar
+        Set<DataSet> available = loader.available(dataSets);
+        if (available.isEmpty()) {
+            return;
         }
+        boolean progressChanged = available.contains(DataSet.PROGRESSES) || available.contains(DataSet.PROGRESS_LOG);
+        storage.save(available, users.getUsers(), loader.getQueries().getLearningPaths(),
+                progressChanged ? loader.awaitProgresses() : new ArrayList<>());
     }
 
     /**
@@ -123,12 +204,21 @@ public class ConsoleInterface {
         String username = scanner.nextLine();
         System.out.print("Contraseña: ");
         String password = scanner.nextLine();
-        Optional<User> userOpt = users.stream()
-                .filter(u -> u.getUsername().equals(username))
-                .findFirst();
-        if (userOpt.isPresent() && userOpt.get().authenticate(password)) {
-            currentUser = userOpt.get();
+        User user = users.authenticate(username, password);
+        if (user != null) {
+            currentUser = user;
             System.out.println("Bienvenido, " + currentUser.getName() + " (" + currentUser.getRole() + ")");
+            loader.awaitLearningPaths();
+            queries = loader.getQueries();
+            String failure = loader.getFailure(DataSet.LEARNING_PATHS);
+            if (failure != null) {
+                System.out.println("No se pudieron cargar los Learning Paths (" + failure + ")."
+                        + " Los cambios en Learning Paths no se guardarán.");
+            }
+            if (currentUser instanceof Student) {
+                // Solo se leen los progresos de este estudiante si la carga completa no terminó
+                loadProgressesOf((Student) currentUser);
+            }
         } else {
             System.out.println("Credenciales incorrectas.");
         }
@@ -140,7 +230,7 @@ public class ConsoleInterface {
     private void register() {
         System.out.print("Nombre de usuario: ");
         String username = scanner.nextLine();
-        if (users.stream().anyMatch(u -> u.getUsername().equals(username))) {
+        if (users.isTaken(username)) {
             System.out.println("El nombre de usuario ya existe. Por favor, elija otro.");
             return;
         }
@@ -165,9 +255,13 @@ public class ConsoleInterface {
             System.out.println("Rol no válido.");
             return;
         }
-        users.add(newUser);
+        // El registro es atómico: el nombre pudo ocuparse mientras se pedían los datos
+        if (!users.register(newUser)) {
+            System.out.println("El nombre de usuario ya existe. Por favor, elija otro.");
+            return;
+        }
         // Guardar datos inmediatamente después de registrar un nuevo usuario
-        saveData();
+        saveData(DataSet.USERS);
         System.out.println("Usuario registrado exitosamente. Ahora puede iniciar sesión.");
     }
 
@@ -186,7 +280,12 @@ public class ConsoleInterface {
             System.out.println("5. Ver Estudiantes Inscritos");
             System.out.println("6. Ver Respuestas a Encuestas");
             System.out.println("7. Ver Respuestas a Exámenes de Preguntas Abiertas");
-            System.out.println("8. Cerrar sesión");
+            System.out.println("8. Ver Estadísticas de la Cohorte");
+            System.out.println("9. Ver Panel de Control");
+            System.out.println("10. Buscar Learning Paths");
+            System.out.println("11. Revisar la clave de un Quiz");
+            System.out.println("12. Ver versiones de un Learning Path");
+            System.out.println("13. Cerrar sesión");
             System.out.print("Seleccione una opción: ");
             String choice = scanner.nextLine();
             switch (choice) {
@@ -212,6 +311,21 @@ public class ConsoleInterface {
                     viewOpenEndedExamResponses(teacher);
                     break;
                 case "8":
+                    viewCohortStatistics(teacher);
+                    break;
+                case "9":
+                    viewDashboard(teacher);
+                    break;
+                case "10":
+                    searchLearningPaths();
+                    break;
+                case "11":
+                    reviewQuizKey(teacher);
+                    break;
+                case "12":
+                    viewVersions(teacher);
+                    break;
+                case "13":
                     currentUser = null;
                     back = true;
                     break;
@@ -221,6 +335,138 @@ public class ConsoleInterface {
         }
     }
 
+    /**
+     * Permite al profesor revisar las preguntas de uno de sus quizzes con su dificultad y
+     * discriminación, corregir la opción correcta de una pregunta y volver a corregir los
+     * intentos registrados.
+     *
+     * @param teacher El profesor que está revisando el quiz.
+     */
+    private void reviewQuizKey(Teacher teacher) {
+        List<Quiz> quizzes = new ArrayList<>();
+        List<LearningPath> paths = new ArrayList<>();
+        for (LearningPath lp : queries.getLearningPathsCreatedBy(teacher)) {
+            for (Activity activity : lp.getActivities()) {
+                if (activity instanceof Quiz) {
+                    quizzes.add((Quiz) activity);
+                    paths.add(lp);
+                }
+            }
+        }
+        if (quizzes.isEmpty()) {
+            System.out.println("No tiene quizzes en sus Learning Paths.");
+            return;
+        }
+        System.out.println("\n=== Sus Quizzes ===");
+        for (int i = 0; i < quizzes.size(); i++) {
+            System.out.println((i + 1) + ". " + quizzes.get(i).getTitle());
+        }
+        int choice = readIntegerInput("Seleccione un Quiz (0 para regresar): ", 0, quizzes.size());
+        if (choice == 0) {
+            return;
+        }
+        Quiz quiz = quizzes.get(choice - 1);
+        GradingReport report;
+        try {
+            if (!gradingRestored) {
+                grading.restore(loader.awaitProgresses());
+                gradingRestored = true;
+            }
+            report = grading.getReport(quiz);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
+        System.out.println("\n=== " + quiz.getTitle() + " (" + report.getAttemptCount() + " intentos registrados) ===");
+        List<Question> questions = quiz.getQuestions();
+        for (int q = 0; q < questions.size(); q++) {
+            Question question = questions.get(q);
+            System.out.println((q + 1) + ". " + question.getQuestionText() + " - Respuesta: "
+                    + question.getOptions()[question.getCorrectOptionIndex()]);
+            if (report.getAttemptCount() > 0) {
+                System.out.println(String.format("   Aciertos: %.0f%%, discriminación: %.2f",
+                        report.getDifficulty(q) * 100, report.getDiscrimination(q)));
+            }
+        }
+        int q = readIntegerInput("Seleccione una pregunta para corregir su respuesta (0 para regresar): ", 0, questions.size());
+        if (q == 0) {
+            return;
+        }
+        Question question = questions.get(q - 1);
+        String[] options = question.getOptions();
+        for (int i = 0; i < options.length; i++) {
+            System.out.println((i + 1) + ". " + options[i]);
+        }
+        // Se corrigen también las copias del quiz en versiones anteriores del Learning Path
+        paths.get(choice - 1).setCorrectOptionIndex(quiz, q - 1, readIntegerInput("Opción correcta: ", 1, options.length) - 1);
+        try {
+            report = grading.regrade(quiz);
+        } catch (IllegalArgumentException e) {
+            saveData(DataSet.LEARNING_PATHS);
+            System.out.println("Clave actualizada, pero no se pudieron volver a corregir los intentos: " + e.getMessage());
+            return;
+        }
+        saveData(DataSet.LEARNING_PATHS, DataSet.PROGRESSES);
+        System.out.println("Clave actualizada. Se volvieron a corregir " + report.getAttemptCount()
+                + " intentos (puntuación media: " + String.format("%.2f", report.getAverageScore()) + "%).");
+    }
+
+    /**
+     * Muestra las versiones de uno de los Learning Paths del profesor con los cambios de cada una
+     * y permite comparar dos versiones.
+     *
+     * @param teacher El profesor que está consultando las versiones.
+     */
+    private void viewVersions(Teacher teacher) {
+        List<LearningPath> teacherLPs = queries.getLearningPathsCreatedBy(teacher);
+        if (teacherLPs.isEmpty()) {
+            System.out.println("No tiene Learning Paths creados.");
+            return;
+        }
+        System.out.println("\n=== Sus Learning Paths ===");
+        for (int i = 0; i < teacherLPs.size(); i++) {
+            System.out.println((i + 1) + ". " + teacherLPs.get(i).getTitle());
+        }
+        int choice = readIntegerInput("Seleccione un Learning Path (0 para regresar): ", 0, teacherLPs.size());
+        if (choice == 0) {
+            return;
+        }
+        LearningPath lp = teacherLPs.get(choice - 1);
+        List<LearningPathVersion> versions = lp.getVersions();
+        System.out.println("\n=== Versiones de " + lp.getTitle() + " ===");
+        for (LearningPathVersion version : versions) {
+            System.out.println("Versión " + version.getNumber() + " (" + version.getDate() + ") - "
+                    + version.getActivityCount() + " actividades");
+            for (LearningPathVersion.Change change : version.getChanges()) {
+                System.out.println("   " + change);
+            }
+        }
+        if (versions.size() < 2) {
+            return;
+        }
+        int first = versions.get(0).getNumber();
+        int last = versions.get(versions.size() - 1).getNumber();
+        int from = readIntegerInput("Comparar desde la versión (0 para regresar): ", 0, last);
+        if (from == 0) {
+            return;
+        }
+        int to = readIntegerInput("Hasta la versión: ", first, last);
+        LearningPathVersion source = lp.findVersion(from);
+        LearningPathVersion target = lp.findVersion(to);
+        if (source == null || target == null) {
+            System.out.println("La versión no existe.");
+            return;
+        }
+        List<LearningPathVersion.Change> changes = source.diff(target);
+        if (changes.isEmpty()) {
+            System.out.println("Las dos versiones tienen las mismas actividades.");
+        }
+        for (LearningPathVersion.Change change : changes) {
+            System.out.println("   " + change);
+        }
+    }
+
     /**
      * Permite al profesor crear un nuevo Learning Path.
      *
@@ -246,7 +492,8 @@ public class ConsoleInterface {
             System.out.println("3. Resource Review");
             System.out.println("4. Survey");
             System.out.println("5. Open-Ended Exam");
-            System.out.println("6. Finalizar y guardar Learning Path");
+            System.out.println("6. Definir prerrequisitos de una actividad");
+            System.out.println("7. Finalizar y guardar Learning Path");
             System.out.print("Seleccione el tipo de actividad a añadir: ");
             String activityChoice = scanner.nextLine();
             switch (activityChoice) {
@@ -286,6 +533,9 @@ public class ConsoleInterface {
                     }
                     break;
                 case "6":
+                    definePrerequisites(newLP);
+                    break;
+                case "7":
                     addingActivities = false;
                     break;
                 default:
@@ -293,11 +543,48 @@ public class ConsoleInterface {
             }
         }
 
-        learningPaths.add(newLP);
+        queries.addLearningPath(newLP);
         // Guardar datos después de crear un Learning Path
-        saveData();
+        saveData(DataSet.LEARNING_PATHS);
         System.out.println("Learning Path creado exitosamente.");
     }
+
+    /**
+     * Permite al profesor elegir las actividades que deben completarse antes de una actividad.
+     *
+     * @param lp El Learning Path en construcción.
+     */
+    private void definePrerequisites(LearningPath lp) {
+        List<Activity> activities = lp.getActivities();
+        if (activities.size() < 2) {
+            System.out.println("Se necesitan al menos dos actividades para definir prerrequisitos.");
+            return;
+        }
+        for (int i = 0; i < activities.size(); i++) {
+            System.out.println((i + 1) + ". " + activities.get(i).getTitle());
+        }
+        int choice = readIntegerInput("Seleccione la actividad (0 para regresar): ", 0, activities.size());
+        if (choice == 0) {
+            return;
+        }
+        Activity activity = activities.get(choice - 1);
+        while (true) {
+            int prerequisite = readIntegerInput("Actividad que debe completarse antes de \"" + activity.getTitle()
+                    + "\" (0 para terminar): ", 0, activities.size());
+            if (prerequisite == 0) {
+                return;
+            }
+            try {
+                if (lp.addPrerequisite(activity, activities.get(prerequisite - 1))) {
+                    System.out.println("Prerrequisito añadido.");
+                } else {
+                    System.out.println("Ya era un prerrequisito.");
+                }
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
     /**
      * Crea una nueva instancia de Assignment basada en la entrada del usuario.
      *
@@ -464,12 +751,7 @@ public class ConsoleInterface {
      */
     private void viewLearningPaths(Teacher teacher) {
         // Filtrar los Learning Paths creados por el profesor actual
-        List<LearningPath> teacherLPs = new ArrayList<>();
-        for (LearningPath lp : learningPaths) {
-            if (lp.getCreator().equals(teacher)) {
-                teacherLPs.add(lp);
-            }
-        }
+        List<LearningPath> teacherLPs = queries.getLearningPathsCreatedBy(teacher);
 
         // Verificar si el profesor tiene Learning Paths creados
         if (teacherLPs.isEmpty()) {
@@ -496,12 +778,7 @@ public class ConsoleInterface {
      * @param teacher El profesor que está visualizando los Learning Paths.
      */
     private void viewAllLearningPaths(Teacher teacher) {
-        List<LearningPath> otherLearningPaths = new ArrayList<>();
-        for (LearningPath lp : learningPaths) {
-            if (!lp.getCreator().equals(teacher)) {
-                otherLearningPaths.add(lp);
-            }
-        }
+        List<LearningPath> otherLearningPaths = queries.getLearningPathsNotCreatedBy(teacher);
 
         if (otherLearningPaths.isEmpty()) {
             System.out.println("No hay Learning Paths creados por otros profesores.");
@@ -526,12 +803,7 @@ public class ConsoleInterface {
      * @param teacher El profesor que está realizando la copia.
      */
     private void copyLearningPath(Teacher teacher) {
-        List<LearningPath> otherLearningPaths = new ArrayList<>();
-        for (LearningPath lp : learningPaths) {
-            if (!lp.getCreator().equals(teacher)) {
-                otherLearningPaths.add(lp);
-            }
-        }
+        List<LearningPath> otherLearningPaths = queries.getLearningPathsNotCreatedBy(teacher);
 
         if (otherLearningPaths.isEmpty()) {
             System.out.println("No hay Learning Paths creados por otros profesores para copiar.");
@@ -552,10 +824,10 @@ public class ConsoleInterface {
         LearningPath selectedLP = otherLearningPaths.get(choice - 1);
         try {
             LearningPath copiedLP = new LearningPath(selectedLP, teacher);
-            learningPaths.add(copiedLP);
+            queries.addLearningPath(copiedLP);
 
             // Guardar datos después de copiar
-            saveData();
+            saveData(DataSet.LEARNING_PATHS);
 
             System.out.println("Learning Path copiado exitosamente como: " + copiedLP.getTitle());
         } catch (UnsupportedOperationException e) {
@@ -570,34 +842,134 @@ public class ConsoleInterface {
      */
     private void viewEnrolledStudents(Teacher teacher) {
         // Obtener los Learning Paths creados por el profesor
-        List<LearningPath> teacherLPs = new ArrayList<>();
-        for (LearningPath lp : learningPaths) {
-            if (lp.getCreator().equals(teacher)) {
-                teacherLPs.add(lp);
-            }
-        }
+        List<LearningPath> teacherLPs = queries.getLearningPathsCreatedBy(teacher);
 
         if (teacherLPs.isEmpty()) {
             System.out.println("No tiene Learning Paths creados.");
             return;
         }
 
+        // Las inscripciones de otros estudiantes se indexan al terminar la carga
+        try {
+            loader.awaitProgresses();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
         System.out.println("\n=== Estudiantes Inscritos en sus Learning Paths ===");
         for (LearningPath lp : teacherLPs) {
             System.out.println("\nLearning Path: " + lp.getTitle());
-            boolean hasStudents = false;
-            for (Progress p : progresses) {
-                if (p.getLearningPath().equals(lp)) {
-                    System.out.println("- Estudiante: " + p.getStudent().getName());
-                    hasStudents = true;
-                }
+            List<Progress> enrollments = queries.getEnrollments(lp);
+            for (Progress p : enrollments) {
+                System.out.println("- Estudiante: " + p.getStudent().getName());
             }
-            if (!hasStudents) {
+            if (enrollments.isEmpty()) {
                 System.out.println("  No hay estudiantes inscritos.");
             }
         }
     }
 
+    /**
+     * Permite al profesor ver las estadísticas de los estudiantes de uno de sus Learning Paths:
+     * completado, fallos y puntuación media de cada quiz, y dónde se detienen los estudiantes.
+     *
+     * @param teacher El profesor que está revisando las estadísticas.
+     */
+    private void viewCohortStatistics(Teacher teacher) {
+        List<LearningPath> teacherLPs = queries.getLearningPathsCreatedBy(teacher);
+        if (teacherLPs.isEmpty()) {
+            System.out.println("No tiene Learning Paths creados.");
+            return;
+        }
+
+        System.out.println("\n=== Sus Learning Paths ===");
+        for (int i = 0; i < teacherLPs.size(); i++) {
+            System.out.println((i + 1) + ". " + teacherLPs.get(i).getTitle());
+        }
+        int choice = readIntegerInput("Seleccione un Learning Path (0 para regresar): ", 0, teacherLPs.size());
+        if (choice == 0) {
+            return;
+        }
+        LearningPath lp = teacherLPs.get(choice - 1);
+
+        try {
+            loader.awaitProgresses();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        CohortStatistics stats = analytics.analyze(lp, queries.getEnrollments(lp));
+        if (stats.getStudentCount() == 0) {
+            System.out.println("No hay estudiantes inscritos.");
+            return;
+        }
+
+        System.out.println("\n=== Estadísticas de la Cohorte: " + lp.getTitle() + " ===");
+        System.out.println("Estudiantes inscritos: " + stats.getStudentCount());
+        System.out.println("Completado medio: " + String.format("%.2f", stats.getAverageCompletion()) + "%");
+        System.out.println("Estudiantes que terminaron: " + String.format("%.2f", stats.getCompletionRate()) + "%");
+        List<Activity> activities = stats.getActivities();
+        for (int i = 0; i < activities.size(); i++) {
+            Activity activity = activities.get(i);
+            System.out.println("\n" + (i + 1) + ". " + activity.getTitle() + " (" + activity.getType() + ")");
+            System.out.println("   Completadas: " + stats.getStatusCount(i, ActivityStatus.COMPLETED)
+                    + ", entregadas: " + stats.getStatusCount(i, ActivityStatus.SUBMITTED)
+                    + ", pendientes: " + stats.getStatusCount(i, ActivityStatus.PENDING)
+                    + ", fallidas: " + stats.getStatusCount(i, ActivityStatus.FAILED));
+            if (stats.isQuiz(i)) {
+                System.out.println("   Tasa de fallos: " + String.format("%.2f", stats.getFailureRate(i)) + "%");
+                if (stats.getScoreCount(i) > 0) {
+                    System.out.println("   Puntuación media: " + String.format("%.2f", stats.getAverageScore(i))
+                            + "% (" + stats.getScoreCount(i) + " intentos)");
+                }
+            }
+            System.out.println("   Estudiantes que se detienen aquí: " + stats.getDropOffCount(i));
+        }
+        int dropOff = stats.getMainDropOff();
+        if (dropOff >= 0) {
+            System.out.println("\nPrincipal punto de abandono: " + activities.get(dropOff).getTitle());
+        }
+    }
+
+    /**
+     * Muestra el panel de control del profesor con el resumen de cada uno de sus Learning Paths.
+     * Los datos salen de las vistas materializadas, así que no hace falta esperar a que se
+     * carguen los progresos.
+     *
+     * @param teacher El profesor que está revisando el panel.
+     */
+    private void viewDashboard(Teacher teacher) {
+        List<LearningPath> teacherLPs = queries.getLearningPathsCreatedBy(teacher);
+        if (teacherLPs.isEmpty()) {
+            System.out.println("No tiene Learning Paths creados.");
+            return;
+        }
+
+        System.out.println("\n=== Panel de Control ===");
+        for (LearningPath lp : teacherLPs) {
+            PathDashboard dashboard = loader.getDashboards().getDashboard(lp);
+            System.out.println("\n" + lp.getTitle());
+            System.out.println("   Estudiantes inscritos: " + dashboard.getEnrolledCount());
+            System.out.println("   Exámenes pendientes de revisión: " + dashboard.getPendingExamReviews(lp));
+            StringBuilder histogram = new StringBuilder("   Completado:");
+            for (int b = 0; b < PathDashboard.HISTOGRAM_BUCKETS; b++) {
+                String label = b == PathDashboard.HISTOGRAM_BUCKETS - 1 ? "100%" : (b * 10) + "-" + (b * 10 + 9) + "%";
+                histogram.append(' ').append(label).append(": ").append(dashboard.getCompletionCount(b));
+            }
+            System.out.println(histogram);
+            for (Activity activity : lp.getActivities()) {
+                System.out.print("   - " + activity.getTitle() + ": completadas " + dashboard.getStatusCount(activity, ActivityStatus.COMPLETED)
+                        + ", entregadas " + dashboard.getStatusCount(activity, ActivityStatus.SUBMITTED)
+                        + ", fallidas " + dashboard.getStatusCount(activity, ActivityStatus.FAILED));
+                if (activity instanceof Survey) {
+                    System.out.print(", respuestas " + dashboard.getSurveyResponseCount(activity));
+                }
+                System.out.println();
+            }
+        }
+    }
+
     /**
      * Permite al profesor ver las respuestas a encuestas en sus Learning Paths.
      *
@@ -605,12 +977,7 @@ public class ConsoleInterface {
      */
     private void viewSurveyResponses(Teacher teacher) {
         // Obtener los Learning Paths creados por el profesor
-        List<LearningPath> teacherLPs = new ArrayList<>();
-        for (LearningPath lp : learningPaths) {
-            if (lp.getCreator().equals(teacher)) {
-                teacherLPs.add(lp);
-            }
-        }
+        List<LearningPath> teacherLPs = queries.getLearningPathsCreatedBy(teacher);
 
         if (teacherLPs.isEmpty()) {
             System.out.println("No tiene Learning Paths creados.");
@@ -644,23 +1011,22 @@ public class ConsoleInterface {
 
     /**
      * Permite al profesor ver las respuestas a exámenes de preguntas abiertas en sus Learning Paths.
+     * Primero se listan las respuestas y el texto solo se lee del almacén de respuestas cuando el
+     * profesor abre una.
      *
      * @param teacher El profesor que está revisando las respuestas a exámenes.
      */
     private void viewOpenEndedExamResponses(Teacher teacher) {
         // Obtener los Learning Paths creados por el profesor
-        List<LearningPath> teacherLPs = new ArrayList<>();
-        for (LearningPath lp : learningPaths) {
-            if (lp.getCreator().equals(teacher)) {
-                teacherLPs.add(lp);
-            }
-        }
+        List<LearningPath> teacherLPs = queries.getLearningPathsCreatedBy(teacher);
 
         if (teacherLPs.isEmpty()) {
             System.out.println("No tiene Learning Paths creados.");
             return;
         }
 
+        List<OpenEndedExam> listed = new ArrayList<>();
+        List<OpenEndedResponse> listedResponses = new ArrayList<>();
         for (LearningPath lp : teacherLPs) {
             System.out.println("\n=== Respuestas a Exámenes de Preguntas Abiertas en Learning Path: " + lp.getTitle() + " ===");
             for (Activity activity : lp.getActivities()) {
@@ -673,16 +1039,33 @@ public class ConsoleInterface {
                     }
                     System.out.println("\n  Examen: " + exam.getTitle());
                     for (OpenEndedResponse response : responses) {
-                        System.out.println("    Estudiante: " + response.getStudent().getName());
-                        Map<String, String> answers = response.getAnswers();
-                        for (Map.Entry<String, String> entry : answers.entrySet()) {
-                            System.out.println("      Pregunta: " + entry.getKey());
-                            System.out.println("      Respuesta: " + entry.getValue());
-                        }
+                        listed.add(exam);
+                        listedResponses.add(response);
+                        System.out.println("    " + listed.size() + ". Estudiante: " + response.getStudent().getName()
+                                + " (" + response.getAnswerCount() + " respuestas)");
                     }
                 }
             }
         }
+        if (listed.isEmpty()) {
+            return;
+        }
+
+        while (true) {
+            int choice = readIntegerInput("\nSeleccione una respuesta para abrirla (0 para regresar): ", 0, listed.size());
+            if (choice == 0) {
+                return;
+            }
+            OpenEndedExam exam = listed.get(choice - 1);
+            OpenEndedResponse response = listedResponses.get(choice - 1);
+            List<OpenEndedQuestion> questions = exam.getExamQuestions();
+            System.out.println("\n=== " + exam.getTitle() + " - " + response.getStudent().getName() + " ===");
+            for (int i = 0; i < response.getAnswerCount(); i++) {
+                String answer = response.getAnswer(i);
+                System.out.println("  Pregunta: " + (i < questions.size() ? questions.get(i).getQuestionText() : "#" + (i + 1)));
+                System.out.println("  Respuesta: " + (answer != null ? answer : "(no disponible)"));
+            }
+        }
     }
 
     /**
@@ -695,7 +1078,9 @@ public class ConsoleInterface {
             System.out.println("\n=== Menú de Estudiante ===");
             System.out.println("1. Ver Learning Paths disponibles");
             System.out.println("2. Ver mis Learning Paths");
-            System.out.println("3. Cerrar sesión");
+            System.out.println("3. Buscar Learning Paths");
+            System.out.println("4. Explorar el catálogo por dificultad, duración y calificación");
+            System.out.println("5. Cerrar sesión");
             System.out.print("Seleccione una opción: ");
             String choice = scanner.nextLine();
             switch (choice) {
@@ -706,6 +1091,12 @@ public class ConsoleInterface {
                     viewMyLearningPaths(student);
                     break;
                 case "3":
+                    searchAndEnroll(student);
+                    break;
+                case "4":
+                    browseCatalog(student);
+                    break;
+                case "5":
                     currentUser = null;
                     back = true;
                     break;
@@ -715,24 +1106,109 @@ public class ConsoleInterface {
         }
     }
 
+    /**
+     * Obtiene los progresos del estudiante; la primera vez se cargan del almacenamiento.
+     *
+     * @param student El estudiante.
+     * @return Sus progresos, o null si no se pudieron cargar.
+     */
+    private List<Progress> loadProgressesOf(Student student) {
+        try {
+            return loader.progressesOf(student);
+        } catch (IOException e) {
+            System.out.println("No se pudieron cargar sus progresos: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Permite al estudiante inscribirse en un Learning Path disponible.
      *
      * @param student El estudiante que se está inscribiendo.
      */
     private void enrollInLearningPath(Student student) {
-        List<LearningPath> availableLPs = new ArrayList<>(learningPaths);
-        // Excluir Learning Paths en los que ya está inscrito
-        for (Progress p : progresses) {
-            if (p.getStudent().equals(student)) {
-                availableLPs.remove(p.getLearningPath());
+        chooseAndEnroll(student, queries.getLearningPaths(), "Learning Paths Disponibles");
+    }
+
+    /**
+     * Permite al estudiante buscar Learning Paths por texto e inscribirse en uno de los resultados.
+     *
+     * @param student El estudiante que está buscando.
+     */
+    private void searchAndEnroll(Student student) {
+        System.out.print(SEARCH_PROMPT);
+        String query = scanner.nextLine();
+        chooseAndEnroll(student, runSearch(query), "Resultados de \"" + query + "\"");
+    }
+
+    /**
+     * Resuelve una búsqueda: por texto, o por el inicio del título de los Learning Paths y sus
+     * actividades si termina en '*' (de más a menos inscritos).
+     *
+     * @param query La búsqueda.
+     * @return Los Learning Paths encontrados.
+     */
+    private List<LearningPath> runSearch(String query) {
+        String trimmed = query.trim();
+        if (!trimmed.endsWith("*")) {
+            return queries.search(query, SEARCH_RESULTS);
+        }
+        String prefix = trimmed.substring(0, trimmed.length() - 1);
+        // Varias sugerencias pueden ser del mismo Learning Path (su título y los de sus actividades)
+        List<LearningPath> results = new ArrayList<>();
+        for (TitleAutocomplete.Suggestion suggestion : queries.complete(prefix, SEARCH_RESULTS * 4)) {
+            if (!results.contains(suggestion.getLearningPath())) {
+                results.add(suggestion.getLearningPath());
+                if (results.size() == SEARCH_RESULTS) {
+                    break;
+                }
             }
         }
+        return results;
+    }
+
+    /**
+     * Permite al profesor buscar Learning Paths por texto.
+     */
+    private void searchLearningPaths() {
+        System.out.print(SEARCH_PROMPT);
+        String query = scanner.nextLine();
+        List<LearningPath> results = runSearch(query);
+        if (results.isEmpty()) {
+            System.out.println("No se encontraron Learning Paths.");
+            return;
+        }
+        System.out.println("\n=== Resultados de \"" + query + "\" ===");
+        for (int i = 0; i < results.size(); i++) {
+            LearningPath lp = results.get(i);
+            System.out.println((i + 1) + ". " + lp.getTitle() + " (Creado por: " + lp.getCreator().getName() + ")");
+            System.out.println("   Descripción: " + lp.getDescription());
+        }
+    }
+
+    /**
+     * Muestra los Learning Paths en los que el estudiante aún no está inscrito y lo inscribe en el
+     * que elija.
+     *
+     * @param student    El estudiante.
+     * @param candidates Los Learning Paths a mostrar.
+     * @param heading    El título de la lista.
+     */
+    private void chooseAndEnroll(Student student, List<LearningPath> candidates, String heading) {
+        List<Progress> myProgresses = loadProgressesOf(student);
+        if (myProgresses == null) {
+            return;
+        }
+        List<LearningPath> availableLPs = new ArrayList<>(candidates);
+        // Excluir Learning Paths en los que ya está inscrito
+        for (Progress p : myProgresses) {
+            availableLPs.remove(p.getLearningPath());
+        }
         if (availableLPs.isEmpty()) {
             System.out.println("No hay Learning Paths disponibles para inscribirse.");
             return;
         }
-        System.out.println("\n=== Learning Paths Disponibles ===");
+        System.out.println("\n=== " + heading + " ===");
         for (int i = 0; i < availableLPs.size(); i++) {
             LearningPath lp = availableLPs.get(i);
             System.out.println((i + 1) + ". " + lp.getTitle() + " (Creado por: " + lp.getCreator().getName() + ")");
@@ -746,12 +1222,89 @@ public class ConsoleInterface {
         if (choice == 0) {
             return;
         }
-        LearningPath selectedLP = availableLPs.get(choice - 1);
-        Progress progress = new Progress(student, selectedLP);
-        progresses.add(progress);
+        enroll(student, availableLPs.get(choice - 1));
+    }
+
+    /**
+     * Inscribe al estudiante en un Learning Path y guarda los progresos.
+     *
+     * @param student El estudiante.
+     * @param lp      El Learning Path.
+     */
+    private void enroll(Student student, LearningPath lp) {
+        Progress progress = new Progress(student, lp);
+        loader.addProgress(progress);
         // Guardar datos
-        saveData();
-        System.out.println("Inscrito en " + selectedLP.getTitle());
+        saveData(DataSet.PROGRESSES);
+        System.out.println("Inscrito en " + lp.getTitle());
+    }
+
+    /**
+     * Permite al estudiante recorrer el catálogo filtrado por dificultad y duración, ordenado por
+     * calificación, duración o dificultad, página a página, e inscribirse en un Learning Path.
+     *
+     * @param student El estudiante.
+     */
+    private void browseCatalog(Student student) {
+        List<Progress> myProgresses = loadProgressesOf(student);
+        if (myProgresses == null) {
+            return;
+        }
+        Set<Long> enrolled = new HashSet<>();
+        for (Progress p : myProgresses) {
+            enrolled.add(p.getLearningPath().getId());
+        }
+
+        System.out.println("\n=== Explorar el Catálogo ===");
+        int maxDifficulty = readIntegerInput("Dificultad máxima (1-5): ", 1, 5);
+        int maxDuration = readIntegerInput("Duración máxima en minutos (0 para no limitarla): ", 0, Integer.MAX_VALUE);
+        System.out.println("1. Mejor calificados primero");
+        System.out.println("2. Más cortos primero");
+        System.out.println("3. Más fáciles primero");
+        int order = readIntegerInput("Seleccione el orden: ", 1, 3);
+        CatalogQuery query = new CatalogQuery().difficultyBetween(1, maxDifficulty).limit(CATALOG_PAGE_SIZE);
+        if (maxDuration > 0) {
+            query.durationBetween(0, maxDuration);
+        }
+        if (order == 2) {
+            query.orderBy(CatalogQuery.SortKey.DURATION, false);
+        } else if (order == 3) {
+            query.orderBy(CatalogQuery.SortKey.DIFFICULTY, false);
+        }
+
+        while (true) {
+            CatalogPage page = queries.queryCatalog(query);
+            List<LearningPath> results = page.getLearningPaths();
+            if (results.isEmpty()) {
+                System.out.println("No hay Learning Paths que cumplan los filtros.");
+                return;
+            }
+            for (int i = 0; i < results.size(); i++) {
+                LearningPath lp = results.get(i);
+                System.out.println((i + 1) + ". " + lp.getTitle() + " - Dificultad: " + lp.getDifficultyLevel()
+                        + ", Duración: " + lp.getDuration() + " minutos, Calificación: " + lp.getRating()
+                        + (enrolled.contains(lp.getId()) ? " (inscrito)" : ""));
+            }
+            int next = page.hasNext() ? results.size() + 1 : results.size();
+            if (page.hasNext()) {
+                System.out.println(next + ". Página siguiente");
+            }
+            int choice = readIntegerInput("Seleccione un Learning Path para inscribirse (0 para regresar): ", 0, next);
+            if (choice == 0) {
+                return;
+            }
+            if (choice > results.size()) {
+                query.after(page.getNextCursor());
+                continue;
+            }
+            LearningPath selected = results.get(choice - 1);
+            if (enrolled.contains(selected.getId())) {
+                System.out.println("Ya está inscrito en " + selected.getTitle());
+            } else {
+                enroll(student, selected);
+            }
+            return;
+        }
     }
 
     /**
@@ -760,11 +1313,9 @@ public class ConsoleInterface {
      * @param student El estudiante cuyo progreso se está visualizando.
      */
     private void viewMyLearningPaths(Student student) {
-        List<Progress> myProgresses = new ArrayList<>();
-        for (Progress p : progresses) {
-            if (p.getStudent().equals(student)) {
-                myProgresses.add(p);
-            }
+        List<Progress> myProgresses = loadProgressesOf(student);
+        if (myProgresses == null) {
+            return;
         }
         if (myProgresses.isEmpty()) {
             System.out.println("No está inscrito en ningún Learning Path.");
@@ -780,7 +1331,37 @@ public class ConsoleInterface {
             return;
         }
         Progress selectedProgress = myProgresses.get(choice - 1);
-        interactWithLearningPath(selectedProgress);
+        System.out.println("1. Realizar actividades");
+        System.out.println("2. Calificar este Learning Path");
+        int action = readIntegerInput("Seleccione una opción (0 para regresar): ", 0, 2);
+        if (action == 1) {
+            interactWithLearningPath(selectedProgress);
+        } else if (action == 2) {
+            rateLearningPath(student, selectedProgress.getLearningPath());
+        }
+    }
+
+    /**
+     * Permite al estudiante calificar un Learning Path en el que está inscrito.
+     *
+     * @param student El estudiante.
+     * @param lp      El Learning Path.
+     */
+    private void rateLearningPath(Student student, LearningPath lp) {
+        RatingAggregate ratings = lp.getRatings();
+        int previous = ratings.getStars(student.getId());
+        if (previous > 0) {
+            System.out.println("Su calificación actual: " + previous + " estrellas.");
+        }
+        int stars = readIntegerInput("Calificación (" + RatingAggregate.MIN_STARS + "-" + RatingAggregate.MAX_STARS
+                + " estrellas, 0 para cancelar): ", 0, RatingAggregate.MAX_STARS);
+        if (stars < RatingAggregate.MIN_STARS) {
+            return;
+        }
+        lp.rate(student, stars);
+        saveData(DataSet.LEARNING_PATHS);
+        System.out.println(String.format("Gracias. Media: %.2f (%d calificaciones), puntuación ajustada: %.2f",
+                ratings.getMean(), ratings.getCount(), ratings.getBayesianScore()));
     }
 
     /**
@@ -789,12 +1370,35 @@ public class ConsoleInterface {
      * @param progress El progreso del Learning Path seleccionado.
      */
     private void interactWithLearningPath(Progress progress) {
+        if (progress.isOutdated()) {
+            System.out.println("El Learning Path tiene una versión nueva (" + progress.getLearningPath().getVersion()
+                    + "); usted sigue la versión " + progress.getVersion().getNumber() + ".0.");
+            System.out.println("1. Actualizar a la versión nueva");
+            System.out.println("2. Seguir con mi versión");
+            if (readIntegerInput("Seleccione una opción: ", 1, 2) == 1) {
+                for (LearningPathVersion.Change change : progress.upgradeToCurrentVersion()) {
+                    System.out.println("   " + change);
+                }
+                saveData(DataSet.PROGRESSES);
+            }
+        }
         System.out.println("\n=== Actividades en " + progress.getLearningPath().getTitle() + " ===");
-        List<Activity> activities = progress.getLearningPath().getActivities();
+        List<Activity> activities = progress.getActivities();
+        PrerequisiteGraph prerequisites = progress.getPrerequisiteGraph();
         for (int i = 0; i < activities.size(); i++) {
             Activity activity = activities.get(i);
             ActivityStatus status = progress.getActivityStatus(activity);
-            System.out.println((i + 1) + ". " + activity.getTitle() + " - " + status + " - Tipo: " + activity.getType());
+            String locked = prerequisites.isUnlocked(progress, activity) ? "" : " (bloqueada)";
+            System.out.println((i + 1) + ". " + activity.getTitle() + " - " + status + locked + " - Tipo: " + activity.getType());
+        }
+        List<Activity> available = prerequisites.getAvailableActivities(progress);
+        if (!available.isEmpty()) {
+            StringBuilder next = new StringBuilder("Disponibles ahora:");
+            for (Activity activity : available) {
+                next.append(' ').append(activity.getTitle()).append(';');
+            }
+            next.setLength(next.length() - 1);
+            System.out.println(next);
         }
         int choice = readIntegerInput("Seleccione una actividad para realizar (0 para regresar): ", 0, activities.size());
         if (choice == 0) {
@@ -806,6 +1410,15 @@ public class ConsoleInterface {
             System.out.println("Esta actividad ya ha sido completada.");
             return;
         }
+        List<Activity> missing = prerequisites.getMissingPrerequisites(progress, selectedActivity);
+        if (!missing.isEmpty()) {
+            StringBuilder titles = new StringBuilder();
+            for (Activity activity : missing) {
+                titles.append(titles.length() == 0 ? "" : ", ").append(activity.getTitle());
+            }
+            System.out.println("Primero debe completar: " + titles);
+            return;
+        }
         switch (selectedActivity.getType()) {
             case "Survey":
                 respondToSurvey(progress, (Survey) selectedActivity);
@@ -849,7 +1462,7 @@ public class ConsoleInterface {
         progress.updateActivityStatus(survey, ActivityStatus.COMPLETED);
 
         // Guardar datos
-        saveData();
+        saveProgressChanges();
         System.out.println("Gracias por responder la encuesta.");
     }
 
@@ -873,7 +1486,7 @@ public class ConsoleInterface {
             System.out.println("Pregunta: " + question.getQuestionText());
             System.out.print("Tu respuesta: ");
             String answer = scanner.nextLine();
-            response.addAnswer(question.getQuestionText(), answer);
+            response.addAnswer(answer);
         }
 
         // Añadir la respuesta al progreso
@@ -884,7 +1497,7 @@ public class ConsoleInterface {
         progress.updateActivityStatus(exam, ActivityStatus.SUBMITTED);
 
         // Guardar datos
-        saveData();
+        saveProgressChanges();
         System.out.println("Examen entregado. Esperando revisión del profesor.");
     }
 
@@ -905,7 +1518,7 @@ public class ConsoleInterface {
                 scanner.nextLine();
                 progress.updateActivityStatus(activity, ActivityStatus.COMPLETED);
                 // Guardar datos después de completar una actividad
-                saveData();
+                saveProgressChanges();
                 System.out.println("Actividad marcada como completada.");
                 break;
             case "Assignment":
@@ -915,39 +1528,45 @@ public class ConsoleInterface {
                 scanner.nextLine();
                 progress.updateActivityStatus(activity, ActivityStatus.SUBMITTED);
                 // Guardar datos después de entregar una tarea
-                saveData();
+                saveProgressChanges();
                 System.out.println("Tarea entregada. Esperando revisión del profesor.");
                 break;
             case "Quiz":
                 Quiz quiz = (Quiz) activity;
-                int correctAnswers = 0;
+                AnswerKey key;
+                try {
+                    key = grading.getKey(quiz);
+                } catch (IllegalArgumentException e) {
+                    System.out.println("El quiz no se puede realizar: " + e.getMessage());
+                    break;
+                }
                 List<Question> questions = quiz.getQuestions();
-                for (Question q : questions) {
-                    System.out.println("\nPregunta: " + q.getQuestionText());
-                    String[] options = q.getOptions();
+                int[] answers = new int[questions.size()];
+                for (int q = 0; q < questions.size(); q++) {
+                    Question question = questions.get(q);
+                    System.out.println("\nPregunta: " + question.getQuestionText());
+                    String[] options = question.getOptions();
                     for (int i = 0; i < options.length; i++) {
                         System.out.println((i + 1) + ". " + options[i]);
                     }
-                    int answer = readIntegerInput("Seleccione una opción: ", 1, options.length) - 1;
-                    if (answer == q.getCorrectOptionIndex()) {
-                        correctAnswers++;
+                    answers[q] = readIntegerInput("Seleccione una opción: ", 1, options.length) - 1;
+                    if (key.isCorrect(q, answers[q])) {
                         System.out.println("Correcto!");
                     } else {
-                        System.out.println("Incorrecto. " + q.getExplanation());
+                        System.out.println("Incorrecto. " + question.getExplanation());
                     }
                 }
-                double score = (double) correctAnswers / questions.size() * 100;
+                // El motor aplica la puntuación y el estado al progreso y guarda el intento
+                double score = grading.record(progress, key.attempt(progress.getStudent(), answers));
                 System.out.println("\n=== Resultado del Quiz ===");
                 System.out.println("Su puntuación: " + String.format("%.2f", score) + "%");
                 if (score >= quiz.getPassingScore()) {
-                    progress.updateActivityStatus(activity, ActivityStatus.COMPLETED);
                     System.out.println("Ha aprobado el quiz.");
                 } else {
-                    progress.updateActivityStatus(activity, ActivityStatus.FAILED);
                     System.out.println("No ha alcanzado la puntuación mínima para aprobar.");
                 }
                 // Guardar datos después de completar un quiz
-                saveData();
+                saveProgressChanges();
                 break;
             default:
                 System.out.println("Tipo de actividad desconocido.");
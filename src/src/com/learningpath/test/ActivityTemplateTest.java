@@ -0,0 +1,87 @@
+package src.com.learningpath.test;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.activities.*;
+import src.com.learningpath.users.Teacher;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class ActivityTemplateTest {
+
+    private static Quiz quiz() {
+        Question q1 = new Question("What is Java?", new String[]{"Programming Language", "Coffee", "Animal"}, 0, "Java is a programming language.");
+        Question q2 = new Question("What is JDK?", new String[]{"Java Development Kit", "Just Do it Kit"}, 0, "JDK stands for Java Development Kit.");
+        return new Quiz("Java Basics Quiz", "Test your Java basics", "Assess basic knowledge", 1, 20, true, Arrays.asList(q1, q2), 70.0);
+    }
+
+    @Test
+    public void testCopySharesContent() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        LearningPath original = new LearningPath("Java Basics", "Intro", "Learn Java", 1, teacher);
+        // Contenido que no usa ningún otro test, para que la plantilla internada sea la de este quiz
+        Question question = new Question("What is a copy?", new String[]{"A duplicate", "An original"}, 0, "");
+        Quiz quiz = new Quiz("Copied Quiz", "Shared content", "Copy", 1, 10, true, Arrays.asList(quiz().getQuestions().get(0), question), 50.0);
+        Survey survey = new Survey("Opinión", "¿Qué te pareció?", "Feedback", 1, 5, false);
+        survey.addSurveyQuestion(new SurveyQuestion("¿Te gustó?"));
+        original.addActivity(quiz);
+        original.addActivity(survey);
+
+        LearningPath first = new LearningPath(original, new Teacher("t1", "pw", "T1"));
+        LearningPath second = new LearningPath(original, new Teacher("t2", "pw", "T2"));
+        Quiz firstQuiz = (Quiz) first.getActivities().get(0);
+        Quiz secondQuiz = (Quiz) second.getActivities().get(0);
+        assertNotEquals(quiz.getId(), firstQuiz.getId());
+        assertNotEquals(firstQuiz.getId(), secondQuiz.getId());
+        assertSame(firstQuiz.getQuestions(), secondQuiz.getQuestions());
+        assertSame(quiz.getQuestions().get(1), firstQuiz.getQuestions().get(1));
+        assertSame(ActivityTemplate.of(quiz), ActivityTemplate.of(firstQuiz));
+        assertSame(((Survey) first.getActivities().get(1)).getSurveyQuestions(),
+                ((Survey) second.getActivities().get(1)).getSurveyQuestions());
+    }
+
+    @Test
+    public void testEditCopiesOnWrite() {
+        Quiz original = quiz();
+        Quiz copy = (Quiz) ActivityTemplate.of(original).instantiate();
+        Quiz other = (Quiz) ActivityTemplate.of(original).instantiate();
+
+        copy.setCorrectOptionIndex(1, 1);
+        assertEquals(1, copy.getQuestions().get(1).getCorrectOptionIndex());
+        assertEquals(0, other.getQuestions().get(1).getCorrectOptionIndex());
+        assertEquals(0, original.getQuestions().get(1).getCorrectOptionIndex());
+        // La pregunta que no cambió se sigue compartiendo
+        assertSame(other.getQuestions().get(0), copy.getQuestions().get(0));
+        assertNotSame(ActivityTemplate.of(other), ActivityTemplate.of(copy));
+        assertThrows(IllegalArgumentException.class, () -> copy.setCorrectOptionIndex(1, 2));
+
+        Survey survey = new Survey("Opinión", "¿Qué te pareció?", "Feedback", 1, 5, false);
+        survey.addSurveyQuestion(new SurveyQuestion("¿Te gustó?"));
+        Survey surveyCopy = (Survey) ActivityTemplate.of(survey).instantiate();
+        assertThrows(UnsupportedOperationException.class, () -> surveyCopy.getSurveyQuestions().add(new SurveyQuestion("x")));
+        surveyCopy.addSurveyQuestion(new SurveyQuestion("¿Lo recomendarías?"));
+        assertEquals(2, surveyCopy.getSurveyQuestions().size());
+        assertEquals(1, survey.getSurveyQuestions().size());
+        assertEquals(1, ActivityTemplate.of(survey).getQuestionCount());
+    }
+
+    @Test
+    public void testEqualContentIsInterned() {
+        Quiz a = quiz();
+        Quiz b = new Quiz("Java Basics Quiz", "Test your Java basics", "Assess basic knowledge", 1, 20, true,
+                new ArrayList<>(a.getQuestions()), 70.0);
+        assertSame(ActivityTemplate.of(a), ActivityTemplate.of(b));
+        b.setCorrectOptionIndex(0, 2);
+        assertNotSame(ActivityTemplate.of(a), ActivityTemplate.of(b));
+        // La pregunta corregida conserva su identificador
+        assertEquals(a.getQuestions().get(0).getId(), b.getQuestions().get(0).getId());
+        assertEquals(ActivityTemplate.Kind.QUIZ, ActivityTemplate.of(b).getKind());
+
+        // Las preguntas creadas por separado son preguntas distintas aunque tengan el mismo texto
+        Quiz c = quiz();
+        assertNotEquals(a.getQuestions().get(0), c.getQuestions().get(0));
+        assertNotSame(ActivityTemplate.of(a), ActivityTemplate.of(c));
+    }
+}
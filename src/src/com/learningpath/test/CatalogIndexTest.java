@@ -0,0 +1,85 @@
+package src.com.learningpath.test;
+
+import src.com.learningpath.CatalogIndex;
+import src.com.learningpath.CatalogPage;
+import src.com.learningpath.CatalogQuery;
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.activities.Assignment;
+import src.com.learningpath.activities.ResourceReview;
+import src.com.learningpath.users.Teacher;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class CatalogIndexTest {
+
+    @Test
+    public void testPagesMatchFilteredSort() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        CatalogIndex catalog = new CatalogIndex();
+        List<LearningPath> paths = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            LearningPath lp = new LearningPath("Path " + i, "Description", "Objectives", 1 + random.nextInt(5), teacher);
+            lp.addActivity(new ResourceReview("Review " + i, "Read", "Learn", 1, 10 + random.nextInt(300), true, "http://example.com"));
+            lp.updateRating(random.nextInt(11) / 2.0);
+            catalog.add(lp);
+            paths.add(lp);
+        }
+
+        // Dificultad <= 2, duración < 120, mejor calificados primero (empates por identificador)
+        List<LearningPath> expected = paths.stream()
+                .filter(lp -> lp.getDifficultyLevel() <= 2 && lp.getDuration() < 120)
+                .sorted(Comparator.comparingDouble(LearningPath::getRating).thenComparingLong(LearningPath::getId).reversed())
+                .collect(Collectors.toList());
+        assertFalse(expected.isEmpty());
+
+        CatalogQuery query = new CatalogQuery().difficultyBetween(1, 2).durationLessThan(120).limit(7);
+        List<LearningPath> actual = new ArrayList<>();
+        CatalogPage page;
+        do {
+            page = catalog.query(query);
+            assertTrue(page.getLearningPaths().size() <= 7);
+            actual.addAll(page.getLearningPaths());
+            query.after(page.getNextCursor());
+        } while (page.hasNext());
+        assertEquals(expected, actual);
+
+        // Orden ascendente por duración con calificación mínima
+        List<LearningPath> shortest = paths.stream()
+                .filter(lp -> lp.getRating() >= 4 && lp.getDuration() >= 60 && lp.getDuration() <= 200)
+                .sorted(Comparator.comparingInt(LearningPath::getDuration).thenComparingLong(LearningPath::getId))
+                .limit(5)
+                .collect(Collectors.toList());
+        CatalogQuery byDuration = new CatalogQuery().durationBetween(60, 200).minRating(4)
+                .orderBy(CatalogQuery.SortKey.DURATION, false).limit(5);
+        assertEquals(shortest, catalog.query(byDuration).getLearningPaths());
+    }
+
+    @Test
+    public void testIndexFollowsLearningPathChanges() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        CatalogIndex catalog = new CatalogIndex();
+        LearningPath.addListener(catalog);
+        try {
+            LearningPath lp = new LearningPath("Java Basics", "Introduction to Java", "Learn Java", 1, teacher);
+            lp.addActivity(new Assignment("Hello World", "Write a program", "Syntax", 1, 60, true, "Submit"));
+            catalog.add(lp);
+            CatalogQuery shortPaths = new CatalogQuery().durationLessThan(120);
+            assertEquals(List.of(lp), catalog.query(shortPaths).getLearningPaths());
+
+            lp.addActivity(new Assignment("Loops", "Write loops", "Loops", 1, 90, true, "Submit"));
+            assertTrue(catalog.query(shortPaths).getLearningPaths().isEmpty());
+
+            lp.updateRating(4.5);
+            assertEquals(List.of(lp), catalog.query(new CatalogQuery().minRating(4)).getLearningPaths());
+        } finally {
+            LearningPath.removeListener(catalog);
+        }
+    }
+}
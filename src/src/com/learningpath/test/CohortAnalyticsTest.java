@@ -0,0 +1,56 @@
+package src.com.learningpath.test;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.Progress;
+import src.com.learningpath.activities.*;
+import src.com.learningpath.analytics.CohortAnalytics;
+import src.com.learningpath.analytics.CohortStatistics;
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.Teacher;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class CohortAnalyticsTest {
+
+    @Test
+    public void testParallelStatisticsMatchSequentialCounts() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        LearningPath lp = new LearningPath("Data Structures", "Learn about data structures", "Understand lists", 2, teacher);
+        Activity review = new ResourceReview("Lists", "Learn about lists", "Understand lists", 2, 45, true, "http://example.com/lists");
+        Quiz quiz = new Quiz("Lists Quiz", "Test your knowledge on lists", "Assess understanding", 2, 30, true, null, 70);
+        lp.addActivity(review);
+        lp.addActivity(quiz);
+
+        // Suficientes progresos para que el cálculo se divida en varias tareas
+        int students = 50_000;
+        List<Progress> progresses = new ArrayList<>(students);
+        for (int i = 0; i < students; i++) {
+            Progress progress = new Progress(new Student("s" + i, "pass", "Student " + i), lp);
+            if (i % 2 == 0) {
+                progress.updateActivityStatus(review, ActivityStatus.COMPLETED);
+                if (i % 4 == 0) {
+                    progress.recordQuizScore(quiz, 80);
+                    progress.updateActivityStatus(quiz, ActivityStatus.COMPLETED);
+                } else {
+                    progress.recordQuizScore(quiz, 40);
+                    progress.updateActivityStatus(quiz, ActivityStatus.FAILED);
+                }
+            }
+            progresses.add(progress);
+        }
+
+        CohortStatistics stats = new CohortAnalytics(new ForkJoinPool(4)).analyze(lp, progresses);
+        assertEquals(students, stats.getStudentCount());
+        assertEquals(25.0, stats.getCompletionRate(), 1e-9);
+        assertEquals(37.5, stats.getAverageCompletion(), 1e-9);
+        assertEquals(50.0, stats.getFailureRate(1), 1e-9);
+        assertEquals(60.0, stats.getAverageScore(1), 1e-9);
+        assertEquals(students / 2, stats.getDropOffCount(0));
+        assertEquals(students / 4, stats.getDropOffCount(1));
+        assertEquals(0, stats.getMainDropOff());
+    }
+}
@@ -0,0 +1,124 @@
+package src.com.learningpath.test;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.Progress;
+import src.com.learningpath.activities.*;
+import src.com.learningpath.analytics.DashboardService;
+import src.com.learningpath.analytics.PathDashboard;
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.Teacher;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DashboardServiceTest {
+
+    @Test
+    public void testIncrementalViewsMatchRebuild() throws Exception {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        LearningPath lp = new LearningPath("Algorithms", "Learn about algorithms", "Understand sorting", 2, teacher);
+        Activity review = new ResourceReview("Sorting", "Read about sorting", "Understand sorting", 2, 30, true, "http://example.com/sort");
+        Survey survey = new Survey("Feedback", "Course feedback", "Improve", 1, 5, false);
+        OpenEndedExam exam = new OpenEndedExam("Sorting Exam", "Explain sorting", "Assess understanding", 2, 30, true, null, new ArrayList<>());
+        lp.addActivity(review);
+        lp.addActivity(survey);
+        lp.addActivity(exam);
+
+        DashboardService dashboards = new DashboardService();
+        Progress.addListener(dashboards);
+        List<Progress> progresses = new ArrayList<>();
+        try {
+            for (int i = 0; i < 4; i++) {
+                Student student = new Student("s" + i, "pass", "Student " + i);
+                Progress progress = new Progress(student, lp);
+                dashboards.enrolled(progress);
+                progresses.add(progress);
+                if (i < 3) {
+                    progress.updateActivityStatus(review, ActivityStatus.COMPLETED);
+                }
+                if (i < 2) {
+                    progress.addSurveyResponse(survey, new SurveyResponse(student));
+                    progress.updateActivityStatus(exam, ActivityStatus.SUBMITTED);
+                }
+            }
+        } finally {
+            Progress.removeListener(dashboards);
+        }
+
+        PathDashboard dashboard = dashboards.getDashboard(lp);
+        assertEquals(4, dashboard.getEnrolledCount());
+        assertEquals(1, dashboard.getCompletionCount(0));
+        assertEquals(1, dashboard.getCompletionCount(5));
+        assertEquals(2, dashboard.getCompletionCount(10));
+        assertEquals(3, dashboard.getStatusCount(review, ActivityStatus.COMPLETED));
+        assertEquals(1, dashboard.getStatusCount(review, ActivityStatus.PENDING));
+        assertEquals(2, dashboard.getSurveyResponseCount(survey));
+        assertEquals(2, dashboard.getPendingExamReviews(lp));
+
+        DashboardService rebuilt = new DashboardService();
+        rebuilt.rebuild(progresses);
+        assertDashboardsEqual(lp, dashboard, rebuilt.getDashboard(lp));
+
+        // Las vistas guardadas se leen igual
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        dashboards.writeTo(out);
+        DashboardService restored = new DashboardService();
+        restored.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(4, restored.getEnrollmentCount());
+        assertDashboardsEqual(lp, dashboard, restored.getDashboard(lp));
+    }
+
+    @Test
+    public void testVersionUpgradeUpdatesStatusCounts() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        LearningPath lp = new LearningPath("Algorithms", "Learn about algorithms", "Understand sorting", 2, teacher);
+        Activity review = new ResourceReview("Sorting", "Read about sorting", "Understand sorting", 2, 30, true, "http://example.com/sort");
+        Activity old = new ResourceReview("Bubble sort", "Read about bubble sort", "Understand sorting", 1, 10, true, "http://example.com/bubble");
+        lp.addActivity(review);
+        lp.addActivity(old);
+
+        DashboardService dashboards = new DashboardService();
+        Progress.addListener(dashboards);
+        List<Progress> progresses = new ArrayList<>();
+        Activity added = new ResourceReview("Quicksort", "Read about quicksort", "Understand sorting", 2, 20, true, "http://example.com/quick");
+        try {
+            Progress progress = new Progress(new Student("s0", "pass", "Student 0"), lp);
+            dashboards.enrolled(progress);
+            progresses.add(progress);
+            progress.updateActivityStatus(old, ActivityStatus.COMPLETED);
+
+            lp.removeActivity(old);
+            lp.addActivity(added);
+            progress.upgradeToCurrentVersion();
+            progress.updateActivityStatus(added, ActivityStatus.COMPLETED);
+        } finally {
+            Progress.removeListener(dashboards);
+        }
+
+        PathDashboard dashboard = dashboards.getDashboard(lp);
+        assertEquals(0, dashboard.getStatusCount(added, ActivityStatus.PENDING));
+        assertEquals(1, dashboard.getStatusCount(added, ActivityStatus.COMPLETED));
+        assertEquals(0, dashboard.getStatusCount(old, ActivityStatus.COMPLETED));
+        DashboardService rebuilt = new DashboardService();
+        rebuilt.rebuild(progresses);
+        assertDashboardsEqual(lp, dashboard, rebuilt.getDashboard(lp));
+        assertEquals(0, rebuilt.getDashboard(lp).getStatusCount(old, ActivityStatus.COMPLETED));
+    }
+
+    private static void assertDashboardsEqual(LearningPath lp, PathDashboard expected, PathDashboard actual) {
+        assertEquals(expected.getEnrolledCount(), actual.getEnrolledCount());
+        for (int b = 0; b < PathDashboard.HISTOGRAM_BUCKETS; b++) {
+            assertEquals(expected.getCompletionCount(b), actual.getCompletionCount(b), "tramo " + b);
+        }
+        for (Activity activity : lp.getActivities()) {
+            for (ActivityStatus status : ActivityStatus.values()) {
+                assertEquals(expected.getStatusCount(activity, status), actual.getStatusCount(activity, status));
+            }
+            assertEquals(expected.getSurveyResponseCount(activity), actual.getSurveyResponseCount(activity));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package src.com.learningpath.test;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.Progress;
+import src.com.learningpath.activities.ActivityStatus;
+import src.com.learningpath.activities.Question;
+import src.com.learningpath.activities.Quiz;
+import src.com.learningpath.grading.AnswerKey;
+import src.com.learningpath.grading.GradingEngine;
+import src.com.learningpath.grading.GradingReport;
+import src.com.learningpath.grading.QuizAttempt;
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.Teacher;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class GradingEngineTest {
+
+    private static Quiz quiz(int questions, int options, Random random) {
+        List<Question> list = new ArrayList<>();
+        for (int i = 0; i < questions; i++) {
+            String[] texts = new String[options];
+            for (int o = 0; o < options; o++) {
+                texts[o] = "Opción " + o;
+            }
+            list.add(new Question("Pregunta " + i, texts, random.nextInt(options), "Explicación"));
+        }
+        return new Quiz("Quiz", "Desc", "Obj", 1, 10, true, list, 60.0);
+    }
+
+    @Test
+    public void testBatchMatchesQuestionByQuestionGrading() {
+        Random random = new Random(3);
+        GradingEngine engine = new GradingEngine();
+        // 4 opciones (carriles de 4 bits) y 20 opciones (carriles de 8 bits)
+        for (int options : new int[]{4, 20}) {
+            Quiz quiz = quiz(37, options, random);
+            AnswerKey key = engine.getKey(quiz);
+            assertEquals(options < 16 ? 4 : 8, key.getLaneBits());
+            List<QuizAttempt> attempts = new ArrayList<>();
+            List<int[]> raw = new ArrayList<>();
+            for (int a = 0; a < 10000; a++) {
+                int[] answers = new int[37];
+                for (int q = 0; q < answers.length; q++) {
+                    answers[q] = random.nextInt(10) == 0 ? -1 : random.nextInt(options);
+                }
+                raw.add(answers);
+                attempts.add(key.attempt(null, answers));
+            }
+
+            GradingReport report = engine.grade(key, attempts);
+            long[] itemCorrect = new long[37];
+            for (int a = 0; a < attempts.size(); a++) {
+                int expected = 0;
+                for (int q = 0; q < 37; q++) {
+                    if (raw.get(a)[q] == quiz.getQuestions().get(q).getCorrectOptionIndex()) {
+                        expected++;
+                        itemCorrect[q]++;
+                    }
+                }
+                assertEquals(expected, report.getCorrectAnswers(a));
+                assertEquals(expected, key.countCorrect(attempts.get(a)));
+                assertArrayEquals(raw.get(a), attempts.get(a).getAnswers());
+            }
+            for (int q = 0; q < 37; q++) {
+                assertEquals((double) itemCorrect[q] / attempts.size(), report.getDifficulty(q), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testRegradeAfterKeyFix() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        Quiz quiz = quiz(5, 4, new Random(1));
+        LearningPath lp = new LearningPath("Java Basics", "Intro", "Learn Java", 2, teacher);
+        lp.addActivity(quiz);
+        GradingEngine engine = new GradingEngine();
+        AnswerKey key = engine.getKey(quiz);
+
+        // Los buenos estudiantes responden 2 en la última pregunta, pero la clave dice otra cosa
+        int right = 2;
+        int wrong = (right + 1) % 4;
+        quiz.setCorrectOptionIndex(4, wrong);
+        key = engine.getKey(quiz);
+        List<Progress> progresses = new ArrayList<>();
+        for (int s = 0; s < 40; s++) {
+            Progress progress = new Progress(new Student("s" + s, "pw", "S" + s), lp);
+            boolean good = s % 2 == 0;
+            int[] answers = new int[5];
+            for (int q = 0; q < 4; q++) {
+                int correct = quiz.getQuestions().get(q).getCorrectOptionIndex();
+                answers[q] = good ? correct : (correct + 1) % 4;
+            }
+            answers[4] = good ? right : wrong;
+            engine.record(progress, key.attempt(progress.getStudent(), answers));
+            progresses.add(progress);
+        }
+        assertEquals(80.0, progresses.get(0).getQuizScore(quiz).doubleValue(), 1e-9);
+        assertEquals(20.0, progresses.get(1).getQuizScore(quiz).doubleValue(), 1e-9);
+        // La pregunta mal corregida la aciertan justo los peores estudiantes
+        assertTrue(engine.getReport(quiz).getDiscrimination(4) < -0.9);
+        assertTrue(engine.getReport(quiz).getDiscrimination(0) > 0.9);
+
+        // Tras reiniciar, el historial se reconstruye con los intentos guardados en los progresos
+        assertEquals(1, progresses.get(0).getQuizAttempts(quiz).size());
+        GradingEngine restarted = new GradingEngine();
+        restarted.restore(progresses);
+        quiz.setCorrectOptionIndex(4, right);
+        GradingReport report = restarted.regrade(quiz);
+        assertEquals(40, report.getAttemptCount());
+        assertEquals(100.0, progresses.get(0).getQuizScore(quiz).doubleValue(), 1e-9);
+        assertEquals(ActivityStatus.COMPLETED, progresses.get(0).getActivityStatus(quiz));
+        assertEquals(0.0, progresses.get(1).getQuizScore(quiz).doubleValue(), 1e-9);
+        assertEquals(ActivityStatus.FAILED, progresses.get(1).getActivityStatus(quiz));
+        assertEquals(50.0, report.getAverageScore(), 1e-9);
+        assertTrue(report.getDiscrimination(4) > 0.9);
+    }
+
+    @Test
+    public void testRegradeQuizReplacedByPrerequisiteCopy() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        Quiz quiz = quiz(3, 4, new Random(2));
+        Quiz intro = quiz(1, 4, new Random(4));
+        LearningPath lp = new LearningPath("Java Basics", "Intro", "Learn Java", 2, teacher);
+        lp.addActivity(intro);
+        lp.addActivity(quiz);
+        Progress progress = new Progress(new Student("ana", "pw", "Ana"), lp);
+
+        // El quiz actual pasa a ser una copia con el mismo identificador
+        lp.addPrerequisite(quiz, intro);
+        Quiz current = (Quiz) lp.getActivities().get(1);
+        assertNotSame(quiz, current);
+        assertEquals(quiz, current);
+
+        GradingEngine engine = new GradingEngine();
+        int[] answers = new int[3];
+        for (int q = 0; q < 3; q++) {
+            answers[q] = quiz.getQuestions().get(q).getCorrectOptionIndex();
+        }
+        int right = answers[2];
+        answers[2] = (right + 1) % 4;
+        engine.record(progress, engine.getKey(quiz).attempt(progress.getStudent(), answers));
+
+        GradingEngine restarted = new GradingEngine();
+        restarted.restore(List.of(progress));
+        assertEquals(1, restarted.getReport(current).getAttemptCount());
+        lp.setCorrectOptionIndex(current, 2, answers[2]);
+        // La corrección llega también a la copia de la versión anterior
+        assertEquals(answers[2], quiz.getQuestions().get(2).getCorrectOptionIndex());
+        GradingReport report = restarted.regrade(current);
+        assertEquals(1, report.getAttemptCount());
+        assertEquals(100.0, progress.getQuizScore(current).doubleValue(), 1e-9);
+        assertEquals(ActivityStatus.COMPLETED, progress.getActivityStatus(quiz));
+        assertEquals(100.0, engine.getReport(quiz).getAverageScore(), 1e-9);
+    }
+}
@@ -1,13 +1,19 @@
 package src.com.learningpath.test;
 
 import src.com.learningpath.LearningPath;
+import src.com.learningpath.PrerequisiteGraph;
+import src.com.learningpath.Progress;
 import src.com.learningpath.activities.Assignment;
 import src.com.learningpath.activities.ResourceReview;
 import src.com.learningpath.activities.Activity;
+import src.com.learningpath.activities.ActivityStatus;
+import src.com.learningpath.users.Student;
 import src.com.learningpath.users.Teacher;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
+
 public class LearningPathTest {
 
     @Test
@@ -38,4 +44,43 @@ public class LearningPathTest {
         assertNotNull(lp.getCreationDate());
         assertEquals("1.0", lp.getVersion());
     }
+
+    @Test
+    public void testPrerequisitesUnlockActivities() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        LearningPath lp = new LearningPath("Java Basics", "Introduction to Java", "Learn the basics of Java", 1, teacher);
+        Activity variables = new ResourceReview("Variables in Java", "Learn about variables", "Understand variables", 1, 30, true, "http://example.com/variables");
+        Activity loops = new ResourceReview("Loops in Java", "Learn about loops", "Understand loops", 1, 30, true, "http://example.com/loops");
+        Activity program = new Assignment("Hello World Program", "Write a Hello World program", "Get familiar with syntax", 1, 60, true, "Submit the .java file");
+        lp.addActivity(program);
+        lp.addActivity(loops);
+        lp.addActivity(variables);
+        lp.addPrerequisite(program, loops);
+        lp.addPrerequisite(loops, variables);
+
+        // Los ciclos se rechazan
+        assertThrows(IllegalArgumentException.class, () -> lp.addPrerequisite(variables, program));
+        assertThrows(IllegalArgumentException.class, () -> lp.addPrerequisite(variables, variables));
+
+        PrerequisiteGraph graph = lp.getPrerequisiteGraph();
+        assertSame(graph, lp.getPrerequisiteGraph());
+        assertEquals(List.of(variables, loops, program), graph.getTopologicalOrder());
+        assertTrue(graph.requires(program, variables));
+
+        Progress progress = new Progress(new Student("sstudent", "password456", "Sarah Student"), lp);
+        assertEquals(List.of(variables), graph.getAvailableActivities(progress));
+        assertFalse(graph.isUnlocked(progress, program));
+        assertEquals(List.of(loops, variables), graph.getMissingPrerequisites(progress, program));
+
+        progress.updateActivityStatus(variables, ActivityStatus.COMPLETED);
+        assertEquals(List.of(loops), graph.getAvailableActivities(progress));
+        progress.updateActivityStatus(loops, ActivityStatus.SUBMITTED);
+        assertEquals(List.of(program), graph.getAvailableActivities(progress));
+
+        // Al eliminar una actividad deja de ser prerrequisito y el grafo se reconstruye
+        lp.removeActivity(loops);
+        assertNotSame(graph, lp.getPrerequisiteGraph());
+        progress.updateActivityStatus(variables, ActivityStatus.PENDING);
+        assertTrue(lp.getPrerequisiteGraph().isUnlocked(progress, program));
+    }
 }
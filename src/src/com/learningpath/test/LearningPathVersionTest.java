@@ -0,0 +1,115 @@
+package src.com.learningpath.test;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.LearningPathVersion;
+import src.com.learningpath.Progress;
+import src.com.learningpath.activities.*;
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.Teacher;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class LearningPathVersionTest {
+
+    private static ResourceReview review(String title) {
+        return new ResourceReview(title, "Lectura", "Leer", 1, 10, true, "https://example.com/" + title);
+    }
+
+    @Test
+    public void testEachEditCreatesVersion() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        LearningPath lp = new LearningPath("Java Basics", "Intro", "Learn Java", 1, teacher);
+        ResourceReview intro = review("Intro");
+        ResourceReview loops = review("Loops");
+        ResourceReview classes = review("Classes");
+        lp.addActivity(intro);
+        lp.addActivity(loops);
+        LearningPathVersion v3 = lp.getCurrentVersion();
+        lp.addActivity(classes);
+        lp.removeActivity(intro);
+
+        assertEquals("5.0", lp.getVersion());
+        assertEquals(5, lp.getVersions().size());
+        // Las versiones anteriores no cambian
+        assertEquals(Arrays.asList(intro, loops), v3.getActivities());
+        assertEquals(Arrays.asList(loops, classes), lp.getCurrentVersion().getActivities());
+        assertSame(v3, lp.findVersion(3));
+        assertEquals(Arrays.asList(loops, classes, intro), lp.getCurrentVersion().getAllActivities());
+
+        List<LearningPathVersion.Change> diff = v3.diff(lp.getCurrentVersion());
+        assertEquals(2, diff.size());
+        assertEquals(LearningPathVersion.Change.Kind.REMOVED, diff.get(0).getKind());
+        assertSame(intro, diff.get(0).getActivity());
+        assertEquals(LearningPathVersion.Change.Kind.ADDED, diff.get(1).getKind());
+        assertSame(classes, diff.get(1).getActivity());
+        assertEquals(1, diff.get(1).getPosition());
+        assertTrue(lp.getCurrentVersion().diff(lp.getCurrentVersion()).isEmpty());
+    }
+
+    @Test
+    public void testProgressStaysOnPinnedVersionUntilUpgrade() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        Student student = new Student("ana", "pw1", "Ana");
+        LearningPath lp = new LearningPath("Java Basics", "Intro", "Learn Java", 1, teacher);
+        ResourceReview intro = review("Intro");
+        ResourceReview loops = review("Loops");
+        lp.addActivity(intro);
+        lp.addActivity(loops);
+        Progress progress = new Progress(student, lp);
+        progress.updateActivityStatus(intro, ActivityStatus.COMPLETED);
+
+        ResourceReview classes = review("Classes");
+        lp.addActivity(classes);
+        lp.removeActivity(loops);
+        assertTrue(progress.isOutdated());
+        assertEquals(Arrays.asList(intro, loops), progress.getActivities());
+        assertEquals(ActivityStatus.PENDING, progress.getActivityStatus(loops));
+        assertNull(progress.getActivityStatus(classes));
+        assertEquals(50.0, progress.calculateCompletionPercentage(), 0.001);
+
+        List<LearningPathVersion.Change> changes = progress.upgradeToCurrentVersion();
+        assertEquals(2, changes.size());
+        assertFalse(progress.isOutdated());
+        assertEquals(Arrays.asList(intro, classes), progress.getActivities());
+        assertEquals(ActivityStatus.COMPLETED, progress.getActivityStatus(intro));
+        assertEquals(ActivityStatus.PENDING, progress.getActivityStatus(classes));
+        assertNull(progress.getActivityStatus(loops));
+        assertEquals(50.0, progress.calculateCompletionPercentage(), 0.001);
+    }
+
+    @Test
+    public void testPrerequisiteChangesCopyActivities() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        Student student = new Student("ana", "pw1", "Ana");
+        LearningPath lp = new LearningPath("Java Basics", "Intro", "Learn Java", 1, teacher);
+        ResourceReview intro = review("Intro");
+        ResourceReview loops = review("Loops");
+        lp.addActivity(intro);
+        lp.addActivity(loops);
+        LearningPathVersion v3 = lp.getCurrentVersion();
+        lp.addPrerequisite(loops, intro);
+        LearningPathVersion v4 = lp.getCurrentVersion();
+        Progress progress = new Progress(student, lp);
+        progress.updateActivityStatus(loops, ActivityStatus.COMPLETED);
+
+        // La versión nueva tiene una copia con el prerrequisito; la anterior no cambia
+        Activity loopsCopy = v4.getActivities().get(1);
+        assertNotSame(loops, loopsCopy);
+        assertEquals(loops, loopsCopy);
+        assertTrue(v3.getActivities().get(1).getSuggestedPrerequisites().isEmpty());
+        assertEquals(List.of(intro), loopsCopy.getSuggestedPrerequisites());
+        assertTrue(v3.diff(v4).isEmpty());
+
+        lp.removeActivity(intro);
+        assertEquals(List.of(intro), loopsCopy.getSuggestedPrerequisites());
+        assertTrue(lp.getActivities().get(0).getSuggestedPrerequisites().isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> lp.getActivities().add(review("Classes")));
+
+        // El estado de la actividad se conserva en sus copias
+        progress.upgradeToCurrentVersion();
+        assertEquals(ActivityStatus.COMPLETED, progress.getActivityStatus(lp.getActivities().get(0)));
+    }
+}
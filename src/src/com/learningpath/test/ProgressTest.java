@@ -8,6 +8,9 @@ import src.com.learningpath.users.Teacher;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ProgressTest {
 
     @Test
@@ -62,4 +65,88 @@ public class ProgressTest {
         // Verificamos que el estado se haya actualizado
         assertEquals(ActivityStatus.COMPLETED, progress.getActivityStatuses().get(activity));
     }
+
+    @Test
+    public void testCountersFollowStatusChanges() {
+        Progress.setInvariantChecks(true);
+        try {
+            Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+            Student student = new Student("sstudent", "password456", "Sarah Student");
+            LearningPath empty = new LearningPath("Empty", "No activities", "None", 1, teacher);
+            assertEquals(0.0, new Progress(student, empty).calculateCompletionPercentage());
+
+            LearningPath lp = new LearningPath("Graphs", "Learn about graphs", "Understand BFS", 2, teacher);
+            Activity review = new ResourceReview("BFS", "Read about BFS", "Understand BFS", 2, 30, false, "http://example.com/bfs");
+            Activity quiz = new Quiz("BFS Quiz", "Test BFS", "Assess understanding", 2, 20, false, null, 70);
+            lp.addActivity(review);
+            lp.addActivity(quiz);
+
+            Progress progress = new Progress(student, lp);
+            assertEquals(2, progress.getPendingCount());
+
+            // Sin actividades obligatorias se tienen en cuenta todas
+            progress.updateActivityStatus(review, ActivityStatus.COMPLETED);
+            progress.updateActivityStatus(quiz, ActivityStatus.FAILED);
+            assertEquals(50.0, progress.calculateCompletionPercentage());
+            assertEquals(0, progress.getPendingCount());
+            assertEquals(1, progress.getFailedCount());
+
+            progress.updateActivityStatus(quiz, ActivityStatus.PENDING);
+            assertEquals(1, progress.getPendingCount());
+            assertEquals(0, progress.getFailedCount());
+            assertThrows(UnsupportedOperationException.class,
+                    () -> progress.getActivityStatuses().put(quiz, ActivityStatus.COMPLETED));
+        } finally {
+            Progress.setInvariantChecks(false);
+        }
+    }
+
+    @Test
+    public void testStatusViewFollowsActivityOrder() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        Student student = new Student("sstudent", "password456", "Sarah Student");
+        LearningPath lp = new LearningPath("Trees", "Learn about trees", "Understand BST", 2, teacher);
+        Activity first = new ResourceReview("BST", "Read about BST", "Understand BST", 2, 30, true, "http://example.com/bst");
+        Survey survey = new Survey("Feedback", "Course feedback", "Improve", 1, 5, false);
+        lp.addActivity(first);
+        lp.addActivity(survey);
+
+        Progress progress = new Progress(student, lp);
+        progress.updateActivityStatus(survey, ActivityStatus.SUBMITTED);
+        assertEquals(List.of(first, survey), new ArrayList<>(progress.getActivityStatuses().keySet()));
+        assertEquals(ActivityStatus.SUBMITTED, progress.getActivityStatuses().get(survey));
+        assertTrue(progress.getSurveyResponses().isEmpty());
+
+        // Una actividad añadida después de inscribirse no tiene estado hasta que se actualiza
+        Activity later = new Assignment("Balance", "Balance a tree", "Understand AVL", 3, 60, true, "Submit code");
+        lp.addActivity(later);
+        assertNull(progress.getActivityStatus(later));
+        assertEquals(2, progress.getActivityStatuses().size());
+        progress.updateActivityStatus(later, ActivityStatus.COMPLETED);
+        assertEquals(50.0, progress.calculateCompletionPercentage());
+
+        progress.addSurveyResponse(survey, new SurveyResponse(student));
+        assertSame(progress.getSurveyResponse(survey), progress.getSurveyResponses().get(survey));
+    }
+
+    @Test
+    public void testSameTitleActivitiesInDifferentPathsAreDistinct() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        Student student = new Student("sstudent", "password456", "Sarah Student");
+        LearningPath first = new LearningPath("Java", "Intro", "Learn Java", 1, teacher);
+        LearningPath second = new LearningPath("Python", "Intro", "Learn Python", 1, teacher);
+        Activity intro1 = new ResourceReview("Introducción", "Lectura inicial", "Empezar", 1, 10, true, "http://example.com/1");
+        Activity intro2 = new ResourceReview("Introducción", "Lectura inicial", "Empezar", 1, 10, true, "http://example.com/2");
+        first.addActivity(intro1);
+        second.addActivity(intro2);
+        // Mismo título y descripción, pero son actividades distintas
+        assertNotEquals(intro1, intro2);
+        assertNotEquals(intro1.getId(), intro2.getId());
+
+        Progress progress = new Progress(student, first);
+        progress.updateActivityStatus(intro1, ActivityStatus.COMPLETED);
+        assertNull(progress.getActivityStatus(intro2));
+        assertEquals(1, progress.getActivityStatuses().size());
+        assertFalse(progress.getActivityStatuses().containsKey(intro2));
+    }
 }
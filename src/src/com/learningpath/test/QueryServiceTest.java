@@ -0,0 +1,39 @@
+package src.com.learningpath.test;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.Progress;
+import src.com.learningpath.QueryService;
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.Teacher;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+public class QueryServiceTest {
+
+    @Test
+    public void testIndexesFollowCreationCopyAndEnrollment() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        Teacher other = new Teacher("asmith", "password321", "Alice Smith");
+        Student student = new Student("stud456", "pass123", "Student Mary");
+        LearningPath lp = new LearningPath("Java Basics", "Intro", "Learn Java", 1, teacher);
+
+        QueryService queries = new QueryService();
+        queries.indexLearningPaths(List.of(lp));
+        assertEquals(List.of(lp), queries.getLearningPathsCreatedBy(teacher));
+        assertTrue(queries.getLearningPathsCreatedBy(other).isEmpty());
+        assertEquals(List.of(lp), queries.getLearningPathsNotCreatedBy(other));
+
+        LearningPath copy = new LearningPath(lp, other);
+        queries.addLearningPath(copy);
+        assertEquals(List.of(copy), queries.getLearningPathsCreatedBy(other));
+        assertEquals(List.of(lp, copy), queries.getLearningPaths());
+
+        Progress progress = new Progress(student, copy);
+        queries.addProgress(progress);
+        assertEquals(List.of(progress), queries.getEnrollments(copy));
+        assertTrue(queries.getEnrollments(lp).isEmpty());
+        assertEquals(List.of(progress), queries.getProgressesOf(student));
+    }
+}
@@ -0,0 +1,92 @@
+package src.com.learningpath.test;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.RatingAggregate;
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.Teacher;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class RatingAggregateTest {
+
+    @Test
+    public void testStatisticsFollowReratings() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        LearningPath lp = new LearningPath("Java Basics", "Intro", "Learn Java", 2, teacher);
+        Student ana = new Student("ana", "pw1", "Ana");
+        Student luis = new Student("luis", "pw2", "Luis");
+
+        lp.rate(ana, 5);
+        lp.rate(luis, 3);
+        assertEquals(4.0, lp.getRating(), 0.0001);
+        // Una nueva calificación del mismo estudiante sustituye a la anterior
+        lp.rate(luis, 4);
+        RatingAggregate ratings = lp.getRatings();
+        assertEquals(2, ratings.getCount());
+        assertEquals(4.5, ratings.getMean(), 0.0001);
+        assertEquals(0.25, ratings.getVariance(), 0.0001);
+        assertArrayEquals(new long[]{0, 0, 0, 1, 1}, ratings.getHistogram());
+        // Con pocas calificaciones la puntuación bayesiana se acerca a la media a priori
+        assertEquals((5 * 3.0 + 9) / 7, ratings.getBayesianScore(), 0.0001);
+        assertEquals(4.5, lp.getRating(), 0.0001);
+
+        assertThrows(IllegalArgumentException.class, () -> lp.rate(ana, 6));
+        assertEquals(5, ratings.getStars(ana.getId()));
+
+        // Una copia conserva las calificaciones en las que se basa su media
+        LearningPath copy = new LearningPath(lp, new Teacher("t2", "pw", "T2"));
+        assertEquals(2, copy.getRatings().getCount());
+        copy.rate(new Student("eva", "pw3", "Eva"), 3);
+        assertEquals(4.0, copy.getRating(), 0.0001);
+        assertEquals(2, ratings.getCount());
+    }
+
+    @Test
+    public void testConcurrentRatersAreAllCounted() throws Exception {
+        RatingAggregate ratings = new RatingAggregate();
+        int threads = 8;
+        int perThread = 5000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long first = (long) t * perThread;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    long student = first + i;
+                    ratings.submit(student, 1 + (int) (student % 5));
+                    // La mitad de los estudiantes cambia de opinión
+                    if (student % 2 == 0) {
+                        ratings.submit(student, 5);
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        int total = threads * perThread;
+        long expectedSum = 0;
+        long[] expectedHistogram = new long[5];
+        for (long student = 0; student < total; student++) {
+            int stars = student % 2 == 0 ? 5 : 1 + (int) (student % 5);
+            expectedSum += stars;
+            expectedHistogram[stars - 1]++;
+        }
+        assertEquals(total, ratings.getCount());
+        assertEquals((double) expectedSum / total, ratings.getMean(), 1e-9);
+        assertArrayEquals(expectedHistogram, ratings.getHistogram());
+    }
+}
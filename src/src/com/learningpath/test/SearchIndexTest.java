@@ -0,0 +1,43 @@
+package src.com.learningpath.test;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.QueryService;
+import src.com.learningpath.activities.Activity;
+import src.com.learningpath.activities.ResourceReview;
+import src.com.learningpath.users.Teacher;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+public class SearchIndexTest {
+
+    @Test
+    public void testSearchRanksMatchingPaths() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        QueryService queries = new QueryService();
+        LearningPath graphs = new LearningPath("Grafos y Árboles", "Recorridos en grafos", "Entender BFS", 2, teacher);
+        LearningPath sorting = new LearningPath("Ordenamiento", "Algoritmos de ordenamiento", "Entender quicksort", 2, teacher);
+        Activity review = new ResourceReview("Árboles de búsqueda", "Leer sobre árboles", "Entender árboles", 2, 30, true, "http://example.com/bst");
+        sorting.addActivity(review);
+        queries.addLearningPath(graphs);
+        queries.addLearningPath(sorting);
+        for (int i = 0; i < 100; i++) {
+            queries.addLearningPath(new LearningPath("Curso " + i, "Introducción a Java", "Aprender Java", 1, teacher));
+        }
+
+        // Sin tildes ni mayúsculas; el título pesa más que las actividades
+        assertEquals(List.of(graphs, sorting), queries.search("arboles", 10));
+        // Todos los términos deben aparecer
+        assertEquals(List.of(sorting), queries.search("árboles quicksort", 10));
+        assertTrue(queries.search("árboles cocina", 10).isEmpty());
+        assertEquals(3, queries.search("java", 3).size());
+        // Términos frecuentes: intersección con bitsets
+        assertEquals(100, queries.search("aprender java", 200).size());
+
+        // Los Learning Paths nuevos se pueden buscar en cuanto se añaden
+        LearningPath copy = new LearningPath(sorting, teacher);
+        queries.addLearningPath(copy);
+        assertTrue(queries.search("quicksort", 10).contains(copy));
+    }
+}
@@ -0,0 +1,106 @@
+package src.com.learningpath.test;
+
+import src.com.learningpath.LearningPath;
+import src.com.learningpath.TitleAutocomplete;
+import src.com.learningpath.activities.Activity;
+import src.com.learningpath.activities.ResourceReview;
+import src.com.learningpath.users.Teacher;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class TitleAutocompleteTest {
+
+    private static final String[] WORDS = {"Java", "Javascript", "Álgebra", "algoritmos", "Árboles", "bases", "datos"};
+
+    @Test
+    public void testCompletionsMatchFilteredTitles() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        TitleAutocomplete titles = new TitleAutocomplete();
+        Random random = new Random(7);
+        List<LearningPath> paths = new ArrayList<>();
+        List<Integer> enrollments = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            LearningPath lp = new LearningPath(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i,
+                    "Description", "Objectives", 1, teacher);
+            lp.addActivity(new ResourceReview(WORDS[random.nextInt(WORDS.length)] + " práctica " + i, "Read", "Learn", 1, 30, true, "http://example.com"));
+            titles.add(lp);
+            int count = random.nextInt(20);
+            for (int e = 0; e < count; e++) {
+                titles.enrolled(lp);
+            }
+            paths.add(lp);
+            enrollments.add(count);
+        }
+        assertEquals(600, titles.size());
+
+        for (String prefix : new String[]{"java", "ALGE", "arb", "algoritmos j", "x"}) {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < paths.size(); i++) {
+                LearningPath lp = paths.get(i);
+                if (startsWith(lp.getTitle(), prefix)) {
+                    expected.add(enrollments.get(i));
+                }
+                for (Activity activity : lp.getActivities()) {
+                    if (startsWith(activity.getTitle(), prefix)) {
+                        expected.add(enrollments.get(i));
+                    }
+                }
+            }
+            expected.sort((a, b) -> Integer.compare(b, a));
+            expected = expected.subList(0, Math.min(10, expected.size()));
+            List<TitleAutocomplete.Suggestion> suggestions = titles.complete(prefix, 10);
+            assertEquals(expected, suggestions.stream().map(TitleAutocomplete.Suggestion::getEnrollments)
+                    .collect(Collectors.toList()), prefix);
+            for (TitleAutocomplete.Suggestion suggestion : suggestions) {
+                assertTrue(startsWith(suggestion.getTitle(), prefix), suggestion.getTitle());
+            }
+        }
+    }
+
+    @Test
+    public void testFollowsEnrollmentsAndActivities() {
+        Teacher teacher = new Teacher("jdoe", "password123", "John Doe");
+        TitleAutocomplete titles = new TitleAutocomplete();
+        LearningPath.addListener(titles);
+        try {
+            LearningPath basics = new LearningPath("Introducción a Java", "Description", "Objectives", 1, teacher);
+            LearningPath advanced = new LearningPath("Introducción a la concurrencia", "Description", "Objectives", 3, teacher);
+            titles.add(basics);
+            titles.add(advanced);
+            titles.enrolled(advanced);
+            assertEquals(advanced, titles.complete("intro", 1).get(0).getLearningPath());
+
+            titles.enrolled(basics);
+            titles.enrolled(basics);
+            List<TitleAutocomplete.Suggestion> suggestions = titles.complete("Introduccion", 5);
+            assertEquals(2, suggestions.size());
+            assertEquals(basics, suggestions.get(0).getLearningPath());
+            assertEquals(2, suggestions.get(0).getEnrollments());
+
+            ResourceReview review = new ResourceReview("Introducción a los hilos", "Read", "Learn", 1, 30, true, "http://example.com");
+            advanced.addActivity(review);
+            suggestions = titles.complete("introduccion a", 5);
+            assertEquals(3, suggestions.size());
+            assertEquals(review, suggestions.get(2).getActivity());
+
+            advanced.removeActivity(review);
+            assertEquals(2, titles.complete("introduccion a", 5).size());
+            assertTrue(titles.complete("introducción al", 5).isEmpty());
+        } finally {
+            LearningPath.removeListener(titles);
+        }
+    }
+
+    private static boolean startsWith(String title, String prefix) {
+        return strip(title).startsWith(strip(prefix));
+    }
+
+    private static String strip(String text) {
+        return java.text.Normalizer.normalize(text.toLowerCase(), java.text.Normalizer.Form.NFD).replaceAll("\\p{Mn}", "");
+    }
+}
@@ -0,0 +1,59 @@
+package src.com.learningpath.test;
+
+import src.com.learningpath.users.Student;
+import src.com.learningpath.users.Teacher;
+import src.com.learningpath.users.UserDirectory;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class UserDirectoryTest {
+
+    @Test
+    public void testLoginAndRegistration() {
+        UserDirectory directory = new UserDirectory(List.of(new Teacher("prof123", "securePass", "Prof. John")));
+
+        assertNotNull(directory.authenticate("prof123", "securePass"));
+        assertNull(directory.authenticate("prof123", "wrongPass"));
+        assertNull(directory.authenticate("nobody", "securePass"));
+        assertTrue(directory.isTaken("prof123"));
+        assertFalse(directory.isTaken("stud456"));
+
+        assertTrue(directory.register(new Student("stud456", "pass123", "Student Mary")));
+        assertFalse(directory.register(new Student("stud456", "other", "Other Mary")));
+        assertEquals("Student Mary", directory.authenticate("stud456", "pass123").getName());
+        assertEquals(2, directory.getUsers().size());
+    }
+
+    @Test
+    public void testConcurrentRegistrationRegistersEachUsernameOnce() throws Exception {
+        UserDirectory directory = new UserDirectory(new ArrayList<>());
+        int names = 5000;
+        AtomicInteger registered = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < names; i++) {
+                    if (directory.register(new Student("user" + i, "pass", "User " + i))) {
+                        registered.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Cada nombre se registra una vez, y el filtro reconstruido no pierde ninguno
+        assertEquals(names, registered.get());
+        assertEquals(names, directory.size());
+        for (int i = 0; i < names; i++) {
+            assertTrue(directory.isTaken("user" + i));
+        }
+    }
+}
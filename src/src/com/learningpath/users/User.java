@@ -1,17 +1,23 @@
 package src.com.learningpath.users;
 
+import src.com.learningpath.DirtyTracked;
+import src.com.learningpath.IdGenerator;
+
 import java.io.Serializable;
 
 /**
  * Clase abstracta que representa a un usuario en el sistema.
  */
-public abstract class User implements Serializable {
+public abstract class User implements Serializable, DirtyTracked {
     private static final long serialVersionUID = 1L;
 
+    protected long id;
     protected String username;
     protected String password;
     protected String name;
     protected Role role;
+    // Un usuario nuevo aún no se ha guardado
+    private transient volatile boolean dirty = true;
 
     /**
      * Constructor para crear un usuario.
@@ -22,6 +28,7 @@ public abstract class User implements Serializable {
      * @param role     Rol del usuario.
      */
     public User(String username, String password, String name, Role role) {
+        this.id = IdGenerator.next();
         this.username = username;
         this.password = password;
         this.name = name;
@@ -30,6 +37,30 @@ public abstract class User implements Serializable {
 
     // Getters y Setters
 
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+        this.dirty = true;
+    }
+
+    @Override
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    @Override
+    public void markDirty() {
+        dirty = true;
+    }
+
+    @Override
+    public void markClean() {
+        dirty = false;
+    }
+
     public String getUsername() {
         return username;
     }
@@ -42,6 +73,15 @@ public abstract class User implements Serializable {
         return role;
     }
 
+    /**
+     * Obtiene la contraseña. Usado únicamente por la capa de persistencia.
+     *
+     * @return La contraseña.
+     */
+    public String getPassword() {
+        return password;
+    }
+
     /**
      * Método para autenticar al usuario.
      *
@@ -0,0 +1,146 @@
+package src.com.learningpath.users;
+
+import src.com.learningpath.util.BloomFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Directorio de usuarios indexado por nombre de usuario. Las búsquedas para iniciar sesión y
+ * comprobar si un nombre está ocupado son O(1) y pueden hacerse desde varios hilos.
+ *
+ * El índice es un {@link ConcurrentHashMap}; delante hay un {@link BloomFilter} que descarta sin
+ * consultar el mapa los nombres que seguro no existen (el caso habitual al registrarse). El
+ * registro es atómico: si dos hilos registran el mismo nombre a la vez, solo uno lo consigue.
+ *
+ * El directorio también mantiene la lista de usuarios que se entrega a la capa de persistencia
+ * (ver {@link #getUsers()}).
+ */
+public class UserDirectory {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_CAPACITY = 1024;
+
+    private final ConcurrentHashMap<String, User> byUsername;
+    private final List<User> users;
+    // El filtro se reconstruye al doble de capacidad cuando se llena
+    private final Object filterLock = new Object();
+    private volatile BloomFilter usernames;
+    private int filterCapacity;
+
+    /**
+     * Construye el directorio con los usuarios cargados.
+     *
+     * @param loaded Los usuarios cargados. Si un nombre de usuario se repite, se usa el primero.
+     */
+    public UserDirectory(List<User> loaded) {
+        this.users = new ArrayList<>(loaded);
+        this.byUsername = new ConcurrentHashMap<>(Math.max(16, (int) (loaded.size() / 0.75f) + 1));
+        this.filterCapacity = Math.max(MIN_CAPACITY, loaded.size() * 2);
+        BloomFilter filter = new BloomFilter(filterCapacity, FALSE_POSITIVE_RATE);
+        // Una sola pasada sobre los usuarios cargados
+        for (User user : loaded) {
+            if (byUsername.putIfAbsent(user.getUsername(), user) == null) {
+                filter.add(user.getUsername());
+            }
+        }
+        this.usernames = filter;
+    }
+
+    /**
+     * Reconstruye el filtro con todos los nombres del índice. Se llama con filterLock tomado,
+     * así que ninguna alta puede quedar fuera del filtro nuevo.
+     */
+    private void rebuildFilter(int capacity) {
+        BloomFilter filter = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        for (String username : byUsername.keySet()) {
+            filter.add(username);
+        }
+        filterCapacity = capacity;
+        usernames = filter;
+    }
+
+    /**
+     * Busca un usuario por su nombre de usuario.
+     *
+     * @param username El nombre de usuario.
+     * @return El usuario, o null si no existe.
+     */
+    public User find(String username) {
+        if (username == null || !usernames.mightContain(username)) {
+            return null;
+        }
+        return byUsername.get(username);
+    }
+
+    /**
+     * Indica si un nombre de usuario ya está registrado.
+     *
+     * @param username El nombre de usuario.
+     * @return True si está ocupado.
+     */
+    public boolean isTaken(String username) {
+        return find(username) != null;
+    }
+
+    /**
+     * Comprueba las credenciales de un usuario.
+     *
+     * @param username El nombre de usuario.
+     * @param password La contraseña.
+     * @return El usuario si las credenciales son correctas, o null en caso contrario.
+     */
+    public User authenticate(String username, String password) {
+        User user = find(username);
+        return user != null && user.authenticate(password) ? user : null;
+    }
+
+    /**
+     * Registra un usuario nuevo si su nombre de usuario está libre.
+     *
+     * @param user El usuario.
+     * @return True si se registró; false si el nombre ya estaba ocupado.
+     */
+    public boolean register(User user) {
+        if (byUsername.putIfAbsent(user.getUsername(), user) != null) {
+            return false;
+        }
+        synchronized (filterLock) {
+            usernames.add(user.getUsername());
+        }
+        int size;
+        synchronized (users) {
+            users.add(user);
+            size = users.size();
+        }
+        synchronized (filterLock) {
+            if (size > filterCapacity) {
+                rebuildFilter(filterCapacity * 2);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Número de usuarios registrados.
+     *
+     * @return El número de usuarios.
+     */
+    public int size() {
+        synchronized (users) {
+            return users.size();
+        }
+    }
+
+    /**
+     * Copia de la lista de usuarios, en orden de registro, para guardarla.
+     *
+     * @return Los usuarios.
+     */
+    public List<User> getUsers() {
+        synchronized (users) {
+            return new ArrayList<>(users);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package src.com.learningpath.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom: indica si una clave puede estar en un conjunto, sin falsos negativos
+ * y con una tasa de falsos positivos configurable. Usa doble hashing sobre un hash de 64 bits.
+ * Se puede usar desde varios hilos: los bits se actualizan de forma atómica, así que una
+ * clave añadida nunca se pierde y es visible para las consultas posteriores.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashCount;
+
+    /**
+     * Crea un filtro dimensionado para el número de claves y la tasa de falsos positivos indicados.
+     *
+     * @param expectedInsertions Número de claves esperado.
+     * @param falsePositiveRate  Tasa de falsos positivos deseada (entre 0 y 1).
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(1, expectedInsertions);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, Math.min(m, Integer.MAX_VALUE - 63L));
+        this.bits = new AtomicLongArray((int) ((m + 63) / 64));
+        this.bitCount = bits.length() * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    private BloomFilter(AtomicLongArray bits, int hashCount) {
+        this.bits = bits;
+        this.bitCount = bits.length() * 64;
+        this.hashCount = hashCount;
+    }
+
+    public void add(byte[] key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+            long mask = 1L << bit;
+            int word = bit >>> 6;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    public void add(String key) {
+        add(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Indica si la clave puede estar en el conjunto.
+     *
+     * @param key La clave.
+     * @return False si la clave seguro no está; true si puede estar.
+     */
+    public boolean mightContain(byte[] key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean mightContain(String key) {
+        return mightContain(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hash FNV-1a de 64 bits seguido de una mezcla final para repartir mejor los bits.
+     */
+    private static long hash(byte[] key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(hashCount);
+        out.writeInt(bits.length());
+        for (int i = 0; i < bits.length(); i++) {
+            out.writeLong(bits.get(i));
+        }
+    }
+
+    public static BloomFilter readFrom(DataInput in) throws IOException {
+        int hashCount = in.readInt();
+        int length = in.readInt();
+        if (hashCount < 1 || length < 1) {
+            throw new IOException("Filtro de Bloom inválido");
+        }
+        AtomicLongArray bits = new AtomicLongArray(length);
+        for (int i = 0; i < length; i++) {
+            bits.set(i, in.readLong());
+        }
+        return new BloomFilter(bits, hashCount);
+    }
+}